@@ -1,6 +1,8 @@
 package net.chazzvader.core.generic;
 
 import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.engine.mesh.VertexLayout;
+import net.chazzvader.core.generic.engine.render.ShadowAtlas;
 
 /**
  * A class containing a bunch of static configuration details
@@ -244,6 +246,97 @@ public class Configuration {
 		Configuration.renderOverride = renderOverride;
 	}
 
+	/* Meshes */
+
+	private static VertexLayout vertexLayout = VertexLayout.EXACT;
+
+	/**
+	 * Gets how the vertices of meshes are stored on the graphics card.
+	 * 
+	 * @return The vertex layout.
+	 */
+	public static VertexLayout getVertexLayout() {
+		return vertexLayout;
+	}
+
+	/**
+	 * Sets how the vertices of meshes are stored on the graphics card. Only
+	 * changes meshes uploaded after this is called.
+	 * {@link VertexLayout#COMPACT} uses about a third of the memory of the
+	 * default, {@link VertexLayout#EXACT}.
+	 * 
+	 * @param vertexLayout The vertex layout to set.
+	 */
+	public static void setVertexLayout(VertexLayout vertexLayout) {
+		Configuration.vertexLayout = vertexLayout;
+	}
+
+	/* Shadows */
+
+	private static int shadowPageSize = 4096;
+	private static int shadowMaxPages = 4;
+	private static int shadowMaxTile = 1024;
+	private static int shadowMinTile = 64;
+
+	/**
+	 * Gets the width and height of a page of the shadow atlas.
+	 * 
+	 * @return The size in texels.
+	 */
+	public static int getShadowPageSize() {
+		return shadowPageSize;
+	}
+
+	/**
+	 * Gets the most pages the shadow atlas can use.
+	 * 
+	 * @return The amount of pages.
+	 */
+	public static int getShadowMaxPages() {
+		return shadowMaxPages;
+	}
+
+	/**
+	 * Gets the biggest shadow tile, used for the faces of the most important
+	 * lights.
+	 * 
+	 * @return The size in texels.
+	 */
+	public static int getShadowMaxTile() {
+		return shadowMaxTile;
+	}
+
+	/**
+	 * Gets the smallest shadow tile, used for the faces of the least important
+	 * lights that still have a shadow.
+	 * 
+	 * @return The size in texels.
+	 */
+	public static int getShadowMinTile() {
+		return shadowMinTile;
+	}
+
+	/**
+	 * Sets the sizes of the shadow atlas, see {@link ShadowAtlas}. The most memory
+	 * shadows can use is <code>pageSize * pageSize * maxPages</code> depth texels,
+	 * but only the pages the lights need are made. The atlas is made again on the
+	 * next frame, so every shadow is drawn again.
+	 * 
+	 * @param pageSize The width and height of a page.
+	 * @param maxPages The most pages that can be used.
+	 * @param maxTile  The biggest tile size.
+	 * @param minTile  The smallest tile size.
+	 * @throws IllegalArgumentException If the sizes can't be used.
+	 * @see ShadowAtlas#check(int, int, int, int)
+	 */
+	public static void setShadowAtlas(int pageSize, int maxPages, int maxTile, int minTile) {
+		ShadowAtlas.check(pageSize, maxPages, maxTile, minTile);
+		Configuration.shadowPageSize = pageSize;
+		Configuration.shadowMaxPages = maxPages;
+		Configuration.shadowMaxTile = maxTile;
+		Configuration.shadowMinTile = minTile;
+	}
+
 	/* VARIOUS */
 
 	/**
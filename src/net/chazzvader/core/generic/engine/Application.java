@@ -1,8 +1,11 @@
 package net.chazzvader.core.generic.engine;
 
+import java.util.ArrayList;
+
 import net.chazzvader.core.generic.Logging;
 import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.render.RenderPipeline;
+import net.chazzvader.core.generic.engine.ui.UIRenderer;
 
 /**
  * Represents an application, your main class will extend this
@@ -17,6 +20,7 @@ public abstract class Application {
 	private boolean started;
 	private static Application instance;
 	private Scene activeScene = new Scene();
+	private final ArrayList<UIRenderer> uiRenderers = new ArrayList<UIRenderer>();
 
 	/**
 	 * Gets the active scene
@@ -133,11 +137,40 @@ public abstract class Application {
 	private void _render() {
 		RenderPipeline pipeline = window.getRenderPipeline();
 		pipeline.preRender(window, this);
+		for (int i = 0; i < uiRenderers.size(); i++) {
+			uiRenderers.get(i).startFrame();
+		}
 		renderUI();
+		// Ended inside the ui pass, so batched text is drawn where it was put in the ui
+		for (int i = 0; i < uiRenderers.size(); i++) {
+			uiRenderers.get(i).endFrame();
+		}
 		pipeline.render(window, this, activeScene);
 		pipeline.postRender(window, this);
 	}
 
+	/**
+	 * Adds a UI renderer to have its frames started and ended around
+	 * {@link #renderUI()}. UI renderers add themselves when they are made.
+	 * 
+	 * @param renderer The UI renderer.
+	 */
+	public void addUIRenderer(UIRenderer renderer) {
+		if (!uiRenderers.contains(renderer)) {
+			uiRenderers.add(renderer);
+		}
+	}
+
+	/**
+	 * Stops starting and ending the frames of a UI renderer, for when it won't be
+	 * used anymore.
+	 * 
+	 * @param renderer The UI renderer.
+	 */
+	public void removeUIRenderer(UIRenderer renderer) {
+		uiRenderers.remove(renderer);
+	}
+
 	/**
 	 * Update wrapper function, to poll events and stuff
 	 * 
@@ -0,0 +1,1060 @@
+package net.chazzvader.core.generic.engine;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.math.Bounds;
+import net.chazzvader.core.generic.math.Frustum;
+
+/**
+ * A dynamic bounding volume hierarchy, a tree of axis aligned boxes that
+ * answers "what is in this area" questions without looking at every item.<br>
+ * <br>
+ * Every item is a leaf with a slightly enlarged ("fat") box, so small movements
+ * don't touch the tree at all. Items that move out of their fat box are only
+ * recorded by {@link #move(int, float, float, float, float, float, float)}, and
+ * the tree is fixed up on the next {@link #update()}: a few moved items are
+ * removed and reinserted, many moved items are handled with one refit of every
+ * box followed by a full surface area heuristic rebuild if the tree got too
+ * much worse. Queries only see moves after the update.<br>
+ * <br>
+ * The nodes are kept in flat arrays, and a handle returned by
+ * {@link #insert(Object, float, float, float, float, float, float)} stays the
+ * same until the item is removed. Queries call a visitor and allocate nothing.
+ * The tree is not thread safe, and must not be changed from inside a visitor.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ * @param <T> The type of the items in the tree.
+ */
+public class BoundingVolumeHierarchy<T> {
+
+	/**
+	 * Visits the items found by a query.
+	 *
+	 * @param <T> The type of the items in the tree.
+	 */
+	public interface Visitor<T> {
+
+		/**
+		 * Called for every item found.
+		 *
+		 * @param item   The item.
+		 * @param handle The handle of the item.
+		 * @return True to keep going, false to stop the query.
+		 */
+		public boolean visit(T item, int handle);
+
+	}
+
+	/**
+	 * Visits the items whose boxes a ray passes through, roughly nearest first.
+	 *
+	 * @param <T> The type of the items in the tree.
+	 */
+	public interface RayVisitor<T> {
+
+		/**
+		 * Called for every item whose box the ray passes through before the current
+		 * maximum distance.
+		 *
+		 * @param item        The item.
+		 * @param handle      The handle of the item.
+		 * @param maxDistance The current maximum distance along the ray.
+		 * @return The new maximum distance, the distance of a hit to only look for
+		 *         nearer ones, <code>maxDistance</code> to keep going unchanged, or
+		 *         0 to stop.
+		 */
+		public float visit(T item, int handle, float maxDistance);
+
+	}
+
+	private static final int NULL = -1;
+	private static final int BINS = 16;
+
+	private int capacity = 0;
+	private float[] boxes = new float[0];
+	private int[] parents = new int[0];
+	private int[] lefts = new int[0];
+	private int[] rights = new int[0];
+	private int[] heights = new int[0];
+	private Object[] items = new Object[0];
+
+	private int root = NULL;
+	private int free = NULL;
+	private int leafCount = 0;
+
+	private int[] moved = new int[16];
+	private boolean[] isMoved = new boolean[0];
+	private int movedCount = 0;
+
+	private float margin;
+	private float rebuildThreshold = 1.5f;
+	private float builtCost = 0;
+	private int rebuilds = 0;
+
+	private int[] stack = new int[64];
+	private int[] masks = new int[64];
+	private float[] distances = new float[64];
+	private int[] scratch = new int[0];
+	private float[] binBoxes = new float[BINS * 6];
+	private int[] binCounts = new int[BINS];
+	private float[] rightAreas = new float[BINS];
+
+	/**
+	 * Creates an empty tree with a margin of 0.1.
+	 */
+	public BoundingVolumeHierarchy() {
+		this(0.1f);
+	}
+
+	/**
+	 * Creates an empty tree.
+	 *
+	 * @param margin How much the box of every item is grown by on every side, so
+	 *               small movements don't have to change the tree.
+	 */
+	public BoundingVolumeHierarchy(float margin) {
+		this.margin = margin;
+		grow(16);
+	}
+
+	/**
+	 * Adds an item to the tree.
+	 *
+	 * @param item The item.
+	 * @param minX The minimum x of the box of the item.
+	 * @param minY The minimum y of the box of the item.
+	 * @param minZ The minimum z of the box of the item.
+	 * @param maxX The maximum x of the box of the item.
+	 * @param maxY The maximum y of the box of the item.
+	 * @param maxZ The maximum z of the box of the item.
+	 * @return The handle of the item, used to move and remove it, or -1 if the
+	 *         item is null.
+	 */
+	public int insert(T item, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		if (item == null) {
+			Logging.log("Can't insert a null item", "Bounding Volume Hierarchy", LoggingLevel.ERR);
+			return NULL;
+		}
+		int leaf = allocateNode();
+		setFat(leaf, minX, minY, minZ, maxX, maxY, maxZ);
+		items[leaf] = item;
+		heights[leaf] = 0;
+		insertLeaf(leaf);
+		leafCount++;
+		return leaf;
+	}
+
+	/**
+	 * Adds an item to the tree.
+	 *
+	 * @param item   The item.
+	 * @param bounds The box of the item.
+	 * @return The handle of the item, used to move and remove it.
+	 */
+	public int insert(T item, Bounds bounds) {
+		return insert(item, bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ);
+	}
+
+	/**
+	 * Removes an item from the tree. The handle must not be used again.
+	 *
+	 * @param handle The handle of the item.
+	 */
+	public void remove(int handle) {
+		if (!isLeaf(handle)) {
+			Logging.log("Removing invalid handle " + handle, "Bounding Volume Hierarchy", LoggingLevel.ERR);
+			return;
+		}
+		if (isMoved[handle]) {
+			for (int i = 0; i < movedCount; i++) {
+				if (moved[i] == handle) {
+					moved[i] = moved[--movedCount];
+					break;
+				}
+			}
+			isMoved[handle] = false;
+		}
+		removeLeaf(handle);
+		freeNode(handle);
+		leafCount--;
+	}
+
+	/**
+	 * Tells the tree an item moved. Nothing happens if the new box still fits in
+	 * the fat box of the item, otherwise the fat box is changed and the tree is
+	 * fixed on the next {@link #update()}.
+	 *
+	 * @param handle The handle of the item.
+	 * @param minX   The new minimum x of the box of the item.
+	 * @param minY   The new minimum y of the box of the item.
+	 * @param minZ   The new minimum z of the box of the item.
+	 * @param maxX   The new maximum x of the box of the item.
+	 * @param maxY   The new maximum y of the box of the item.
+	 * @param maxZ   The new maximum z of the box of the item.
+	 * @return True if the tree has to change.
+	 */
+	public boolean move(int handle, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		if (!isLeaf(handle)) {
+			Logging.log("Moving invalid handle " + handle, "Bounding Volume Hierarchy", LoggingLevel.ERR);
+			return false;
+		}
+		float[] b = boxes;
+		int o = handle * 6;
+		if (b[o] <= minX && b[o + 1] <= minY && b[o + 2] <= minZ && b[o + 3] >= maxX && b[o + 4] >= maxY
+				&& b[o + 5] >= maxZ) {
+			return false;
+		}
+		setFat(handle, minX, minY, minZ, maxX, maxY, maxZ);
+		if (!isMoved[handle]) {
+			if (movedCount == moved.length) {
+				moved = Arrays.copyOf(moved, moved.length * 2);
+			}
+			moved[movedCount++] = handle;
+			isMoved[handle] = true;
+		}
+		return true;
+	}
+
+	/**
+	 * Tells the tree an item moved.
+	 *
+	 * @param handle The handle of the item.
+	 * @param bounds The new box of the item.
+	 * @return True if the tree has to change.
+	 * @see #move(int, float, float, float, float, float, float)
+	 */
+	public boolean move(int handle, Bounds bounds) {
+		return move(handle, bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ);
+	}
+
+	/**
+	 * Fixes the tree after items moved. If only a few items moved, they are
+	 * removed and reinserted. Otherwise every box is refit in one pass, and if
+	 * that made the tree more than the rebuild threshold worse than it was after
+	 * the last build, it is rebuilt from scratch.
+	 *
+	 * @see #setRebuildThreshold(float)
+	 */
+	public void update() {
+		if (movedCount == 0) {
+			return;
+		}
+		if (movedCount * 8 < leafCount) {
+			for (int i = 0; i < movedCount; i++) {
+				int leaf = moved[i];
+				isMoved[leaf] = false;
+				removeLeaf(leaf);
+				insertLeaf(leaf);
+			}
+			movedCount = 0;
+			return;
+		}
+		for (int i = 0; i < movedCount; i++) {
+			isMoved[moved[i]] = false;
+		}
+		movedCount = 0;
+		float cost = refit();
+		if (cost > builtCost * rebuildThreshold) {
+			rebuild();
+		}
+	}
+
+	/**
+	 * Rebuilds the whole tree from scratch with a binned surface area heuristic.
+	 * Slower than the incremental updates, but gives a much better tree, so it is
+	 * worth calling after adding a lot of items at once. Handles stay the same.
+	 */
+	public void rebuild() {
+		for (int i = 0; i < movedCount; i++) {
+			isMoved[moved[i]] = false;
+		}
+		movedCount = 0;
+		if (root == NULL) {
+			builtCost = 0;
+			return;
+		}
+		if (scratch.length < leafCount) {
+			scratch = new int[capacity];
+		}
+		int count = 0;
+		int top = 0;
+		ensureStack(capacity);
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			if (isLeafNode(node)) {
+				scratch[count++] = node;
+			} else {
+				stack[top++] = lefts[node];
+				stack[top++] = rights[node];
+				freeNode(node);
+			}
+		}
+		root = build(scratch, 0, count);
+		parents[root] = NULL;
+		builtCost = cost();
+		rebuilds++;
+	}
+
+	/**
+	 * Finds every item whose box touches a frustum. Boxes completely inside the
+	 * frustum have their whole subtree visited without any more tests.
+	 *
+	 * @param frustum The frustum.
+	 * @param visitor Called for every item found.
+	 */
+	public void queryFrustum(Frustum frustum, Visitor<? super T> visitor) {
+		if (root == NULL) {
+			return;
+		}
+		float[] p = frustum.planes;
+		float[] b = boxes;
+		ensureStack(heights[root] + 2);
+		int top = 0;
+		stack[top] = root;
+		masks[top++] = 0b111111;
+		while (top > 0) {
+			top--;
+			int node = stack[top];
+			int mask = masks[top];
+			if (mask != 0) {
+				int o = node * 6;
+				boolean outside = false;
+				for (int i = 0; i < 6; i++) {
+					int bit = 1 << i;
+					if ((mask & bit) == 0) {
+						continue;
+					}
+					int pi = i * 4;
+					float a = p[pi], c1 = p[pi + 1], c2 = p[pi + 2], d = p[pi + 3];
+					float px = a >= 0 ? b[o + 3] : b[o], nx = a >= 0 ? b[o] : b[o + 3];
+					float py = c1 >= 0 ? b[o + 4] : b[o + 1], ny = c1 >= 0 ? b[o + 1] : b[o + 4];
+					float pz = c2 >= 0 ? b[o + 5] : b[o + 2], nz = c2 >= 0 ? b[o + 2] : b[o + 5];
+					if (a * px + c1 * py + c2 * pz + d < 0) {
+						outside = true;
+						break;
+					}
+					if (a * nx + c1 * ny + c2 * nz + d >= 0) {
+						mask &= ~bit;
+					}
+				}
+				if (outside) {
+					continue;
+				}
+			}
+			if (isLeafNode(node)) {
+				if (!visitor.visit(item(node), node)) {
+					return;
+				}
+			} else {
+				stack[top] = lefts[node];
+				masks[top++] = mask;
+				stack[top] = rights[node];
+				masks[top++] = mask;
+			}
+		}
+	}
+
+	/**
+	 * Finds every item whose box touches a sphere.
+	 *
+	 * @param x       The x position of the center of the sphere.
+	 * @param y       The y position of the center of the sphere.
+	 * @param z       The z position of the center of the sphere.
+	 * @param radius  The radius of the sphere.
+	 * @param visitor Called for every item found.
+	 */
+	public void querySphere(float x, float y, float z, float radius, Visitor<? super T> visitor) {
+		if (root == NULL) {
+			return;
+		}
+		float[] b = boxes;
+		float radiusSquared = radius * radius;
+		ensureStack(heights[root] + 2);
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			int o = node * 6;
+			float dx = Math.max(Math.max(b[o] - x, x - b[o + 3]), 0);
+			float dy = Math.max(Math.max(b[o + 1] - y, y - b[o + 4]), 0);
+			float dz = Math.max(Math.max(b[o + 2] - z, z - b[o + 5]), 0);
+			if (dx * dx + dy * dy + dz * dz > radiusSquared) {
+				continue;
+			}
+			if (isLeafNode(node)) {
+				if (!visitor.visit(item(node), node)) {
+					return;
+				}
+			} else {
+				stack[top++] = lefts[node];
+				stack[top++] = rights[node];
+			}
+		}
+	}
+
+	/**
+	 * Finds every item whose box touches another box.
+	 *
+	 * @param minX    The minimum x of the box.
+	 * @param minY    The minimum y of the box.
+	 * @param minZ    The minimum z of the box.
+	 * @param maxX    The maximum x of the box.
+	 * @param maxY    The maximum y of the box.
+	 * @param maxZ    The maximum z of the box.
+	 * @param visitor Called for every item found.
+	 */
+	public void queryBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+			Visitor<? super T> visitor) {
+		if (root == NULL) {
+			return;
+		}
+		float[] b = boxes;
+		ensureStack(heights[root] + 2);
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			int o = node * 6;
+			if (b[o] > maxX || b[o + 1] > maxY || b[o + 2] > maxZ || b[o + 3] < minX || b[o + 4] < minY
+					|| b[o + 5] < minZ) {
+				continue;
+			}
+			if (isLeafNode(node)) {
+				if (!visitor.visit(item(node), node)) {
+					return;
+				}
+			} else {
+				stack[top++] = lefts[node];
+				stack[top++] = rights[node];
+			}
+		}
+	}
+
+	/**
+	 * Finds every item whose box touches another box.
+	 *
+	 * @param bounds  The box.
+	 * @param visitor Called for every item found.
+	 */
+	public void queryBox(Bounds bounds, Visitor<? super T> visitor) {
+		queryBox(bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ, visitor);
+	}
+
+	/**
+	 * Finds the items whose boxes a ray passes through. Nearer children are
+	 * visited first, and anything past the maximum distance, which the visitor
+	 * can shrink as it finds hits, is skipped. The direction doesn't have to be
+	 * normalized, distances are measured in lengths of it.
+	 *
+	 * @param ox          The x position of the start of the ray.
+	 * @param oy          The y position of the start of the ray.
+	 * @param oz          The z position of the start of the ray.
+	 * @param dx          The x direction of the ray.
+	 * @param dy          The y direction of the ray.
+	 * @param dz          The z direction of the ray.
+	 * @param maxDistance How far along the ray to look.
+	 * @param visitor     Called for every item found.
+	 */
+	public void raycast(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance,
+			RayVisitor<? super T> visitor) {
+		if (root == NULL) {
+			return;
+		}
+		float ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+		float max = maxDistance;
+		ensureStack(heights[root] + 2);
+		int top = 0;
+		float entry = slab(root, ox, oy, oz, ix, iy, iz, max);
+		if (entry < 0) {
+			return;
+		}
+		stack[top] = root;
+		distances[top++] = entry;
+		while (top > 0) {
+			top--;
+			int node = stack[top];
+			if (distances[top] > max) {
+				continue;
+			}
+			if (isLeafNode(node)) {
+				max = Math.min(max, visitor.visit(item(node), node, max));
+				if (max <= 0) {
+					return;
+				}
+				continue;
+			}
+			int left = lefts[node], right = rights[node];
+			float leftEntry = slab(left, ox, oy, oz, ix, iy, iz, max);
+			float rightEntry = slab(right, ox, oy, oz, ix, iy, iz, max);
+			if (leftEntry > rightEntry) {
+				int swap = left;
+				left = right;
+				right = swap;
+				float swapEntry = leftEntry;
+				leftEntry = rightEntry;
+				rightEntry = swapEntry;
+			}
+			// Push the further child first so the nearer one is popped first
+			if (rightEntry >= 0) {
+				stack[top] = right;
+				distances[top++] = rightEntry;
+			}
+			if (leftEntry >= 0) {
+				stack[top] = left;
+				distances[top++] = leftEntry;
+			}
+		}
+	}
+
+	/**
+	 * The distance along the ray the box of a node is entered at, 0 if the ray
+	 * starts inside it, or -1 if it is missed or entered past the maximum.
+	 */
+	private float slab(int node, float ox, float oy, float oz, float ix, float iy, float iz, float max) {
+		float[] b = boxes;
+		int o = node * 6;
+		float t1 = (b[o] - ox) * ix, t2 = (b[o + 3] - ox) * ix;
+		float near = Math.min(t1, t2), far = Math.max(t1, t2);
+		t1 = (b[o + 1] - oy) * iy;
+		t2 = (b[o + 4] - oy) * iy;
+		near = Math.max(near, Math.min(t1, t2));
+		far = Math.min(far, Math.max(t1, t2));
+		t1 = (b[o + 2] - oz) * iz;
+		t2 = (b[o + 5] - oz) * iz;
+		near = Math.max(near, Math.min(t1, t2));
+		far = Math.min(far, Math.max(t1, t2));
+		// A zero direction with the start on a face gives NaN, which fails every compare, so the box is kept
+		if (near > far || far < 0 || near > max) {
+			return -1;
+		}
+		return near > 0 ? near : 0;
+	}
+
+	/**
+	 * Gets the item of a handle.
+	 *
+	 * @param handle The handle.
+	 * @return The item.
+	 */
+	public T getItem(int handle) {
+		return isLeaf(handle) ? item(handle) : null;
+	}
+
+	/**
+	 * Gets the fat box of an item, the box that is actually stored in the tree.
+	 *
+	 * @param handle The handle of the item.
+	 * @param copy   A bounds object that is used to avoid calls to new. Any value
+	 *               in it will be overridden.
+	 * @return The fat box of the item.
+	 */
+	public Bounds getFatBounds(int handle, Bounds copy) {
+		copy = copy == null ? new Bounds() : copy;
+		int o = handle * 6;
+		return copy.setBox(boxes[o], boxes[o + 1], boxes[o + 2], boxes[o + 3], boxes[o + 4], boxes[o + 5]);
+	}
+
+	/**
+	 * The surface area heuristic cost of the tree, the total surface area of the
+	 * inner nodes relative to the root. Lower is better.
+	 *
+	 * @return The cost of the tree.
+	 */
+	public float cost() {
+		if (root == NULL || isLeafNode(root)) {
+			return 0;
+		}
+		float total = 0;
+		ensureStack(capacity);
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!isLeafNode(node)) {
+				total += area(node);
+				stack[top++] = lefts[node];
+				stack[top++] = rights[node];
+			}
+		}
+		float rootArea = area(root);
+		return rootArea > 0 ? total / rootArea : 0;
+	}
+
+	/**
+	 * Sets how much worse, as a ratio of {@link #cost()}, a refit tree may get
+	 * before it is rebuilt. The default is 1.5.
+	 *
+	 * @param rebuildThreshold The rebuild threshold.
+	 */
+	public void setRebuildThreshold(float rebuildThreshold) {
+		this.rebuildThreshold = rebuildThreshold;
+	}
+
+	/**
+	 * Gets how much worse a refit tree may get before it is rebuilt.
+	 *
+	 * @return The rebuild threshold.
+	 */
+	public float getRebuildThreshold() {
+		return rebuildThreshold;
+	}
+
+	/**
+	 * The amount of items in the tree.
+	 *
+	 * @return The amount of items.
+	 */
+	public int getCount() {
+		return leafCount;
+	}
+
+	/**
+	 * The height of the tree, 0 if it has one item.
+	 *
+	 * @return The height of the tree, or -1 if it is empty.
+	 */
+	public int getHeight() {
+		return root == NULL ? -1 : heights[root];
+	}
+
+	/**
+	 * The amount of node slots, every handle is less than this.
+	 *
+	 * @return The capacity of the tree.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * The amount of full rebuilds done, by {@link #rebuild()} or by
+	 * {@link #update()}.
+	 *
+	 * @return The amount of rebuilds.
+	 */
+	public int getRebuildCount() {
+		return rebuilds;
+	}
+
+	@SuppressWarnings("unchecked")
+	private T item(int node) {
+		return (T) items[node];
+	}
+
+	private boolean isLeaf(int handle) {
+		return handle >= 0 && handle < capacity && items[handle] != null;
+	}
+
+	private boolean isLeafNode(int node) {
+		return lefts[node] == NULL;
+	}
+
+	private void setFat(int node, float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		int o = node * 6;
+		boxes[o] = minX - margin;
+		boxes[o + 1] = minY - margin;
+		boxes[o + 2] = minZ - margin;
+		boxes[o + 3] = maxX + margin;
+		boxes[o + 4] = maxY + margin;
+		boxes[o + 5] = maxZ + margin;
+	}
+
+	private float area(int node) {
+		int o = node * 6;
+		float x = boxes[o + 3] - boxes[o], y = boxes[o + 4] - boxes[o + 1], z = boxes[o + 5] - boxes[o + 2];
+		return x * y + y * z + z * x;
+	}
+
+	private float unionArea(int a, int b) {
+		int oa = a * 6, ob = b * 6;
+		float[] bx = boxes;
+		float x = Math.max(bx[oa + 3], bx[ob + 3]) - Math.min(bx[oa], bx[ob]);
+		float y = Math.max(bx[oa + 4], bx[ob + 4]) - Math.min(bx[oa + 1], bx[ob + 1]);
+		float z = Math.max(bx[oa + 5], bx[ob + 5]) - Math.min(bx[oa + 2], bx[ob + 2]);
+		return x * y + y * z + z * x;
+	}
+
+	private void union(int node, int a, int b) {
+		int o = node * 6, oa = a * 6, ob = b * 6;
+		float[] bx = boxes;
+		bx[o] = Math.min(bx[oa], bx[ob]);
+		bx[o + 1] = Math.min(bx[oa + 1], bx[ob + 1]);
+		bx[o + 2] = Math.min(bx[oa + 2], bx[ob + 2]);
+		bx[o + 3] = Math.max(bx[oa + 3], bx[ob + 3]);
+		bx[o + 4] = Math.max(bx[oa + 4], bx[ob + 4]);
+		bx[o + 5] = Math.max(bx[oa + 5], bx[ob + 5]);
+	}
+
+	private void fix(int node) {
+		int left = lefts[node], right = rights[node];
+		heights[node] = 1 + Math.max(heights[left], heights[right]);
+		union(node, left, right);
+	}
+
+	private void insertLeaf(int leaf) {
+		if (root == NULL) {
+			root = leaf;
+			parents[leaf] = NULL;
+			return;
+		}
+		// Walk down to the sibling that makes the tree grow the least
+		int index = root;
+		while (!isLeafNode(index)) {
+			int left = lefts[index], right = rights[index];
+			float area = area(index);
+			float combined = unionArea(index, leaf);
+			float cost = 2 * combined;
+			float inheritance = 2 * (combined - area);
+			float leftCost = unionArea(left, leaf) + inheritance;
+			if (!isLeafNode(left)) {
+				leftCost -= area(left);
+			}
+			float rightCost = unionArea(right, leaf) + inheritance;
+			if (!isLeafNode(right)) {
+				rightCost -= area(right);
+			}
+			if (cost < leftCost && cost < rightCost) {
+				break;
+			}
+			index = leftCost < rightCost ? left : right;
+		}
+		int sibling = index;
+		int oldParent = parents[sibling];
+		int newParent = allocateNode();
+		parents[newParent] = oldParent;
+		lefts[newParent] = sibling;
+		rights[newParent] = leaf;
+		parents[sibling] = newParent;
+		parents[leaf] = newParent;
+		fix(newParent);
+		if (oldParent == NULL) {
+			root = newParent;
+		} else if (lefts[oldParent] == sibling) {
+			lefts[oldParent] = newParent;
+		} else {
+			rights[oldParent] = newParent;
+		}
+		walkUp(parents[newParent]);
+	}
+
+	private void removeLeaf(int leaf) {
+		if (leaf == root) {
+			root = NULL;
+			return;
+		}
+		int parent = parents[leaf];
+		int grandParent = parents[parent];
+		int sibling = lefts[parent] == leaf ? rights[parent] : lefts[parent];
+		freeNode(parent);
+		parents[sibling] = grandParent;
+		if (grandParent == NULL) {
+			root = sibling;
+		} else {
+			if (lefts[grandParent] == parent) {
+				lefts[grandParent] = sibling;
+			} else {
+				rights[grandParent] = sibling;
+			}
+			walkUp(grandParent);
+		}
+		parents[leaf] = NULL;
+	}
+
+	private void walkUp(int index) {
+		while (index != NULL) {
+			index = balance(index);
+			fix(index);
+			index = parents[index];
+		}
+	}
+
+	/**
+	 * Rotates the taller grandchild of a node up if one side is more than one
+	 * level taller than the other, the same as an AVL tree. Returns the node now
+	 * in the place of the old one.
+	 */
+	private int balance(int a) {
+		if (isLeafNode(a) || heights[a] < 2) {
+			return a;
+		}
+		int b = lefts[a], c = rights[a];
+		int balance = heights[c] - heights[b];
+		if (balance > 1) {
+			int f = lefts[c], g = rights[c];
+			lefts[c] = a;
+			parents[c] = parents[a];
+			parents[a] = c;
+			replaceChild(parents[c], a, c);
+			if (heights[f] > heights[g]) {
+				rights[c] = f;
+				rights[a] = g;
+				parents[g] = a;
+			} else {
+				rights[c] = g;
+				rights[a] = f;
+				parents[f] = a;
+			}
+			fix(a);
+			fix(c);
+			return c;
+		}
+		if (balance < -1) {
+			int d = lefts[b], e = rights[b];
+			lefts[b] = a;
+			parents[b] = parents[a];
+			parents[a] = b;
+			replaceChild(parents[b], a, b);
+			if (heights[d] > heights[e]) {
+				rights[b] = d;
+				lefts[a] = e;
+				parents[e] = a;
+			} else {
+				rights[b] = e;
+				lefts[a] = d;
+				parents[d] = a;
+			}
+			fix(a);
+			fix(b);
+			return b;
+		}
+		return a;
+	}
+
+	private void replaceChild(int parent, int oldChild, int newChild) {
+		if (parent == NULL) {
+			root = newChild;
+		} else if (lefts[parent] == oldChild) {
+			lefts[parent] = newChild;
+		} else {
+			rights[parent] = newChild;
+		}
+	}
+
+	/**
+	 * Refits every inner box to its children in one pass, children before
+	 * parents, and returns the new cost.
+	 */
+	private float refit() {
+		if (root == NULL) {
+			return 0;
+		}
+		if (scratch.length < capacity) {
+			scratch = new int[capacity];
+		}
+		ensureStack(capacity);
+		int count = 0, top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			if (!isLeafNode(node)) {
+				scratch[count++] = node;
+				stack[top++] = lefts[node];
+				stack[top++] = rights[node];
+			}
+		}
+		if (count == 0) {
+			return 0;
+		}
+		// Every node comes before its children, so going backwards refits children first
+		float total = 0;
+		for (int i = count - 1; i >= 0; i--) {
+			int node = scratch[i];
+			union(node, lefts[node], rights[node]);
+			total += area(node);
+		}
+		float rootArea = area(root);
+		return rootArea > 0 ? total / rootArea : 0;
+	}
+
+	/**
+	 * Builds a subtree over a range of leaves with a binned surface area
+	 * heuristic, falling back to an even split when no split is better.
+	 */
+	private int build(int[] leaves, int start, int end) {
+		int count = end - start;
+		if (count == 1) {
+			return leaves[start];
+		}
+		float[] b = boxes;
+		float cMinX = Float.POSITIVE_INFINITY, cMinY = Float.POSITIVE_INFINITY, cMinZ = Float.POSITIVE_INFINITY;
+		float cMaxX = Float.NEGATIVE_INFINITY, cMaxY = Float.NEGATIVE_INFINITY, cMaxZ = Float.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			int o = leaves[i] * 6;
+			float x = b[o] + b[o + 3], y = b[o + 1] + b[o + 4], z = b[o + 2] + b[o + 5];
+			cMinX = Math.min(cMinX, x);
+			cMinY = Math.min(cMinY, y);
+			cMinZ = Math.min(cMinZ, z);
+			cMaxX = Math.max(cMaxX, x);
+			cMaxY = Math.max(cMaxY, y);
+			cMaxZ = Math.max(cMaxZ, z);
+		}
+		int axis = 0;
+		float min = cMinX, extent = cMaxX - cMinX;
+		if (cMaxY - cMinY > extent) {
+			axis = 1;
+			min = cMinY;
+			extent = cMaxY - cMinY;
+		}
+		if (cMaxZ - cMinZ > extent) {
+			axis = 2;
+			min = cMinZ;
+			extent = cMaxZ - cMinZ;
+		}
+		int mid = start + count / 2;
+		if (extent > 0 && count > 2) {
+			float scale = BINS / extent;
+			Arrays.fill(binCounts, 0);
+			for (int i = 0; i < BINS; i++) {
+				resetBin(i);
+			}
+			for (int i = start; i < end; i++) {
+				int bin = bin(leaves[i], axis, min, scale);
+				binCounts[bin]++;
+				growBin(bin, leaves[i]);
+			}
+			// Sweep from the right to get the area of every right side
+			float rMinX = Float.POSITIVE_INFINITY, rMinY = Float.POSITIVE_INFINITY, rMinZ = Float.POSITIVE_INFINITY;
+			float rMaxX = Float.NEGATIVE_INFINITY, rMaxY = Float.NEGATIVE_INFINITY, rMaxZ = Float.NEGATIVE_INFINITY;
+			for (int i = BINS - 1; i > 0; i--) {
+				int o = i * 6;
+				rMinX = Math.min(rMinX, binBoxes[o]);
+				rMinY = Math.min(rMinY, binBoxes[o + 1]);
+				rMinZ = Math.min(rMinZ, binBoxes[o + 2]);
+				rMaxX = Math.max(rMaxX, binBoxes[o + 3]);
+				rMaxY = Math.max(rMaxY, binBoxes[o + 4]);
+				rMaxZ = Math.max(rMaxZ, binBoxes[o + 5]);
+				rightAreas[i] = boxArea(rMinX, rMinY, rMinZ, rMaxX, rMaxY, rMaxZ);
+			}
+			float lMinX = Float.POSITIVE_INFINITY, lMinY = Float.POSITIVE_INFINITY, lMinZ = Float.POSITIVE_INFINITY;
+			float lMaxX = Float.NEGATIVE_INFINITY, lMaxY = Float.NEGATIVE_INFINITY, lMaxZ = Float.NEGATIVE_INFINITY;
+			int leftCount = 0;
+			float bestCost = Float.POSITIVE_INFINITY;
+			int bestSplit = -1;
+			for (int i = 0; i < BINS - 1; i++) {
+				int o = i * 6;
+				lMinX = Math.min(lMinX, binBoxes[o]);
+				lMinY = Math.min(lMinY, binBoxes[o + 1]);
+				lMinZ = Math.min(lMinZ, binBoxes[o + 2]);
+				lMaxX = Math.max(lMaxX, binBoxes[o + 3]);
+				lMaxY = Math.max(lMaxY, binBoxes[o + 4]);
+				lMaxZ = Math.max(lMaxZ, binBoxes[o + 5]);
+				leftCount += binCounts[i];
+				int rightCount = count - leftCount;
+				if (leftCount == 0 || rightCount == 0) {
+					continue;
+				}
+				float cost = boxArea(lMinX, lMinY, lMinZ, lMaxX, lMaxY, lMaxZ) * leftCount
+						+ rightAreas[i + 1] * rightCount;
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestSplit = i;
+				}
+			}
+			if (bestSplit != -1) {
+				int i = start, j = end - 1;
+				while (i <= j) {
+					if (bin(leaves[i], axis, min, scale) <= bestSplit) {
+						i++;
+					} else {
+						int swap = leaves[i];
+						leaves[i] = leaves[j];
+						leaves[j--] = swap;
+					}
+				}
+				mid = i;
+			}
+		}
+		int left = build(leaves, start, mid);
+		int right = build(leaves, mid, end);
+		int node = allocateNode();
+		lefts[node] = left;
+		rights[node] = right;
+		parents[left] = node;
+		parents[right] = node;
+		fix(node);
+		return node;
+	}
+
+	private int bin(int leaf, int axis, float min, float scale) {
+		int o = leaf * 6 + axis;
+		int bin = (int) ((boxes[o] + boxes[o + 3] - min) * scale);
+		return Math.min(Math.max(bin, 0), BINS - 1);
+	}
+
+	private void resetBin(int bin) {
+		int o = bin * 6;
+		binBoxes[o] = binBoxes[o + 1] = binBoxes[o + 2] = Float.POSITIVE_INFINITY;
+		binBoxes[o + 3] = binBoxes[o + 4] = binBoxes[o + 5] = Float.NEGATIVE_INFINITY;
+	}
+
+	private void growBin(int bin, int leaf) {
+		int o = bin * 6, ol = leaf * 6;
+		binBoxes[o] = Math.min(binBoxes[o], boxes[ol]);
+		binBoxes[o + 1] = Math.min(binBoxes[o + 1], boxes[ol + 1]);
+		binBoxes[o + 2] = Math.min(binBoxes[o + 2], boxes[ol + 2]);
+		binBoxes[o + 3] = Math.max(binBoxes[o + 3], boxes[ol + 3]);
+		binBoxes[o + 4] = Math.max(binBoxes[o + 4], boxes[ol + 4]);
+		binBoxes[o + 5] = Math.max(binBoxes[o + 5], boxes[ol + 5]);
+	}
+
+	private static float boxArea(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		float x = maxX - minX, y = maxY - minY, z = maxZ - minZ;
+		return x * y + y * z + z * x;
+	}
+
+	private int allocateNode() {
+		if (free == NULL) {
+			grow(capacity * 2);
+		}
+		int node = free;
+		free = lefts[node];
+		lefts[node] = NULL;
+		rights[node] = NULL;
+		parents[node] = NULL;
+		heights[node] = 0;
+		items[node] = null;
+		return node;
+	}
+
+	private void freeNode(int node) {
+		lefts[node] = free;
+		rights[node] = NULL;
+		heights[node] = -1;
+		items[node] = null;
+		free = node;
+	}
+
+	private void grow(int newCapacity) {
+		int old = capacity;
+		boxes = Arrays.copyOf(boxes, newCapacity * 6);
+		parents = Arrays.copyOf(parents, newCapacity);
+		lefts = Arrays.copyOf(lefts, newCapacity);
+		rights = Arrays.copyOf(rights, newCapacity);
+		heights = Arrays.copyOf(heights, newCapacity);
+		items = Arrays.copyOf(items, newCapacity);
+		isMoved = Arrays.copyOf(isMoved, newCapacity);
+		// Chain the new slots onto the free list, the lowest first
+		for (int i = newCapacity - 1; i >= old; i--) {
+			lefts[i] = free;
+			heights[i] = -1;
+			free = i;
+		}
+		capacity = newCapacity;
+	}
+
+	private void ensureStack(int size) {
+		// A depth first walk keeps at most one waiting sibling per level, plus the root
+		if (stack.length < size) {
+			int length = Math.max(size, stack.length * 2);
+			stack = new int[length];
+			masks = new int[length];
+			distances = new float[length];
+		}
+	}
+
+}
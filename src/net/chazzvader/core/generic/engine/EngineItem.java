@@ -17,6 +17,9 @@ public abstract class EngineItem implements IDeletable {
 
 	private static ArrayList<EngineItem> items = new ArrayList<EngineItem>();
 
+	private static int nextItemId = 1;
+	private final int itemId = nextItemId++;
+
 	/**
 	 * Creates a new engine item. Assigns the instance of the application to the
 	 * item, so if you are creating one of these before the Application, you mave
@@ -38,6 +41,17 @@ public abstract class EngineItem implements IDeletable {
 		}
 	}
 
+	/**
+	 * A number unique to this item, given out in the order items are created.
+	 * Used for things like sorting draws so items that are the same end up next
+	 * to each other.
+	 * 
+	 * @return The id of this item, never 0.
+	 */
+	public final int getItemId() {
+		return itemId;
+	}
+
 	/**
 	 * The current aspect ratio of the window.
 	 * 
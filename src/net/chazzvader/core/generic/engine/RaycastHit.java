@@ -0,0 +1,59 @@
+package net.chazzvader.core.generic.engine;
+
+import net.chazzvader.core.generic.engine.object.EngineObject;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Where a ray hit something. Filled in by ray casts, and can be reused between
+ * them to avoid calls to new.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ * @see Scene#raycast(Vector3f, Vector3f)
+ */
+public class RaycastHit {
+
+	/**
+	 * The object that was hit, null if only a mesh was tested.
+	 */
+	public EngineObject object;
+
+	/**
+	 * The distance along the ray to the hit, in lengths of the direction of the
+	 * ray.
+	 */
+	public float distance;
+
+	/**
+	 * The index of the triangle that was hit, the position of its first index in
+	 * the index data divided by 3.
+	 */
+	public int triangle;
+
+	/**
+	 * The barycentric coordinates of the hit in the triangle, the weights of its
+	 * second and third vertices. The weight of the first vertex is
+	 * <code>1 - u - v</code>.
+	 */
+	public float u, v;
+
+	/**
+	 * The point that was hit, in world space.
+	 */
+	public final Vector3f point = new Vector3f();
+
+	/**
+	 * Creates an empty hit.
+	 */
+	public RaycastHit() {
+
+	}
+
+	@Override
+	public String toString() {
+		return "RaycastHit [object=" + object + ", distance=" + distance + ", triangle=" + triangle + ", u=" + u
+				+ ", v=" + v + ", point=" + point + "]";
+	}
+
+}
@@ -2,13 +2,29 @@ package net.chazzvader.core.generic.engine;
 
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
+import net.chazzvader.core.generic.engine.mesh.Mesh;
 import net.chazzvader.core.generic.engine.object.Camera;
 import net.chazzvader.core.generic.engine.object.EngineObject;
 import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.engine.object.TransformStore;
+import net.chazzvader.core.generic.engine.object.ui.IEngineObjectUI;
+import net.chazzvader.core.generic.engine.render.InstanceBatch;
+import net.chazzvader.core.generic.engine.render.InstanceBatchRendererImplementation;
+import net.chazzvader.core.generic.engine.render.MeshRendererImplementation;
 import net.chazzvader.core.generic.engine.render.RenderContext;
 import net.chazzvader.core.generic.engine.render.RenderPipeline;
+import net.chazzvader.core.generic.engine.render.RenderPipeline.RenderingMode;
+import net.chazzvader.core.generic.engine.render.RenderPipeline.ShadowCasters;
+import net.chazzvader.core.generic.engine.render.RenderQueue;
+import net.chazzvader.core.generic.engine.render.material.Material;
 import net.chazzvader.core.generic.engine.render.material.Shader;
+import net.chazzvader.core.generic.math.Bounds;
+import net.chazzvader.core.generic.math.CubeFaces;
+import net.chazzvader.core.generic.math.Frustum;
+import net.chazzvader.core.generic.math.Matrix4f;
 import net.chazzvader.core.generic.math.Vector3f;
 import net.chazzvader.core.generic.util.Utils;
 
@@ -136,6 +152,7 @@ public class Scene extends EngineItem implements IDeletable, IRenderContextProvi
 		activeCamera = camera;
 		if (!objects.contains(camera)) {
 			objects.add(camera);
+			spatialIndexDirty = true;
 		}
 	}
 
@@ -177,15 +194,380 @@ public class Scene extends EngineItem implements IDeletable, IRenderContextProvi
 	}
 
 	private void _render(RenderPipeline pipeline) {
-		if (!pipeline.get3dContext().isDepthOnly()) {
+		RenderContext context = pipeline.get3dContext();
+		boolean shadows = pipeline.getRenderingMode() == RenderingMode.SHADOWS;
+		if (!context.isDepthOnly()) {
 			Shader.preRenderAll(this, pipeline);
 		}
-		for (int i = 0; i < objects.size(); i++) {
-			EngineObject object = objects.get(i);
-			if (object.isActive())
-				object.getRenderContext().bind();
-				object.render();
+		boolean cull = false;
+		candidates.clear();
+		if (frustumCulling) {
+			updateSpatialIndex();
+			if (shadows) {
+				Light light = pipeline.getRenderingLight();
+				cull = true;
+				querySphere(light.pos(), light.range(), candidates);
+			} else if (activeCamera != null) {
+				cull = true;
+				queryFrustum(activeCamera.getFrustum(), candidates);
+			}
+		}
+		Vector3f eye = null;
+		if (shadows) {
+			eye = pipeline.getRenderingLight().pos();
+		} else if (activeCamera != null) {
+			eye = activeCamera.pos();
+		}
+		ShadowCasters casters = shadows ? pipeline.getShadowCasters() : ShadowCasters.ALL;
+		float range = shadows ? pipeline.getRenderingLight().range() : 0;
+		passVisible = 0;
+		passCulled = 0;
+		passFacesCulled = 0;
+		renderQueue.clear();
+		if (!cull) {
+			for (int i = 0; i < objects.size(); i++) {
+				queue(objects.get(i), context, shadows, false, casters, eye, range);
+			}
+		} else if (sortDraws) {
+			// The order doesn't matter, so only what the index found and what it can't hold is looked at
+			passCulled = spatialIndex.getCount() - candidates.size();
+			for (int i = 0; i < candidates.size(); i++) {
+				queue(candidates.get(i), context, shadows, true, casters, eye, range);
+			}
+			for (int i = 0; i < unboundedObjects.size(); i++) {
+				queue(unboundedObjects.get(i), context, shadows, true, casters, eye, range);
+			}
+		} else {
+			// Unsorted draws keep the order objects were added in, so every object is looked at
+			visibleStamp++;
+			for (int i = 0; i < candidates.size(); i++) {
+				visibleStamps[candidates.get(i).spatialHandle] = visibleStamp;
+			}
+			for (int i = 0; i < objects.size(); i++) {
+				EngineObject object = objects.get(i);
+				if (object.spatialHandle != -1 && visibleStamps[object.spatialHandle] != visibleStamp
+						&& object.getRenderContext() == context) {
+					if (object.isActive()) {
+						passCulled++;
+					}
+					continue;
+				}
+				queue(object, context, shadows, true, casters, eye, range);
+			}
+		}
+		if (sortDraws) {
+			renderQueue.sort();
+		}
+		int instanced = 0, instancedDraws = 0;
+		boolean flushed = !instancing;
+		for (int i = 0; i < renderQueue.size(); i++) {
+			EngineObject object = renderQueue.get(i);
+			if (!flushed) {
+				// Transparent draws have to stay in order, so only opaque ones are batched
+				if (RenderQueue.passOf(renderQueue.getKey(i)) == RenderQueue.PASS_OPAQUE) {
+					MeshRendererImplementation instanceRenderer = object.getInstanceRenderer();
+					if (instanceRenderer != null) {
+						instanceBatch.add(object, instanceRenderer.getMesh(), shadows ? null : object.getRenderMaterial(),
+								object.getWorldMatrix());
+						continue;
+					}
+				} else {
+					instanced = instanceBatch.getInstanceCount();
+					instancedDraws += flushInstances();
+					flushed = true;
+				}
+			}
+			object.getRenderContext().bind();
+			object.render();
+		}
+		if (!flushed) {
+			instanced = instanceBatch.getInstanceCount();
+			instancedDraws += flushInstances();
+		}
+		renderQueue.clear();
+		// Things in other contexts, like ui, go on top
+		for (int i = 0; i < overlays.size(); i++) {
+			EngineObject object = overlays.get(i);
+			object.getRenderContext().bind();
+			object.render();
+		}
+		overlays.clear();
+		candidates.clear();
+		if (shadows) {
+			shadowCulledAccumulator += passCulled;
+			shadowFacesCulledAccumulator += passFacesCulled;
+		} else {
+			visibleCount = passVisible;
+			culledCount = passCulled;
+			instancedCount = instanced;
+			instancedDrawCount = instancedDraws;
+			shadowCulledCount = shadowCulledAccumulator;
+			shadowCulledAccumulator = 0;
+			shadowFacesCulledCount = shadowFacesCulledAccumulator;
+			shadowFacesCulledAccumulator = 0;
+		}
+	}
+
+	// Puts one object in the render queue, or in the overlays if it is in another context
+	private void queue(EngineObject object, RenderContext context, boolean shadows, boolean cull,
+			ShadowCasters casters, Vector3f eye, float range) {
+		if (!object.isActive())
+			return;
+		if (object.getRenderContext() != context) {
+			passVisible++;
+			overlays.add(object);
+			return;
+		}
+		if (casters != ShadowCasters.ALL && object.isStatic() != (casters == ShadowCasters.STATIC)) {
+			return;
+		}
+		if (shadows) {
+			int faces = CubeFaces.ALL;
+			Bounds local = object.getLocalBounds();
+			if (cull && local != null) {
+				local.transformCopy(object.getWorldMatrix(), worldBounds);
+				faces = CubeFaces.mask(eye.x, eye.y, eye.z, range, worldBounds);
+				if (faces == 0) {
+					passCulled++;
+					return;
+				}
+			}
+			object.shadowFaces = faces;
+			passFacesCulled += 6 - CubeFaces.count(faces);
+		}
+		passVisible++;
+		renderQueue.add(sortKey(object, shadows, eye), object);
+	}
+
+	private long sortKey(EngineObject object, boolean shadows, Vector3f eye) {
+		float depth = 0;
+		if (eye != null) {
+			Matrix4f world = object.getWorldMatrix();
+			float dx = world.v03 - eye.x, dy = world.v13 - eye.y, dz = world.v23 - eye.z;
+			depth = dx * dx + dy * dy + dz * dz;
+		}
+		Material material = object.getRenderMaterial();
+		if (shadows || material == null) {
+			return RenderQueue.opaqueKey(0, 0, 0, depth);
 		}
+		int shaderId = renderQueue.shaderId(material.getShader());
+		int materialId = renderQueue.materialId(material);
+		if (material.isTransparent()) {
+			return RenderQueue.transparentKey(shaderId, materialId, material.getTextureSetId(), depth);
+		}
+		return RenderQueue.opaqueKey(shaderId, materialId, material.getTextureSetId(), depth);
+	}
+
+	/**
+	 * Draws everything in the instance batch, runs of at least
+	 * {@link #MIN_INSTANCES} with one instanced draw each and the rest one by one.
+	 * Empties the batch.
+	 * 
+	 * @return The amount of instanced draws.
+	 */
+	private int flushInstances() {
+		if (instanceBatch.isEmpty()) {
+			return 0;
+		}
+		instanceBatch.build();
+		boolean uploaded = false;
+		int draws = 0;
+		for (int run = 0; run < instanceBatch.getRunCount(); run++) {
+			int start = instanceBatch.getRunStart(run);
+			int length = instanceBatch.getRunLength(run);
+			if (length < MIN_INSTANCES) {
+				for (int i = start; i < start + length; i++) {
+					EngineObject object = instanceBatch.getItem(i);
+					object.getRenderContext().bind();
+					object.render();
+				}
+				continue;
+			}
+			if (!uploaded) {
+				if (instanceRenderer == null) {
+					instanceRenderer = InstanceBatchRendererImplementation.getInstanceBatchImplementation();
+				}
+				instanceRenderer.upload(instanceBatch);
+				uploaded = true;
+			}
+			EngineObject first = instanceBatch.getItem(start);
+			// The instances share one draw, so it goes to every face any of them is in
+			int faces = 0;
+			for (int i = start; i < start + length; i++) {
+				faces |= instanceBatch.getItem(i).shadowFaces;
+			}
+			first.shadowFaces = faces;
+			first.getRenderContext().bind();
+			first.getRenderMaterial().bindInstanced(first);
+			instanceRenderer.render(first.getInstanceRenderer(), start, length);
+			draws++;
+		}
+		instanceBatch.clear();
+		return draws;
+	}
+
+	/**
+	 * The least amount of objects sharing a mesh and material that are drawn
+	 * with one instanced draw, fewer are drawn one by one.
+	 */
+	public static final int MIN_INSTANCES = 2;
+
+	private InstanceBatch<EngineObject> instanceBatch = new InstanceBatch<>();
+	private InstanceBatchRendererImplementation instanceRenderer = null;
+	private boolean instancing = true;
+	private int instancedCount = 0;
+	private int instancedDrawCount = 0;
+
+	/**
+	 * Turns instancing on or off. When on, which is the default, opaque objects
+	 * that share a mesh and a material are drawn together, with one instanced
+	 * draw per mesh and material, in both the main and shadow passes.
+	 * 
+	 * @param instancing If objects should be instanced.
+	 * @see EngineObject#getInstanceRenderer()
+	 */
+	public void setInstancing(boolean instancing) {
+		this.instancing = instancing;
+	}
+
+	/**
+	 * Are objects instanced?
+	 * 
+	 * @return True if objects are instanced.
+	 * @see #setInstancing(boolean)
+	 */
+	public boolean isInstancing() {
+		return instancing;
+	}
+
+	/**
+	 * The amount of objects that could be instanced in the last main pass,
+	 * including ones that ended up drawn alone.
+	 * 
+	 * @return The amount of instanced objects.
+	 */
+	public int getInstancedCount() {
+		return instancedCount;
+	}
+
+	/**
+	 * The amount of instanced draws in the last main pass.
+	 * 
+	 * @return The amount of instanced draws.
+	 */
+	public int getInstancedDrawCount() {
+		return instancedDrawCount;
+	}
+
+	private RenderQueue<EngineObject> renderQueue = new RenderQueue<>();
+	private boolean sortDraws = true;
+
+	/**
+	 * Turns sorting draws on or off. When on, which is the default, objects are
+	 * drawn grouped by shader, material and textures so binds can be skipped,
+	 * opaque objects front to back and transparent ones back to front after
+	 * them. When off, objects are drawn in the order they were added.
+	 * 
+	 * @param sortDraws If draws should be sorted.
+	 * @see RenderQueue
+	 */
+	public void setSortDraws(boolean sortDraws) {
+		this.sortDraws = sortDraws;
+	}
+
+	/**
+	 * Are draws sorted?
+	 * 
+	 * @return True if draws are sorted.
+	 * @see #setSortDraws(boolean)
+	 */
+	public boolean isSortDraws() {
+		return sortDraws;
+	}
+
+	/**
+	 * Gets the queue draws are sorted in. It is empty outside of rendering, but
+	 * holds how many shader, material and texture changes sorting saved in the
+	 * last pass, which is the main pass after a frame is drawn.
+	 * 
+	 * @return The render queue.
+	 */
+	public RenderQueue<EngineObject> getRenderQueue() {
+		return renderQueue;
+	}
+
+	private boolean frustumCulling = true;
+	private int visibleCount = 0;
+	private int culledCount = 0;
+	private int shadowCulledCount = 0;
+	private int shadowCulledAccumulator = 0;
+	private int shadowFacesCulledCount = 0;
+	private int shadowFacesCulledAccumulator = 0;
+
+	/**
+	 * Turns culling on or off. When on, which is the default, objects with bounds
+	 * that are completely outside the view of the active camera aren't drawn in
+	 * the main pass, and objects out of range of a light aren't drawn into its
+	 * shadow map.
+	 * 
+	 * @param frustumCulling If culling should be on.
+	 * @see EngineObject#getLocalBounds()
+	 */
+	public void setFrustumCulling(boolean frustumCulling) {
+		this.frustumCulling = frustumCulling;
+	}
+
+	/**
+	 * Is culling on?
+	 * 
+	 * @return True if culling is on.
+	 * @see #setFrustumCulling(boolean)
+	 */
+	public boolean isFrustumCulling() {
+		return frustumCulling;
+	}
+
+	/**
+	 * The amount of objects drawn in the last main pass.
+	 * 
+	 * @return The amount of objects drawn.
+	 */
+	public int getVisibleCount() {
+		return visibleCount;
+	}
+
+	/**
+	 * The amount of objects skipped by culling in the last main pass. When draws
+	 * are sorted, objects the spatial index didn't find aren't looked at, so
+	 * inactive ones out of view are counted too.
+	 * 
+	 * @return The amount of objects culled.
+	 */
+	public int getCulledCount() {
+		return culledCount;
+	}
+
+	/**
+	 * The amount of objects skipped by culling across all the shadow maps drawn
+	 * before the last main pass.
+	 * 
+	 * @return The amount of objects culled from shadow maps.
+	 */
+	public int getShadowCulledCount() {
+		return shadowCulledCount;
+	}
+
+	/**
+	 * The amount of shadow map cube faces objects were left out of, because they
+	 * couldn't be seen in them, across all the shadow maps drawn before the last
+	 * main pass. Objects out of range of a light completely are counted by
+	 * {@link #getShadowCulledCount()} instead.
+	 * 
+	 * @return The amount of cube faces skipped.
+	 * @see CubeFaces
+	 */
+	public int getShadowFacesCulledCount() {
+		return shadowFacesCulledCount;
 	}
 
 	/**
@@ -198,6 +580,290 @@ public class Scene extends EngineItem implements IDeletable, IRenderContextProvi
 			if (objects.get(i).isActive())
 				objects.get(i).update(delta);
 		}
+		updateTransforms();
+		updateSpatialIndex();
+	}
+
+	/**
+	 * Rebuilds the world transforms of every object in the scene in one top down
+	 * pass, starting at the objects without a parent. Called at the end of every
+	 * update, so rendering finds every transform already cached. Transforms are
+	 * still rebuilt on demand if something moves after this, except for objects
+	 * bound to the transform store, which is updated once here.
+	 * 
+	 * @see EngineObject#updateTransforms()
+	 */
+	public void updateTransforms() {
+		for (int i = 0; i < objects.size(); i++) {
+			EngineObject object = objects.get(i);
+			if (object.parent == null)
+				object.updateTransforms();
+		}
+		if (transformStore != null) {
+			transformStore.update();
+			if (transformStore.getLastUpdated() > 0) {
+				spatialIndexDirty = true;
+			}
+		}
+	}
+
+	private BoundingVolumeHierarchy<EngineObject> spatialIndex = new BoundingVolumeHierarchy<>();
+	private int[] spatialVersions = new int[0];
+	private final ArrayList<EngineObject> unboundedObjects = new ArrayList<>();
+	private int[] visibleStamps = new int[0];
+	private int visibleStamp = 0;
+	private Bounds worldBounds = new Bounds();
+	private int indexedChanges = -1;
+	private boolean spatialIndexDirty = true;
+
+	private final ArrayList<EngineObject> candidates = new ArrayList<>();
+	private final ArrayList<EngineObject> overlays = new ArrayList<>();
+	private int passVisible = 0;
+	private int passCulled = 0;
+	private int passFacesCulled = 0;
+
+	private List<EngineObject> queryResults;
+	private final BoundingVolumeHierarchy.Visitor<EngineObject> collect = (object, handle) -> {
+		queryResults.add(object);
+		return true;
+	};
+
+	/**
+	 * Brings the spatial index up to date with the world bounds of every object
+	 * that has local bounds. Objects are only refit when their transform version
+	 * changes, and if no object moved and none were added since the last call
+	 * this returns straight away, without looking at any object. Called after
+	 * every update and before culling every pass, so it only does work once a
+	 * frame. Call it after moving objects to query them in the same frame.<br>
+	 * <br>
+	 * Ui objects are laid out on screen rather than in the world, so they are
+	 * never put in the index.
+	 * 
+	 * @see #getSpatialIndex()
+	 * @see EngineObject#getTransformChanges()
+	 */
+	public void updateSpatialIndex() {
+		if (!spatialIndexDirty && indexedChanges == EngineObject.getTransformChanges()) {
+			return;
+		}
+		if (spatialVersions.length < spatialIndex.getCapacity()) {
+			growSpatialArrays();
+		}
+		unboundedObjects.clear();
+		for (int i = 0; i < objects.size(); i++) {
+			EngineObject object = objects.get(i);
+			Bounds local = object instanceof IEngineObjectUI ? null : object.getLocalBounds();
+			int handle = object.spatialHandle;
+			if (local == null) {
+				unboundedObjects.add(object);
+				if (handle != -1) {
+					spatialIndex.remove(handle);
+					object.spatialHandle = -1;
+				}
+				continue;
+			}
+			int version = object.getTransformVersion();
+			if (handle != -1 && spatialVersions[handle] == version) {
+				continue;
+			}
+			local.transformCopy(object.getWorldMatrix(), worldBounds);
+			if (handle == -1) {
+				handle = object.spatialHandle = spatialIndex.insert(object, worldBounds);
+				if (spatialVersions.length < spatialIndex.getCapacity()) {
+					growSpatialArrays();
+				}
+			} else {
+				spatialIndex.move(handle, worldBounds);
+			}
+			spatialVersions[handle] = version;
+		}
+		spatialIndex.update();
+		// Reading the versions above pulls moves out of the transform store, which counts as a change
+		indexedChanges = EngineObject.getTransformChanges();
+		spatialIndexDirty = false;
+	}
+
+	private void growSpatialArrays() {
+		int capacity = spatialIndex.getCapacity();
+		spatialVersions = Arrays.copyOf(spatialVersions, capacity);
+		visibleStamps = Arrays.copyOf(visibleStamps, capacity);
+	}
+
+	/**
+	 * The spatial index of the scene, a bounding volume hierarchy over the world
+	 * bounds of every object that has local bounds. Kept up to date by
+	 * {@link #updateSpatialIndex()}, and used for culling.
+	 * 
+	 * @return The spatial index.
+	 * @see EngineObject#getLocalBounds()
+	 */
+	public BoundingVolumeHierarchy<EngineObject> getSpatialIndex() {
+		return spatialIndex;
+	}
+
+	/**
+	 * The objects without local bounds, which aren't in the spatial index and so
+	 * can't be culled. Kept up to date by {@link #updateSpatialIndex()}.
+	 * 
+	 * @return The objects without bounds. Do not modify.
+	 */
+	public ArrayList<EngineObject> getUnboundedObjects() {
+		return unboundedObjects;
+	}
+
+	/**
+	 * Finds every object whose bounds may be inside a frustum.
+	 * 
+	 * @param frustum The frustum.
+	 * @param out     The list the objects found are added to.
+	 * @return The list passed in.
+	 */
+	public List<EngineObject> queryFrustum(Frustum frustum, List<EngineObject> out) {
+		queryResults = out;
+		spatialIndex.queryFrustum(frustum, collect);
+		queryResults = null;
+		return out;
+	}
+
+	/**
+	 * Finds every object whose bounds may touch a sphere.
+	 * 
+	 * @param center The center of the sphere.
+	 * @param radius The radius of the sphere.
+	 * @param out    The list the objects found are added to.
+	 * @return The list passed in.
+	 */
+	public List<EngineObject> querySphere(Vector3f center, float radius, List<EngineObject> out) {
+		queryResults = out;
+		spatialIndex.querySphere(center.x, center.y, center.z, radius, collect);
+		queryResults = null;
+		return out;
+	}
+
+	/**
+	 * Finds every object whose bounds may touch a box.
+	 * 
+	 * @param box The box, only the minimum and maximum are used.
+	 * @param out The list the objects found are added to.
+	 * @return The list passed in.
+	 */
+	public List<EngineObject> queryBox(Bounds box, List<EngineObject> out) {
+		queryResults = out;
+		spatialIndex.queryBox(box, collect);
+		queryResults = null;
+		return out;
+	}
+
+	private RaycastHit rayHit;
+	private boolean rayFound;
+	private float rayOriginX, rayOriginY, rayOriginZ, rayDirectionX, rayDirectionY, rayDirectionZ;
+	private Matrix4f rayInverse = new Matrix4f();
+
+	private final BoundingVolumeHierarchy.RayVisitor<EngineObject> rayVisitor = (object, handle, maxDistance) -> {
+		if (!object.isActive()) {
+			return maxDistance;
+		}
+		Mesh mesh = object.getRaycastMesh();
+		if (mesh == null) {
+			return maxDistance;
+		}
+		// Moving the ray into local space keeps distances in lengths of the world direction
+		Matrix4f inv = object.getWorldMatrix().inverseCopy(rayInverse);
+		float ox = rayOriginX, oy = rayOriginY, oz = rayOriginZ;
+		float dx = rayDirectionX, dy = rayDirectionY, dz = rayDirectionZ;
+		float lox = inv.v00 * ox + inv.v01 * oy + inv.v02 * oz + inv.v03;
+		float loy = inv.v10 * ox + inv.v11 * oy + inv.v12 * oz + inv.v13;
+		float loz = inv.v20 * ox + inv.v21 * oy + inv.v22 * oz + inv.v23;
+		float ldx = inv.v00 * dx + inv.v01 * dy + inv.v02 * dz;
+		float ldy = inv.v10 * dx + inv.v11 * dy + inv.v12 * dz;
+		float ldz = inv.v20 * dx + inv.v21 * dy + inv.v22 * dz;
+		if (mesh.getTriangleHierarchy().raycast(lox, loy, loz, ldx, ldy, ldz, maxDistance, rayHit)) {
+			rayHit.object = object;
+			rayFound = true;
+			return rayHit.distance;
+		}
+		return maxDistance;
+	};
+
+	/**
+	 * Finds the first object a ray hits. Only active objects with a raycast mesh
+	 * can be hit. The spatial index narrows it down to the objects whose bounds
+	 * the ray passes through, nearest first, and then each mesh is tested with its
+	 * triangle hierarchy. Objects moved since the last update are found where they
+	 * were, call {@link #updateSpatialIndex()} first to avoid that.
+	 * 
+	 * @param origin    The start of the ray, in world space.
+	 * @param direction The direction of the ray, in world space. If it is
+	 *                  normalized, the distance of the hit is in world units.
+	 * @return The hit, or null if nothing was hit.
+	 * @see EngineObject#getRaycastMesh()
+	 */
+	public RaycastHit raycast(Vector3f origin, Vector3f direction) {
+		return raycast(origin, direction, Float.POSITIVE_INFINITY, null);
+	}
+
+	/**
+	 * Finds the first object a ray hits, before a maximum distance.
+	 * 
+	 * @param origin      The start of the ray, in world space.
+	 * @param direction   The direction of the ray, in world space.
+	 * @param maxDistance How far along the ray to look, in lengths of the
+	 *                    direction.
+	 * @param copy        A hit that is used to avoid calls to new. Any value in it
+	 *                    may be overridden.
+	 * @return The hit, or null if nothing was hit.
+	 * @see #raycast(Vector3f, Vector3f)
+	 */
+	public RaycastHit raycast(Vector3f origin, Vector3f direction, float maxDistance, RaycastHit copy) {
+		copy = copy == null ? new RaycastHit() : copy;
+		rayHit = copy;
+		rayFound = false;
+		rayOriginX = origin.x;
+		rayOriginY = origin.y;
+		rayOriginZ = origin.z;
+		rayDirectionX = direction.x;
+		rayDirectionY = direction.y;
+		rayDirectionZ = direction.z;
+		spatialIndex.raycast(origin.x, origin.y, origin.z, direction.x, direction.y, direction.z, maxDistance,
+				rayVisitor);
+		rayHit = null;
+		if (!rayFound) {
+			return null;
+		}
+		copy.point.transcribe(origin.x + direction.x * copy.distance, origin.y + direction.y * copy.distance,
+				origin.z + direction.z * copy.distance);
+		return copy;
+	}
+
+	private TransformStore transformStore = null;
+
+	/**
+	 * Sets a transform store for the scene. Every object in the scene, and every
+	 * object added later, is bound to it, so all their world transforms are
+	 * composed in one sweep. Only worth it for very large scenes. Objects already
+	 * bound can't be moved to a different store, and setting null only stops new
+	 * objects from being bound.
+	 * 
+	 * @param transformStore The transform store to use.
+	 * @see EngineObject#bindTransform(TransformStore)
+	 */
+	public void setTransformStore(TransformStore transformStore) {
+		this.transformStore = transformStore;
+		if (transformStore == null) {
+			return;
+		}
+		for (int i = 0; i < objects.size(); i++) {
+			objects.get(i).bindTransform(transformStore);
+		}
+	}
+
+	/**
+	 * Gets the transform store of the scene.
+	 * 
+	 * @return The transform store, or null if the scene doesn't use one.
+	 */
+	public TransformStore getTransformStore() {
+		return transformStore;
 	}
 
 	/**
@@ -210,20 +876,60 @@ public class Scene extends EngineItem implements IDeletable, IRenderContextProvi
 			objects.add(engineObject);
 			engineObject.onAdd(this);
 			engineObject.scene = this;
+			if (transformStore != null) {
+				engineObject.bindTransform(transformStore);
+			}
 			if (engineObject instanceof Light) {
 				lights.add((Light) engineObject);
 			}
+			spatialIndexDirty = true;
 		}
 	}
 
+	/**
+	 * Removes an object from the scene. It is taken out of the spatial index
+	 * straight away, so it isn't drawn, culled or hit by rays any more. The object
+	 * itself isn't deleted, and can be added again. Its children aren't removed.
+	 * 
+	 * @param engineObject The object to remove
+	 */
+	public void remove(EngineObject engineObject) {
+		if (!objects.remove(engineObject)) {
+			return;
+		}
+		if (engineObject.spatialHandle != -1) {
+			spatialIndex.remove(engineObject.spatialHandle);
+			engineObject.spatialHandle = -1;
+		}
+		unboundedObjects.remove(engineObject);
+		if (engineObject instanceof Light) {
+			lights.remove(engineObject);
+		}
+		if (activeCamera == engineObject) {
+			activeCamera = null;
+		}
+		engineObject.scene = null;
+	}
+
 	@Override
 	public RenderContext getRenderContext() {
 		return getWindow().getRenderPipeline().get3dContext();
 	}
 	
+	/**
+	 * Deletes the scene, and every object still in it.
+	 */
 	@Override
 	public void delete() {
-		// TODO Implement
+		while (objects.size() > 0) {
+			EngineObject object = objects.get(objects.size() - 1);
+			remove(object);
+			object.delete();
+		}
+		if (instanceRenderer != null) {
+			instanceRenderer.delete();
+			instanceRenderer = null;
+		}
 		super.delete();
 	}
 
@@ -0,0 +1,413 @@
+package net.chazzvader.core.generic.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyDataType;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+import net.chazzvader.core.generic.engine.object.EngineObject;
+import net.chazzvader.core.generic.engine.object.EngineObjectMesh;
+import net.chazzvader.core.generic.engine.object.EngineObjectStaticBatch;
+import net.chazzvader.core.generic.engine.render.material.Material;
+import net.chazzvader.core.generic.math.Bounds;
+import net.chazzvader.core.generic.math.Matrix4f;
+
+/**
+ * Merges static objects that share a material into big meshes, so level
+ * geometry made of lots of small pieces is drawn with a few draws instead of
+ * one per piece.<br>
+ * <br>
+ * World transforms are baked into the vertex data, so the merged meshes sit at
+ * the origin. Every piece keeps its own index range and world space bounds in
+ * the merged mesh, so {@link EngineObjectStaticBatch} can still skip the
+ * pieces that can't be seen. Pieces are only merged with pieces that have the
+ * same vertex properties, and a merged mesh is split before it goes over the
+ * vertex limit.<br>
+ * <br>
+ * The size of every merged mesh is known before anything is copied, so each
+ * property is written straight into one array of the right size.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ * @see EngineObject#setStatic(boolean)
+ */
+public class StaticBatcher {
+
+	/**
+	 * A merged mesh, and where every piece ended up in it.
+	 *
+	 * @author csbru
+	 * @since 1.0
+	 * @version 1
+	 */
+	public static class Batch {
+
+		/**
+		 * The merged mesh, in world space.
+		 */
+		public final Mesh mesh;
+
+		/**
+		 * The index of the piece each range came from, in the list passed to
+		 * {@link StaticBatcher#merge(List, List)}.
+		 */
+		public final int[] sources;
+
+		/**
+		 * The first index of every range.
+		 */
+		public final int[] rangeStarts;
+
+		/**
+		 * The amount of indices in every range.
+		 */
+		public final int[] rangeCounts;
+
+		/**
+		 * The world space bounds of every range.
+		 */
+		public final Bounds[] rangeBounds;
+
+		private Batch(Mesh mesh, int[] sources, int[] rangeStarts, int[] rangeCounts, Bounds[] rangeBounds) {
+			this.mesh = mesh;
+			this.sources = sources;
+			this.rangeStarts = rangeStarts;
+			this.rangeCounts = rangeCounts;
+			this.rangeBounds = rangeBounds;
+		}
+
+	}
+
+	/**
+	 * The default maximum amount of vertices in a merged mesh.
+	 */
+	public static final int DEFAULT_VERTEX_LIMIT = 65536;
+
+	private int vertexLimit = DEFAULT_VERTEX_LIMIT;
+
+	/**
+	 * Creates a batcher with the default vertex limit.
+	 */
+	public StaticBatcher() {
+
+	}
+
+	/**
+	 * Creates a batcher.
+	 *
+	 * @param vertexLimit The maximum amount of vertices in a merged mesh.
+	 */
+	public StaticBatcher(int vertexLimit) {
+		setVertexLimit(vertexLimit);
+	}
+
+	/**
+	 * Sets the maximum amount of vertices in a merged mesh. A single piece with
+	 * more vertices than this gets a mesh to itself.
+	 *
+	 * @param vertexLimit The vertex limit.
+	 */
+	public void setVertexLimit(int vertexLimit) {
+		this.vertexLimit = Math.max(vertexLimit, 1);
+	}
+
+	/**
+	 * Gets the maximum amount of vertices in a merged mesh.
+	 *
+	 * @return The vertex limit.
+	 */
+	public int getVertexLimit() {
+		return vertexLimit;
+	}
+
+	/**
+	 * Merges every active, static mesh object in a scene that shares a material
+	 * with others. The merged objects are added to the scene and the objects
+	 * they were made from are deactivated, so reactivating those and
+	 * deactivating the batches undoes it. Objects that would end up alone are
+	 * left as they are.
+	 *
+	 * @param scene The scene.
+	 * @return The batches that were added to the scene.
+	 */
+	public List<EngineObjectStaticBatch> batch(Scene scene) {
+		// Group by material first, then by layout, keeping the scene order
+		LinkedHashMap<Material, LinkedHashMap<String, ArrayList<EngineObjectMesh>>> groups = new LinkedHashMap<>();
+		ArrayList<EngineObject> objects = scene.getObjects();
+		for (int i = 0; i < objects.size(); i++) {
+			EngineObject object = objects.get(i);
+			if (!object.isStatic() || !object.isActive() || object.getClass() != EngineObjectMesh.class) {
+				continue;
+			}
+			EngineObjectMesh meshObject = (EngineObjectMesh) object;
+			if (meshObject.material == null || meshObject.meshRendererImplementation == null) {
+				continue;
+			}
+			Mesh mesh = meshObject.meshRendererImplementation.getMesh();
+			if (mesh.getByUsage(VertexPropertyType.INDICES) == null
+					|| mesh.getByUsage(VertexPropertyType.VERTEX_POS) == null) {
+				continue;
+			}
+			groups.computeIfAbsent(meshObject.material, m -> new LinkedHashMap<>())
+					.computeIfAbsent(layout(mesh), l -> new ArrayList<>()).add(meshObject);
+		}
+
+		ArrayList<EngineObjectStaticBatch> ret = new ArrayList<>();
+		ArrayList<Mesh> meshes = new ArrayList<>();
+		ArrayList<Matrix4f> worlds = new ArrayList<>();
+		for (Material material : groups.keySet()) {
+			for (ArrayList<EngineObjectMesh> group : groups.get(material).values()) {
+				if (group.size() < 2) {
+					continue;
+				}
+				meshes.clear();
+				worlds.clear();
+				for (int i = 0; i < group.size(); i++) {
+					meshes.add(group.get(i).meshRendererImplementation.getMesh());
+					worlds.add(group.get(i).getWorldMatrix());
+				}
+				List<Batch> batches = merge(meshes, worlds);
+				for (int i = 0; i < batches.size(); i++) {
+					Batch batch = batches.get(i);
+					EngineObject[] sources = new EngineObject[batch.sources.length];
+					for (int j = 0; j < sources.length; j++) {
+						sources[j] = group.get(batch.sources[j]);
+						sources[j].setActive(false);
+					}
+					EngineObjectStaticBatch object = new EngineObjectStaticBatch(batch, material, sources);
+					scene.add(object);
+					ret.add(object);
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static String layout(Mesh mesh) {
+		StringBuilder sb = new StringBuilder();
+		for (VertexPropertyType type : VertexPropertyType.values()) {
+			if (type != VertexPropertyType.INDICES && mesh.getByUsage(type) != null) {
+				sb.append(type.ordinal()).append(',');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Merges meshes into as few meshes as the vertex limit allows, baking in
+	 * their world matrices. Every mesh needs positions and indices, and the
+	 * merged meshes have the vertex properties of the first mesh, missing ones
+	 * are filled with zeros. Vertex data comes out as floats, and indices as
+	 * ints.
+	 *
+	 * @param meshes The meshes to merge.
+	 * @param worlds The world matrix of every mesh.
+	 * @return The merged meshes.
+	 */
+	public List<Batch> merge(List<Mesh> meshes, List<Matrix4f> worlds) {
+		ArrayList<Batch> ret = new ArrayList<>();
+		int start = 0;
+		while (start < meshes.size()) {
+			int end = start;
+			int vertices = 0;
+			int indices = 0;
+			while (end < meshes.size()) {
+				Mesh mesh = meshes.get(end);
+				if (end > start && vertices + mesh.verticeCount > vertexLimit) {
+					break;
+				}
+				vertices += mesh.verticeCount;
+				indices += rawLength(mesh.getByUsage(VertexPropertyType.INDICES));
+				end++;
+			}
+			ret.add(mergeRange(meshes, worlds, start, end, vertices, indices));
+			start = end;
+		}
+		return ret;
+	}
+
+	private Batch mergeRange(List<Mesh> meshes, List<Matrix4f> worlds, int start, int end, int vertices,
+			int indices) {
+		Mesh first = meshes.get(start);
+		VertexPropertyType[] types = new VertexPropertyType[first.properties.length];
+		float[][] outputs = new float[first.properties.length][];
+		int typeCount = 0;
+		for (int i = 0; i < first.properties.length; i++) {
+			VertexPropertyType type = first.properties[i].usage;
+			if (type != VertexPropertyType.INDICES) {
+				types[typeCount] = type;
+				outputs[typeCount] = new float[vertices * type.perVertice];
+				typeCount++;
+			}
+		}
+		int[] outIndices = new int[indices];
+
+		int pieces = end - start;
+		int[] sources = new int[pieces];
+		int[] rangeStarts = new int[pieces];
+		int[] rangeCounts = new int[pieces];
+		Bounds[] rangeBounds = new Bounds[pieces];
+
+		int vertex = 0, index = 0;
+		for (int p = 0; p < pieces; p++) {
+			Mesh mesh = meshes.get(start + p);
+			Matrix4f world = worlds.get(start + p);
+			int count = mesh.verticeCount;
+
+			VertexedProperty in = mesh.getByUsage(VertexPropertyType.INDICES);
+			int indexCount = rawLength(in);
+			for (int i = 0; i < indexCount; i++) {
+				outIndices[index + i] = vertex + readIndex(in, i);
+			}
+			sources[p] = start + p;
+			rangeStarts[p] = index;
+			rangeCounts[p] = indexCount;
+
+			for (int t = 0; t < typeCount; t++) {
+				VertexPropertyType type = types[t];
+				VertexedProperty property = mesh.getByUsage(type);
+				float[] out = outputs[t];
+				int per = type.perVertice;
+				if (property == null) {
+					continue;// Already zeros
+				}
+				switch (type) {
+				case VERTEX_POS:
+					float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY,
+							minZ = Float.POSITIVE_INFINITY;
+					float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY,
+							maxZ = Float.NEGATIVE_INFINITY;
+					for (int v = 0; v < count; v++) {
+						float x = read(property, v * 3), y = read(property, v * 3 + 1), z = read(property, v * 3 + 2);
+						float wx = world.v00 * x + world.v01 * y + world.v02 * z + world.v03;
+						float wy = world.v10 * x + world.v11 * y + world.v12 * z + world.v13;
+						float wz = world.v20 * x + world.v21 * y + world.v22 * z + world.v23;
+						int o = (vertex + v) * 3;
+						out[o] = wx;
+						out[o + 1] = wy;
+						out[o + 2] = wz;
+						minX = Math.min(minX, wx);
+						minY = Math.min(minY, wy);
+						minZ = Math.min(minZ, wz);
+						maxX = Math.max(maxX, wx);
+						maxY = Math.max(maxY, wy);
+						maxZ = Math.max(maxZ, wz);
+					}
+					rangeBounds[p] = count == 0 ? new Bounds() : new Bounds(minX, minY, minZ, maxX, maxY, maxZ);
+					break;
+				case NORMALS:
+					// Normals go through the inverse transpose, which is the cofactor matrix
+					// scaled, and the scale doesn't matter as they get normalized
+					float c00 = world.v11 * world.v22 - world.v12 * world.v21;
+					float c01 = world.v12 * world.v20 - world.v10 * world.v22;
+					float c02 = world.v10 * world.v21 - world.v11 * world.v20;
+					float c10 = world.v02 * world.v21 - world.v01 * world.v22;
+					float c11 = world.v00 * world.v22 - world.v02 * world.v20;
+					float c12 = world.v01 * world.v20 - world.v00 * world.v21;
+					float c20 = world.v01 * world.v12 - world.v02 * world.v11;
+					float c21 = world.v02 * world.v10 - world.v00 * world.v12;
+					float c22 = world.v00 * world.v11 - world.v01 * world.v10;
+					float det = world.v00 * c00 + world.v01 * c01 + world.v02 * c02;
+					if (det < 0) {
+						c00 = -c00;
+						c01 = -c01;
+						c02 = -c02;
+						c10 = -c10;
+						c11 = -c11;
+						c12 = -c12;
+						c20 = -c20;
+						c21 = -c21;
+						c22 = -c22;
+					}
+					for (int v = 0; v < count; v++) {
+						float x = read(property, v * 3), y = read(property, v * 3 + 1), z = read(property, v * 3 + 2);
+						writeNormalized(out, (vertex + v) * 3, c00 * x + c01 * y + c02 * z, c10 * x + c11 * y + c12 * z,
+								c20 * x + c21 * y + c22 * z);
+					}
+					break;
+				case NORMAL_TANGENT:
+				case NORMAL_BITANGENT:
+					for (int v = 0; v < count; v++) {
+						float x = read(property, v * 3), y = read(property, v * 3 + 1), z = read(property, v * 3 + 2);
+						writeNormalized(out, (vertex + v) * 3, world.v00 * x + world.v01 * y + world.v02 * z,
+								world.v10 * x + world.v11 * y + world.v12 * z, world.v20 * x + world.v21 * y + world.v22 * z);
+					}
+					break;
+				default:
+					int length = Math.min(count * per, rawLength(property));
+					int o = vertex * per;
+					if (property.dataType == VertexPropertyDataType.FLOAT) {
+						System.arraycopy(property.floatProp, 0, out, o, length);
+					} else {
+						for (int i = 0; i < length; i++) {
+							out[o + i] = read(property, i);
+						}
+					}
+					break;
+				}
+			}
+			vertex += count;
+			index += indexCount;
+		}
+
+		VertexedProperty[] others = new VertexedProperty[typeCount];
+		VertexedProperty positions = null;
+		int otherCount = 0;
+		for (int t = 0; t < typeCount; t++) {
+			VertexedProperty property = new VertexedProperty(outputs[t], types[t]);
+			if (types[t] == VertexPropertyType.VERTEX_POS) {
+				positions = property;
+			} else {
+				others[otherCount++] = property;
+			}
+		}
+		Mesh mesh = new Mesh(positions, new VertexedProperty(outIndices, VertexPropertyType.INDICES),
+				Arrays.copyOf(others, otherCount));
+		return new Batch(mesh, sources, rangeStarts, rangeCounts, rangeBounds);
+	}
+
+	private static void writeNormalized(float[] out, int o, float x, float y, float z) {
+		float length = (float) Math.sqrt(x * x + y * y + z * z);
+		float inv = length == 0 ? 0 : 1 / length;
+		out[o] = x * inv;
+		out[o + 1] = y * inv;
+		out[o + 2] = z * inv;
+	}
+
+	private static int rawLength(VertexedProperty property) {
+		switch (property.dataType) {
+		case BYTE:
+			return property.byteProp.length;
+		case FLOAT:
+			return property.floatProp.length;
+		case INT:
+			return property.intProp.length;
+		}
+		return 0;
+	}
+
+	private static float read(VertexedProperty property, int i) {
+		switch (property.dataType) {
+		case BYTE:
+			return property.byteProp[i];
+		case FLOAT:
+			return property.floatProp[i];
+		case INT:
+			return property.intProp[i];
+		}
+		return 0;
+	}
+
+	private static int readIndex(VertexedProperty property, int i) {
+		if (property.dataType == VertexPropertyDataType.BYTE) {
+			return property.byteProp[i] & 0xFF;
+		}
+		return property.intProp[i];
+	}
+
+}
@@ -0,0 +1,427 @@
+package net.chazzvader.core.generic.engine.creator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.mesh.MeshOptimizer;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyDataType;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+import net.chazzvader.core.generic.math.Bounds;
+
+/**
+ * Keeps processed meshes in a binary file, so they don't have to be parsed and
+ * have their normals and tangents worked out again every start. The file holds
+ * every property of the mesh exactly as it is in memory, its bounds, and a hash
+ * and the length of the source it was made from. When the source changes the
+ * hash no longer matches, and the mesh is made again from the source and the
+ * file rewritten.<br>
+ * <br>
+ * The cache files are written next to the source, with
+ * {@value #EXTENSION} added to the name, unless a cache directory is set with
+ * {@link #setCacheDirectory(String)}. Sources that aren't files on disk, like
+ * ones inside a jar, are only cached if there is a cache directory.<br>
+ * <br>
+ * All values are little endian. The file is a header of the magic number, the
+ * format version, the source hash, the source length, the processing flags,
+ * the vertex count, the bounds as the box, the center and the radius, and the
+ * property count, and then for every property its usage and data type as a
+ * byte each, two bytes of padding, the length of its array and the array
+ * itself, padded to four bytes.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class BinaryMeshCache {
+
+	/**
+	 * Work out the normals from the faces if the source doesn't have them.
+	 */
+	public static final int CALCULATE_NORMALS = 1;
+
+	/**
+	 * Add tangents and bitangents, so normal maps can be used. Needs texture
+	 * coordinates.
+	 */
+	public static final int TANGENT_BITANGENT = 2;
+
+	/**
+	 * Reorder the triangles and vertices with {@link MeshOptimizer}, after any
+	 * other processing.
+	 */
+	public static final int OPTIMIZE = 4;
+
+	/**
+	 * The extension added to the name of the source for the cache file.
+	 */
+	public static final String EXTENSION = ".meshcache";
+
+	private static final int MAGIC = 0x434D524A;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 10 * 4 + 4;
+
+	private static String cacheDirectory = null;
+	private static int hits = 0;
+	private static int misses = 0;
+
+	private BinaryMeshCache() {
+	}
+
+	/**
+	 * Sets the directory cache files are written to and read from.
+	 *
+	 * @param directory The directory, or null to put the cache files next to the
+	 *                  sources.
+	 */
+	public static void setCacheDirectory(String directory) {
+		cacheDirectory = directory;
+	}
+
+	/**
+	 * Gets the directory cache files are written to and read from.
+	 *
+	 * @return The directory, or null if the cache files are put next to the
+	 *         sources.
+	 */
+	public static String getCacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * Loads an OBJ file through the cache. If there is a cache file for it made
+	 * from the same source with the same processing, the mesh is read out of
+	 * that, otherwise the source is loaded with {@link OBJLoader}, processed, and
+	 * the cache file written.
+	 *
+	 * @param filePath   The path of the OBJ file, looked for like
+	 *                   {@link OBJLoader#loadFromFilePath(String)}.
+	 * @param processing What to do to the mesh after loading it, any of
+	 *                   {@link #CALCULATE_NORMALS},
+	 *                   {@link #TANGENT_BITANGENT} and {@link #OPTIMIZE}.
+	 * @return The mesh, or null if the source couldn't be read or is malformed.
+	 */
+	public static Mesh loadOBJ(String filePath, int processing) {
+		filePath = filePath.replace('\\', '/');
+		ByteBuffer source = OBJLoader.readSource(filePath);
+		if (source == null) {
+			return null;
+		}
+		long sourceHash = hash(source);
+		long sourceLength = source.remaining();
+		Path cacheFile = cacheFile(filePath);
+		if (cacheFile != null) {
+			Mesh mesh = read(cacheFile, sourceHash, sourceLength, processing);
+			if (mesh != null) {
+				hits++;
+				Logging.log("Loaded " + filePath + " from cache", "BinaryMeshCache", LoggingLevel.DEBUG);
+				return mesh;
+			}
+		}
+		misses++;
+		Mesh mesh = OBJLoader.loadFromBuffer(source);
+		if (mesh == null) {
+			return null;
+		}
+		mesh = process(mesh, processing);
+		if (cacheFile != null) {
+			write(mesh, cacheFile, sourceHash, sourceLength, processing);
+		}
+		return mesh;
+	}
+
+	private static Mesh process(Mesh mesh, int processing) {
+		if ((processing & CALCULATE_NORMALS) != 0) {
+			mesh = mesh.calculateNormals();
+		}
+		if ((processing & TANGENT_BITANGENT) != 0) {
+			if (mesh.getByUsage(VertexPropertyType.TEXTURE_COORDINATES) == null) {
+				Logging.log("Can't add tangents to a mesh without texture coordinates", "BinaryMeshCache",
+						LoggingLevel.WARN);
+			} else {
+				mesh = mesh.addTangentBitangent();
+			}
+		}
+		if ((processing & OPTIMIZE) != 0) {
+			mesh = MeshOptimizer.optimize(mesh);
+		}
+		return mesh;
+	}
+
+	private static Path cacheFile(String filePath) {
+		if (cacheDirectory != null) {
+			return Paths.get(cacheDirectory).resolve(filePath.replace('/', '_').replace(':', '_') + EXTENSION);
+		}
+		Path source = OBJLoader.findFile(filePath);
+		return source == null ? null : source.resolveSibling(source.getFileName() + EXTENSION);
+	}
+
+	/**
+	 * Hashes the source of a mesh. The position of the buffer isn't changed.
+	 *
+	 * @param data The data to hash, from its position to its limit.
+	 * @return The 64 bit hash.
+	 */
+	public static long hash(ByteBuffer data) {
+		ByteBuffer buffer = data.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		long hash = 0x9E3779B97F4A7C15L ^ buffer.remaining();
+		while (buffer.remaining() >= 8) {
+			hash = mix(hash, buffer.getLong());
+		}
+		while (buffer.hasRemaining()) {
+			hash = mix(hash, buffer.get() & 0xFF);
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xFF51AFD7ED558CCDL;
+		hash ^= hash >>> 33;
+		hash *= 0xC4CEB9FE1A85EC53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private static long mix(long hash, long value) {
+		value *= 0x87C37B91114253D5L;
+		value = Long.rotateLeft(value, 31);
+		value *= 0x4CF5AD432745937FL;
+		hash ^= value;
+		return Long.rotateLeft(hash, 27) * 5 + 0x52DCE729;
+	}
+
+	/**
+	 * Writes a mesh to a cache file. The file is written next to where it goes
+	 * and then moved over it, so a half written file is never read.
+	 *
+	 * @param mesh         The mesh.
+	 * @param file         The cache file.
+	 * @param sourceHash   The hash of the source, from {@link #hash(ByteBuffer)}.
+	 * @param sourceLength The length of the source in bytes.
+	 * @param processing   The processing flags the mesh was made with.
+	 * @return If the file was written.
+	 */
+	public static boolean write(Mesh mesh, Path file, long sourceHash, long sourceLength, int processing) {
+		if (mesh.properties.length == 0 || mesh.properties[0].usage == VertexPropertyType.INDICES) {
+			Logging.log("Can't cache a mesh that starts with its indices", "BinaryMeshCache", LoggingLevel.WARN);
+			return false;
+		}
+		Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+		try {
+			if (file.getParent() != null) {
+				Files.createDirectories(file.getParent());
+			}
+			try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				Bounds bounds = mesh.getBounds();
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				header.putInt(MAGIC).putInt(VERSION).putLong(sourceHash).putLong(sourceLength).putInt(processing);
+				header.putInt(mesh.verticeCount);
+				header.putFloat(bounds.minX).putFloat(bounds.minY).putFloat(bounds.minZ);
+				header.putFloat(bounds.maxX).putFloat(bounds.maxY).putFloat(bounds.maxZ);
+				header.putFloat(bounds.centerX).putFloat(bounds.centerY).putFloat(bounds.centerZ);
+				header.putFloat(bounds.radius);
+				header.putInt(mesh.properties.length);
+				header.flip();
+				writeAll(channel, header);
+				for (int i = 0; i < mesh.properties.length; i++) {
+					writeAll(channel, encode(mesh.properties[i]));
+				}
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			return true;
+		} catch (IOException e) {
+			Logging.log("Could not write mesh cache " + file, "BinaryMeshCache", LoggingLevel.WARN);
+			if (Configuration.isDebugMode()) {
+				e.printStackTrace();
+			}
+			try {
+				Files.deleteIfExists(temporary);
+			} catch (IOException e2) {
+				// Nothing else can be done
+			}
+			return false;
+		}
+	}
+
+	private static void writeAll(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	private static ByteBuffer encode(VertexedProperty property) {
+		int length;
+		switch (property.dataType) {
+		case BYTE:
+			length = property.byteProp.length;
+			break;
+		case FLOAT:
+			length = property.floatProp.length;
+			break;
+		default:
+			length = property.intProp.length;
+			break;
+		}
+		int size = property.dataType == VertexPropertyDataType.BYTE ? (length + 3) & ~3 : length * 4;
+		ByteBuffer buffer = ByteBuffer.allocate(8 + size).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.put((byte) property.usage.ordinal()).put((byte) property.dataType.ordinal()).putShort((short) 0);
+		buffer.putInt(length);
+		switch (property.dataType) {
+		case BYTE:
+			buffer.put(property.byteProp);
+			break;
+		case FLOAT:
+			buffer.asFloatBuffer().put(property.floatProp);
+			break;
+		case INT:
+			buffer.asIntBuffer().put(property.intProp);
+			break;
+		}
+		buffer.position(0);
+		return buffer;
+	}
+
+	/**
+	 * Reads a mesh out of a cache file. The header is read and checked first, so
+	 * a stale file is not read any further, and then the rest of the file is
+	 * read in one go and every property copied out of it into its array. The
+	 * file is not mapped, so it can be replaced right after.
+	 *
+	 * @param file         The cache file.
+	 * @param sourceHash   The hash the source must have, from
+	 *                     {@link #hash(ByteBuffer)}.
+	 * @param sourceLength The length the source must have, in bytes.
+	 * @param processing   The processing flags the mesh must have been made with.
+	 * @return The mesh, or null if there is no file, it was made from a different
+	 *         source or with different processing, or it is damaged.
+	 */
+	public static Mesh read(Path file, long sourceHash, long sourceLength, int processing) {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > Integer.MAX_VALUE) {
+				return stale(file);
+			}
+			ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readAll(channel, data);
+			if (data.getInt() != MAGIC || data.getInt() != VERSION || data.getLong() != sourceHash
+					|| data.getLong() != sourceLength || data.getInt() != processing) {
+				return stale(file);
+			}
+			int vertices = data.getInt();
+			Bounds bounds = new Bounds();
+			bounds.minX = data.getFloat();
+			bounds.minY = data.getFloat();
+			bounds.minZ = data.getFloat();
+			bounds.maxX = data.getFloat();
+			bounds.maxY = data.getFloat();
+			bounds.maxZ = data.getFloat();
+			bounds.centerX = data.getFloat();
+			bounds.centerY = data.getFloat();
+			bounds.centerZ = data.getFloat();
+			bounds.radius = data.getFloat();
+			int count = data.getInt();
+			VertexPropertyType[] usages = VertexPropertyType.values();
+			VertexPropertyDataType[] dataTypes = VertexPropertyDataType.values();
+			if (count <= 0 || count > usages.length) {
+				return stale(file);
+			}
+			data = ByteBuffer.allocate((int) channel.size() - HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			readAll(channel, data);
+			VertexedProperty[] properties = new VertexedProperty[count];
+			for (int i = 0; i < count; i++) {
+				int usage = data.get();
+				int dataType = data.get();
+				data.getShort();
+				int length = data.getInt();
+				if (usage < 0 || usage >= usages.length || dataType < 0 || dataType >= dataTypes.length
+						|| length < 0) {
+					return stale(file);
+				}
+				// A damaged length could be huge, so it is checked against what is left before
+				// the array is made
+				long size = dataTypes[dataType] == VertexPropertyDataType.BYTE ? (length + 3L) & ~3L : length * 4L;
+				if (size > data.remaining()) {
+					return stale(file);
+				}
+				switch (dataTypes[dataType]) {
+				case BYTE:
+					byte[] bytes = new byte[length];
+					data.get(bytes);
+					data.position(data.position() + (-length & 3));
+					properties[i] = new VertexedProperty(bytes, usages[usage]);
+					break;
+				case FLOAT:
+					float[] floats = new float[length];
+					data.asFloatBuffer().get(floats);
+					data.position(data.position() + length * 4);
+					properties[i] = new VertexedProperty(floats, usages[usage]);
+					break;
+				case INT:
+					int[] ints = new int[length];
+					data.asIntBuffer().get(ints);
+					data.position(data.position() + length * 4);
+					properties[i] = new VertexedProperty(ints, usages[usage]);
+					break;
+				}
+			}
+			if (data.hasRemaining() || properties[0].usage == VertexPropertyType.INDICES) {
+				return stale(file);
+			}
+			Mesh mesh = new Mesh(null, null, properties);
+			if (mesh.verticeCount != vertices) {
+				return stale(file);
+			}
+			mesh.setBounds(bounds);
+			return mesh;
+		} catch (IOException | BufferUnderflowException | IllegalArgumentException e) {
+			return stale(file);
+		}
+	}
+
+	// Fills the buffer from the channel and flips it for reading
+	private static void readAll(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) == -1) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		buffer.flip();
+	}
+
+	private static Mesh stale(Path file) {
+		Logging.log("Mesh cache " + file + " is out of date or damaged", "BinaryMeshCache", LoggingLevel.DEBUG);
+		return null;
+	}
+
+	/**
+	 * The amount of meshes loaded out of cache files since the start.
+	 *
+	 * @return The amount of cache hits.
+	 */
+	public static int getHits() {
+		return hits;
+	}
+
+	/**
+	 * The amount of meshes that had to be loaded from their source since the
+	 * start.
+	 *
+	 * @return The amount of cache misses.
+	 */
+	public static int getMisses() {
+		return misses;
+	}
+
+}
@@ -0,0 +1,121 @@
+package net.chazzvader.core.generic.engine.creator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.math.Vector3f;
+import net.chazzvader.core.generic.util.Utils;
+
+/**
+ * Loads the materials out of MTL files, the material libraries used by OBJ
+ * files. Colors, the specular exponent, dissolve, and the diffuse, specular and
+ * normal texture paths are read, everything else is ignored.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class MTLLoader {
+
+	private MTLLoader() {
+	}
+
+	/**
+	 * Loads an MTL file. Texture paths are made relative to the folder of the
+	 * file.
+	 *
+	 * @param filePath The path of the file.
+	 * @return The materials by name, empty if the file couldn't be read.
+	 */
+	public static LinkedHashMap<String, OBJMaterial> loadFromFilePath(String filePath) {
+		filePath = filePath.replace('\\', '/');
+		InputStream stream = Utils.getFromPath(filePath);
+		if (stream == null) {
+			Logging.log("Could not find material library " + filePath, "MTLLoader", LoggingLevel.WARN);
+			return new LinkedHashMap<>();
+		}
+		return loadFromReader(new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8)),
+				filePath.substring(0, filePath.lastIndexOf('/') + 1));
+	}
+
+	/**
+	 * Loads an MTL file from a reader.
+	 *
+	 * @param reader    The reader. It is closed afterwards.
+	 * @param directory Put in front of texture paths, may be empty.
+	 * @return The materials by name, empty if the reader failed.
+	 */
+	public static LinkedHashMap<String, OBJMaterial> loadFromReader(BufferedReader reader, String directory) {
+		LinkedHashMap<String, OBJMaterial> materials = new LinkedHashMap<>();
+		OBJMaterial current = null;
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.charAt(0) == '#') {
+					continue;
+				}
+				String[] split = line.split("\\s+");
+				String command = split[0];
+				if (command.equals("newmtl")) {
+					current = new OBJMaterial(line.substring(command.length()).trim());
+					materials.put(current.name, current);
+				} else if (current == null) {
+					Logging.log("Material command " + command + " before newmtl, ignoring", "MTLLoader",
+							LoggingLevel.WARN);
+				} else if (command.equals("Ka")) {
+					current.ambientColor = readColor(split);
+				} else if (command.equals("Kd")) {
+					current.diffuseColor = readColor(split);
+				} else if (command.equals("Ks")) {
+					current.specularColor = readColor(split);
+				} else if (command.equals("Ns")) {
+					current.specularExponent = Float.parseFloat(split[1]);
+				} else if (command.equals("d")) {
+					current.dissolve = Float.parseFloat(split[1]);
+				} else if (command.equals("Tr")) {
+					current.dissolve = 1 - Float.parseFloat(split[1]);
+				} else if (command.equals("map_Kd")) {
+					current.diffuseMap = directory + split[split.length - 1];
+				} else if (command.equals("map_Ks")) {
+					current.specularMap = directory + split[split.length - 1];
+				} else if (command.equals("map_Bump") || command.equals("map_bump") || command.equals("bump")
+						|| command.equals("norm")) {
+					// Options like -bm come before the path, so the path is last
+					current.normalMap = directory + split[split.length - 1];
+				} else {
+					Logging.log("Unsupported command " + command, "MTLLoader", LoggingLevel.DEBUG);
+				}
+			}
+			reader.close();
+		} catch (IOException e) {
+			Logging.log("Invalid input: IO Exception", "MTLLoader", LoggingLevel.ERR);
+			if (Configuration.isDebugMode()) {
+				e.printStackTrace();
+			}
+		} catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+			Logging.log("Malformed MTL: " + e.getClass().getSimpleName(), "MTLLoader", LoggingLevel.ERR);
+			if (Configuration.isDebugMode()) {
+				e.printStackTrace();
+			}
+		}
+		return materials;
+	}
+
+	private static Vector3f readColor(String[] split) {
+		float r = Float.parseFloat(split[1]);
+		// A single value is used for all three
+		if (split.length < 4) {
+			return new Vector3f(r, r, r);
+		}
+		return new Vector3f(r, Float.parseFloat(split[2]), Float.parseFloat(split[3]));
+	}
+
+}
@@ -2,9 +2,19 @@ package net.chazzvader.core.generic.engine.creator;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.UnsupportedEncodingException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import net.chazzvader.core.generic.Configuration;
 import net.chazzvader.core.generic.Logging;
@@ -12,161 +22,857 @@ import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.mesh.Mesh;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
-import net.chazzvader.core.generic.math.Vector2f;
-import net.chazzvader.core.generic.math.Vector3f;
 import net.chazzvader.core.generic.util.Utils;
 
+/**
+ * Loads meshes from OBJ files. Files on disk are read into one buffer of
+ * their exact size and everything else is read from its stream into one byte
+ * array, then the bytes are parsed in place
+ * straight into primitive arrays, without making a string or an object per
+ * line. Large files are split at line breaks and the pieces are parsed at the
+ * same time on the common {@link ForkJoinPool}.<br>
+ * <br>
+ * Faces can give separate position, texture coordinate and normal indices, as
+ * <code>v</code>, <code>v/vt</code>, <code>v//vn</code> or
+ * <code>v/vt/vn</code>, and indices can be negative to count back from the
+ * last one defined. Every different combination becomes one vertex of the
+ * mesh. Faces with more than 3 corners are split into a triangle fan.
+ * <code>o</code>, <code>g</code> and <code>usemtl</code> split the faces into
+ * groups, and <code>mtllib</code> files are loaded with {@link MTLLoader}.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
 public class OBJLoader {
-	
+
+	/**
+	 * Files at least this many bytes long are parsed in pieces on multiple
+	 * threads.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 22;
+
+	private static final int BYTES_PER_PIECE = 1 << 20;
+
 	private OBJLoader() {
 	}
-	
-	
-	//TODO: OBJReader null checks
+
+	/**
+	 * Loads an OBJ file as one mesh. Like {@link Utils#getFromPath(String)}, the
+	 * path is looked for on the class path first, then on disk.
+	 *
+	 * @param filePath The path of the file.
+	 * @return The mesh, or null if the file couldn't be read or is malformed.
+	 */
 	public static Mesh loadFromFilePath(String filePath) {
-		try {
-			return loadFromReader(new BufferedReader(new InputStreamReader(Utils.getFromPath(filePath), "UTF-8")));
-		} catch (UnsupportedEncodingException e) {
-			e.printStackTrace();
+		OBJModel model = loadModelFromFilePath(filePath);
+		return model == null ? null : model.mesh;
+	}
+
+	/**
+	 * Loads an OBJ file with its groups and materials. Material libraries are
+	 * looked for next to the OBJ file.
+	 *
+	 * @param filePath The path of the file.
+	 * @return The model, or null if the file couldn't be read or is malformed.
+	 */
+	public static OBJModel loadModelFromFilePath(String filePath) {
+		filePath = filePath.replace('\\', '/');
+		ByteBuffer data = readSource(filePath);
+		if (data == null) {
+			return null;
+		}
+		OBJModel model = loadModelFromBuffer(data);
+		if (model != null) {
+			String directory = filePath.substring(0, filePath.lastIndexOf('/') + 1);
+			for (int i = 0; i < model.materialLibraries.length; i++) {
+				model.materials.putAll(MTLLoader.loadFromFilePath(directory + model.materialLibraries[i]));
+			}
 		}
-		return null;
+		return model;
 	}
-	
-	public static Mesh loadFromReader(BufferedReader reader) {//TODO: Fix arrays
+
+	// Reads a file on disk in one go with its size known, otherwise reads it all from its stream.
+	// The file isn't mapped, as a mapping keeps it open until the buffer is garbage collected
+	static ByteBuffer readSource(String filePath) {
 		try {
-			ArrayList<Vector3f> positions = new ArrayList<>();
-			ArrayList<Vector2f> texCoords = new ArrayList<>();
-			ArrayList<Vector3f> normals = new ArrayList<>();
-			ArrayList<Integer> indices = new ArrayList<>();
-			String buffer = "";
-			while ((buffer = reader.readLine()) != null) {
-				char[] ca = buffer.toCharArray();
-				String[] split = buffer.split(" ");
-				if(ca.length == 0) {
-					/*Empty line, just skip it*/
-				} else if(ca[0] == '#') {
-					/*Comment, just skip it*/
-				} else if(ca[0] == 'v') {
-					if(ca[1] == ' ') {
-						positions.add(new Vector3f(Float.parseFloat(split[1]), Float.parseFloat(split[2]), Float.parseFloat(split[3])));
-					} else if(ca[1] == 't') {
-						texCoords.add(new Vector2f(Float.parseFloat(split[1]), Float.parseFloat(split[2])));
-					} else if(ca[1] == 'n') {
-						normals.add(new Vector3f(Float.parseFloat(split[1]), Float.parseFloat(split[2]), Float.parseFloat(split[3])));
-					} else {
-						Logging.log("Unsupported command " + split[0], "OBJ Loader", LoggingLevel.DEBUG);
-					}
-				}else if(ca[0] == 'f') {
-					if(buffer.contains("/")) {
-						Logging.log("Face commands with different normal/texture coordinate indices currently unsupported.", "OBJLoader", LoggingLevel.ERR);
+			Path path = findFile(filePath);
+			if (path != null) {
+				try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+					if (channel.size() > Integer.MAX_VALUE) {
+						Logging.log("OBJ file " + filePath + " is too large", "OBJLoader", LoggingLevel.ERR);
 						return null;
 					}
-					int numParams = split.length-1;
-					if(numParams < 3) {
-						Logging.log("Face command with only " + numParams + " parameters, ignoring", "OBJLoader", LoggingLevel.WARN);
-					} else if(numParams == 3) {/*Single triangle*/
-						indices.add(Integer.parseInt(split[1])-1);
-						indices.add(Integer.parseInt(split[2])-1);
-						indices.add(Integer.parseInt(split[3])-1);
-					} else {
-						for(int j = 1;j < numParams-1;j ++) {/*Polygon, treat as coplanar, convex polygon and use triangle fan.*/
-							indices.add(Integer.parseInt(split[1])-1);
-							indices.add(Integer.parseInt(split[j+1])-1);
-							indices.add(Integer.parseInt(split[j+2])-1);
+					ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+					while (data.hasRemaining()) {
+						if (channel.read(data) == -1) {
+							break;
 						}
 					}
-				} else {
-					Logging.log("Unsupported command " + split[0], "OBJ Loader", LoggingLevel.DEBUG);
+					data.flip();
+					return data;
 				}
 			}
-			reader.close();
-			
-			float[] positionsFinal = new float[positions.size()*3];
-			for(int i = 0;i < positions.size();i ++) {
-				Vector3f pos = positions.get(i);
-				positionsFinal[i*3+0] = pos.x;
-				positionsFinal[i*3+1] = pos.y;
-				positionsFinal[i*3+2] = pos.z;
-			}
-			VertexedProperty positionsProperty = new VertexedProperty(positionsFinal, VertexPropertyType.VERTEX_POS);
-			
-			int[] indicesFinal = new int[indices.size()];
-			for(int i = 0;i < indices.size();i ++) {
-				indicesFinal[i] = indices.get(i);
-			}
-			VertexedProperty indicesProperty = new VertexedProperty(indicesFinal, VertexPropertyType.INDICES);
-
-			if(texCoords.size() != 0) {
-				float[] texCoordsFinal = new float[texCoords.size()*2];
-				for(int i = 0;i < texCoords.size();i ++) {
-					Vector2f tc = texCoords.get(i);
-					texCoordsFinal[i*2+0] = tc.x;
-					texCoordsFinal[i*2+1] = tc.y;
-				}
-				VertexedProperty texCoordsProperty = new VertexedProperty(texCoordsFinal, VertexPropertyType.TEXTURE_COORDINATES);
-
-				if(normals.size() != 0) {/*Normals & TC*/					
-					float[] normalsFinal = new float[normals.size()*3];
-					for(int i = 0;i < normals.size();i ++) {
-						Vector3f norm = normals.get(i);
-						normalsFinal[i*3+0] = norm.x;
-						normalsFinal[i*3+1] = norm.y;
-						normalsFinal[i*3+2] = norm.z;
-					}
-					VertexedProperty normalsProperty = new VertexedProperty(normalsFinal, VertexPropertyType.NORMALS);
-					return new Mesh(positionsProperty, indicesProperty, texCoordsProperty, normalsProperty);
-				} else {/*TC*/
-					return new Mesh(positionsProperty, indicesProperty, texCoordsProperty);
-				}
-			} else {
-				if(normals.size() != 0) {/*Normals*/					
-					float[] normalsFinal = new float[normals.size()*3];
-					for(int i = 0;i < normals.size();i ++) {
-						Vector3f norm = normals.get(i);
-						normalsFinal[i*3+0] = norm.x;
-						normalsFinal[i*3+1] = norm.y;
-						normalsFinal[i*3+2] = norm.z;
-					}
-					VertexedProperty normalsProperty = new VertexedProperty(normalsFinal, VertexPropertyType.NORMALS);
-					
-					return new Mesh(positionsProperty, indicesProperty, normalsProperty);
-				} else {/**/
-					return new Mesh(positionsProperty, indicesProperty);
-				}
+			InputStream stream = Utils.getFromPath(filePath);
+			if (stream == null) {
+				Logging.log("Could not find OBJ file " + filePath, "OBJLoader", LoggingLevel.ERR);
+				return null;
+			}
+			try {
+				return ByteBuffer.wrap(readFully(stream));
+			} finally {
+				stream.close();
 			}
-			
-			
 		} catch (IOException e) {
 			Logging.log("Invalid input: IO Exception", "OBJLoader", LoggingLevel.ERR);
-			if(Configuration.isDebugMode()) {
+			if (Configuration.isDebugMode()) {
 				e.printStackTrace();
 			}
 			return null;
-		} catch (ArrayIndexOutOfBoundsException e) {
-			Logging.log("Malformed OBJ: Array Index Out Of Bounds", "OBJLoader", LoggingLevel.ERR);
-			if(Configuration.isDebugMode()) {
-				e.printStackTrace();
+		}
+	}
+
+	// Finds the file on disk if there is one, so its size is known up front
+	static Path findFile(String filePath) {
+		try {
+			URL url = Thread.currentThread().getContextClassLoader().getResource(filePath);
+			if (url != null) {
+				return "file".equals(url.getProtocol()) ? Paths.get(url.toURI()) : null;
 			}
+			Path path = Paths.get((Configuration.getFilepathPrefix() + filePath).replace('\\', '/'));
+			return Files.isRegularFile(path) ? path : null;
+		} catch (Exception e) {
 			return null;
-		} catch (NumberFormatException e) {
-			Logging.log("Malformed OBJ: Number Format", "OBJLoader", LoggingLevel.ERR);
-			if(Configuration.isDebugMode()) {
-				e.printStackTrace();
+		}
+	}
+
+	private static byte[] readFully(InputStream stream) throws IOException {
+		byte[] data = new byte[1 << 16];
+		int length = 0;
+		int read;
+		while ((read = stream.read(data, length, data.length - length)) != -1) {
+			length += read;
+			if (length == data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
 			}
-			return null;
-		} catch (NullPointerException e) {
-			Logging.log("Malformed OBJ: Null Pointer", "OBJLoader", LoggingLevel.ERR);
-			if(Configuration.isDebugMode()) {
-				e.printStackTrace();
+		}
+		return Arrays.copyOf(data, length);
+	}
+
+	/**
+	 * Loads an OBJ file from a reader. Slower than the other loaders, as the
+	 * characters have to be turned back into bytes first.
+	 *
+	 * @param reader The reader. It is closed afterwards.
+	 * @return The mesh, or null if the reader failed or the data is malformed.
+	 */
+	public static Mesh loadFromReader(BufferedReader reader) {
+		try {
+			StringBuilder text = new StringBuilder();
+			char[] buffer = new char[1 << 16];
+			int read;
+			while ((read = reader.read(buffer)) != -1) {
+				text.append(buffer, 0, read);
 			}
-			return null;
-		} catch (Exception e) {
-			Logging.log("OBJ Loading Error: " + e.getClass().getSimpleName(), "OBJLoader", LoggingLevel.ERR);
-			if(Configuration.isDebugMode()) {
+			reader.close();
+			OBJModel model = loadModelFromBuffer(ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8)));
+			return model == null ? null : model.mesh;
+		} catch (IOException e) {
+			Logging.log("Invalid input: IO Exception", "OBJLoader", LoggingLevel.ERR);
+			if (Configuration.isDebugMode()) {
 				e.printStackTrace();
 			}
 			return null;
 		}
 	}
 
+	/**
+	 * Loads an OBJ file from bytes, from the start of the buffer to its limit. The
+	 * buffer's position is not changed.
+	 *
+	 * @param data The contents of the file.
+	 * @return The mesh, or null if the data is malformed.
+	 */
+	public static Mesh loadFromBuffer(ByteBuffer data) {
+		OBJModel model = loadModelFromBuffer(data);
+		return model == null ? null : model.mesh;
+	}
+
+	/**
+	 * Loads an OBJ file from bytes, from the start of the buffer to its limit. The
+	 * buffer's position is not changed. There is no file to find material
+	 * libraries next to, so only their names are kept.
+	 *
+	 * @param data The contents of the file.
+	 * @return The model, or null if the data is malformed.
+	 */
+	public static OBJModel loadModelFromBuffer(ByteBuffer data) {
+		int size = data.limit();
+		int pieces = 1;
+		if (size >= PARALLEL_THRESHOLD) {
+			pieces = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, size / BYTES_PER_PIECE));
+		}
+		Chunk[] chunks = new Chunk[pieces];
+		int start = 0;
+		for (int i = 0; i < pieces; i++) {
+			int end = i == pieces - 1 ? size : lineStart(data, Math.max(start, (int) ((long) size * (i + 1) / pieces)));
+			chunks[i] = new Chunk(data, start, end);
+			start = end;
+		}
+		if (pieces == 1) {
+			chunks[0].run();
+		} else {
+			ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[pieces];
+			for (int i = 0; i < pieces; i++) {
+				tasks[i] = ForkJoinPool.commonPool().submit(chunks[i]);
+			}
+			for (int i = 0; i < pieces; i++) {
+				tasks[i].join();
+			}
+		}
+		return merge(chunks);
+	}
+
+	// The start of the first line at or after the given byte
+	private static int lineStart(ByteBuffer data, int from) {
+		int size = data.limit();
+		if (from == 0) {
+			return 0;
+		}
+		while (from < size && data.get(from - 1) != '\n') {
+			from++;
+		}
+		return from;
+	}
+
+	private static OBJModel merge(Chunk[] chunks) {
+		int pieces = chunks.length;
+		int[] positionOffsets = new int[pieces], textureCoordinateOffsets = new int[pieces],
+				normalOffsets = new int[pieces], cornerOffsets = new int[pieces], triangleOffsets = new int[pieces];
+		int positions = 0, textureCoordinates = 0, normals = 0, corners = 0, triangles = 0;
+		int unsupported = 0, shortFaces = 0;
+		boolean explicit = false;
+		for (int i = 0; i < pieces; i++) {
+			Chunk chunk = chunks[i];
+			if (chunk.error != null) {
+				Logging.log(chunk.error, "OBJLoader", LoggingLevel.ERR);
+				return null;
+			}
+			positionOffsets[i] = positions;
+			textureCoordinateOffsets[i] = textureCoordinates;
+			normalOffsets[i] = normals;
+			cornerOffsets[i] = corners;
+			triangleOffsets[i] = triangles;
+			positions += chunk.positionCount / 3;
+			textureCoordinates += chunk.textureCoordinateCount / 2;
+			normals += chunk.normalCount / 3;
+			// Pieces with only positions get a corner for every triangle corner
+			corners += chunk.explicit ? chunk.cornerCount / 3 : chunk.triangleCount;
+			triangles += chunk.triangleCount / 3;
+			unsupported += chunk.unsupported;
+			shortFaces += chunk.shortFaces;
+			explicit |= chunk.explicit;
+		}
+		if (unsupported > 0) {
+			Logging.log("Ignored " + unsupported + " unsupported commands", "OBJLoader", LoggingLevel.DEBUG);
+		}
+		if (shortFaces > 0) {
+			Logging.log("Ignored " + shortFaces + " face commands with less than 3 parameters", "OBJLoader",
+					LoggingLevel.WARN);
+		}
+
+		float[] positionsFinal = new float[positions * 3];
+		float[] textureCoordinatesFinal = new float[textureCoordinates * 2];
+		float[] normalsFinal = new float[normals * 3];
+		int[] trianglesFinal = new int[triangles * 3];
+		int[] cornersFinal = explicit ? new int[corners * 3] : null;
+		for (int i = 0; i < pieces; i++) {
+			Chunk chunk = chunks[i];
+			System.arraycopy(chunk.positions, 0, positionsFinal, positionOffsets[i] * 3, chunk.positionCount);
+			System.arraycopy(chunk.textureCoordinates, 0, textureCoordinatesFinal, textureCoordinateOffsets[i] * 2,
+					chunk.textureCoordinateCount);
+			System.arraycopy(chunk.normals, 0, normalsFinal, normalOffsets[i] * 3, chunk.normalCount);
+			int triangleStart = triangleOffsets[i] * 3;
+			if (chunk.explicit) {
+				int cornerStart = cornerOffsets[i] * 3;
+				System.arraycopy(chunk.corners, 0, cornersFinal, cornerStart, chunk.cornerCount);
+				// Negative indices were counted from the start of the piece
+				for (int r = 0; r < chunk.relativeCount; r++) {
+					int slot = chunk.relative[r];
+					int component = slot % 3;
+					cornersFinal[cornerStart + slot] += component == 0 ? positionOffsets[i]
+							: component == 1 ? textureCoordinateOffsets[i] : normalOffsets[i];
+				}
+				for (int t = 0; t < chunk.triangleCount; t++) {
+					trianglesFinal[triangleStart + t] = chunk.triangles[t] + cornerOffsets[i];
+				}
+			} else {
+				System.arraycopy(chunk.triangles, 0, trianglesFinal, triangleStart, chunk.triangleCount);
+				for (int r = 0; r < chunk.relativeCount; r++) {
+					trianglesFinal[triangleStart + chunk.relative[r]] += positionOffsets[i];
+				}
+				if (explicit) {
+					int cornerStart = cornerOffsets[i] * 3;
+					for (int t = 0; t < chunk.triangleCount; t++) {
+						cornersFinal[cornerStart + t * 3] = trianglesFinal[triangleStart + t];
+						cornersFinal[cornerStart + t * 3 + 1] = -1;
+						cornersFinal[cornerStart + t * 3 + 2] = -1;
+						trianglesFinal[triangleStart + t] = cornerOffsets[i] + t;
+					}
+				}
+			}
+		}
+
+		Mesh mesh;
+		if (explicit) {
+			for (int c = 0; c < cornersFinal.length; c += 3) {
+				if (cornersFinal[c] < 0 || cornersFinal[c] >= positions || cornersFinal[c + 1] < -1
+						|| cornersFinal[c + 1] >= textureCoordinates || cornersFinal[c + 2] < -1
+						|| cornersFinal[c + 2] >= normals) {
+					Logging.log("Malformed OBJ: Face index out of range", "OBJLoader", LoggingLevel.ERR);
+					return null;
+				}
+			}
+			mesh = weld(positionsFinal, textureCoordinatesFinal, normalsFinal, cornersFinal, trianglesFinal);
+		} else {
+			for (int i = 0; i < trianglesFinal.length; i++) {
+				if (trianglesFinal[i] < 0 || trianglesFinal[i] >= positions) {
+					Logging.log("Malformed OBJ: Face index out of range", "OBJLoader", LoggingLevel.ERR);
+					return null;
+				}
+			}
+			// Only position indices, so every position is a vertex and any texture
+			// coordinates and normals are taken to line up with them
+			mesh = createMesh(positionsFinal, trianglesFinal, textureCoordinates != 0 ? textureCoordinatesFinal : null,
+					normals != 0 ? normalsFinal : null);
+		}
+
+		ArrayList<String> libraries = new ArrayList<>();
+		for (int i = 0; i < pieces; i++) {
+			libraries.addAll(chunks[i].libraries);
+		}
+		return new OBJModel(mesh, groups(chunks, triangleOffsets, triangles),
+				libraries.toArray(new String[libraries.size()]));
+	}
+
+	private static Mesh createMesh(float[] positions, int[] indices, float[] textureCoordinates, float[] normals) {
+		VertexedProperty positionsProperty = new VertexedProperty(positions, VertexPropertyType.VERTEX_POS);
+		VertexedProperty indicesProperty = new VertexedProperty(indices, VertexPropertyType.INDICES);
+		VertexedProperty[] others = new VertexedProperty[(textureCoordinates != null ? 1 : 0)
+				+ (normals != null ? 1 : 0)];
+		int other = 0;
+		if (textureCoordinates != null) {
+			others[other++] = new VertexedProperty(textureCoordinates, VertexPropertyType.TEXTURE_COORDINATES);
+		}
+		if (normals != null) {
+			others[other++] = new VertexedProperty(normals, VertexPropertyType.NORMALS);
+		}
+		return new Mesh(positionsProperty, indicesProperty, others);
+	}
+
+	// Makes a vertex for every different position/texture coordinate/normal
+	// triple, using an open addressing table of vertex ids keyed on the triple
+	private static Mesh weld(float[] positions, float[] textureCoordinates, float[] normals, int[] corners,
+			int[] triangles) {
+		int cornerCount = corners.length / 3;
+		int capacity = Integer.highestOneBit(Math.max(16, cornerCount * 2 - 1)) << 1;
+		int mask = capacity - 1;
+		int[] table = new int[capacity];
+		int[] keys = new int[cornerCount * 3];
+		int[] cornerVertices = new int[cornerCount];
+		int vertices = 0;
+		for (int c = 0; c < cornerCount; c++) {
+			int p = corners[c * 3], t = corners[c * 3 + 1], n = corners[c * 3 + 2];
+			int h = (p * 0x9E3779B1) ^ (t * 0x85EBCA77) ^ (n * 0xC2B2AE3D);
+			int slot = (h ^ (h >>> 15)) & mask;
+			int vertex;
+			while (true) {
+				vertex = table[slot] - 1;
+				if (vertex == -1) {
+					vertex = vertices++;
+					keys[vertex * 3] = p;
+					keys[vertex * 3 + 1] = t;
+					keys[vertex * 3 + 2] = n;
+					table[slot] = vertex + 1;
+					break;
+				}
+				if (keys[vertex * 3] == p && keys[vertex * 3 + 1] == t && keys[vertex * 3 + 2] == n) {
+					break;
+				}
+				slot = (slot + 1) & mask;
+			}
+			cornerVertices[c] = vertex;
+		}
+
+		boolean hasTextureCoordinates = textureCoordinates.length != 0;
+		boolean hasNormals = normals.length != 0;
+		float[] positionsFinal = new float[vertices * 3];
+		float[] textureCoordinatesFinal = hasTextureCoordinates ? new float[vertices * 2] : null;
+		float[] normalsFinal = hasNormals ? new float[vertices * 3] : null;
+		for (int v = 0; v < vertices; v++) {
+			int p = keys[v * 3], t = keys[v * 3 + 1], n = keys[v * 3 + 2];
+			System.arraycopy(positions, p * 3, positionsFinal, v * 3, 3);
+			if (hasTextureCoordinates && t != -1) {
+				textureCoordinatesFinal[v * 2] = textureCoordinates[t * 2];
+				textureCoordinatesFinal[v * 2 + 1] = textureCoordinates[t * 2 + 1];
+			}
+			if (hasNormals && n != -1) {
+				System.arraycopy(normals, n * 3, normalsFinal, v * 3, 3);
+			}
+		}
+		int[] indices = new int[triangles.length];
+		for (int i = 0; i < indices.length; i++) {
+			indices[i] = cornerVertices[triangles[i]];
+		}
+		return createMesh(positionsFinal, indices, textureCoordinatesFinal, normalsFinal);
+	}
+
+	// Replays the o, g and usemtl commands of every piece in order, starting a new
+	// group whenever one of them changes
+	private static OBJModel.Group[] groups(Chunk[] chunks, int[] triangleOffsets, int triangles) {
+		ArrayList<OBJModel.Group> groups = new ArrayList<>();
+		String object = null, group = null, material = null;
+		int start = 0;
+		for (int i = 0; i < chunks.length; i++) {
+			Chunk chunk = chunks[i];
+			for (int e = 0; e < chunk.eventNames.size(); e++) {
+				int at = triangleOffsets[i] + chunk.eventTriangles[e];
+				if (at > start) {
+					groups.add(new OBJModel.Group(object, group, material, start * 3, (at - start) * 3));
+					start = at;
+				}
+				String name = chunk.eventNames.get(e);
+				switch (chunk.eventKinds[e]) {
+				case Chunk.EVENT_OBJECT:
+					object = name;
+					group = null;
+					break;
+				case Chunk.EVENT_GROUP:
+					group = name;
+					break;
+				case Chunk.EVENT_MATERIAL:
+					material = name;
+					break;
+				}
+			}
+		}
+		if (triangles > start) {
+			groups.add(new OBJModel.Group(object, group, material, start * 3, (triangles - start) * 3));
+		}
+		return groups.toArray(new OBJModel.Group[groups.size()]);
+	}
+
+	/**
+	 * One piece of a file, from the start of a line to the start of another, and
+	 * everything parsed out of it. Until a face with texture coordinate or normal
+	 * indices turns up, triangles are just position indices. After that, face
+	 * corners are kept once each as position, texture coordinate and normal
+	 * indices with -1 for missing ones, and triangles point at corners. Positive indices count from the start of the
+	 * file, so they don't depend on other pieces. Negative ones are counted from
+	 * the start of this piece and fixed up when the pieces are put together.
+	 */
+	private static final class Chunk implements Runnable {
+
+		private static final double[] POWERS_OF_TEN = new double[23];
+
+		static {
+			POWERS_OF_TEN[0] = 1;
+			for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+				POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+			}
+		}
+
+		private final ByteBuffer data;
+		private final int end;
+		private int pos;
+
+		private float[] positions;
+		private int positionCount = 0;
+		private float[] textureCoordinates = new float[0];
+		private int textureCoordinateCount = 0;
+		private float[] normals = new float[0];
+		private int normalCount = 0;
+		private int[] corners = new int[0];
+		private int cornerCount = 0;
+		private int[] triangles;
+		private int triangleCount = 0;
+		private int[] relative = new int[0];
+		private int relativeCount = 0;
+		private boolean explicit = false;
+		private boolean lastRelative = false;
+
+		private static final int EVENT_OBJECT = 0;
+		private static final int EVENT_GROUP = 1;
+		private static final int EVENT_MATERIAL = 2;
+
+		private int[] eventTriangles = new int[0];
+		private int[] eventKinds = new int[0];
+		private final ArrayList<String> eventNames = new ArrayList<>();
+		private final ArrayList<String> libraries = new ArrayList<>();
+
+		private int unsupported = 0;
+		private int shortFaces = 0;
+		private String error = null;
+
+		private Chunk(ByteBuffer data, int start, int end) {
+			this.data = data;
+			this.pos = start;
+			this.end = end;
+			// About one vertex per 30 bytes and two triangles per vertex, so most
+			// files never grow these
+			int estimate = Math.max(16, (end - start) / 30);
+			positions = new float[estimate * 3];
+			triangles = new int[estimate * 6];
+		}
+
+		@Override
+		public void run() {
+			try {
+				parse();
+			} catch (NumberFormatException e) {
+				error = "Malformed OBJ: Number Format, " + e.getMessage();
+			} catch (Exception e) {
+				error = "OBJ Loading Error: " + e.getClass().getSimpleName();
+				if (Configuration.isDebugMode()) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		private void parse() {
+			while (pos < end && error == null) {
+				skipSpaces();
+				if (pos >= end) {
+					break;
+				}
+				byte c = data.get(pos);
+				if (c == '\n' || c == '\r' || c == '#') {
+					/* Empty line or comment, just skip it */
+				} else if (c == 'v' && isSpace(pos + 1)) {
+					pos++;
+					positions = ensure(positions, positionCount + 3);
+					positions[positionCount++] = readFloat();
+					positions[positionCount++] = readFloat();
+					positions[positionCount++] = readFloat();
+				} else if (c == 'v' && at(pos + 1) == 't' && isSpace(pos + 2)) {
+					pos += 2;
+					textureCoordinates = ensure(textureCoordinates, textureCoordinateCount + 2);
+					textureCoordinates[textureCoordinateCount++] = readFloat();
+					textureCoordinates[textureCoordinateCount++] = readFloat();
+				} else if (c == 'v' && at(pos + 1) == 'n' && isSpace(pos + 2)) {
+					pos += 2;
+					normals = ensure(normals, normalCount + 3);
+					normals[normalCount++] = readFloat();
+					normals[normalCount++] = readFloat();
+					normals[normalCount++] = readFloat();
+				} else if (c == 'f' && isSpace(pos + 1)) {
+					pos++;
+					readFace();
+				} else if (c == 'o' && isSpace(pos + 1)) {
+					pos++;
+					event(EVENT_OBJECT, readName());
+				} else if (c == 'g' && isSpace(pos + 1)) {
+					pos++;
+					event(EVENT_GROUP, readName());
+				} else if (matches("usemtl")) {
+					pos += 6;
+					event(EVENT_MATERIAL, readName());
+				} else if (matches("mtllib")) {
+					pos += 6;
+					libraries.add(readName());
+				} else {
+					unsupported++;
+				}
+				skipLine();
+			}
+		}
+
+		private void readFace() {
+			if (!explicit && hasSlash()) {
+				explicit();
+			}
+			int first = 0, previous = 0;
+			boolean firstRelative = false, previousRelative = false;
+			int params = 0;
+			while (true) {
+				skipSpaces();
+				if (atLineEnd()) {
+					break;
+				}
+				lastRelative = false;
+				int corner = explicit ? readCorner() : readIndex(0, positionCount / 3);
+				if (params == 0) {
+					first = corner;
+					firstRelative = lastRelative;
+				} else if (params >= 2) {
+					/* Polygon, treat as coplanar, convex polygon and use triangle fan. */
+					triangles = ensure(triangles, triangleCount + 3);
+					if (!explicit) {
+						// Negative position indices are fixed up per triangle corner
+						relative = ensure(relative, relativeCount + 3);
+						if (firstRelative) {
+							relative[relativeCount++] = triangleCount;
+						}
+						if (previousRelative) {
+							relative[relativeCount++] = triangleCount + 1;
+						}
+						if (lastRelative) {
+							relative[relativeCount++] = triangleCount + 2;
+						}
+					}
+					triangles[triangleCount++] = first;
+					triangles[triangleCount++] = previous;
+					triangles[triangleCount++] = corner;
+				}
+				previous = corner;
+				previousRelative = lastRelative;
+				params++;
+			}
+			if (params < 3) {
+				shortFaces++;
+			}
+		}
+
+		private boolean hasSlash() {
+			for (int i = pos; i < end; i++) {
+				byte c = data.get(i);
+				if (c == '/') {
+					return true;
+				}
+				if (c == '\n' || c == '#') {
+					return false;
+				}
+			}
+			return false;
+		}
+
+		// Switches from triangles of positions to triangles of corners, every
+		// triangle corner so far becomes a corner with just a position
+		private void explicit() {
+			corners = new int[Math.max(48, triangleCount * 6)];
+			for (int t = 0; t < triangleCount; t++) {
+				corners[t * 3] = triangles[t];
+				corners[t * 3 + 1] = -1;
+				corners[t * 3 + 2] = -1;
+				triangles[t] = t;
+			}
+			for (int r = 0; r < relativeCount; r++) {
+				relative[r] *= 3;
+			}
+			cornerCount = triangleCount * 3;
+			explicit = true;
+		}
+
+		// Reads a corner and gives back its index in this piece
+		private int readCorner() {
+			corners = ensure(corners, cornerCount + 3);
+			int p = readIndex(0, positionCount / 3);
+			int t = -1, n = -1;
+			if (at(pos) == '/') {
+				pos++;
+				if (at(pos) != '/') {
+					t = readIndex(1, textureCoordinateCount / 2);
+				}
+				if (at(pos) == '/') {
+					pos++;
+					n = readIndex(2, normalCount / 3);
+				}
+			}
+			corners[cornerCount++] = p;
+			corners[cornerCount++] = t;
+			corners[cornerCount++] = n;
+			return cornerCount / 3 - 1;
+		}
+
+		// Reads one index of the corner being written, and turns it into one
+		// counting from 0
+		private int readIndex(int component, int defined) {
+			int index = readInt();
+			if (index > 0) {
+				return index - 1;
+			}
+			if (index == 0) {
+				throw new NumberFormatException("face index 0");
+			}
+			if (explicit) {
+				relative = ensure(relative, relativeCount + 1);
+				relative[relativeCount++] = cornerCount + component;
+			}
+			lastRelative = true;
+			return defined + index;
+		}
+
+		private void event(int kind, String name) {
+			int events = eventNames.size();
+			eventTriangles = ensure(eventTriangles, events + 1);
+			eventKinds = ensure(eventKinds, events + 1);
+			eventTriangles[events] = triangleCount / 3;
+			eventKinds[events] = kind;
+			eventNames.add(name);
+		}
+
+		private boolean matches(String command) {
+			for (int i = 0; i < command.length(); i++) {
+				if (at(pos + i) != command.charAt(i)) {
+					return false;
+				}
+			}
+			return isSpace(pos + command.length());
+		}
+
+		// The rest of the line, without the spaces around it or a comment
+		private String readName() {
+			skipSpaces();
+			int start = pos;
+			int nameEnd = pos;
+			while (!atLineEnd()) {
+				if (!isSpace(pos)) {
+					nameEnd = pos + 1;
+				}
+				pos++;
+			}
+			byte[] bytes = new byte[nameEnd - start];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = data.get(start + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		private byte at(int i) {
+			return i < end ? data.get(i) : (byte) '\n';
+		}
+
+		private boolean isSpace(int i) {
+			byte c = at(i);
+			return c == ' ' || c == '\t';
+		}
+
+		private boolean atLineEnd() {
+			if (pos >= end) {
+				return true;
+			}
+			byte c = data.get(pos);
+			return c == '\n' || c == '\r' || c == '#';
+		}
+
+		private void skipSpaces() {
+			while (pos < end) {
+				byte c = data.get(pos);
+				if (c != ' ' && c != '\t') {
+					return;
+				}
+				pos++;
+			}
+		}
+
+		private void skipLine() {
+			while (pos < end && data.get(pos++) != '\n') {
+			}
+		}
+
+		private int readInt() {
+			int start = pos;
+			boolean negative = false;
+			byte c = at(pos);
+			if (c == '-' || c == '+') {
+				negative = c == '-';
+				pos++;
+			}
+			int value = 0;
+			int digits = 0;
+			while (pos < end) {
+				c = data.get(pos);
+				if (c < '0' || c > '9') {
+					break;
+				}
+				value = value * 10 + (c - '0');
+				digits++;
+				pos++;
+			}
+			if (digits == 0) {
+				throw new NumberFormatException("bad index " + token(start));
+			}
+			return negative ? -value : value;
+		}
+
+		private float readFloat() {
+			skipSpaces();
+			int start = pos;
+			boolean negative = false;
+			byte c = at(pos);
+			if (c == '-' || c == '+') {
+				negative = c == '-';
+				pos++;
+			}
+			long mantissa = 0;
+			int exponent = 0;
+			int digits = 0;
+			boolean point = false;
+			while (pos < end) {
+				c = data.get(pos);
+				if (c >= '0' && c <= '9') {
+					if (mantissa < 100000000000000000L) {
+						mantissa = mantissa * 10 + (c - '0');
+						if (point) {
+							exponent--;
+						}
+					} else if (!point) {
+						exponent++;
+					}
+					digits++;
+				} else if (c == '.' && !point) {
+					point = true;
+				} else {
+					break;
+				}
+				pos++;
+			}
+			if (digits == 0) {
+				// Things like nan and inf, let Java deal with them
+				pos = start;
+				String token = token(start);
+				pos = start + token.length();
+				return Float.parseFloat(token);
+			}
+			if (pos < end && (data.get(pos) == 'e' || data.get(pos) == 'E')) {
+				pos++;
+				exponent += readInt();
+			}
+			double value = mantissa;
+			if (exponent < 0 && exponent >= -22) {
+				value /= POWERS_OF_TEN[-exponent];
+			} else if (exponent > 0 && exponent <= 22) {
+				value *= POWERS_OF_TEN[exponent];
+			} else if (exponent != 0) {
+				value *= Math.pow(10, exponent);
+			}
+			return (float) (negative ? -value : value);
+		}
+
+		private String token(int start) {
+			int tokenEnd = start;
+			while (tokenEnd < end) {
+				byte c = data.get(tokenEnd);
+				if (c == ' ' || c == '\t' || c == '\n' || c == '\r') {
+					break;
+				}
+				tokenEnd++;
+			}
+			byte[] bytes = new byte[tokenEnd - start];
+			for (int i = 0; i < bytes.length; i++) {
+				bytes[i] = data.get(start + i);
+			}
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		private static float[] ensure(float[] array, int needed) {
+			return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+		}
+
+		private static int[] ensure(int[] array, int needed) {
+			return needed <= array.length ? array : Arrays.copyOf(array, Math.max(needed, array.length * 2));
+		}
+
+	}
+
 }
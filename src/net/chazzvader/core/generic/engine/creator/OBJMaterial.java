@@ -0,0 +1,101 @@
+package net.chazzvader.core.generic.engine.creator;
+
+import net.chazzvader.core.generic.engine.render.material.MaterialBasic;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * A material read out of an MTL file by {@link MTLLoader}. It is only the data,
+ * {@link #createMaterial()} turns it into something that can be drawn with.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class OBJMaterial {
+
+	/**
+	 * The name given by <code>newmtl</code>.
+	 */
+	public final String name;
+
+	/**
+	 * The ambient color, <code>Ka</code>.
+	 */
+	public Vector3f ambientColor = new Vector3f(0, 0, 0);
+
+	/**
+	 * The diffuse color, <code>Kd</code>.
+	 */
+	public Vector3f diffuseColor = new Vector3f(1, 1, 1);
+
+	/**
+	 * The specular color, <code>Ks</code>.
+	 */
+	public Vector3f specularColor = new Vector3f(1, 1, 1);
+
+	/**
+	 * The specular exponent, <code>Ns</code>.
+	 */
+	public float specularExponent = 64;
+
+	/**
+	 * How opaque the material is, <code>d</code>, or one minus <code>Tr</code>.
+	 */
+	public float dissolve = 1;
+
+	/**
+	 * The path of the diffuse texture, <code>map_Kd</code>, or null.
+	 */
+	public String diffuseMap = null;
+
+	/**
+	 * The path of the specular texture, <code>map_Ks</code>, or null.
+	 */
+	public String specularMap = null;
+
+	/**
+	 * The path of the normal map, <code>map_Bump</code>, <code>bump</code> or
+	 * <code>norm</code>, or null.
+	 */
+	public String normalMap = null;
+
+	/**
+	 * Creates a material with default values.
+	 *
+	 * @param name The name of the material.
+	 */
+	public OBJMaterial(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Makes a {@link MaterialBasic} out of this, loading any textures. The
+	 * diffuse color becomes the tint and the average of the specular color the
+	 * specular multiplier. Dissolve is ignored, as the basic material is always
+	 * opaque. Needs the renderer to be set up.
+	 *
+	 * @return The material.
+	 */
+	public MaterialBasic createMaterial() {
+		MaterialBasic material = new MaterialBasic();
+		material.colorMultiplier = new Vector3f(diffuseColor.x, diffuseColor.y, diffuseColor.z);
+		material.specularMultiplier = (specularColor.x + specularColor.y + specularColor.z) / 3;
+		material.specularPower = Math.max(1, Math.round(specularExponent));
+		if (diffuseMap != null) {
+			material.diffuse = TextureCreator.fromFile(diffuseMap);
+		}
+		if (specularMap != null) {
+			material.specular = TextureCreator.fromFile(specularMap);
+		}
+		if (normalMap != null) {
+			material.normal = TextureCreator.fromFile(normalMap);
+		}
+		return material;
+	}
+
+	@Override
+	public String toString() {
+		return "OBJMaterial [name=" + name + ", diffuseColor=" + diffuseColor + ", diffuseMap=" + diffuseMap + "]";
+	}
+
+}
@@ -0,0 +1,187 @@
+package net.chazzvader.core.generic.engine.creator;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+
+/**
+ * Everything loaded out of an OBJ file by {@link OBJLoader}. The whole file is
+ * one mesh, and the groups are ranges of its indices, so they can either be
+ * drawn out of the one mesh or be made into meshes of their own with
+ * {@link #createGroupMesh(int)}.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class OBJModel {
+
+	/**
+	 * A run of faces that share an object, group and material.
+	 *
+	 * @author csbru
+	 * @since 1.0
+	 * @version 1
+	 */
+	public static class Group {
+
+		/**
+		 * The name given by the last <code>o</code> command, or null.
+		 */
+		public final String object;
+
+		/**
+		 * The name given by the last <code>g</code> command, or null.
+		 */
+		public final String name;
+
+		/**
+		 * The name given by the last <code>usemtl</code> command, or null.
+		 */
+		public final String material;
+
+		/**
+		 * The first index of the group in the mesh.
+		 */
+		public final int firstIndex;
+
+		/**
+		 * The amount of indices in the group.
+		 */
+		public final int indexCount;
+
+		/**
+		 * Creates a group.
+		 *
+		 * @param object     The object name, or null.
+		 * @param name       The group name, or null.
+		 * @param material   The material name, or null.
+		 * @param firstIndex The first index of the group in the mesh.
+		 * @param indexCount The amount of indices in the group.
+		 */
+		public Group(String object, String name, String material, int firstIndex, int indexCount) {
+			this.object = object;
+			this.name = name;
+			this.material = material;
+			this.firstIndex = firstIndex;
+			this.indexCount = indexCount;
+		}
+
+		@Override
+		public String toString() {
+			return "Group [object=" + object + ", name=" + name + ", material=" + material + ", firstIndex="
+					+ firstIndex + ", indexCount=" + indexCount + "]";
+		}
+
+	}
+
+	/**
+	 * The whole file as one mesh.
+	 */
+	public final Mesh mesh;
+
+	/**
+	 * The groups of faces, in the order they are in the file.
+	 */
+	public final Group[] groups;
+
+	/**
+	 * The names of the material libraries the file uses, as written in the file.
+	 */
+	public final String[] materialLibraries;
+
+	/**
+	 * The materials from the material libraries by name. Empty if the libraries
+	 * couldn't be found or weren't looked for.
+	 */
+	public final LinkedHashMap<String, OBJMaterial> materials = new LinkedHashMap<>();
+
+	/**
+	 * Creates a model.
+	 *
+	 * @param mesh              The whole file as one mesh.
+	 * @param groups            The groups of faces.
+	 * @param materialLibraries The names of the material libraries.
+	 */
+	public OBJModel(Mesh mesh, Group[] groups, String[] materialLibraries) {
+		this.mesh = mesh;
+		this.groups = groups;
+		this.materialLibraries = materialLibraries;
+	}
+
+	/**
+	 * Finds a group by its group name, or its object name if it has no group
+	 * name.
+	 *
+	 * @param name The name.
+	 * @return The first group with the name, or null if there isn't one.
+	 */
+	public Group getGroup(String name) {
+		for (int i = 0; i < groups.length; i++) {
+			Group group = groups[i];
+			if (name.equals(group.name != null ? group.name : group.object)) {
+				return group;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the material used by a group.
+	 *
+	 * @param group The group.
+	 * @return The material, or null if the group has none or it wasn't loaded.
+	 */
+	public OBJMaterial getMaterial(Group group) {
+		return group.material == null ? null : materials.get(group.material);
+	}
+
+	/**
+	 * Makes a mesh out of just one group, with only the vertices it uses.
+	 *
+	 * @param group The index of the group.
+	 * @return The mesh of the group.
+	 */
+	public Mesh createGroupMesh(int group) {
+		Group g = groups[group];
+		int[] allIndices = mesh.getByUsage(VertexPropertyType.INDICES).intProp;
+		int[] remap = new int[mesh.verticeCount];
+		Arrays.fill(remap, -1);
+		int[] indices = new int[g.indexCount];
+		int[] used = new int[Math.min(g.indexCount, mesh.verticeCount)];
+		int vertices = 0;
+		for (int i = 0; i < indices.length; i++) {
+			int vertex = allIndices[g.firstIndex + i];
+			if (remap[vertex] == -1) {
+				remap[vertex] = vertices;
+				used[vertices++] = vertex;
+			}
+			indices[i] = remap[vertex];
+		}
+		VertexedProperty positions = null;
+		VertexedProperty[] others = new VertexedProperty[mesh.properties.length - 2];
+		int other = 0;
+		for (int p = 0; p < mesh.properties.length; p++) {
+			VertexedProperty property = mesh.properties[p];
+			if (property.usage == VertexPropertyType.INDICES) {
+				continue;
+			}
+			int per = property.usage.perVertice;
+			float[] data = new float[vertices * per];
+			for (int v = 0; v < vertices; v++) {
+				System.arraycopy(property.floatProp, used[v] * per, data, v * per, per);
+			}
+			VertexedProperty copy = new VertexedProperty(data, property.usage);
+			if (property.usage == VertexPropertyType.VERTEX_POS) {
+				positions = copy;
+			} else {
+				others[other++] = copy;
+			}
+		}
+		return new Mesh(positions, new VertexedProperty(indices, VertexPropertyType.INDICES), others);
+	}
+
+}
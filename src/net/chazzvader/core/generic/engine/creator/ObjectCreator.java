@@ -2,6 +2,7 @@ package net.chazzvader.core.generic.engine.creator;
 
 import net.chazzvader.core.generic.Configuration;
 import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.mesh.MeshBuilder;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
 import net.chazzvader.core.generic.engine.object.EngineObjectMesh;
@@ -21,7 +22,9 @@ public class ObjectCreator {
 
 	private static final ObjectCreator INSTANCE = new ObjectCreator();
 
+	private final MeshBuilder builder = new MeshBuilder();
 	private Mesh mesh = null;
+	private boolean started = false;
 
 	/**
 	 * creates a new, blank object creator. This allows multiple objects to be
@@ -38,26 +41,39 @@ public class ObjectCreator {
 	 * @return This ObjectCreator instance, for string multiple calls together
 	 */
 	public ObjectCreator newObject() {
-		mesh = new Mesh(new VertexedProperty(new float[0], VertexPropertyType.VERTEX_POS),
-				new VertexedProperty(new int[0], VertexPropertyType.INDICES),
-				new VertexedProperty[] { new VertexedProperty(new float[0], VertexPropertyType.NORMALS),
-						new VertexedProperty(new float[0], VertexPropertyType.TEXTURE_COORDINATES) });
+		builder.clear();
+		mesh = null;
+		started = true;
 		return this;
 	}
 
 	/**
-	 * Appends the given mesh object to the current object. This only works if the
-	 * vertex types the two objects have are the same. A new mesh is created. The
-	 * original goes before the new object.
+	 * Appends the given mesh object to the current object. Positions, normals and
+	 * texture coordinates are kept, any the part doesn't have are filled with
+	 * zeros. The original goes before the new object.
 	 * 
 	 * @param part the part to append
 	 * @return This ObjectCreator instance, for string multiple calls together
 	 */
 	public ObjectCreator append(Mesh part) {
-		mesh = mesh.append(part);
+		builder.append(part);
+		mesh = null;
 		return this;
 	}
 
+	/**
+	 * The builder behind the working mesh, for writing into it directly, like
+	 * with {@link #quadTextured(MeshBuilder, Vector3f, Vector3f, Vector3f, Vector3f,
+	 * Vector2f, Vector2f, Vector2f, Vector2f)}. This skips making a mesh for
+	 * every part.
+	 * 
+	 * @return The builder of the working mesh
+	 */
+	public MeshBuilder getBuilder() {
+		mesh = null;
+		return builder;
+	}
+
 	/**
 	 * Returns the working mesh
 	 * 
@@ -65,6 +81,9 @@ public class ObjectCreator {
 	 * @return The working mesh
 	 */
 	public Mesh getMesh(boolean normals) {
+		if (mesh == null) {
+			mesh = builder.build();
+		}
 		if (normals)
 			return mesh.addTangentBitangent();
 		return mesh;
@@ -96,12 +115,13 @@ public class ObjectCreator {
 	}
 
 	/**
-	 * Is there a working mesh?
+	 * Is there a working mesh? There is once {@link #newObject()} has been called,
+	 * which the constructor does.
 	 * 
 	 * @return True if there is a working mesh.
 	 */
 	public boolean inProgress() {
-		return mesh != null;
+		return started;
 	}
 
 	/**
@@ -172,13 +192,20 @@ public class ObjectCreator {
 	 * @return A mesh that is a triangle, based on the 3 points
 	 */
 	public static Mesh triangle(Vector3f p1, Vector3f p2, Vector3f p3) {
-		float[] vertices = new float[] { p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, p3.x, p3.y, p3.z };
-		int[] indices = new int[] { 0, 1, 2 };
-		Vector3f n = Geometry.calculateNormal(p1, p2, p3);
-		float[] normals = new float[] { n.x, n.y, n.z, n.x, n.y, n.z, n.x, n.y, n.z };
-		return new Mesh(new VertexedProperty(vertices, VertexPropertyType.VERTEX_POS),
-				new VertexedProperty(indices, VertexPropertyType.INDICES),
-				new VertexedProperty[] { new VertexedProperty(normals, VertexPropertyType.NORMALS) });
+		return triangle(new MeshBuilder(true, false, 3, 3), p1, p2, p3).build();
+	}
+
+	/**
+	 * Writes a triangle from 3 points into a builder.
+	 * 
+	 * @param builder The builder to write to
+	 * @param p1      The first point
+	 * @param p2      The second point
+	 * @param p3      The third point
+	 * @return The builder
+	 */
+	public static MeshBuilder triangle(MeshBuilder builder, Vector3f p1, Vector3f p2, Vector3f p3) {
+		return triangleTextured(builder, p1, p2, p3, null, null, null);
 	}
 
 	/**
@@ -191,21 +218,21 @@ public class ObjectCreator {
 	 * @return A mesh that is a quad, based on the 4 points
 	 */
 	public static Mesh quad(Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4) {
-		if (Geometry.coplanar(p1, p2, p3, p4)) {
-			float[] vertices = new float[] { p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, p3.x, p3.y, p3.z, p4.x, p4.y, p4.z };
-			int[] indices = new int[] { 0, 1, 2, 3, 2, 1 };
-			Vector3f n = Geometry.calculateNormal(p1, p2, p3);
-			float[] normals = new float[] { n.x, n.y, n.z, n.x, n.y, n.z, n.x, n.y, n.z, n.x, n.y, n.z };
-			return new Mesh(new VertexedProperty(vertices, VertexPropertyType.VERTEX_POS),
-					new VertexedProperty(indices, VertexPropertyType.INDICES),
-					new VertexedProperty[] { new VertexedProperty(normals, VertexPropertyType.NORMALS) });
-		} else {
-			ObjectCreator oc = new ObjectCreator();
-			oc.newObject();
-			oc.append(triangle(p1, p2, p3));
-			oc.append(triangle(p4, p3, p2));
-			return oc.getMesh(false);
-		}
+		return quad(new MeshBuilder(true, false, 4, 6), p1, p2, p3, p4).build();
+	}
+
+	/**
+	 * Writes a quad from 4 points into a builder.
+	 * 
+	 * @param builder The builder to write to
+	 * @param p1      The first point, upper left, ++
+	 * @param p2      The second point, upper right, -+
+	 * @param p3      The third point, lower left, +-
+	 * @param p4      The fourth point, lower right, --
+	 * @return The builder
+	 */
+	public static MeshBuilder quad(MeshBuilder builder, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4) {
+		return quadTextured(builder, p1, p2, p3, p4, null, null, null, null);
 	}
 
 	/**
@@ -261,11 +288,8 @@ public class ObjectCreator {
 		 * oc.append(quadTextured(p1, p2, p3, p4, tc3, tc4, tc1, tc2));// Dont know what
 		 * (tc1, tc2) and (tc3, tc4) are // swapped, but seems to work
 		 */
-		ObjectCreator oc = new ObjectCreator();
-		oc.newObject();
-		oc.append(quadTextured(p1, p2, p3, p4, new Vector2f(1, 1), new Vector2f(0, 1), new Vector2f(1, 0),
-				new Vector2f(0, 0)));
-		return oc.getMesh(false);
+		return quadTextured(p1, p2, p3, p4, new Vector2f(1, 1), new Vector2f(0, 1), new Vector2f(1, 0),
+				new Vector2f(0, 0));
 	}
 
 	/**
@@ -283,15 +307,27 @@ public class ObjectCreator {
 	 */
 	public static Mesh cubiod(Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, Vector3f p5, Vector3f p6, Vector3f p7,
 			Vector3f p8) {
-		ObjectCreator oc = new ObjectCreator();
-		oc.newObject();
-		oc.append(ObjectCreator.quad(p1, p2, p3, p4));
-		oc.append(ObjectCreator.quad(p5, p7, p6, p8));
-		oc.append(ObjectCreator.quad(p1, p3, p5, p7));
-		oc.append(ObjectCreator.quad(p2, p6, p4, p8));
-		oc.append(ObjectCreator.quad(p1, p5, p2, p6));
-		oc.append(ObjectCreator.quad(p3, p4, p7, p8));
-		return oc.getMesh(false);
+		return cubiodTextured(new MeshBuilder(true, true, 24, 36), p1, p2, p3, p4, p5, p6, p7, p8, null, null, null,
+				null).build();
+	}
+
+	/**
+	 * Writes a cuboid from 8 points into a builder.
+	 * 
+	 * @param builder The builder to write to
+	 * @param p1      The first point, close upper left, +++
+	 * @param p2      The second point, close upper right, -++
+	 * @param p3      The third point, close lower left, +-+
+	 * @param p4      The fourth point, close lower right, --+
+	 * @param p5      The fifth point, far upper left, ++-
+	 * @param p6      The sixth point, far upper right, -+-
+	 * @param p7      The seventh point, far lower left, +--
+	 * @param p8      The eight point, far lower right, ---
+	 * @return The builder
+	 */
+	public static MeshBuilder cubiod(MeshBuilder builder, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4,
+			Vector3f p5, Vector3f p6, Vector3f p7, Vector3f p8) {
+		return cubiodTextured(builder, p1, p2, p3, p4, p5, p6, p7, p8, null, null, null, null);
 	}
 
 	/**
@@ -336,15 +372,29 @@ public class ObjectCreator {
 	 * @return A mesh that is a triangle, based on the 3 points
 	 */
 	public static Mesh triangleTextured(Vector3f p1, Vector3f p2, Vector3f p3, Vector2f t1, Vector2f t2, Vector2f t3) {
-		float[] vertices = new float[] { p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, p3.x, p3.y, p3.z };
-		float[] textureCoordinates = new float[] { t1.x, t1.y, t2.x, t2.y, t3.x, t3.y };
-		int[] indices = new int[] { 0, 1, 2 };
+		return triangleTextured(new MeshBuilder(true, true, 3, 3), p1, p2, p3, t1, t2, t3).build();
+	}
+
+	/**
+	 * Writes a triangle from 3 points with texture coordinates into a builder.
+	 * 
+	 * @param builder The builder to write to
+	 * @param p1      The first point
+	 * @param p2      The second point
+	 * @param p3      The third point
+	 * @param t1      The first texture coordinate, may be null
+	 * @param t2      The second texture coordinate, may be null
+	 * @param t3      The third texture coordinate, may be null
+	 * @return The builder
+	 */
+	public static MeshBuilder triangleTextured(MeshBuilder builder, Vector3f p1, Vector3f p2, Vector3f p3,
+			Vector2f t1, Vector2f t2, Vector2f t3) {
 		Vector3f n = Geometry.calculateNormal(p1, p2, p3);
-		float[] normals = new float[] { n.x, n.y, n.z, n.x, n.y, n.z, n.x, n.y, n.z };
-		return new Mesh(new VertexedProperty(vertices, VertexPropertyType.VERTEX_POS),
-				new VertexedProperty(indices, VertexPropertyType.INDICES),
-				new VertexedProperty[] { new VertexedProperty(normals, VertexPropertyType.NORMALS),
-						new VertexedProperty(textureCoordinates, VertexPropertyType.TEXTURE_COORDINATES) });
+		builder.reserve(3, 3);
+		int a = builder.vertex(p1, n, t1);
+		int b = builder.vertex(p2, n, t2);
+		int c = builder.vertex(p3, n, t3);
+		return builder.triangle(a, b, c);
 	}
 
 	/**
@@ -363,22 +413,38 @@ public class ObjectCreator {
 	 */
 	public static Mesh quadTextured(Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, Vector2f t1, Vector2f t2,
 			Vector2f t3, Vector2f t4) {
+		return quadTextured(new MeshBuilder(true, true, 4, 6), p1, p2, p3, p4, t1, t2, t3, t4).build();
+	}
+
+	/**
+	 * Writes a quad from 4 points with texture coordinates into a builder. If the
+	 * points aren't on a plane, it is written as two triangles with their own
+	 * normals.
+	 * 
+	 * @param builder The builder to write to
+	 * @param p1      The first point, upper left, ++
+	 * @param p2      The second point, upper right, -+
+	 * @param p3      The third point, lower left, +-
+	 * @param p4      The fourth point, lower right, --
+	 * @param t1      The first texture coordinate, upper left, ++, may be null
+	 * @param t2      The second texture coordinate, upper right, -+, may be null
+	 * @param t3      The third texture coordinate, lower left, +-, may be null
+	 * @param t4      The fourth texture coordinate, lower right, --, may be null
+	 * @return The builder
+	 */
+	public static MeshBuilder quadTextured(MeshBuilder builder, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4,
+			Vector2f t1, Vector2f t2, Vector2f t3, Vector2f t4) {
 		if (Geometry.coplanar(p1, p2, p3, p4)) {
-			float[] vertices = new float[] { p1.x, p1.y, p1.z, p2.x, p2.y, p2.z, p3.x, p3.y, p3.z, p4.x, p4.y, p4.z };
-			float[] textureCoordinates = new float[] { t1.x, t1.y, t2.x, t2.y, t3.x, t3.y, t4.x, t4.y };
-			int[] indices = new int[] { 0, 1, 2, 3, 2, 1 };
 			Vector3f n = Geometry.calculateNormal(p1, p2, p3);
-			float[] normals = new float[] { n.x, n.y, n.z, n.x, n.y, n.z, n.x, n.y, n.z, n.x, n.y, n.z };
-			return new Mesh(new VertexedProperty(vertices, VertexPropertyType.VERTEX_POS),
-					new VertexedProperty(indices, VertexPropertyType.INDICES),
-					new VertexedProperty[] { new VertexedProperty(normals, VertexPropertyType.NORMALS),
-							new VertexedProperty(textureCoordinates, VertexPropertyType.TEXTURE_COORDINATES) });
+			builder.reserve(4, 6);
+			int a = builder.vertex(p1, n, t1);
+			int b = builder.vertex(p2, n, t2);
+			int c = builder.vertex(p3, n, t3);
+			int d = builder.vertex(p4, n, t4);
+			return builder.triangle(a, b, c).triangle(d, c, b);
 		} else {
-			ObjectCreator oc = new ObjectCreator();
-			oc.newObject();
-			oc.append(triangleTextured(p1, p2, p3, t1, t2, t3));
-			oc.append(triangleTextured(p4, p3, p2, t4, t3, t2));
-			return oc.getMesh(false);
+			triangleTextured(builder, p1, p2, p3, t1, t2, t3);
+			return triangleTextured(builder, p4, p3, p2, t4, t3, t2);
 		}
 	}
 
@@ -401,15 +467,37 @@ public class ObjectCreator {
 	 */
 	public static Mesh cubiodTextured(Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4, Vector3f p5, Vector3f p6,
 			Vector3f p7, Vector3f p8, Vector2f t1, Vector2f t2, Vector2f t3, Vector2f t4) {
-		ObjectCreator oc = new ObjectCreator();
-		oc.newObject();
-		oc.append(ObjectCreator.quadTextured(p1, p2, p3, p4, t1, t2, t3, t4));
-		oc.append(ObjectCreator.quadTextured(p5, p7, p6, p8, t1, t2, t3, t4));
-		oc.append(ObjectCreator.quadTextured(p1, p3, p5, p7, t1, t2, t3, t4));
-		oc.append(ObjectCreator.quadTextured(p2, p6, p4, p8, t1, t2, t3, t4));
-		oc.append(ObjectCreator.quadTextured(p1, p5, p2, p6, t1, t2, t3, t4));
-		oc.append(ObjectCreator.quadTextured(p3, p4, p7, p8, t1, t2, t3, t4));
-		return oc.getMesh(false);
+		return cubiodTextured(new MeshBuilder(true, true, 24, 36), p1, p2, p3, p4, p5, p6, p7, p8, t1, t2, t3, t4)
+				.build();
+	}
+
+	/**
+	 * Writes a cuboid from 8 points with texture coordinates into a builder.
+	 * 
+	 * @param builder The builder to write to
+	 * @param p1      The first point, close upper left, +++
+	 * @param p2      The second point, close upper right, -++
+	 * @param p3      The third point, close lower left, +-+
+	 * @param p4      The fourth point, close lower right, --+
+	 * @param p5      The fifth point, far upper left, ++-
+	 * @param p6      The sixth point, far upper right, -+-
+	 * @param p7      The seventh point, far lower left, +--
+	 * @param p8      The eight point, far lower right, ---
+	 * @param t1      The first texture coordinate, upper left, ++, may be null
+	 * @param t2      The second texture coordinate, upper right, -+, may be null
+	 * @param t3      The third texture coordinate, lower left, +-, may be null
+	 * @param t4      The fourth texture coordinate, lower right, --, may be null
+	 * @return The builder
+	 */
+	public static MeshBuilder cubiodTextured(MeshBuilder builder, Vector3f p1, Vector3f p2, Vector3f p3, Vector3f p4,
+			Vector3f p5, Vector3f p6, Vector3f p7, Vector3f p8, Vector2f t1, Vector2f t2, Vector2f t3, Vector2f t4) {
+		builder.reserve(24, 36);
+		quadTextured(builder, p1, p2, p3, p4, t1, t2, t3, t4);
+		quadTextured(builder, p5, p7, p6, p8, t1, t2, t3, t4);
+		quadTextured(builder, p1, p3, p5, p7, t1, t2, t3, t4);
+		quadTextured(builder, p2, p6, p4, p8, t1, t2, t3, t4);
+		quadTextured(builder, p1, p5, p2, p6, t1, t2, t3, t4);
+		return quadTextured(builder, p3, p4, p7, p8, t1, t2, t3, t4);
 	}
 
 	/**
@@ -557,8 +645,7 @@ public class ObjectCreator {
 	}
 
 	/**
-	 * Creates and returns a new sphere object. This uses a new instance of
-	 * ObjectCreator.
+	 * Creates and returns a new sphere object.
 	 * 
 	 * @param pos        The position of the center of the sphere.
 	 * @param radius     The radius of the sphere
@@ -569,12 +656,12 @@ public class ObjectCreator {
 	 */
 	public static EngineObjectMesh instaSphere(Vector3f pos, float radius, int resolution, Material material,
 			boolean normals) {
-		return new ObjectCreator().newObject().append(sphere(pos, radius, resolution)).getObject(material, normals);
+		Mesh mesh = sphere(pos, radius, resolution);
+		return newEngineObject(normals ? mesh.addTangentBitangent() : mesh, material);
 	}
 
 	/**
-	 * Creates and returns a new cube object. This uses a new instance of
-	 * ObjectCreator.
+	 * Creates and returns a new cube object.
 	 * 
 	 * @param pos      The position of the center of the cube.
 	 * @param size     The dimension of the cube
@@ -583,12 +670,12 @@ public class ObjectCreator {
 	 * @return A sphere engine object
 	 */
 	public static EngineObjectMesh instaCube(Vector3f pos, float size, Material material, boolean normals) {
-		return new ObjectCreator().newObject().append(cube(pos, size)).getObject(material, normals);
+		Mesh mesh = cube(pos, size);
+		return newEngineObject(normals ? mesh.addTangentBitangent() : mesh, material);
 	}
 
 	/**
-	 * Creates and returns a new sphere object. This uses a new instance of
-	 * ObjectCreator.
+	 * Creates and returns a new sphere object.
 	 * 
 	 * @param radius     The radius of the sphere
 	 * @param resolution The resolution of the sphere
@@ -597,12 +684,12 @@ public class ObjectCreator {
 	 * @return A sphere engine object
 	 */
 	public static EngineObjectMesh instaSphere(float radius, int resolution, Material material, boolean normals) {
-		return new ObjectCreator().newObject().append(sphere(radius, resolution)).getObject(material, normals);
+		Mesh mesh = sphere(radius, resolution);
+		return newEngineObject(normals ? mesh.addTangentBitangent() : mesh, material);
 	}
 
 	/**
-	 * Creates and returns a new cube object. This uses a new instance of
-	 * ObjectCreator.
+	 * Creates and returns a new cube object.
 	 * 
 	 * @param size     The dimension of the cube
 	 * @param material The material to use
@@ -610,7 +697,8 @@ public class ObjectCreator {
 	 * @return A sphere engine object
 	 */
 	public static EngineObjectMesh instaCube(float size, Material material, boolean normals) {
-		return new ObjectCreator().newObject().append(cube(size)).getObject(material, normals);
+		Mesh mesh = cube(size);
+		return newEngineObject(normals ? mesh.addTangentBitangent() : mesh, material);
 	}
 
 	/**
@@ -43,6 +43,31 @@ public class ShaderCreator {
 		return null;
 	}
 
+	private static Shader basicInstancedShader = null;
+
+	/**
+	 * Gets the instanced version of the basic shader, which reads the world and
+	 * normal matrices per instance instead of from uniforms.
+	 * @return An instanced basic shader
+	 */
+	public static Shader basicInstancedShader() {
+		return basicInstancedShader != null ? basicInstancedShader : (basicInstancedShader = createBasicInstancedShader());
+	}
+
+	private static Shader createBasicInstancedShader() {
+		Renderer renderer = Configuration.getRendererVerifyFinalized();
+		switch (renderer) {
+		case GENERIC:
+			break;
+		case OPEN_GL:
+			OpenGLShader ret = new OpenGLShader("net/chazzvader/core/opengl/shader/src/generic/basic_tbn_instanced.vert",
+					"net/chazzvader/core/opengl/shader/src/generic/basic.frag");
+			ret.shadows = true;
+			return ret;
+		}
+		return null;
+	}
+
 	private static Shader lightShader = null;
 	
 	/**
@@ -130,6 +155,27 @@ public class ShaderCreator {
 		return null;
 	}
 	
+	private static Shader shadowInstancedShader = null;
+	
+	/**
+	 * The instanced version of the shader used for shadow mapping. <em>DO NOT USE UNLESS YOU KNOW WHAT YOU ARE DOING</em>
+	 * @return The instanced shadow mapping shader
+	 */
+	public static Shader shadowInstancedShader() {
+		return shadowInstancedShader != null ? shadowInstancedShader : (shadowInstancedShader = createShadowInstancedShader());
+	}
+
+	private static Shader createShadowInstancedShader() {
+		Renderer renderer = Configuration.getRendererVerifyFinalized();
+		switch (renderer) {
+		case GENERIC:
+			break;
+		case OPEN_GL:
+			return new OpenGLShader("net/chazzvader/core/opengl/shader/src/lighting/shadow_instanced.vert", "net/chazzvader/core/opengl/shader/src/lighting/shadow.geom", "net/chazzvader/core/opengl/shader/src/lighting/shadow.frag", false);
+		}
+		return null;
+	}
+	
 	private static Shader transparentShader = null;
 	
 	/**
@@ -193,6 +239,27 @@ public class ShaderCreator {
 		return null;
 	}
 
+	private static Shader uiGlyphShader = null;
+	
+	/**
+	 * A UI shader for rendering batched, instanced text glyphs
+	 * @return A UI glyph shader
+	 */
+	public static Shader uiGlyphShader() {
+		return uiGlyphShader != null ? uiGlyphShader : (uiGlyphShader = createUiGlyphShader());
+	}
+
+	private static Shader createUiGlyphShader() {
+		Renderer renderer = Configuration.getRendererVerifyFinalized();
+		switch (renderer) {
+		case GENERIC:
+			break;
+		case OPEN_GL:
+			return new OpenGLShader("net/chazzvader/core/opengl/shader/src/ui/ui_glyph.vert", "net/chazzvader/core/opengl/shader/src/ui/ui_glyph.frag", false);
+		}
+		return null;
+	}
+
 	private static Shader normals = null;
 	
 	/**
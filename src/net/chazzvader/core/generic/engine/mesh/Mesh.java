@@ -7,8 +7,8 @@ import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.EngineItem;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyDataType;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+import net.chazzvader.core.generic.math.Bounds;
 import net.chazzvader.core.generic.math.Geometry;
-import net.chazzvader.core.generic.math.Vector2f;
 import net.chazzvader.core.generic.math.Vector3f;
 
 /**
@@ -132,6 +132,63 @@ public class Mesh extends EngineItem {
 		return null;
 	}
 
+	private Bounds bounds = null;
+	private TriangleBoundingVolumeHierarchy triangleHierarchy = null;
+
+	/**
+	 * The bounds of the mesh, worked out from the vertex positions the first time
+	 * they are asked for and cached after that. If the position data is changed
+	 * in place call {@link #recalculateBounds()}.
+	 * 
+	 * @return The bounds of the mesh, in local space.
+	 */
+	public Bounds getBounds() {
+		if (bounds == null) {
+			recalculateBounds();
+		}
+		return bounds;
+	}
+
+	/**
+	 * Works out the bounds of the mesh again, from the vertex positions. Also
+	 * throws away the triangle hierarchy, so it is rebuilt the next time it is
+	 * needed.
+	 * 
+	 * @return The new bounds of the mesh, in local space.
+	 */
+	public Bounds recalculateBounds() {
+		VertexedProperty vpVert = getByUsage(VertexPropertyType.VERTEX_POS);
+		bounds = Bounds.fromPositions(vpVert == null ? null : vpVert.getAsFloatArray(), bounds);
+		triangleHierarchy = null;
+		return bounds;
+	}
+
+	/**
+	 * Sets the bounds of the mesh, for loaders that already know them, so they
+	 * don't have to be worked out from the positions again.
+	 *
+	 * @param bounds The bounds of the mesh, in local space.
+	 */
+	public void setBounds(Bounds bounds) {
+		this.bounds = bounds;
+		triangleHierarchy = null;
+	}
+
+	/**
+	 * A bounding volume hierarchy over the triangles of the mesh, used to cast
+	 * rays against it. Built the first time it is asked for and cached after
+	 * that.
+	 * 
+	 * @return The triangle hierarchy of the mesh.
+	 * @see #recalculateBounds()
+	 */
+	public TriangleBoundingVolumeHierarchy getTriangleHierarchy() {
+		if (triangleHierarchy == null) {
+			triangleHierarchy = new TriangleBoundingVolumeHierarchy(this);
+		}
+		return triangleHierarchy;
+	}
+
 	/**
 	 * Calculates and adds tangent and bitangent normal data, based of the texture
 	 * coordinates. This allows normal maps to be used.
@@ -141,73 +198,14 @@ public class Mesh extends EngineItem {
 	public Mesh addTangentBitangent() {
 		if (getByUsage(VertexPropertyType.NORMAL_TANGENT) != null)
 			return this;
-		int[] indices = new int[0];
-		VertexedProperty vpIndices = getByUsage(VertexPropertyType.INDICES);
-		switch (vpIndices.dataType) {
-		case BYTE:
-			indices = new int[vpIndices.byteProp.length];
-			for (int i = 0; i < vpIndices.byteProp.length; i++) {
-				indices[i] = vpIndices.byteProp[i];
-			}
-			break;
-		case INT:
-			indices = vpIndices.intProp;
-			break;
-		default:
-			break;
-		}
-		VertexedProperty vpVert = getByUsage(VertexPropertyType.VERTEX_POS);
-		float[] tangent = new float[vpVert.length() * 3];
-		for (int i = 0; i < tangent.length; i++) {
-			tangent[i] = -1;
-		}
-		float[] bitangent = new float[vpVert.length() * 3];
-		float[] vertices = vpVert.getAsFloatArray();
+		float[] vertices = getByUsage(VertexPropertyType.VERTEX_POS).getAsFloatArray();
 		float[] texCoords = getByUsage(VertexPropertyType.TEXTURE_COORDINATES).getAsFloatArray();
-		for (int i = 0; i < indices.length / 3; i++) {
-			int index1 = indices[i * 3 + 0];
-			int index2 = indices[i * 3 + 1];
-			int index3 = indices[i * 3 + 2];
-			Vector3f pos1 = new Vector3f(vertices[index1 * 3 + 0], vertices[index1 * 3 + 1], vertices[index1 * 3 + 2]);
-			Vector3f pos2 = new Vector3f(vertices[index2 * 3 + 0], vertices[index2 * 3 + 1], vertices[index2 * 3 + 2]);
-			Vector3f pos3 = new Vector3f(vertices[index3 * 3 + 0], vertices[index3 * 3 + 1], vertices[index3 * 3 + 2]);
-			Vector2f tc1 = new Vector2f(texCoords[index1 * 2 + 0], texCoords[index1 * 2 + 1]);
-			Vector2f tc2 = new Vector2f(texCoords[index2 * 2 + 0], texCoords[index2 * 2 + 1]);
-			Vector2f tc3 = new Vector2f(texCoords[index3 * 2 + 0], texCoords[index3 * 2 + 1]);
-			Vector3f edge1 = pos2.subCopy(pos1);
-			Vector3f edge2 = pos3.subCopy(pos1);
-			Vector2f dTc1 = tc2.subCopy(tc1);
-			Vector2f dTc2 = tc3.subCopy(tc1);
-			float f = 1.0f / (dTc1.x * dTc2.y - dTc2.x * dTc1.y);
-			Vector3f cTangent = new Vector3f();
-			cTangent.x = f * (dTc2.y * edge1.x - dTc1.y * edge2.x);
-			cTangent.y = f * (dTc2.y * edge1.y - dTc1.y * edge2.y);
-			cTangent.z = f * (dTc2.y * edge1.z - dTc1.y * edge2.z);
-			cTangent.normalize();
-			tangent[index1 * 3 + 0] = cTangent.x;
-			tangent[index1 * 3 + 1] = cTangent.y;
-			tangent[index1 * 3 + 2] = cTangent.z;
-			tangent[index2 * 3 + 0] = cTangent.x;
-			tangent[index2 * 3 + 1] = cTangent.y;
-			tangent[index2 * 3 + 2] = cTangent.z;
-			tangent[index3 * 3 + 0] = cTangent.x;
-			tangent[index3 * 3 + 1] = cTangent.y;
-			tangent[index3 * 3 + 2] = cTangent.z;
-			Vector3f cBitangent = new Vector3f();
-			cBitangent.x = f * (-dTc2.x * edge1.x + dTc1.x * edge2.x);
-			cBitangent.y = f * (-dTc2.x * edge1.y + dTc1.x * edge2.y);
-			cBitangent.z = f * (-dTc2.x * edge1.z + dTc1.x * edge2.z);
-			cBitangent.normalize();
-			bitangent[index1 * 3 + 0] = cBitangent.x;
-			bitangent[index1 * 3 + 1] = cBitangent.y;
-			bitangent[index1 * 3 + 2] = cBitangent.z;
-			bitangent[index2 * 3 + 0] = cBitangent.x;
-			bitangent[index2 * 3 + 1] = cBitangent.y;
-			bitangent[index2 * 3 + 2] = cBitangent.z;
-			bitangent[index3 * 3 + 0] = cBitangent.x;
-			bitangent[index3 * 3 + 1] = cBitangent.y;
-			bitangent[index3 * 3 + 2] = cBitangent.z;
-		}
+		int[] indices = MeshKernels.toIntArray(getByUsage(VertexPropertyType.INDICES));
+		float[] tangent = new float[vertices.length];
+		float[] bitangent = new float[vertices.length];
+		// The stored normals may be packed into 0 to 1, so the kernel works out its
+		// own
+		MeshKernels.calculateTangents(vertices, texCoords, null, indices, tangent, bitangent);
 		VertexedProperty vpTangent = new VertexedProperty(tangent, VertexPropertyType.NORMAL_TANGENT);
 		VertexedProperty vpBitangent = new VertexedProperty(bitangent, VertexPropertyType.NORMAL_BITANGENT);
 		VertexedProperty[] newProperties = new VertexedProperty[properties.length + 2];
@@ -432,114 +430,11 @@ public class Mesh extends EngineItem {
 		if(getByUsage(VertexPropertyType.NORMALS) != null) {
 			return this;
 		}
-		Vector3f[] normals = new Vector3f[verticeCount];
-		VertexedProperty indices = getByUsage(VertexPropertyType.INDICES);
-		VertexedProperty positions = getByUsage(VertexPropertyType.VERTEX_POS);
-		switch(indices.dataType) {
-		case BYTE:
-			byte[] indicesArrayB = indices.byteProp;
-			for(int i = 0;i < indicesArrayB.length;i += 3) {
-				Vector3f normal = null;
-				Vector3f pos1, pos2, pos3;
-				switch(positions.dataType) {
-				case BYTE:
-					byte[] positionArrayB = positions.byteProp;
-					pos1 = new Vector3f(positionArrayB[indicesArrayB[i+0]*3+0], positionArrayB[indicesArrayB[i+0]*3+1], positionArrayB[indicesArrayB[i+0]*3+2]);
-					pos2 = new Vector3f(positionArrayB[indicesArrayB[i+1]*3+0], positionArrayB[indicesArrayB[i+1]*3+1], positionArrayB[indicesArrayB[i+1]*3+2]);
-					pos3 = new Vector3f(positionArrayB[indicesArrayB[i+2]*3+0], positionArrayB[indicesArrayB[i+2]*3+1], positionArrayB[indicesArrayB[i+2]*3+2]);
-					normal = Geometry.calculateNormal(pos1, pos2, pos3);
-					break;
-				case FLOAT:
-					float[] positionArrayF = positions.floatProp;
-					pos1 = new Vector3f(positionArrayF[indicesArrayB[i+0]*3+0], positionArrayF[indicesArrayB[i+0]*3+1], positionArrayF[indicesArrayB[i+0]*3+2]);
-					pos2 = new Vector3f(positionArrayF[indicesArrayB[i+1]*3+0], positionArrayF[indicesArrayB[i+1]*3+1], positionArrayF[indicesArrayB[i+1]*3+2]);
-					pos3 = new Vector3f(positionArrayF[indicesArrayB[i+2]*3+0], positionArrayF[indicesArrayB[i+2]*3+1], positionArrayF[indicesArrayB[i+2]*3+2]);
-					normal = Geometry.calculateNormal(pos1, pos2, pos3);
-					break;
-				case INT:
-					int[] positionArrayI = positions.intProp;
-					pos1 = new Vector3f(positionArrayI[indicesArrayB[i+0]*3+0], positionArrayI[indicesArrayB[i+0]*3+1], positionArrayI[indicesArrayB[i+0]*3+2]);
-					pos2 = new Vector3f(positionArrayI[indicesArrayB[i+1]*3+0], positionArrayI[indicesArrayB[i+1]*3+1], positionArrayI[indicesArrayB[i+1]*3+2]);
-					pos3 = new Vector3f(positionArrayI[indicesArrayB[i+2]*3+0], positionArrayI[indicesArrayB[i+2]*3+1], positionArrayI[indicesArrayB[i+2]*3+2]);
-					normal = Geometry.calculateNormal(pos1, pos2, pos3);
-					break;
-				}
-				if(normals[indicesArrayB[i+0]] == null) {
-					normals[indicesArrayB[i+0]] = Vector3f.copyOf(normal);
-				} else {
-					normals[indicesArrayB[i+0]].add(normal);
-				}
-				if(normals[indicesArrayB[i+1]] == null) {
-					normals[indicesArrayB[i+1]] = Vector3f.copyOf(normal);
-				} else {
-					normals[indicesArrayB[i+1]].add(normal);
-				}
-				if(normals[indicesArrayB[i+2]] == null) {
-					normals[indicesArrayB[i+2]] = Vector3f.copyOf(normal);
-				} else {
-					normals[indicesArrayB[i+2]].add(normal);
-				}
-			}
-			break;
-		case INT:
-			int[] indicesArrayI = indices.intProp;
-			for(int i = 0;i < indicesArrayI.length;i += 3) {
-				Vector3f normal = null;
-				Vector3f pos1, pos2, pos3;
-				switch(positions.dataType) {
-				case BYTE:
-					byte[] positionArrayB = positions.byteProp;
-					pos1 = new Vector3f(positionArrayB[indicesArrayI[i+0]*3+0], positionArrayB[indicesArrayI[i+0]*3+1], positionArrayB[indicesArrayI[i+0]*3+2]);
-					pos2 = new Vector3f(positionArrayB[indicesArrayI[i+1]*3+0], positionArrayB[indicesArrayI[i+1]*3+1], positionArrayB[indicesArrayI[i+1]*3+2]);
-					pos3 = new Vector3f(positionArrayB[indicesArrayI[i+2]*3+0], positionArrayB[indicesArrayI[i+2]*3+1], positionArrayB[indicesArrayI[i+2]*3+2]);
-					normal = Geometry.calculateNormal(pos1, pos2, pos3);
-					break;
-				case FLOAT:
-					float[] positionArrayF = positions.floatProp;
-					pos1 = new Vector3f(positionArrayF[indicesArrayI[i+0]*3+0], positionArrayF[indicesArrayI[i+0]*3+1], positionArrayF[indicesArrayI[i+0]*3+2]);
-					pos2 = new Vector3f(positionArrayF[indicesArrayI[i+1]*3+0], positionArrayF[indicesArrayI[i+1]*3+1], positionArrayF[indicesArrayI[i+1]*3+2]);
-					pos3 = new Vector3f(positionArrayF[indicesArrayI[i+2]*3+0], positionArrayF[indicesArrayI[i+2]*3+1], positionArrayF[indicesArrayI[i+2]*3+2]);
-					normal = Geometry.calculateNormal(pos1, pos2, pos3);
-					break;
-				case INT:
-					int[] positionArrayI = positions.intProp;
-					pos1 = new Vector3f(positionArrayI[indicesArrayI[i+0]*3+0], positionArrayI[indicesArrayI[i+0]*3+1], positionArrayI[indicesArrayI[i+0]*3+2]);
-					pos2 = new Vector3f(positionArrayI[indicesArrayI[i+1]*3+0], positionArrayI[indicesArrayI[i+1]*3+1], positionArrayI[indicesArrayI[i+1]*3+2]);
-					pos3 = new Vector3f(positionArrayI[indicesArrayI[i+2]*3+0], positionArrayI[indicesArrayI[i+2]*3+1], positionArrayI[indicesArrayI[i+2]*3+2]);
-					normal = Geometry.calculateNormal(pos1, pos2, pos3);
-					break;
-				}
-				if(normals[indicesArrayI[i+0]] == null) {
-					normals[indicesArrayI[i+0]] = Vector3f.copyOf(normal);
-				} else {
-					normals[indicesArrayI[i+0]].add(normal);
-				}
-				if(normals[indicesArrayI[i+1]] == null) {
-					normals[indicesArrayI[i+1]] = Vector3f.copyOf(normal);
-				} else {
-					normals[indicesArrayI[i+1]].add(normal);
-				}
-				if(normals[indicesArrayI[i+2]] == null) {
-					normals[indicesArrayI[i+2]] = Vector3f.copyOf(normal);
-				} else {
-					normals[indicesArrayI[i+2]].add(normal);
-				}
-			}
-			break;
-		case FLOAT:
-			/*If you have floating point indices, you are way more fucked up than this function can deal with*/
-			break;
-		}
-		
-		float[] finalNormals = new float[normals.length*3];
-		for(int i = 0;i < normals.length;i ++) {
-			if(normals[i] == null) {
-				normals[i] = new Vector3f();
-			}
-			normals[i].normalize();
-			finalNormals[i*3+0] = (normals[i].x/2) + 0.5f;
-			finalNormals[i*3+1] = (normals[i].y/2) + 0.5f;
-			finalNormals[i*3+2] = (normals[i].z/2) + 0.5f;
+		float[] positions = getByUsage(VertexPropertyType.VERTEX_POS).getAsFloatArray();
+		int[] indices = MeshKernels.toIntArray(getByUsage(VertexPropertyType.INDICES));
+		float[] finalNormals = MeshKernels.calculateNormals(positions, indices);
+		for(int i = 0;i < finalNormals.length;i ++) {
+			finalNormals[i] = (finalNormals[i]/2) + 0.5f;
 		}
 		
 		VertexedProperty normalsProperty = new VertexedProperty(finalNormals, VertexPropertyType.NORMALS);
@@ -0,0 +1,405 @@
+package net.chazzvader.core.generic.engine.mesh;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+import net.chazzvader.core.generic.math.Vector2f;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Builds a mesh piece by piece into growable arrays. Unlike
+ * {@link Mesh#append(Mesh)}, which copies the whole mesh every time, the
+ * arrays here only grow when they are full, and then double, so adding lots of
+ * small pieces stays linear. If the final size is known, {@link #reserve(int,
+ * int)} skips the growing completely.<br>
+ * <br>
+ * The builder always makes positions and indices, and normals and texture
+ * coordinates if asked for in the constructor. Every vertex has all of them,
+ * any that aren't written are left as zeros.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class MeshBuilder {
+
+	private static final int INITIAL_VERTICES = 16;
+
+	private final boolean hasNormals;
+	private final boolean hasTextureCoordinates;
+
+	private float[] positions;
+	private float[] normals;
+	private float[] textureCoordinates;
+	private int[] indices;
+	private int vertexCount = 0;
+	private int indexCount = 0;
+
+	private boolean shared = false;
+	private int resizes = 0;
+
+	/**
+	 * Creates an empty builder that makes positions, indices, normals and texture
+	 * coordinates.
+	 */
+	public MeshBuilder() {
+		this(true, true);
+	}
+
+	/**
+	 * Creates an empty builder.
+	 *
+	 * @param normals            If the mesh should have normals.
+	 * @param textureCoordinates If the mesh should have texture coordinates.
+	 */
+	public MeshBuilder(boolean normals, boolean textureCoordinates) {
+		this(normals, textureCoordinates, INITIAL_VERTICES, INITIAL_VERTICES * 3 / 2);
+	}
+
+	/**
+	 * Creates an empty builder with space for a given amount of vertices and
+	 * indices. If exactly that many are added, {@link #build()} doesn't have to
+	 * copy anything.
+	 *
+	 * @param normals            If the mesh should have normals.
+	 * @param textureCoordinates If the mesh should have texture coordinates.
+	 * @param vertices           The amount of vertices to make space for.
+	 * @param indices            The amount of indices to make space for.
+	 */
+	public MeshBuilder(boolean normals, boolean textureCoordinates, int vertices, int indices) {
+		this.hasNormals = normals;
+		this.hasTextureCoordinates = textureCoordinates;
+		positions = new float[vertices * 3];
+		this.normals = normals ? new float[vertices * 3] : null;
+		this.textureCoordinates = textureCoordinates ? new float[vertices * 2] : null;
+		this.indices = new int[indices];
+	}
+
+	/**
+	 * Makes sure there is space for more vertices and indices, so adding them
+	 * doesn't have to grow the arrays.
+	 *
+	 * @param vertices The amount of vertices that will be added.
+	 * @param indices  The amount of indices that will be added.
+	 * @return This builder, for chaining.
+	 */
+	public MeshBuilder reserve(int vertices, int indices) {
+		unshare();
+		ensureVertices(vertexCount + vertices);
+		ensureIndices(indexCount + indices);
+		return this;
+	}
+
+	private void ensureVertices(int needed) {
+		if (needed <= positions.length / 3) {
+			return;
+		}
+		int capacity = Math.max(needed, Math.max(positions.length / 3 * 2, INITIAL_VERTICES));
+		positions = Arrays.copyOf(positions, capacity * 3);
+		if (hasNormals) {
+			normals = Arrays.copyOf(normals, capacity * 3);
+		}
+		if (hasTextureCoordinates) {
+			textureCoordinates = Arrays.copyOf(textureCoordinates, capacity * 2);
+		}
+		resizes++;
+	}
+
+	private void ensureIndices(int needed) {
+		if (needed <= indices.length) {
+			return;
+		}
+		indices = Arrays.copyOf(indices, Math.max(needed, Math.max(indices.length * 2, INITIAL_VERTICES)));
+		resizes++;
+	}
+
+	// The arrays were handed to a built mesh, so they must be copied before they
+	// are changed
+	private void unshare() {
+		if (!shared) {
+			return;
+		}
+		positions = positions.clone();
+		if (hasNormals) {
+			normals = normals.clone();
+		}
+		if (hasTextureCoordinates) {
+			textureCoordinates = textureCoordinates.clone();
+		}
+		indices = indices.clone();
+		shared = false;
+	}
+
+	/**
+	 * Adds a vertex. Its normal and texture coordinate start as zeros, and can be
+	 * set right after with {@link #normal(float, float, float)} and
+	 * {@link #textureCoordinate(float, float)}.
+	 *
+	 * @param x The x position.
+	 * @param y The y position.
+	 * @param z The z position.
+	 * @return The index of the new vertex.
+	 */
+	public int vertex(float x, float y, float z) {
+		unshare();
+		ensureVertices(vertexCount + 1);
+		int o = vertexCount * 3;
+		positions[o] = x;
+		positions[o + 1] = y;
+		positions[o + 2] = z;
+		if (hasNormals) {
+			normals[o] = 0;
+			normals[o + 1] = 0;
+			normals[o + 2] = 0;
+		}
+		if (hasTextureCoordinates) {
+			textureCoordinates[vertexCount * 2] = 0;
+			textureCoordinates[vertexCount * 2 + 1] = 0;
+		}
+		return vertexCount++;
+	}
+
+	/**
+	 * Adds a vertex.
+	 *
+	 * @param position          The position.
+	 * @param normal            The normal. Ignored if this builder doesn't make
+	 *                          normals.
+	 * @param textureCoordinate The texture coordinate, may be null. Ignored if
+	 *                          this builder doesn't make texture coordinates.
+	 * @return The index of the new vertex.
+	 */
+	public int vertex(Vector3f position, Vector3f normal, Vector2f textureCoordinate) {
+		int ret = vertex(position.x, position.y, position.z);
+		if (normal != null) {
+			normal(normal.x, normal.y, normal.z);
+		}
+		if (textureCoordinate != null) {
+			textureCoordinate(textureCoordinate.x, textureCoordinate.y);
+		}
+		return ret;
+	}
+
+	/**
+	 * Sets the normal of the last vertex added. Does nothing if this builder
+	 * doesn't make normals.
+	 *
+	 * @param x The x component.
+	 * @param y The y component.
+	 * @param z The z component.
+	 * @return This builder, for chaining.
+	 */
+	public MeshBuilder normal(float x, float y, float z) {
+		if (hasNormals) {
+			unshare();
+			int o = (vertexCount - 1) * 3;
+			normals[o] = x;
+			normals[o + 1] = y;
+			normals[o + 2] = z;
+		}
+		return this;
+	}
+
+	/**
+	 * Sets the texture coordinate of the last vertex added. Does nothing if this
+	 * builder doesn't make texture coordinates.
+	 *
+	 * @param u The u component.
+	 * @param v The v component.
+	 * @return This builder, for chaining.
+	 */
+	public MeshBuilder textureCoordinate(float u, float v) {
+		if (hasTextureCoordinates) {
+			unshare();
+			int o = (vertexCount - 1) * 2;
+			textureCoordinates[o] = u;
+			textureCoordinates[o + 1] = v;
+		}
+		return this;
+	}
+
+	/**
+	 * Adds an index.
+	 *
+	 * @param index The index of the vertex, as returned by
+	 *              {@link #vertex(float, float, float)}.
+	 * @return This builder, for chaining.
+	 */
+	public MeshBuilder index(int index) {
+		unshare();
+		ensureIndices(indexCount + 1);
+		indices[indexCount++] = index;
+		return this;
+	}
+
+	/**
+	 * Adds the three indices of a triangle.
+	 *
+	 * @param a The index of the first vertex.
+	 * @param b The index of the second vertex.
+	 * @param c The index of the third vertex.
+	 * @return This builder, for chaining.
+	 */
+	public MeshBuilder triangle(int a, int b, int c) {
+		unshare();
+		ensureIndices(indexCount + 3);
+		indices[indexCount] = a;
+		indices[indexCount + 1] = b;
+		indices[indexCount + 2] = c;
+		indexCount += 3;
+		return this;
+	}
+
+	/**
+	 * Adds a whole mesh after what is already here. Properties this builder
+	 * doesn't make are dropped, and ones the mesh doesn't have are left as zeros.
+	 *
+	 * @param mesh The mesh to add.
+	 * @return This builder, for chaining.
+	 */
+	public MeshBuilder append(Mesh mesh) {
+		VertexedProperty in = mesh.getByUsage(VertexPropertyType.INDICES);
+		int count = mesh.verticeCount;
+		int indexLength = in == null ? 0 : rawLength(in);
+		reserve(count, indexLength);
+		int start = vertexCount;
+		copy(mesh.getByUsage(VertexPropertyType.VERTEX_POS), positions, start * 3, count * 3);
+		if (hasNormals) {
+			copy(mesh.getByUsage(VertexPropertyType.NORMALS), normals, start * 3, count * 3);
+		}
+		if (hasTextureCoordinates) {
+			copy(mesh.getByUsage(VertexPropertyType.TEXTURE_COORDINATES), textureCoordinates, start * 2, count * 2);
+		}
+		for (int i = 0; i < indexLength; i++) {
+			int index;
+			switch (in.dataType) {
+			case BYTE:
+				index = in.byteProp[i] & 0xFF;
+				break;
+			case INT:
+				index = in.intProp[i];
+				break;
+			default:
+				index = (int) in.floatProp[i];
+				break;
+			}
+			indices[indexCount + i] = start + index;
+		}
+		vertexCount += count;
+		indexCount += indexLength;
+		return this;
+	}
+
+	private static void copy(VertexedProperty property, float[] to, int offset, int length) {
+		if (property == null) {
+			Arrays.fill(to, offset, offset + length, 0);
+			return;
+		}
+		switch (property.dataType) {
+		case FLOAT:
+			System.arraycopy(property.floatProp, 0, to, offset, length);
+			break;
+		case INT:
+			for (int i = 0; i < length; i++) {
+				to[offset + i] = property.intProp[i];
+			}
+			break;
+		case BYTE:
+			for (int i = 0; i < length; i++) {
+				to[offset + i] = property.byteProp[i];
+			}
+			break;
+		}
+	}
+
+	private static int rawLength(VertexedProperty property) {
+		switch (property.dataType) {
+		case BYTE:
+			return property.byteProp.length;
+		case FLOAT:
+			return property.floatProp.length;
+		case INT:
+			return property.intProp.length;
+		}
+		return 0;
+	}
+
+	/**
+	 * Makes a mesh out of everything added so far. The builder can keep being
+	 * used afterwards without changing the mesh.
+	 *
+	 * @return The mesh.
+	 */
+	public Mesh build() {
+		VertexedProperty pos = new VertexedProperty(exact(positions, vertexCount * 3), VertexPropertyType.VERTEX_POS);
+		VertexedProperty ind = new VertexedProperty(exact(indices, indexCount), VertexPropertyType.INDICES);
+		VertexedProperty[] others = new VertexedProperty[(hasNormals ? 1 : 0) + (hasTextureCoordinates ? 1 : 0)];
+		int other = 0;
+		if (hasNormals) {
+			others[other++] = new VertexedProperty(exact(normals, vertexCount * 3), VertexPropertyType.NORMALS);
+		}
+		if (hasTextureCoordinates) {
+			others[other++] = new VertexedProperty(exact(textureCoordinates, vertexCount * 2),
+					VertexPropertyType.TEXTURE_COORDINATES);
+		}
+		return new Mesh(pos, ind, others);
+	}
+
+	// Hands the array over without a copy if it is already the right size
+	private float[] exact(float[] array, int length) {
+		if (array.length == length) {
+			shared = true;
+			return array;
+		}
+		return Arrays.copyOf(array, length);
+	}
+
+	private int[] exact(int[] array, int length) {
+		if (array.length == length) {
+			shared = true;
+			return array;
+		}
+		return Arrays.copyOf(array, length);
+	}
+
+	/**
+	 * Empties the builder. The arrays are kept, so building another mesh of about
+	 * the same size doesn't have to grow them again.
+	 *
+	 * @return This builder, for chaining.
+	 */
+	public MeshBuilder clear() {
+		unshare();
+		vertexCount = 0;
+		indexCount = 0;
+		return this;
+	}
+
+	/**
+	 * The amount of vertices added so far.
+	 *
+	 * @return The amount of vertices.
+	 */
+	public int getVertexCount() {
+		return vertexCount;
+	}
+
+	/**
+	 * The amount of indices added so far.
+	 *
+	 * @return The amount of indices.
+	 */
+	public int getIndexCount() {
+		return indexCount;
+	}
+
+	/**
+	 * How many times the arrays had to grow.
+	 *
+	 * @return The amount of times the arrays were resized.
+	 */
+	public int getResizeCount() {
+		return resizes;
+	}
+
+}
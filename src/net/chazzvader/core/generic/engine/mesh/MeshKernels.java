@@ -0,0 +1,316 @@
+package net.chazzvader.core.generic.engine.mesh;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Works out normals and tangents straight on the raw arrays of a mesh, without
+ * making any vectors. Every triangle adds to the vertices it uses, and once all
+ * of them have the vertices are normalized.<br>
+ * <br>
+ * Meshes with at least {@value #PARALLEL_THRESHOLD} triangles are split into
+ * ranges of triangles that are worked on at the same time on the common
+ * {@link ForkJoinPool}. Each range adds into its own array, so nothing has to
+ * be locked, and the arrays are then summed, again split up, by vertex.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class MeshKernels {
+
+	/**
+	 * The amount of triangles a mesh needs before the work is split up.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 15;
+
+	private static final int TRIANGLES_PER_PIECE = 1 << 14;
+
+	private MeshKernels() {
+	}
+
+	private interface Range {
+		void run(int first, int last, float[] sums);
+	}
+
+	/**
+	 * Works out a normal for every vertex, the average of the normals of the
+	 * triangles using it, weighted by their area. Vertices no triangle uses get a
+	 * normal of zero.
+	 *
+	 * @param positions The positions, three per vertex.
+	 * @param indices   The indices, three per triangle.
+	 * @return The normals, three per vertex, of unit length.
+	 */
+	public static float[] calculateNormals(float[] positions, int[] indices) {
+		float[] normals = new float[positions.length];
+		calculateNormals(positions, indices, normals);
+		return normals;
+	}
+
+	/**
+	 * Works out a normal for every vertex, the average of the normals of the
+	 * triangles using it, weighted by their area. Vertices no triangle uses get a
+	 * normal of zero.
+	 *
+	 * @param positions The positions, three per vertex.
+	 * @param indices   The indices, three per triangle.
+	 * @param normals   Where to put the normals, three per vertex.
+	 */
+	public static void calculateNormals(float[] positions, int[] indices, float[] normals) {
+		int vertices = positions.length / 3;
+		// The cross product of two edges is twice the area long, so adding it
+		// unnormalized weights the triangles by area
+		run(vertices, 3, indices.length / 3, (first, last, sums) -> {
+			for (int t = first; t < last; t++) {
+				int a = indices[t * 3] * 3;
+				int b = indices[t * 3 + 1] * 3;
+				int c = indices[t * 3 + 2] * 3;
+				float ux = positions[b] - positions[a];
+				float uy = positions[b + 1] - positions[a + 1];
+				float uz = positions[b + 2] - positions[a + 2];
+				float vx = positions[c] - positions[a];
+				float vy = positions[c + 1] - positions[a + 1];
+				float vz = positions[c + 2] - positions[a + 2];
+				float nx = uy * vz - uz * vy;
+				float ny = uz * vx - ux * vz;
+				float nz = ux * vy - uy * vx;
+				add(sums, a, nx, ny, nz);
+				add(sums, b, nx, ny, nz);
+				add(sums, c, nx, ny, nz);
+			}
+		}, (first, last, sums) -> {
+			for (int v = first; v < last; v++) {
+				int o = v * 3;
+				float x = sums[o];
+				float y = sums[o + 1];
+				float z = sums[o + 2];
+				float length = (float) Math.sqrt(x * x + y * y + z * z);
+				float scale = length > 0 ? 1 / length : 0;
+				normals[o] = x * scale;
+				normals[o + 1] = y * scale;
+				normals[o + 2] = z * scale;
+			}
+		});
+	}
+
+	/**
+	 * Works out a tangent and bitangent for every vertex, from the texture
+	 * coordinates, so normal maps can be used. Each triangle's directions are
+	 * weighted by its area and averaged, then made at right angles to the normal
+	 * and each other, keeping the bitangent on the side the texture coordinates
+	 * put it. Triangles with no texture area are skipped.
+	 *
+	 * @param positions          The positions, three per vertex.
+	 * @param textureCoordinates The texture coordinates, two per vertex.
+	 * @param normals            The normals, three per vertex, of unit length. May
+	 *                           be null, then area weighted normals are worked out
+	 *                           along the way.
+	 * @param indices            The indices, three per triangle.
+	 * @param tangents           Where to put the tangents, three per vertex.
+	 * @param bitangents         Where to put the bitangents, three per vertex.
+	 */
+	public static void calculateTangents(float[] positions, float[] textureCoordinates, float[] normals,
+			int[] indices, float[] tangents, float[] bitangents) {
+		int vertices = positions.length / 3;
+		// Tangent, bitangent, and the normal if it has to be worked out
+		int width = normals == null ? 9 : 6;
+		run(vertices, width, indices.length / 3, (first, last, sums) -> {
+			for (int t = first; t < last; t++) {
+				int a = indices[t * 3];
+				int b = indices[t * 3 + 1];
+				int c = indices[t * 3 + 2];
+				float e1x = positions[b * 3] - positions[a * 3];
+				float e1y = positions[b * 3 + 1] - positions[a * 3 + 1];
+				float e1z = positions[b * 3 + 2] - positions[a * 3 + 2];
+				float e2x = positions[c * 3] - positions[a * 3];
+				float e2y = positions[c * 3 + 1] - positions[a * 3 + 1];
+				float e2z = positions[c * 3 + 2] - positions[a * 3 + 2];
+				float nx = e1y * e2z - e1z * e2y;
+				float ny = e1z * e2x - e1x * e2z;
+				float nz = e1x * e2y - e1y * e2x;
+				float area = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+				float s1 = textureCoordinates[b * 2] - textureCoordinates[a * 2];
+				float t1 = textureCoordinates[b * 2 + 1] - textureCoordinates[a * 2 + 1];
+				float s2 = textureCoordinates[c * 2] - textureCoordinates[a * 2];
+				float t2 = textureCoordinates[c * 2 + 1] - textureCoordinates[a * 2 + 1];
+				float determinant = s1 * t2 - s2 * t1;
+				float tx = 0, ty = 0, tz = 0, bx = 0, by = 0, bz = 0;
+				if (determinant != 0 && area > 0) {
+					tx = t2 * e1x - t1 * e2x;
+					ty = t2 * e1y - t1 * e2y;
+					tz = t2 * e1z - t1 * e2z;
+					bx = s1 * e2x - s2 * e1x;
+					by = s1 * e2y - s2 * e1y;
+					bz = s1 * e2z - s2 * e1z;
+					// Normalizing and then scaling by the area in one go, the sign of the
+					// determinant keeps the handedness
+					float tScale = area / (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+					float bScale = area / (float) Math.sqrt(bx * bx + by * by + bz * bz);
+					if (determinant < 0) {
+						tScale = -tScale;
+						bScale = -bScale;
+					}
+					if (Float.isFinite(tScale) && Float.isFinite(bScale)) {
+						tx *= tScale;
+						ty *= tScale;
+						tz *= tScale;
+						bx *= bScale;
+						by *= bScale;
+						bz *= bScale;
+					} else {
+						tx = ty = tz = bx = by = bz = 0;
+					}
+				}
+				add(sums, a * width, tx, ty, tz, bx, by, bz);
+				add(sums, b * width, tx, ty, tz, bx, by, bz);
+				add(sums, c * width, tx, ty, tz, bx, by, bz);
+				if (width == 9) {
+					add(sums, a * 9 + 6, nx, ny, nz);
+					add(sums, b * 9 + 6, nx, ny, nz);
+					add(sums, c * 9 + 6, nx, ny, nz);
+				}
+			}
+		}, (first, last, sums) -> {
+			for (int v = first; v < last; v++) {
+				int o = v * width;
+				float nx, ny, nz;
+				if (normals == null) {
+					nx = sums[o + 6];
+					ny = sums[o + 7];
+					nz = sums[o + 8];
+					float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+					float scale = length > 0 ? 1 / length : 0;
+					nx *= scale;
+					ny *= scale;
+					nz *= scale;
+				} else {
+					nx = normals[v * 3];
+					ny = normals[v * 3 + 1];
+					nz = normals[v * 3 + 2];
+				}
+				// Gram-Schmidt, the tangent loses the part along the normal
+				float tx = sums[o], ty = sums[o + 1], tz = sums[o + 2];
+				float dot = nx * tx + ny * ty + nz * tz;
+				tx -= nx * dot;
+				ty -= ny * dot;
+				tz -= nz * dot;
+				float length = (float) Math.sqrt(tx * tx + ty * ty + tz * tz);
+				float scale = length > 0 ? 1 / length : 0;
+				tx *= scale;
+				ty *= scale;
+				tz *= scale;
+				float bx = sums[o + 3], by = sums[o + 4], bz = sums[o + 5];
+				if (nx != 0 || ny != 0 || nz != 0) {
+					// The bitangent is then the one direction left, on the same side as the
+					// average
+					float cx = ny * tz - nz * ty;
+					float cy = nz * tx - nx * tz;
+					float cz = nx * ty - ny * tx;
+					float sign = cx * bx + cy * by + cz * bz < 0 ? -1 : 1;
+					bx = cx * sign;
+					by = cy * sign;
+					bz = cz * sign;
+				} else {
+					length = (float) Math.sqrt(bx * bx + by * by + bz * bz);
+					scale = length > 0 ? 1 / length : 0;
+					bx *= scale;
+					by *= scale;
+					bz *= scale;
+				}
+				tangents[v * 3] = tx;
+				tangents[v * 3 + 1] = ty;
+				tangents[v * 3 + 2] = tz;
+				bitangents[v * 3] = bx;
+				bitangents[v * 3 + 1] = by;
+				bitangents[v * 3 + 2] = bz;
+			}
+		});
+	}
+
+	private static void add(float[] sums, int o, float x, float y, float z) {
+		sums[o] += x;
+		sums[o + 1] += y;
+		sums[o + 2] += z;
+	}
+
+	private static void add(float[] sums, int o, float x, float y, float z, float x2, float y2, float z2) {
+		sums[o] += x;
+		sums[o + 1] += y;
+		sums[o + 2] += z;
+		sums[o + 3] += x2;
+		sums[o + 4] += y2;
+		sums[o + 5] += z2;
+	}
+
+	/**
+	 * Gets indices as an int array, whatever type they are stored as. Int indices
+	 * are returned as they are, without a copy.
+	 *
+	 * @param indices The indices.
+	 * @return The indices as ints.
+	 */
+	public static int[] toIntArray(VertexedProperty indices) {
+		switch (indices.dataType) {
+		case BYTE:
+			int[] fromBytes = new int[indices.byteProp.length];
+			for (int i = 0; i < fromBytes.length; i++) {
+				fromBytes[i] = indices.byteProp[i] & 0xFF;
+			}
+			return fromBytes;
+		case FLOAT:
+			int[] fromFloats = new int[indices.floatProp.length];
+			for (int i = 0; i < fromFloats.length; i++) {
+				fromFloats[i] = (int) indices.floatProp[i];
+			}
+			return fromFloats;
+		default:
+			return indices.intProp;
+		}
+	}
+
+	// Adds up every range of triangles into its own array, sums the arrays and
+	// finishes every vertex
+	private static void run(int vertices, int width, int triangles, Range add, Range finish) {
+		int pieces = 1;
+		if (triangles >= PARALLEL_THRESHOLD) {
+			pieces = Math.max(1, Math.min(ForkJoinPool.getCommonPoolParallelism(), triangles / TRIANGLES_PER_PIECE));
+		}
+		if (pieces == 1) {
+			float[] sums = new float[vertices * width];
+			add.run(0, triangles, sums);
+			finish.run(0, vertices, sums);
+			return;
+		}
+		float[][] sums = new float[pieces][];
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[pieces];
+		for (int i = 0; i < pieces; i++) {
+			float[] piece = new float[vertices * width];
+			int first = (int) ((long) triangles * i / pieces);
+			int last = (int) ((long) triangles * (i + 1) / pieces);
+			sums[i] = piece;
+			tasks[i] = ForkJoinPool.commonPool().submit(() -> add.run(first, last, piece));
+		}
+		for (int i = 0; i < pieces; i++) {
+			tasks[i].join();
+		}
+		float[] total = sums[0];
+		for (int i = 0; i < pieces; i++) {
+			int first = (int) ((long) vertices * i / pieces);
+			int last = (int) ((long) vertices * (i + 1) / pieces);
+			tasks[i] = ForkJoinPool.commonPool().submit(() -> {
+				for (int p = 1; p < sums.length; p++) {
+					float[] piece = sums[p];
+					for (int j = first * width; j < last * width; j++) {
+						total[j] += piece[j];
+					}
+				}
+				finish.run(first, last, total);
+			});
+		}
+		for (int i = 0; i < pieces; i++) {
+			tasks[i].join();
+		}
+	}
+
+}
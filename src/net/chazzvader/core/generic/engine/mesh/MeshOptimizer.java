@@ -0,0 +1,391 @@
+package net.chazzvader.core.generic.engine.mesh;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+
+/**
+ * Reorders meshes so the GPU draws them faster. It all runs on the CPU, so it
+ * can be done once when a mesh is made or cached, the result draws exactly the
+ * same triangles.<br>
+ * <br>
+ * There are three steps, done in order by {@link #optimize(Mesh)}:
+ * <ul>
+ * <li>The triangles are reordered with Tipsify, so vertices are used again
+ * while they are still in the post transform cache.</li>
+ * <li>The runs of triangles Tipsify makes are sorted so the ones facing out
+ * from the middle of the mesh are drawn first, which hides more of the rest and
+ * cuts overdraw.</li>
+ * <li>The vertices are reordered into the order the triangles first use them,
+ * so they are fetched from memory in order, and unused ones are dropped.</li>
+ * </ul>
+ * How well a mesh uses the cache is measured with the average cache miss ratio,
+ * the amount of vertices transformed per triangle, see
+ * {@link #calculateACMR(int[], int, int)}. It is between 0.5 and 3, and lower
+ * is better.<br>
+ * <br>
+ * The narrowest index type for a mesh is given by {@link #indexSize(int)}.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class MeshOptimizer {
+
+	/**
+	 * The size of the vertex cache that is optimized for and measured with. Real
+	 * caches are usually at least this big.
+	 */
+	public static final int CACHE_SIZE = 16;
+
+	private MeshOptimizer() {
+	}
+
+	/**
+	 * Runs all of the steps on a mesh, and logs the cache miss ratio before and
+	 * after.
+	 *
+	 * @param mesh The mesh.
+	 * @return A new mesh with the same triangles, positions first, indices
+	 *         second, and then the other properties in the same order.
+	 */
+	public static Mesh optimize(Mesh mesh) {
+		int[] indices = MeshKernels.toIntArray(mesh.getByUsage(VertexPropertyType.INDICES));
+		float[] positions = mesh.getByUsage(VertexPropertyType.VERTEX_POS).getAsFloatArray();
+		float before = calculateACMR(indices, mesh.verticeCount, CACHE_SIZE);
+		int[] ordered = optimizeOverdraw(indices, positions, mesh.verticeCount);
+		Mesh optimized = optimizeVertexFetch(mesh, ordered);
+		int[] finalIndices = optimized.getByUsage(VertexPropertyType.INDICES).intProp;
+		float after = calculateACMR(finalIndices, optimized.verticeCount, CACHE_SIZE);
+		Logging.log("Optimized mesh of " + indices.length / 3 + " triangles, ACMR " + before + " -> " + after,
+				"Mesh Optimizer", LoggingLevel.DEBUG);
+		return optimized;
+	}
+
+	/**
+	 * Works out the average cache miss ratio of some indices, the amount of
+	 * vertices that have to be transformed per triangle with a first in first out
+	 * cache.
+	 *
+	 * @param indices     The indices, three per triangle.
+	 * @param vertexCount The amount of vertices.
+	 * @param cacheSize   The amount of vertices the cache holds.
+	 * @return The average cache miss ratio, or 0 if there are no triangles.
+	 */
+	public static float calculateACMR(int[] indices, int vertexCount, int cacheSize) {
+		if (indices.length < 3) {
+			return 0;
+		}
+		// A vertex is in the cache if fewer than cacheSize misses have happened since
+		// it was put in
+		int[] insertedAt = new int[vertexCount];
+		Arrays.fill(insertedAt, Integer.MIN_VALUE / 2);
+		int misses = 0;
+		for (int i = 0; i < indices.length; i++) {
+			int vertex = indices[i];
+			if (misses - insertedAt[vertex] >= cacheSize) {
+				insertedAt[vertex] = misses;
+				misses++;
+			}
+		}
+		return misses / (float) (indices.length / 3);
+	}
+
+	/**
+	 * Reorders triangles for the vertex cache, with Tipsify.
+	 *
+	 * @param indices     The indices, three per triangle.
+	 * @param vertexCount The amount of vertices.
+	 * @return The reordered indices.
+	 */
+	public static int[] optimizeVertexCache(int[] indices, int vertexCount) {
+		int[] ordered = new int[indices.length];
+		tipsify(indices, vertexCount, CACHE_SIZE, ordered, new int[indices.length / 3 + 1]);
+		return ordered;
+	}
+
+	/**
+	 * Reorders triangles for the vertex cache, with Tipsify, and then sorts the
+	 * runs of triangles it makes so the ones facing out from the middle of the
+	 * mesh are drawn first. The triangles within a run stay in order, so the
+	 * cache is used as well as before inside of them.
+	 *
+	 * @param indices     The indices, three per triangle.
+	 * @param positions   The positions, three per vertex.
+	 * @param vertexCount The amount of vertices.
+	 * @return The reordered indices.
+	 */
+	public static int[] optimizeOverdraw(int[] indices, float[] positions, int vertexCount) {
+		int triangles = indices.length / 3;
+		int[] ordered = new int[indices.length];
+		int[] clusterStarts = new int[triangles + 1];
+		int clusters = tipsify(indices, vertexCount, CACHE_SIZE, ordered, clusterStarts);
+		if (clusters <= 1) {
+			return ordered;
+		}
+		// The middle of the mesh, weighted by area
+		double centerX = 0, centerY = 0, centerZ = 0, totalArea = 0;
+		float[] clusterData = new float[clusters * 7];
+		for (int c = 0; c < clusters; c++) {
+			for (int t = clusterStarts[c]; t < clusterStarts[c + 1]; t++) {
+				int a = ordered[t * 3] * 3;
+				int b = ordered[t * 3 + 1] * 3;
+				int d = ordered[t * 3 + 2] * 3;
+				float ux = positions[b] - positions[a];
+				float uy = positions[b + 1] - positions[a + 1];
+				float uz = positions[b + 2] - positions[a + 2];
+				float vx = positions[d] - positions[a];
+				float vy = positions[d + 1] - positions[a + 1];
+				float vz = positions[d + 2] - positions[a + 2];
+				float nx = uy * vz - uz * vy;
+				float ny = uz * vx - ux * vz;
+				float nz = ux * vy - uy * vx;
+				float area = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+				float cx = (positions[a] + positions[b] + positions[d]) / 3;
+				float cy = (positions[a + 1] + positions[b + 1] + positions[d + 1]) / 3;
+				float cz = (positions[a + 2] + positions[b + 2] + positions[d + 2]) / 3;
+				int o = c * 7;
+				clusterData[o] += cx * area;
+				clusterData[o + 1] += cy * area;
+				clusterData[o + 2] += cz * area;
+				clusterData[o + 3] += nx;
+				clusterData[o + 4] += ny;
+				clusterData[o + 5] += nz;
+				clusterData[o + 6] += area;
+			}
+			int o = c * 7;
+			centerX += clusterData[o];
+			centerY += clusterData[o + 1];
+			centerZ += clusterData[o + 2];
+			totalArea += clusterData[o + 6];
+		}
+		if (totalArea > 0) {
+			centerX /= totalArea;
+			centerY /= totalArea;
+			centerZ /= totalArea;
+		}
+		// Sorted by how far out of the middle each run faces, the most first
+		long[] keys = new long[clusters];
+		for (int c = 0; c < clusters; c++) {
+			int o = c * 7;
+			float area = clusterData[o + 6];
+			float nx = clusterData[o + 3], ny = clusterData[o + 4], nz = clusterData[o + 5];
+			float length = (float) Math.sqrt(nx * nx + ny * ny + nz * nz);
+			float facing = 0;
+			if (area > 0 && length > 0) {
+				facing = (float) (((clusterData[o] / area - centerX) * nx + (clusterData[o + 1] / area - centerY) * ny
+						+ (clusterData[o + 2] / area - centerZ) * nz) / length);
+			}
+			keys[c] = ((long) sortableKey(-facing) << 32) | c;
+		}
+		Arrays.sort(keys);
+		int[] result = new int[indices.length];
+		int written = 0;
+		for (int k = 0; k < clusters; k++) {
+			int c = (int) keys[k];
+			int length = (clusterStarts[c + 1] - clusterStarts[c]) * 3;
+			System.arraycopy(ordered, clusterStarts[c] * 3, result, written, length);
+			written += length;
+		}
+		return result;
+	}
+
+	// Flips the bits of a float so the ints sort in the same order as the floats
+	private static int sortableKey(float value) {
+		int bits = Float.floatToIntBits(value);
+		return bits ^ ((bits >> 31) & 0x7FFFFFFF);
+	}
+
+	// Tipsify, from "Fast Triangle Reordering for Vertex Locality and Reduced
+	// Overdraw" by Sander, Nehab and Barczak. Writes the reordered indices to
+	// ordered and where each run of triangles starts to clusterStarts, and
+	// returns the amount of runs. A run ends every time it gets stuck and has to
+	// jump somewhere else in the mesh.
+	private static int tipsify(int[] indices, int vertexCount, int cacheSize, int[] ordered, int[] clusterStarts) {
+		int triangles = indices.length / 3;
+		if (triangles == 0) {
+			return 0;
+		}
+		// The triangles of every vertex
+		int[] offsets = new int[vertexCount + 1];
+		for (int i = 0; i < triangles * 3; i++) {
+			offsets[indices[i] + 1]++;
+		}
+		for (int v = 0; v < vertexCount; v++) {
+			offsets[v + 1] += offsets[v];
+		}
+		int[] live = new int[vertexCount];
+		int[] adjacency = new int[triangles * 3];
+		for (int i = 0; i < triangles * 3; i++) {
+			int v = indices[i];
+			adjacency[offsets[v] + live[v]++] = i / 3;
+		}
+		int[] cacheTime = new int[vertexCount];
+		boolean[] emitted = new boolean[triangles];
+		int[] deadEnd = new int[triangles * 3];
+		int deadEndSize = 0;
+		int[] candidates = new int[triangles * 3];
+		int time = cacheSize + 1;
+		int cursor = 0;
+		int written = 0;
+		int clusters = 0;
+		boolean jumped = true;
+		int fan = 0;
+		while (fan >= 0) {
+			if (jumped) {
+				clusterStarts[clusters++] = written;
+				jumped = false;
+			}
+			int candidateCount = 0;
+			for (int a = offsets[fan]; a < offsets[fan + 1]; a++) {
+				int t = adjacency[a];
+				if (emitted[t]) {
+					continue;
+				}
+				for (int corner = 0; corner < 3; corner++) {
+					int v = indices[t * 3 + corner];
+					ordered[written * 3 + corner] = v;
+					deadEnd[deadEndSize++] = v;
+					candidates[candidateCount++] = v;
+					live[v]--;
+					if (time - cacheTime[v] > cacheSize) {
+						cacheTime[v] = time++;
+					}
+				}
+				emitted[t] = true;
+				written++;
+			}
+			// The next fanning vertex is the candidate that will still be in the
+			// cache after its triangles are drawn and has been in it the longest
+			int next = -1;
+			int best = -1;
+			for (int c = 0; c < candidateCount; c++) {
+				int v = candidates[c];
+				if (live[v] > 0) {
+					int priority = 0;
+					if (time - cacheTime[v] + 2 * live[v] <= cacheSize) {
+						priority = time - cacheTime[v];
+					}
+					if (priority > best) {
+						best = priority;
+						next = v;
+					}
+				}
+			}
+			if (next == -1) {
+				// Stuck, go back to a recently used vertex or failing that the next one
+				// with triangles left
+				while (deadEndSize > 0 && next == -1) {
+					int v = deadEnd[--deadEndSize];
+					if (live[v] > 0) {
+						next = v;
+					}
+				}
+				while (next == -1 && cursor < vertexCount) {
+					if (live[cursor] > 0) {
+						next = cursor;
+					}
+					cursor++;
+				}
+				jumped = true;
+			}
+			fan = next;
+		}
+		clusterStarts[clusters] = written;
+		// An empty run at the start if the first vertex had no triangles
+		if (clusters > 0 && clusterStarts[0] == clusterStarts[1]) {
+			System.arraycopy(clusterStarts, 1, clusterStarts, 0, clusters);
+			clusters--;
+		}
+		return clusters;
+	}
+
+	/**
+	 * Reorders the vertices of a mesh into the order the indices first use them,
+	 * and drops any that aren't used.
+	 *
+	 * @param mesh    The mesh.
+	 * @param indices The indices to use, three per triangle, instead of the ones
+	 *                in the mesh. Usually the mesh's indices after reordering.
+	 * @return A new mesh with the same triangles, positions first, indices
+	 *         second, and then the other properties in the same order.
+	 */
+	public static Mesh optimizeVertexFetch(Mesh mesh, int[] indices) {
+		int[] remap = new int[mesh.verticeCount];
+		Arrays.fill(remap, -1);
+		int[] newIndices = new int[indices.length];
+		int vertices = 0;
+		for (int i = 0; i < indices.length; i++) {
+			int vertex = indices[i];
+			if (remap[vertex] == -1) {
+				remap[vertex] = vertices++;
+			}
+			newIndices[i] = remap[vertex];
+		}
+		VertexedProperty positions = null;
+		VertexedProperty[] others = new VertexedProperty[mesh.properties.length - 2];
+		int other = 0;
+		for (int p = 0; p < mesh.properties.length; p++) {
+			VertexedProperty property = mesh.properties[p];
+			if (property.usage == VertexPropertyType.INDICES) {
+				continue;
+			}
+			VertexedProperty reordered = remap(property, remap, vertices);
+			if (property.usage == VertexPropertyType.VERTEX_POS) {
+				positions = reordered;
+			} else {
+				others[other++] = reordered;
+			}
+		}
+		return new Mesh(positions, new VertexedProperty(newIndices, VertexPropertyType.INDICES), others);
+	}
+
+	private static VertexedProperty remap(VertexedProperty property, int[] remap, int vertices) {
+		int per = property.usage.perVertice;
+		switch (property.dataType) {
+		case BYTE:
+			byte[] bytes = new byte[vertices * per];
+			for (int v = 0; v < remap.length; v++) {
+				if (remap[v] != -1) {
+					System.arraycopy(property.byteProp, v * per, bytes, remap[v] * per, per);
+				}
+			}
+			return new VertexedProperty(bytes, property.usage);
+		case INT:
+			int[] ints = new int[vertices * per];
+			for (int v = 0; v < remap.length; v++) {
+				if (remap[v] != -1) {
+					System.arraycopy(property.intProp, v * per, ints, remap[v] * per, per);
+				}
+			}
+			return new VertexedProperty(ints, property.usage);
+		default:
+			float[] floats = new float[vertices * per];
+			for (int v = 0; v < remap.length; v++) {
+				if (remap[v] != -1) {
+					System.arraycopy(property.floatProp, v * per, floats, remap[v] * per, per);
+				}
+			}
+			return new VertexedProperty(floats, property.usage);
+		}
+	}
+
+	/**
+	 * The narrowest unsigned index type that can index every vertex of a mesh.
+	 *
+	 * @param vertexCount The amount of vertices.
+	 * @return The size of an index in bytes, 1, 2 or 4.
+	 */
+	public static int indexSize(int vertexCount) {
+		if (vertexCount <= 1 << 8) {
+			return 1;
+		}
+		if (vertexCount <= 1 << 16) {
+			return 2;
+		}
+		return 4;
+	}
+
+}
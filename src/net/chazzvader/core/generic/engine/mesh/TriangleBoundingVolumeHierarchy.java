@@ -0,0 +1,406 @@
+package net.chazzvader.core.generic.engine.mesh;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.engine.RaycastHit;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+
+/**
+ * A static bounding volume hierarchy over the triangles of a mesh, so a ray
+ * only has to be tested against the few triangles near it. Built once with a
+ * binned surface area heuristic, usually through
+ * {@link Mesh#getTriangleHierarchy()}.<br>
+ * <br>
+ * The nodes are stored depth first, so the left child of a node is always the
+ * next node, and the triangles are copied out in the order of the leaves as a
+ * corner and two edges, which is all the ray test needs. Ray casts allocate
+ * nothing, but share a stack, so one hierarchy must not be cast against from
+ * more than one thread at a time.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class TriangleBoundingVolumeHierarchy {
+
+	private static final int BINS = 16;
+	private static final int MAX_LEAF_SIZE = 4;
+
+	private final int triangleCount;
+	private float[] boxes;
+	private int[] firsts;
+	private int[] counts;
+	private int nodeCount = 0;
+
+	private final float[] triangles;
+	private final int[] triangleIndices;
+
+	private int[] stack;
+	private float[] distances;
+
+	/**
+	 * Builds a hierarchy over the triangles of a mesh. Meshes without indices are
+	 * read as a list of separate triangles.
+	 *
+	 * @param mesh The mesh.
+	 */
+	public TriangleBoundingVolumeHierarchy(Mesh mesh) {
+		this(positions(mesh), indices(mesh));
+	}
+
+	/**
+	 * Builds a hierarchy over a set of triangles.
+	 *
+	 * @param positions The vertex positions, 3 floats each.
+	 * @param indices   The indices, 3 per triangle, or null if every 3 vertices
+	 *                  are a triangle.
+	 */
+	public TriangleBoundingVolumeHierarchy(float[] positions, int[] indices) {
+		if (positions == null) {
+			positions = new float[0];
+		}
+		triangleCount = indices == null ? positions.length / 9 : indices.length / 3;
+		float[] centroids = new float[triangleCount * 3];
+		float[] triangleBoxes = new float[triangleCount * 6];
+		for (int i = 0; i < triangleCount; i++) {
+			int a = (indices == null ? i * 3 : indices[i * 3]) * 3;
+			int b = (indices == null ? i * 3 + 1 : indices[i * 3 + 1]) * 3;
+			int c = (indices == null ? i * 3 + 2 : indices[i * 3 + 2]) * 3;
+			for (int k = 0; k < 3; k++) {
+				float min = Math.min(positions[a + k], Math.min(positions[b + k], positions[c + k]));
+				float max = Math.max(positions[a + k], Math.max(positions[b + k], positions[c + k]));
+				triangleBoxes[i * 6 + k] = min;
+				triangleBoxes[i * 6 + 3 + k] = max;
+				centroids[i * 3 + k] = (min + max) * 0.5f;
+			}
+		}
+		int[] order = new int[triangleCount];
+		for (int i = 0; i < triangleCount; i++) {
+			order[i] = i;
+		}
+		int maxNodes = Math.max(1, triangleCount * 2);
+		boxes = new float[maxNodes * 6];
+		firsts = new int[maxNodes];
+		counts = new int[maxNodes];
+		int depth = triangleCount == 0 ? 0 : build(order, 0, triangleCount, centroids, triangleBoxes, 1);
+		boxes = Arrays.copyOf(boxes, nodeCount * 6);
+		firsts = Arrays.copyOf(firsts, nodeCount);
+		counts = Arrays.copyOf(counts, nodeCount);
+
+		triangles = new float[triangleCount * 9];
+		triangleIndices = order;
+		for (int i = 0; i < triangleCount; i++) {
+			int t = order[i];
+			int a = (indices == null ? t * 3 : indices[t * 3]) * 3;
+			int b = (indices == null ? t * 3 + 1 : indices[t * 3 + 1]) * 3;
+			int c = (indices == null ? t * 3 + 2 : indices[t * 3 + 2]) * 3;
+			for (int k = 0; k < 3; k++) {
+				triangles[i * 9 + k] = positions[a + k];
+				triangles[i * 9 + 3 + k] = positions[b + k] - positions[a + k];
+				triangles[i * 9 + 6 + k] = positions[c + k] - positions[a + k];
+			}
+		}
+		stack = new int[depth + 1];
+		distances = new float[depth + 1];
+	}
+
+	/**
+	 * Builds the node for a range of triangles, and everything below it. Returns
+	 * the depth of the subtree.
+	 */
+	private int build(int[] order, int start, int end, float[] centroids, float[] triangleBoxes, int depth) {
+		int node = nodeCount++;
+		int o = node * 6;
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+		float cMinX = Float.POSITIVE_INFINITY, cMinY = Float.POSITIVE_INFINITY, cMinZ = Float.POSITIVE_INFINITY;
+		float cMaxX = Float.NEGATIVE_INFINITY, cMaxY = Float.NEGATIVE_INFINITY, cMaxZ = Float.NEGATIVE_INFINITY;
+		for (int i = start; i < end; i++) {
+			int t = order[i];
+			int to = t * 6;
+			minX = Math.min(minX, triangleBoxes[to]);
+			minY = Math.min(minY, triangleBoxes[to + 1]);
+			minZ = Math.min(minZ, triangleBoxes[to + 2]);
+			maxX = Math.max(maxX, triangleBoxes[to + 3]);
+			maxY = Math.max(maxY, triangleBoxes[to + 4]);
+			maxZ = Math.max(maxZ, triangleBoxes[to + 5]);
+			cMinX = Math.min(cMinX, centroids[t * 3]);
+			cMinY = Math.min(cMinY, centroids[t * 3 + 1]);
+			cMinZ = Math.min(cMinZ, centroids[t * 3 + 2]);
+			cMaxX = Math.max(cMaxX, centroids[t * 3]);
+			cMaxY = Math.max(cMaxY, centroids[t * 3 + 1]);
+			cMaxZ = Math.max(cMaxZ, centroids[t * 3 + 2]);
+		}
+		boxes[o] = minX;
+		boxes[o + 1] = minY;
+		boxes[o + 2] = minZ;
+		boxes[o + 3] = maxX;
+		boxes[o + 4] = maxY;
+		boxes[o + 5] = maxZ;
+		int count = end - start;
+		if (count <= MAX_LEAF_SIZE) {
+			firsts[node] = start;
+			counts[node] = count;
+			return depth;
+		}
+		int axis = 0;
+		float min = cMinX, extent = cMaxX - cMinX;
+		if (cMaxY - cMinY > extent) {
+			axis = 1;
+			min = cMinY;
+			extent = cMaxY - cMinY;
+		}
+		if (cMaxZ - cMinZ > extent) {
+			axis = 2;
+			min = cMinZ;
+			extent = cMaxZ - cMinZ;
+		}
+		int mid = start + count / 2;
+		if (extent > 0) {
+			float scale = BINS / extent;
+			int[] binCounts = new int[BINS];
+			float[] binBoxes = new float[BINS * 6];
+			for (int i = 0; i < BINS; i++) {
+				binBoxes[i * 6] = binBoxes[i * 6 + 1] = binBoxes[i * 6 + 2] = Float.POSITIVE_INFINITY;
+				binBoxes[i * 6 + 3] = binBoxes[i * 6 + 4] = binBoxes[i * 6 + 5] = Float.NEGATIVE_INFINITY;
+			}
+			for (int i = start; i < end; i++) {
+				int t = order[i];
+				int bin = Math.min((int) ((centroids[t * 3 + axis] - min) * scale), BINS - 1);
+				binCounts[bin]++;
+				for (int k = 0; k < 3; k++) {
+					binBoxes[bin * 6 + k] = Math.min(binBoxes[bin * 6 + k], triangleBoxes[t * 6 + k]);
+					binBoxes[bin * 6 + 3 + k] = Math.max(binBoxes[bin * 6 + 3 + k], triangleBoxes[t * 6 + 3 + k]);
+				}
+			}
+			float[] rightAreas = new float[BINS];
+			float[] box = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY,
+					Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+			for (int i = BINS - 1; i > 0; i--) {
+				grow(box, binBoxes, i);
+				rightAreas[i] = area(box);
+			}
+			box[0] = box[1] = box[2] = Float.POSITIVE_INFINITY;
+			box[3] = box[4] = box[5] = Float.NEGATIVE_INFINITY;
+			int leftCount = 0;
+			float bestCost = Float.POSITIVE_INFINITY;
+			int bestSplit = -1;
+			for (int i = 0; i < BINS - 1; i++) {
+				grow(box, binBoxes, i);
+				leftCount += binCounts[i];
+				int rightCount = count - leftCount;
+				if (leftCount == 0 || rightCount == 0) {
+					continue;
+				}
+				float cost = area(box) * leftCount + rightAreas[i + 1] * rightCount;
+				if (cost < bestCost) {
+					bestCost = cost;
+					bestSplit = i;
+				}
+			}
+			if (bestSplit != -1) {
+				int i = start, j = end - 1;
+				while (i <= j) {
+					int t = order[i];
+					int bin = Math.min((int) ((centroids[t * 3 + axis] - min) * scale), BINS - 1);
+					if (bin <= bestSplit) {
+						i++;
+					} else {
+						order[i] = order[j];
+						order[j--] = t;
+					}
+				}
+				mid = i;
+			}
+		}
+		int leftDepth = build(order, start, mid, centroids, triangleBoxes, depth + 1);
+		firsts[node] = nodeCount;
+		counts[node] = 0;
+		int rightDepth = build(order, mid, end, centroids, triangleBoxes, depth + 1);
+		return Math.max(leftDepth, rightDepth);
+	}
+
+	private static void grow(float[] box, float[] binBoxes, int bin) {
+		for (int k = 0; k < 3; k++) {
+			box[k] = Math.min(box[k], binBoxes[bin * 6 + k]);
+			box[k + 3] = Math.max(box[k + 3], binBoxes[bin * 6 + 3 + k]);
+		}
+	}
+
+	private static float area(float[] box) {
+		float x = box[3] - box[0], y = box[4] - box[1], z = box[5] - box[2];
+		return x * y + y * z + z * x;
+	}
+
+	/**
+	 * Finds the nearest triangle a ray hits. Both sides of every triangle can be
+	 * hit. The direction doesn't have to be normalized, distances are measured in
+	 * lengths of it.
+	 *
+	 * @param ox          The x position of the start of the ray.
+	 * @param oy          The y position of the start of the ray.
+	 * @param oz          The z position of the start of the ray.
+	 * @param dx          The x direction of the ray.
+	 * @param dy          The y direction of the ray.
+	 * @param dz          The z direction of the ray.
+	 * @param maxDistance How far along the ray to look.
+	 * @param hit         Where the distance, triangle and barycentric coordinates
+	 *                    of the hit are written, only if something is hit. Nothing
+	 *                    else is changed.
+	 * @return True if a triangle was hit before the maximum distance.
+	 */
+	public boolean raycast(float ox, float oy, float oz, float dx, float dy, float dz, float maxDistance,
+			RaycastHit hit) {
+		if (nodeCount == 0) {
+			return false;
+		}
+		float ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+		float max = maxDistance;
+		int found = -1;
+		float foundU = 0, foundV = 0;
+		float entry = slab(0, ox, oy, oz, ix, iy, iz, max);
+		if (entry < 0) {
+			return false;
+		}
+		float[] tris = triangles;
+		int top = 0;
+		stack[top] = 0;
+		distances[top++] = entry;
+		while (top > 0) {
+			top--;
+			if (distances[top] > max) {
+				continue;
+			}
+			int node = stack[top];
+			int count = counts[node];
+			if (count > 0) {
+				int first = firsts[node];
+				for (int i = first; i < first + count; i++) {
+					// Moller-Trumbore, with the edges already worked out
+					int o = i * 9;
+					float e1x = tris[o + 3], e1y = tris[o + 4], e1z = tris[o + 5];
+					float e2x = tris[o + 6], e2y = tris[o + 7], e2z = tris[o + 8];
+					float px = dy * e2z - dz * e2y, py = dz * e2x - dx * e2z, pz = dx * e2y - dy * e2x;
+					float det = e1x * px + e1y * py + e1z * pz;
+					if (det == 0) {
+						continue;
+					}
+					float invDet = 1 / det;
+					float sx = ox - tris[o], sy = oy - tris[o + 1], sz = oz - tris[o + 2];
+					float u = (sx * px + sy * py + sz * pz) * invDet;
+					if (u < 0 || u > 1) {
+						continue;
+					}
+					float qx = sy * e1z - sz * e1y, qy = sz * e1x - sx * e1z, qz = sx * e1y - sy * e1x;
+					float v = (dx * qx + dy * qy + dz * qz) * invDet;
+					if (v < 0 || u + v > 1) {
+						continue;
+					}
+					float t = (e2x * qx + e2y * qy + e2z * qz) * invDet;
+					if (t >= 0 && t < max) {
+						max = t;
+						found = i;
+						foundU = u;
+						foundV = v;
+					}
+				}
+				continue;
+			}
+			int left = node + 1, right = firsts[node];
+			float leftEntry = slab(left, ox, oy, oz, ix, iy, iz, max);
+			float rightEntry = slab(right, ox, oy, oz, ix, iy, iz, max);
+			if (leftEntry > rightEntry) {
+				int swap = left;
+				left = right;
+				right = swap;
+				float swapEntry = leftEntry;
+				leftEntry = rightEntry;
+				rightEntry = swapEntry;
+			}
+			// Push the further child first so the nearer one is popped first
+			if (rightEntry >= 0) {
+				stack[top] = right;
+				distances[top++] = rightEntry;
+			}
+			if (leftEntry >= 0) {
+				stack[top] = left;
+				distances[top++] = leftEntry;
+			}
+		}
+		if (found == -1) {
+			return false;
+		}
+		hit.distance = max;
+		hit.triangle = triangleIndices[found];
+		hit.u = foundU;
+		hit.v = foundV;
+		return true;
+	}
+
+	/**
+	 * The distance along the ray the box of a node is entered at, 0 if the ray
+	 * starts inside it, or -1 if it is missed or entered past the maximum.
+	 */
+	private float slab(int node, float ox, float oy, float oz, float ix, float iy, float iz, float max) {
+		float[] b = boxes;
+		int o = node * 6;
+		float t1 = (b[o] - ox) * ix, t2 = (b[o + 3] - ox) * ix;
+		float near = Math.min(t1, t2), far = Math.max(t1, t2);
+		t1 = (b[o + 1] - oy) * iy;
+		t2 = (b[o + 4] - oy) * iy;
+		near = Math.max(near, Math.min(t1, t2));
+		far = Math.min(far, Math.max(t1, t2));
+		t1 = (b[o + 2] - oz) * iz;
+		t2 = (b[o + 5] - oz) * iz;
+		near = Math.max(near, Math.min(t1, t2));
+		far = Math.min(far, Math.max(t1, t2));
+		// A zero direction with the start on a face gives NaN, which fails every compare, so the box is kept
+		if (near > far || far < 0 || near > max) {
+			return -1;
+		}
+		return near > 0 ? near : 0;
+	}
+
+	/**
+	 * The amount of triangles in the hierarchy.
+	 *
+	 * @return The amount of triangles.
+	 */
+	public int getTriangleCount() {
+		return triangleCount;
+	}
+
+	/**
+	 * The amount of nodes in the hierarchy.
+	 *
+	 * @return The amount of nodes.
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	private static float[] positions(Mesh mesh) {
+		VertexedProperty vpVert = mesh.getByUsage(VertexPropertyType.VERTEX_POS);
+		return vpVert == null ? null : vpVert.getAsFloatArray();
+	}
+
+	private static int[] indices(Mesh mesh) {
+		VertexedProperty vpIndices = mesh.getByUsage(VertexPropertyType.INDICES);
+		if (vpIndices == null) {
+			return null;
+		}
+		switch (vpIndices.dataType) {
+		case BYTE:
+			int[] indices = new int[vpIndices.byteProp.length];
+			for (int i = 0; i < indices.length; i++) {
+				indices[i] = vpIndices.byteProp[i] & 0xFF;
+			}
+			return indices;
+		case INT:
+			return vpIndices.intProp;
+		default:
+			return null;
+		}
+	}
+
+}
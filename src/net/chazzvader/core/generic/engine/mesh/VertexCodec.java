@@ -0,0 +1,472 @@
+package net.chazzvader.core.generic.engine.mesh;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.engine.mesh.VertexLayout.Format;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyDataType;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+
+/**
+ * Packs the vertices of a mesh into one interleaved buffer following a
+ * {@link VertexLayout}, ready to be uploaded, and unpacks them again to check
+ * how much was lost. Every attribute starts on a multiple of four bytes.<br>
+ * <br>
+ * When the layout leaves out bitangents the tangent gets a fourth component,
+ * 1 or -1, for which side of the normal and tangent the bitangent is on, so
+ * the shader can work it out as <code>cross(normal, tangent) * w</code>. This
+ * is only exact for tangent frames at right angles with unit normals, like the
+ * ones {@link MeshKernels} makes, so the bitangents are only left out if every
+ * vertex has such a frame, and kept otherwise.<br>
+ * <br>
+ * Properties that don't fit their format, positions or texture coordinates
+ * past the half float range and directions longer than 1, are kept as floats.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class VertexCodec {
+
+	private static final float MAX_HALF_FLOAT = 65504;
+	// How far off a tangent frame can be and still have its bitangent left out
+	private static final float FRAME_TOLERANCE = 0.01f;
+
+	private VertexCodec() {
+	}
+
+	/**
+	 * Where and how one property is stored in the interleaved vertices.
+	 *
+	 * @author csbru
+	 * @since 1.0
+	 * @version 1
+	 */
+	public static class Attribute {
+
+		/**
+		 * The property stored.
+		 */
+		public final VertexPropertyType usage;
+
+		/**
+		 * How it is stored.
+		 */
+		public final Format format;
+
+		/**
+		 * The amount of components given to the shader.
+		 */
+		public final int components;
+
+		/**
+		 * The byte offset of the attribute in a vertex.
+		 */
+		public final int offset;
+
+		/**
+		 * If the stored integers are mapped to -1 to 1.
+		 */
+		public final boolean normalized;
+
+		/**
+		 * Creates an attribute.
+		 *
+		 * @param usage      The property stored.
+		 * @param format     How it is stored.
+		 * @param components The amount of components given to the shader.
+		 * @param offset     The byte offset of the attribute in a vertex.
+		 * @param normalized If the stored integers are mapped to -1 to 1.
+		 */
+		public Attribute(VertexPropertyType usage, Format format, int components, int offset, boolean normalized) {
+			this.usage = usage;
+			this.format = format;
+			this.components = components;
+			this.offset = offset;
+			this.normalized = normalized;
+		}
+
+		@Override
+		public String toString() {
+			return "Attribute [usage=" + usage + ", format=" + format + ", components=" + components + ", offset="
+					+ offset + "]";
+		}
+
+	}
+
+	/**
+	 * The packed vertices of a mesh.
+	 *
+	 * @author csbru
+	 * @since 1.0
+	 * @version 1
+	 */
+	public static class EncodedVertices {
+
+		/**
+		 * The vertices, in native byte order.
+		 */
+		public final ByteBuffer data;
+
+		/**
+		 * The size of a vertex in bytes.
+		 */
+		public final int stride;
+
+		/**
+		 * The amount of vertices.
+		 */
+		public final int vertexCount;
+
+		/**
+		 * The attributes of a vertex.
+		 */
+		public final Attribute[] attributes;
+
+		/**
+		 * Creates packed vertices.
+		 *
+		 * @param data        The vertices.
+		 * @param stride      The size of a vertex in bytes.
+		 * @param vertexCount The amount of vertices.
+		 * @param attributes  The attributes of a vertex.
+		 */
+		public EncodedVertices(ByteBuffer data, int stride, int vertexCount, Attribute[] attributes) {
+			this.data = data;
+			this.stride = stride;
+			this.vertexCount = vertexCount;
+			this.attributes = attributes;
+		}
+
+		/**
+		 * Finds the attribute of a property.
+		 *
+		 * @param usage The property.
+		 * @return The attribute, or null if the property isn't stored.
+		 */
+		public Attribute getAttribute(VertexPropertyType usage) {
+			for (int i = 0; i < attributes.length; i++) {
+				if (attributes[i].usage == usage) {
+					return attributes[i];
+				}
+			}
+			return null;
+		}
+
+	}
+
+	/**
+	 * Packs the vertices of a mesh. The indices aren't included.
+	 *
+	 * @param mesh   The mesh.
+	 * @param layout How to store the properties.
+	 * @return The packed vertices.
+	 */
+	public static EncodedVertices encode(Mesh mesh, VertexLayout layout) {
+		VertexedProperty normals = mesh.getByUsage(VertexPropertyType.NORMALS);
+		VertexedProperty tangents = mesh.getByUsage(VertexPropertyType.NORMAL_TANGENT);
+		VertexedProperty bitangents = mesh.getByUsage(VertexPropertyType.NORMAL_BITANGENT);
+		float[] signs = null;
+		if (layout.reconstructBitangents && normals != null && tangents != null && bitangents != null) {
+			signs = bitangentSigns(normals, tangents, bitangents, mesh.verticeCount);
+		}
+		boolean reconstruct = signs != null;
+		VertexedProperty[] stored = new VertexedProperty[mesh.properties.length];
+		Attribute[] attributes = new Attribute[mesh.properties.length];
+		int count = 0;
+		int stride = 0;
+		for (int i = 0; i < mesh.properties.length; i++) {
+			VertexedProperty property = mesh.properties[i];
+			if (property.usage == VertexPropertyType.INDICES || (reconstruct && property == bitangents)) {
+				continue;
+			}
+			Format format = formatFor(property, layout);
+			int components = property.usage.perVertice;
+			if (reconstruct && property == tangents) {
+				components = 4;
+			}
+			int size;
+			switch (format) {
+			case HALF_FLOAT:
+				size = components * 2;
+				break;
+			case PACKED_10_10_10_2:
+				size = 4;
+				components = 4;
+				break;
+			case BYTE:
+				size = components;
+				break;
+			default:
+				size = components * 4;
+				break;
+			}
+			stored[count] = property;
+			attributes[count++] = new Attribute(property.usage, format, components, stride,
+					format == Format.PACKED_10_10_10_2);
+			stride += (size + 3) & ~3;
+		}
+		Attribute[] finalAttributes = new Attribute[count];
+		System.arraycopy(attributes, 0, finalAttributes, 0, count);
+		int vertices = mesh.verticeCount;
+		ByteBuffer data = ByteBuffer.allocateDirect(stride * vertices).order(ByteOrder.nativeOrder());
+		for (int a = 0; a < count; a++) {
+			write(data, stride, vertices, stored[a], finalAttributes[a], stored[a] == tangents ? signs : null);
+		}
+		return new EncodedVertices(data, stride, vertices, finalAttributes);
+	}
+
+	private static Format formatFor(VertexedProperty property, VertexLayout layout) {
+		if (property.dataType == VertexPropertyDataType.BYTE) {
+			return Format.BYTE;
+		}
+		if (property.dataType == VertexPropertyDataType.INT) {
+			return Format.INT;
+		}
+		Format wanted;
+		float limit;
+		switch (property.usage) {
+		case VERTEX_POS:
+			wanted = layout.positions;
+			limit = MAX_HALF_FLOAT;
+			break;
+		case TEXTURE_COORDINATES:
+			wanted = layout.textureCoordinates;
+			limit = MAX_HALF_FLOAT;
+			break;
+		case NORMALS:
+		case NORMAL_TANGENT:
+		case NORMAL_BITANGENT:
+			wanted = layout.directions;
+			// A little over 1 for rounding in normalized vectors
+			limit = 1.001f;
+			break;
+		default:
+			return Format.FLOAT;
+		}
+		if (wanted != Format.FLOAT) {
+			float[] values = property.floatProp;
+			for (int i = 0; i < values.length; i++) {
+				if (!(Math.abs(values[i]) <= limit)) {
+					Logging.log(property.usage + " out of range for " + wanted + ", keeping floats", "Vertex Codec",
+							LoggingLevel.DEBUG);
+					return Format.FLOAT;
+				}
+			}
+		}
+		return wanted;
+	}
+
+	/*
+	 * Which side of the normal and tangent the bitangent is on, for every vertex.
+	 * Null if any vertex has a normal that isn't unit length or a bitangent that
+	 * cross(normal, tangent) doesn't give back, as those need the bitangent stored.
+	 */
+	private static float[] bitangentSigns(VertexedProperty normals, VertexedProperty tangents,
+			VertexedProperty bitangents, int vertices) {
+		float[] n = normals.getAsFloatArray();
+		float[] t = tangents.getAsFloatArray();
+		float[] b = bitangents.getAsFloatArray();
+		float[] signs = new float[vertices];
+		for (int v = 0; v < vertices; v++) {
+			int o = v * 3;
+			float length = n[o] * n[o] + n[o + 1] * n[o + 1] + n[o + 2] * n[o + 2];
+			float cx = n[o + 1] * t[o + 2] - n[o + 2] * t[o + 1];
+			float cy = n[o + 2] * t[o] - n[o] * t[o + 2];
+			float cz = n[o] * t[o + 1] - n[o + 1] * t[o];
+			float dot = cx * b[o] + cy * b[o + 1] + cz * b[o + 2];
+			if (Math.abs(length - 1) > FRAME_TOLERANCE || Math.abs(Math.abs(dot) - 1) > FRAME_TOLERANCE) {
+				Logging.log("Tangent frame of vertex " + v + " isn't at right angles, keeping bitangents",
+						"Vertex Codec", LoggingLevel.DEBUG);
+				return null;
+			}
+			signs[v] = dot < 0 ? -1 : 1;
+		}
+		return signs;
+	}
+
+	private static void write(ByteBuffer data, int stride, int vertices, VertexedProperty property,
+			Attribute attribute, float[] signs) {
+		int per = property.usage.perVertice;
+		for (int v = 0; v < vertices; v++) {
+			int at = v * stride + attribute.offset;
+			int from = v * per;
+			switch (attribute.format) {
+			case BYTE:
+				for (int c = 0; c < per; c++) {
+					data.put(at + c, property.byteProp[from + c]);
+				}
+				break;
+			case INT:
+				for (int c = 0; c < per; c++) {
+					data.putInt(at + c * 4, property.intProp[from + c]);
+				}
+				break;
+			case HALF_FLOAT:
+				for (int c = 0; c < per; c++) {
+					data.putShort(at + c * 2, toHalfFloat(property.floatProp[from + c]));
+				}
+				break;
+			case PACKED_10_10_10_2:
+				float[] values = property.floatProp;
+				data.putInt(at, pack10_10_10_2(values[from], values[from + 1], values[from + 2],
+						signs == null ? 0 : signs[v]));
+				break;
+			default:
+				for (int c = 0; c < per; c++) {
+					data.putFloat(at + c * 4, property.floatProp[from + c]);
+				}
+				if (signs != null) {
+					data.putFloat(at + per * 4, signs[v]);
+				}
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Unpacks one property out of packed vertices, as the shader would see it.
+	 *
+	 * @param vertices The packed vertices.
+	 * @param usage    The property.
+	 * @return The values, as many per vertex as the attribute has components, or
+	 *         null if the property isn't stored.
+	 */
+	public static float[] decode(EncodedVertices vertices, VertexPropertyType usage) {
+		Attribute attribute = vertices.getAttribute(usage);
+		if (attribute == null) {
+			return null;
+		}
+		int components = attribute.components;
+		float[] values = new float[vertices.vertexCount * components];
+		ByteBuffer data = vertices.data;
+		for (int v = 0; v < vertices.vertexCount; v++) {
+			int at = v * vertices.stride + attribute.offset;
+			for (int c = 0; c < components; c++) {
+				float value;
+				switch (attribute.format) {
+				case BYTE:
+					value = data.get(at + c);
+					break;
+				case INT:
+					value = data.getInt(at + c * 4);
+					break;
+				case HALF_FLOAT:
+					value = fromHalfFloat(data.getShort(at + c * 2));
+					break;
+				case PACKED_10_10_10_2:
+					value = unpack10_10_10_2(data.getInt(at), c);
+					break;
+				default:
+					value = data.getFloat(at + c * 4);
+					break;
+				}
+				values[v * components + c] = value;
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Turns a float into a 16 bit float, rounding to the nearest.
+	 *
+	 * @param value The float.
+	 * @return The bits of the 16 bit float.
+	 */
+	public static short toHalfFloat(float value) {
+		int bits = Float.floatToIntBits(value);
+		int sign = (bits >>> 16) & 0x8000;
+		int exponent = (bits >>> 23) & 0xFF;
+		int mantissa = bits & 0x7FFFFF;
+		if (exponent == 0xFF) {
+			// Infinity stays infinity, NaN stays NaN
+			return (short) (sign | 0x7C00 | (mantissa != 0 ? 0x200 : 0));
+		}
+		int halfExponent = exponent - 127 + 15;
+		if (halfExponent >= 0x1F) {
+			return (short) (sign | 0x7C00);
+		}
+		if (halfExponent <= 0) {
+			// Too small for the exponent, so it becomes a subnormal, or zero
+			if (halfExponent < -10) {
+				return (short) sign;
+			}
+			mantissa |= 0x800000;
+			int shift = 14 - halfExponent;
+			int half = mantissa >> shift;
+			int rest = mantissa & ((1 << shift) - 1);
+			int halfway = 1 << (shift - 1);
+			if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+				half++;
+			}
+			return (short) (sign | half);
+		}
+		int half = (halfExponent << 10) | (mantissa >> 13);
+		int rest = mantissa & 0x1FFF;
+		// Rounding up can carry into the exponent, which is still right
+		if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+			half++;
+		}
+		return (short) (sign | half);
+	}
+
+	/**
+	 * Turns a 16 bit float into a float.
+	 *
+	 * @param half The bits of the 16 bit float.
+	 * @return The float.
+	 */
+	public static float fromHalfFloat(short half) {
+		int bits = half & 0xFFFF;
+		int sign = (bits & 0x8000) << 16;
+		int exponent = (bits >>> 10) & 0x1F;
+		int mantissa = bits & 0x3FF;
+		if (exponent == 0) {
+			float value = mantissa / (float) (1 << 24);
+			return sign != 0 ? -value : value;
+		}
+		if (exponent == 0x1F) {
+			return Float.intBitsToFloat(sign | 0x7F800000 | (mantissa << 13));
+		}
+		return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+	}
+
+	/**
+	 * Packs a direction into three signed 10 bit components and a 2 bit one, the
+	 * layout of <code>GL_INT_2_10_10_10_REV</code>, x in the lowest bits.
+	 *
+	 * @param x The x component, -1 to 1.
+	 * @param y The y component, -1 to 1.
+	 * @param z The z component, -1 to 1.
+	 * @param w The w component, -1, 0 or 1.
+	 * @return The packed bits.
+	 */
+	public static int pack10_10_10_2(float x, float y, float z, float w) {
+		return (snorm(x, 511) & 0x3FF) | (snorm(y, 511) & 0x3FF) << 10 | (snorm(z, 511) & 0x3FF) << 20
+				| (snorm(w, 1) & 0x3) << 30;
+	}
+
+	private static int snorm(float value, int max) {
+		return Math.round(Math.max(-1, Math.min(1, value)) * max);
+	}
+
+	/**
+	 * Unpacks one component of a direction packed with
+	 * {@link #pack10_10_10_2(float, float, float, float)}.
+	 *
+	 * @param packed    The packed bits.
+	 * @param component The component, 0 to 3 for x to w.
+	 * @return The component, -1 to 1.
+	 */
+	public static float unpack10_10_10_2(int packed, int component) {
+		if (component == 3) {
+			return Math.max(packed >> 30, -1);
+		}
+		// Shifted up and back down to copy the sign bit
+		int value = (packed << (22 - component * 10)) >> 22;
+		return Math.max(value / 511f, -1);
+	}
+
+}
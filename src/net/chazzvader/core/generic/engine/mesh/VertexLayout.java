@@ -0,0 +1,124 @@
+package net.chazzvader.core.generic.engine.mesh;
+
+/**
+ * How the vertices of a mesh are stored on the graphics card. All of the
+ * properties of a vertex are put next to each other in one buffer, and the
+ * layout picks how many bits each of them gets. See {@link VertexCodec} for
+ * the packing.<br>
+ * <br>
+ * With positions, texture coordinates, normals, tangents and bitangents,
+ * {@link #EXACT} takes 56 bytes a vertex, the same as the floats in the mesh,
+ * and {@link #COMPACT} takes 20, so about a third of the memory has to be read
+ * for every vertex drawn.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class VertexLayout {
+
+	/**
+	 * How a property is stored.
+	 *
+	 * @author csbru
+	 * @since 1.0
+	 * @version 1
+	 */
+	public enum Format {
+		/**
+		 * 32 bit floats, exactly as in the mesh.
+		 */
+		FLOAT,
+		/**
+		 * 16 bit floats. Keeps 11 bits of precision, so the error is at most
+		 * 1/2048th of the value, and can't store more than 65504.
+		 */
+		HALF_FLOAT,
+		/**
+		 * Three signed 10 bit components and a 2 bit one in 32 bits, for
+		 * directions. The error is at most 1/1022 per component, under a tenth of a
+		 * degree for a unit vector.
+		 */
+		PACKED_10_10_10_2,
+		/**
+		 * Bytes, for byte properties, as they are in the mesh.
+		 */
+		BYTE,
+		/**
+		 * 32 bit ints, for int properties, as they are in the mesh.
+		 */
+		INT
+	}
+
+	/**
+	 * Everything stored as it is in the mesh. Takes the most memory, but loses
+	 * nothing.
+	 */
+	public static final VertexLayout EXACT = new VertexLayout(Format.FLOAT, Format.FLOAT, Format.FLOAT, false);
+
+	/**
+	 * Half float positions and texture coordinates, packed normals and tangents,
+	 * and no bitangents, they are worked out in the shader from the normal,
+	 * tangent and a sign stored with the tangent. Meshes too big for half floats
+	 * keep float positions.
+	 */
+	public static final VertexLayout COMPACT = new VertexLayout(Format.HALF_FLOAT, Format.HALF_FLOAT,
+			Format.PACKED_10_10_10_2, true);
+
+	/**
+	 * How positions are stored, {@link Format#FLOAT} or
+	 * {@link Format#HALF_FLOAT}.
+	 */
+	public final Format positions;
+
+	/**
+	 * How texture coordinates are stored, {@link Format#FLOAT} or
+	 * {@link Format#HALF_FLOAT}.
+	 */
+	public final Format textureCoordinates;
+
+	/**
+	 * How normals, tangents and bitangents are stored, {@link Format#FLOAT} or
+	 * {@link Format#PACKED_10_10_10_2}.
+	 */
+	public final Format directions;
+
+	/**
+	 * If the bitangents are left out when there are normals and tangents, and
+	 * worked out in the shader instead.
+	 */
+	public final boolean reconstructBitangents;
+
+	/**
+	 * Creates a layout.
+	 *
+	 * @param positions             How positions are stored.
+	 * @param textureCoordinates    How texture coordinates are stored.
+	 * @param directions            How normals, tangents and bitangents are
+	 *                              stored.
+	 * @param reconstructBitangents If the bitangents are worked out in the shader.
+	 */
+	public VertexLayout(Format positions, Format textureCoordinates, Format directions,
+			boolean reconstructBitangents) {
+		if (positions != Format.FLOAT && positions != Format.HALF_FLOAT) {
+			throw new IllegalArgumentException("Positions must be floats or half floats");
+		}
+		if (textureCoordinates != Format.FLOAT && textureCoordinates != Format.HALF_FLOAT) {
+			throw new IllegalArgumentException("Texture coordinates must be floats or half floats");
+		}
+		if (directions != Format.FLOAT && directions != Format.PACKED_10_10_10_2) {
+			throw new IllegalArgumentException("Directions must be floats or packed");
+		}
+		this.positions = positions;
+		this.textureCoordinates = textureCoordinates;
+		this.directions = directions;
+		this.reconstructBitangents = reconstructBitangents;
+	}
+
+	@Override
+	public String toString() {
+		return "VertexLayout [positions=" + positions + ", textureCoordinates=" + textureCoordinates
+				+ ", directions=" + directions + ", reconstructBitangents=" + reconstructBitangents + "]";
+	}
+
+}
@@ -177,9 +177,9 @@ public class VertexedProperty extends EngineObject {
 	public float[] getAsFloatArray() {
 		switch(dataType) {
 		case BYTE:
-			float[] baRet = new float[intProp.length];
+			float[] baRet = new float[byteProp.length];
 			for(int i = 0;i < baRet.length;i ++) {
-				baRet[i] = intProp[i];
+				baRet[i] = byteProp[i];
 			}
 			return baRet;
 		case FLOAT:
@@ -3,6 +3,8 @@ package net.chazzvader.core.generic.engine.object;
 import net.chazzvader.core.generic.engine.Application;
 import net.chazzvader.core.generic.engine.event.EventManager;
 import net.chazzvader.core.generic.engine.event.type.IEventHandlerWindowResized;
+import net.chazzvader.core.generic.math.Frustum;
+import net.chazzvader.core.generic.math.MathArena;
 import net.chazzvader.core.generic.math.Matrix4f;
 import net.chazzvader.core.generic.math.Quaternion;
 import net.chazzvader.core.generic.math.Vector3f;
@@ -238,37 +240,112 @@ public class Camera extends EngineObject {
 		provider = getWindow().getRenderPipeline().get3dProvider();
 	}
 
-	private Quaternion _rot = null;
-	private Vector3f _scale = null;
-	private Vector3f _pos = null;
+	private int viewVersion = -1;
+	private Vector3f direction = new Vector3f();
+	private Matrix4f lookAt = new Matrix4f();
+	private Matrix4f mulHelp = new Matrix4f();
 
-	private Matrix4f cachedMatrix;
+	private Matrix4f cachedMatrix = new Matrix4f();
 
 	/**
-	 * The view matrix, from world space to clip space
+	 * The view matrix, from world space to clip space. The same matrix is
+	 * returned every time and updated in place when the camera moves.
 	 * 
 	 * @return The view matrix, from world space to clip space
 	 */
 	public Matrix4f getViewMatrix() {
-		if (pos().equals(_pos) && _rot.equals(rot()) && relativeScale.equals(_scale)) {
-			return cachedMatrix;
-		} else {
-			cachedMatrix = _getViewMatrix();
-			_rot = Quaternion.copyOf(rot());
-			_pos = Vector3f.copyOf(pos());
-			_scale = Vector3f.copyOf(relativeScale);
-			return cachedMatrix;
+		int version = getTransformVersion();
+		if (version != viewVersion) {
+			_getViewMatrix();
+			viewVersion = version;
 		}
+		return cachedMatrix;
 	}
 
-	private Matrix4f _getViewMatrix() {
+	private void _getViewMatrix() {
 		// TODO: I dont think euler angles are ideal here.
 		
-		Vector3f euler = rot().toEuler();
+		MathArena arena = MathArena.get();
+		arena.push();
+		Vector3f euler = rot().toEuler(arena.vector3());
 		
 		euler.toDegrees();
 				
-		return Matrix4f.rotationZ(-euler.x).applyLookAtQuaternion(pos(), rot());
+		Matrix4f.rotationZ(-euler.x, cachedMatrix).applyLookAtQuaternion(pos(), rot(), direction, lookAt, mulHelp);
+		arena.pop();
+	}
+
+	private int viewProjectionVersion = -1;
+	private Matrix4f viewProjectionProjection = null;
+	private Matrix4f viewProjectionMatrix = new Matrix4f();
+	private Frustum frustum = new Frustum();
+
+	/**
+	 * The projection matrix multiplied by the view matrix, from world space to
+	 * clip space. The same matrix is returned every time and updated in place
+	 * when the camera moves or the projection changes.
+	 * 
+	 * @return The view projection matrix.
+	 */
+	public Matrix4f getViewProjectionMatrix() {
+		Matrix4f view = getViewMatrix();
+		if (viewVersion != viewProjectionVersion || projectionMatrix != viewProjectionProjection) {
+			viewProjectionMatrix.transcribe(projectionMatrix).mul(view, mulHelp);
+			frustum.set(viewProjectionMatrix);
+			inverseViewProjectionValid = false;
+			viewProjectionVersion = viewVersion;
+			viewProjectionProjection = projectionMatrix;
+		}
+		return viewProjectionMatrix;
+	}
+
+	private boolean inverseViewProjectionValid = false;
+	private Matrix4f inverseViewProjection = new Matrix4f();
+
+	/**
+	 * Works out the ray going from the camera through a point on the screen, used
+	 * to find what is under the mouse. The screen position is in the same form
+	 * the UI tracks the mouse in, 0 to 1 from the top left corner.
+	 * 
+	 * @param x         The x position on the screen, 0 on the left and 1 on the
+	 *                  right.
+	 * @param y         The y position on the screen, 0 at the top and 1 at the
+	 *                  bottom.
+	 * @param origin    Set to the start of the ray, on the near plane, in world
+	 *                  space.
+	 * @param direction Set to the normalized direction of the ray, in world space.
+	 * @see net.chazzvader.core.generic.engine.Scene#raycast(Vector3f, Vector3f)
+	 */
+	public void screenRay(float x, float y, Vector3f origin, Vector3f direction) {
+		Matrix4f viewProjection = getViewProjectionMatrix();
+		Matrix4f inv = inverseViewProjection;
+		if (!inverseViewProjectionValid) {
+			inv.transcribe(viewProjection).inverse();
+			inverseViewProjectionValid = true;
+		}
+		float ndcX = x * 2 - 1, ndcY = 1 - y * 2;
+		unproject(inv, ndcX, ndcY, -1, origin);
+		unproject(inv, ndcX, ndcY, 1, direction);
+		direction.sub(origin).normalize();
+	}
+
+	private static void unproject(Matrix4f inv, float x, float y, float z, Vector3f copy) {
+		float w = inv.v30 * x + inv.v31 * y + inv.v32 * z + inv.v33;
+		copy.transcribe((inv.v00 * x + inv.v01 * y + inv.v02 * z + inv.v03) / w,
+				(inv.v10 * x + inv.v11 * y + inv.v12 * z + inv.v13) / w,
+				(inv.v20 * x + inv.v21 * y + inv.v22 * z + inv.v23) / w);
+	}
+
+	/**
+	 * The frustum of the camera in world space, anything outside of it can't be
+	 * seen. Updated together with the view projection matrix.
+	 * 
+	 * @return The frustum of the camera.
+	 * @see #getViewProjectionMatrix()
+	 */
+	public Frustum getFrustum() {
+		getViewProjectionMatrix();
+		return frustum;
 	}
 
 	/**
@@ -2,12 +2,19 @@ package net.chazzvader.core.generic.engine.object;
 
 import java.util.ArrayList;
 
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.EngineItemRenderable;
 import net.chazzvader.core.generic.engine.Scene;
+import net.chazzvader.core.generic.engine.StaticBatcher;
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.render.MeshRendererImplementation;
+import net.chazzvader.core.generic.engine.render.material.Material;
+import net.chazzvader.core.generic.math.Bounds;
+import net.chazzvader.core.generic.math.CubeFaces;
 import net.chazzvader.core.generic.math.Matrix4f;
 import net.chazzvader.core.generic.math.Quaternion;
 import net.chazzvader.core.generic.math.Vector3f;
-import net.chazzvader.core.generic.math.Vector4f;
 
 /**
  * A object that exists in the scene, very generic, does nothing by itself.<br>
@@ -25,6 +32,23 @@ public class EngineObject extends EngineItemRenderable {
 	 */
 	public Scene scene;
 
+	/**
+	 * The handle of this object in the spatial index of its scene, or -1 if it
+	 * isn't in it. <em>Only use as reference.</em>
+	 * 
+	 * @see Scene#getSpatialIndex()
+	 */
+	public int spatialHandle = -1;
+
+	/**
+	 * The faces of the shadow map being drawn that this object can be seen in,
+	 * set by the scene before drawing it in the shadow pass. <em>Only use as
+	 * reference.</em>
+	 * 
+	 * @see CubeFaces
+	 */
+	public int shadowFaces = CubeFaces.ALL;
+
 	/**
 	 * Creates a new, generic, empty object at the given position, rotation and
 	 * scale.
@@ -78,6 +102,8 @@ public class EngineObject extends EngineItemRenderable {
 	 */
 	public boolean active = true;
 
+	private boolean isStatic = false;
+
 	/**
 	 * Sets a new parent for an object and also handles updating the children of the
 	 * new parent and the old parent if applicable.
@@ -93,6 +119,18 @@ public class EngineObject extends EngineItemRenderable {
 		if (newParent != null)
 			newParent.children.add(this);
 		parent = newParent;
+		dirty = true;
+		transformChanges++;
+		if (store != null) {
+			if (newParent == null) {
+				store.setParent(handle, -1);
+			} else {
+				newParent.bindTransform(store);
+				store.setParent(handle, newParent.store == store ? newParent.handle : -1);
+			}
+		} else if (newParent != null && newParent.store != null) {
+			bindTransform(newParent.store);
+		}
 		return this;
 	}
 
@@ -115,6 +153,75 @@ public class EngineObject extends EngineItemRenderable {
 		this.active = active;
 	}
 
+	/**
+	 * Is the object static? Static objects are promised not to move, so they can
+	 * be merged together by a {@link StaticBatcher}.
+	 * 
+	 * @return Is the object static
+	 */
+	public boolean isStatic() {
+		return isStatic;
+	}
+
+	/**
+	 * Sets if the object is static. Changing this doesn't affect batches that
+	 * have already been made.
+	 * 
+	 * @param isStatic If the object should be static
+	 * @see StaticBatcher
+	 */
+	public void setStatic(boolean isStatic) {
+		this.isStatic = isStatic;
+	}
+
+	/**
+	 * The bounds of whatever this object draws, in local space, used to skip
+	 * drawing it when it can't be seen. Designed to be overloaded.
+	 * 
+	 * @return The local bounds, or null if the object should never be culled,
+	 *         which is the default.
+	 */
+	public Bounds getLocalBounds() {
+		return null;
+	}
+
+	/**
+	 * The mesh rays are tested against when casting rays into the scene, in local
+	 * space. Designed to be overloaded.
+	 * 
+	 * @return The mesh to test rays against, or null if rays should pass through
+	 *         the object, which is the default.
+	 * @see Scene#raycast(Vector3f, Vector3f)
+	 */
+	public Mesh getRaycastMesh() {
+		return null;
+	}
+
+	/**
+	 * The material this object draws with, used to sort draws so objects sharing
+	 * shaders, materials and textures are drawn together. Designed to be
+	 * overloaded.
+	 * 
+	 * @return The material, or null if the object doesn't draw with a single
+	 *         material, which is the default.
+	 */
+	public Material getRenderMaterial() {
+		return null;
+	}
+
+	/**
+	 * The mesh renderer to use when this object is drawn along with other objects
+	 * sharing its mesh and material in one instanced draw. Designed to be
+	 * overloaded, objects that draw differently to their mesh renderer shouldn't
+	 * return one.
+	 * 
+	 * @return The mesh renderer, or null if the object can't be instanced, which
+	 *         is the default.
+	 */
+	public MeshRendererImplementation getInstanceRenderer() {
+		return null;
+	}
+
 	/**
 	 * Renders the object, designed to be overloaded.<br>
 	 * No call to <code>super.render()</code> is needed.
@@ -167,7 +274,10 @@ public class EngineObject extends EngineItemRenderable {
 	/**
 	 * <em>THIS WILL BE INACURRATE IF THERE IS A PARENT</em><br>
 	 * The position of the object in world space relative to the parent, or the
-	 * origin if there is no parent. If there is a parent, use pos() instead.
+	 * origin if there is no parent. If there is a parent, use pos() instead.<br>
+	 * Can be edited directly, which shows up after the next
+	 * {@link Scene#updateTransforms()}, but prefer {@link #setPosition(Vector3f)}, which
+	 * shows up right away.
 	 * 
 	 * @see EngineObject#pos()
 	 */
@@ -176,7 +286,10 @@ public class EngineObject extends EngineItemRenderable {
 	/**
 	 * <em>THIS WILL BE INACURRATE IF THERE IS A PARENT</em><br>
 	 * The relative rotation of the object to it's parent, typically in xyz, but
-	 * sometimes (e.g. Camera) in ypr.
+	 * sometimes (e.g. Camera) in ypr.<br>
+	 * Can be edited directly, which shows up after the next
+	 * {@link Scene#updateTransforms()}, but prefer {@link #setRotation(Quaternion)}, which
+	 * shows up right away.
 	 * 
 	 * @see EngineObject#rot()
 	 */
@@ -184,125 +297,410 @@ public class EngineObject extends EngineItemRenderable {
 
 	/**
 	 * <em>THIS WILL BE INACURRATE IF THERE IS A PARENT</em><br>
-	 * The relative scale of the object.
+	 * The relative scale of the object.<br>
+	 * Can be edited directly, which shows up after the next
+	 * {@link Scene#updateTransforms()}, but prefer {@link #setScale(Vector3f)}, which
+	 * shows up right away.
 	 */
 	public Vector3f relativeScale = new Vector3f(1, 1, 1);
 
-	private Vector3f _pos = null;
-	private Quaternion _rot = null;
-	private Vector3f _scale = null;
+	/*
+	 * The world transform is cached and only rebuilt when something it depends on
+	 * changed. Every rebuild bumps the version, and children remember the version
+	 * of their parent they were last built against, so moving a node invalidates
+	 * its whole subtree without having to walk it. The setters raise the dirty
+	 * flag directly, so the getters only compare the flag and the versions. Edits
+	 * made straight to the relative fields are caught once a frame, in
+	 * updateTransforms, by comparing them against the values of the last rebuild.
+	 */
+	private static int transformChanges = 0;
+	private boolean dirty = true;
+	private int version = 0;
+	private int parentVersion = 0;
+	private int normalVersion = -1;
 
-	private Matrix4f cachedMatrix = null;
+	private final Vector3f _relPos = new Vector3f();
+	private final Quaternion _relRot = new Quaternion();
+	private final Vector3f _relScale = new Vector3f();
 
-	private Vector3f cachedPos = null;
-	private Vector3f _relPos = null;
-	private Matrix4f _ptm = null;
+	private final Vector3f worldPos = new Vector3f();
+	private final Quaternion worldRot = new Quaternion();
+	private final Vector3f worldScale = new Vector3f(1, 1, 1);
+
+	private final Matrix4f worldMatrix = new Matrix4f();
+	private final Matrix4f normalMatrix = new Matrix4f();
 
 	/**
-	 * Gets the actual position of the object, as opposed to the position relative
-	 * to the parent.
+	 * Sets the position relative to the parent. The values are copied into
+	 * {@link #relativePos}.
 	 * 
-	 * @return The actual position of the object in world space.
+	 * @param pos The new relative position.
+	 * @return This object, for stringing calls together
 	 */
-	public Vector3f pos() {
-		if (parent != null) {
-			if (relativePos.equals(_relPos) && parent.getWorldMatrix().equals(_ptm)) {
-				return cachedPos;
-			} else {
-				cachedPos = _pos();
-				_relPos = relativePos;
-				_ptm = parent.getWorldMatrix();
-				return cachedPos;
+	public EngineObject setPosition(Vector3f pos) {
+		return setPosition(pos.x, pos.y, pos.z);
+	}
+
+	/**
+	 * Sets the position relative to the parent.
+	 * 
+	 * @param x The new relative x position.
+	 * @param y The new relative y position.
+	 * @param z The new relative z position.
+	 * @return This object, for stringing calls together
+	 */
+	public EngineObject setPosition(float x, float y, float z) {
+		relativePos.transcribe(x, y, z);
+		dirty = true;
+		transformChanges++;
+		return this;
+	}
+
+	/**
+	 * Sets the rotation relative to the parent. The values are copied into
+	 * {@link #relativeRot}.
+	 * 
+	 * @param rot The new relative rotation.
+	 * @return This object, for stringing calls together
+	 */
+	public EngineObject setRotation(Quaternion rot) {
+		relativeRot.transcribe(rot);
+		dirty = true;
+		transformChanges++;
+		return this;
+	}
+
+	/**
+	 * Sets the scale relative to the parent. The values are copied into
+	 * {@link #relativeScale}.
+	 * 
+	 * @param scale The new relative scale.
+	 * @return This object, for stringing calls together
+	 */
+	public EngineObject setScale(Vector3f scale) {
+		return setScale(scale.x, scale.y, scale.z);
+	}
+
+	/**
+	 * Sets the scale relative to the parent.
+	 * 
+	 * @param x The new relative x scale.
+	 * @param y The new relative y scale.
+	 * @param z The new relative z scale.
+	 * @return This object, for stringing calls together
+	 */
+	public EngineObject setScale(float x, float y, float z) {
+		relativeScale.transcribe(x, y, z);
+		dirty = true;
+		transformChanges++;
+		return this;
+	}
+
+	/**
+	 * Forces the world transform of this object, and so of all its children, to
+	 * be rebuilt the next time it is needed. Needed when the relative fields are
+	 * edited directly and the change has to show up before the next
+	 * {@link Scene#updateTransforms()}, or when something else changes the
+	 * transform, for example an override of {@link #adjustWorldScale(Vector3f)}.
+	 */
+	public void markTransformDirty() {
+		dirty = true;
+		transformChanges++;
+	}
+
+	/**
+	 * The version of the world transform. It changes every time the world
+	 * position, rotation, scale or matrix of this object is rebuilt, so it can be
+	 * remembered and compared to find out if the object moved without comparing
+	 * any vectors.
+	 * 
+	 * @return The version of the world transform.
+	 */
+	public int getTransformVersion() {
+		updateTransform();
+		return version;
+	}
+
+	/**
+	 * Counts every time any object is moved, or picks up a move from its
+	 * transform store. It only ever goes up, so something that caches over many
+	 * objects, like the spatial index of a scene, can remember it and find out
+	 * nothing moved without asking every object for its version.
+	 * 
+	 * @return The amount of moves so far.
+	 * @see #getTransformVersion()
+	 */
+	public static int getTransformChanges() {
+		return transformChanges;
+	}
+
+	/**
+	 * Rebuilds the world transform of this object and then every object below it
+	 * in one top down pass, where every child builds on its parents freshly cached
+	 * result. Objects that haven't changed are skipped, and nothing is allocated,
+	 * so calling this on a root once a frame costs a handful of comparisons per
+	 * object. The ancestors of this object are assumed to be up to date. This is
+	 * also where edits made straight to the relative fields are picked up.<br>
+	 * <br>
+	 * If the object is bound to a transform store, this only hands the relative
+	 * transforms of the subtree to the store, and the store composes them all on
+	 * its next {@link TransformStore#update()}.
+	 * 
+	 * @see Scene#updateTransforms()
+	 */
+	public void updateTransforms() {
+		if (store != null) {
+			pushTransform();
+		} else {
+			if (!relativePos.equals(_relPos) || !relativeRot.equals(_relRot) || !relativeScale.equals(_relScale)) {
+				dirty = true;
+				transformChanges++;
 			}
+			refreshTransform();
+		}
+		for (int i = 0; i < children.size(); i++) {
+			children.get(i).updateTransforms();
 		}
-		return relativePos;
 	}
 
-	private Vector3f _pos() {
+	private TransformStore store = null;
+	private int handle = -1;
+	private int storeVersion = -1;
+
+	/**
+	 * Moves the transform of this object into a slot of a transform store, after
+	 * which this object is only a view onto that slot. The relative fields and
+	 * setters keep working, but the world transform is composed by the store in
+	 * one sweep together with every other transform in it. The parent and the
+	 * children of this object are bound to the same store, as a hierarchy can't
+	 * span stores.<br>
+	 * <br>
+	 * The getters of a bound object only read its slot, so they return the world
+	 * transform as of the last {@link TransformStore#update()}, which
+	 * {@link Scene#updateTransforms()} runs once a frame. Moving a bound object
+	 * shows up in its getters after the next update, not right away.<br>
+	 * <br>
+	 * The store composes transforms on its own, so
+	 * {@link #adjustWorldScale(Vector3f)} is not applied to objects in a store.
+	 * 
+	 * @param store The store to bind to.
+	 */
+	public void bindTransform(TransformStore store) {
+		if (this.store == store) {
+			return;
+		}
+		if (this.store != null) {
+			Logging.log("Object is already bound to a different transform store", "Engine Object", LoggingLevel.ERR);
+			return;
+		}
+		this.store = store;
+		handle = store.allocate();
+		storeVersion = -1;
+		pushTransform();
 		if (parent != null) {
-			Vector4f hc = new Vector4f(relativePos);
-			hc = parent.getWorldMatrix().mul(hc);
-			return new Vector3f(hc.x, hc.y, hc.z);
-		} else {
+			parent.bindTransform(store);
+			if (parent.store == store) {
+				store.setParent(handle, parent.handle);
+			}
+		}
+		for (int i = 0; i < children.size(); i++) {
+			children.get(i).bindTransform(store);
+		}
+	}
+
+	/**
+	 * The transform store this object is bound to.
+	 * 
+	 * @return The transform store, or null if the object isn't bound to one.
+	 * @see #bindTransform(TransformStore)
+	 */
+	public TransformStore getTransformStore() {
+		return store;
+	}
+
+	/**
+	 * The handle of the slot this object is bound to.
+	 * 
+	 * @return The handle of the slot, or -1 if the object isn't bound to a store.
+	 * @see #bindTransform(TransformStore)
+	 */
+	public int getTransformHandle() {
+		return handle;
+	}
+
+	/**
+	 * Called whenever the world scale is rebuilt, after the parents scale has been
+	 * applied, to let subclasses change it in place. Does nothing by default. Call
+	 * {@link #markTransformDirty()} when the result of this would change.
+	 * 
+	 * @param scale The world scale, to modify.
+	 */
+	protected void adjustWorldScale(Vector3f scale) {
+
+	}
+
+	/**
+	 * Gets the actual position of the object, as opposed to the position relative
+	 * to the parent. Without a parent this is {@link #relativePos} itself, the
+	 * same as it always was, so it can be written to like the field. With a
+	 * parent it is a cached vector that is reused, do not modify it.
+	 * 
+	 * @return The actual position of the object in world space.
+	 */
+	public Vector3f pos() {
+		if (parent == null) {
 			return relativePos;
 		}
+		updateTransform();
+		return worldPos;
 	}
 
 	/**
 	 * Gets the actual rotation of the object, as opposed to the rotation relative
-	 * to the parent.
+	 * to the parent. Without a parent this is {@link #relativeRot} itself, the
+	 * same as it always was, so it can be written to like the field. With a
+	 * parent it is a cached quaternion that is reused, do not modify it.
 	 * 
 	 * @return The actual rotation of the object.
 	 */
 	public Quaternion rot() {
-		if (parent != null) {
-			return parent.rot().mulCopy(relativeRot);
-		} else {
+		if (parent == null) {
 			return relativeRot;
 		}
+		updateTransform();
+		return worldRot;
 	}
 
 	/**
 	 * Gets the absolute scale of the object, as opposed to the scale relative to
-	 * the parent.
+	 * the parent. Without a parent this is {@link #relativeScale} itself, the
+	 * same as it always was, so it can be written to like the field. With a
+	 * parent it is a cached vector that is reused, do not modify it.
 	 * 
 	 * @return The actual scale of the object.
 	 */
 	public Vector3f scale() {
-		if (parent != null) {
-			return relativeScale.mulCopy(parent.scale());
-		} else {
+		if (parent == null) {
 			return relativeScale;
 		}
+		return worldScale();
 	}
 
 	/**
-	 * If necessary creates a new world matrix and returns it. If not, it returns a
-	 * cached matrix. Whatever, the point is it returns a accurate world matrix that
-	 * will apply the transformations and doesn't create a new one every time so you
-	 * can call this pretty much as often as you want.
+	 * The cached world scale, with {@link #adjustWorldScale(Vector3f)} applied.
+	 * Reused, do not modify it.
+	 * 
+	 * @return The world scale.
+	 */
+	protected Vector3f worldScale() {
+		updateTransform();
+		return worldScale;
+	}
+
+	/**
+	 * Returns the world matrix, rebuilding it first if the object or any of its
+	 * parents moved. The same matrix is returned every time and updated in place,
+	 * so you can call this pretty much as often as you want. Do not modify it.
 	 * 
 	 * @return The world (sometimes called model) matrix
 	 */
 	public Matrix4f getWorldMatrix() {
-		if (pos().equals(_pos) && rot().equals(_rot) && scale().equals(_scale)) {
-			return cachedMatrix;
-		} else {
-			_pos = Vector3f.copyOf(pos());
-			_rot = Quaternion.copyOf(rot());
-			_scale = Vector3f.copyOf(scale());
-			cachedMatrix = _getWorldMatrix();
-			return cachedMatrix;
-		}
+		updateTransform();
+		return worldMatrix;
 	}
 
-	private Matrix4f normalCache = null;
-	private Matrix4f normalCacheMatrix;
-
 	/**
-	 * If necessary creates a new normal matrix and returns it. If not, it returns a
-	 * cached matrix. Whatever, the point is it returns a accurate normal matrix
-	 * that will apply the transformations and doesn't create a new one every time
-	 * so you can call this pretty much as often as you want.
+	 * Returns the normal matrix, rebuilding it first if the world matrix changed
+	 * since it was last asked for. The same matrix is returned every time and
+	 * updated in place. Do not modify it. Only the upper 3x3 is used.
 	 * 
 	 * @return The normal matrix
+	 * @see Matrix4f#normalMatrix(Matrix4f)
 	 */
 	public Matrix4f getNormalMatrix() {
-		if (getWorldMatrix().equals(normalCache)) {
-			return normalCacheMatrix;
-		} else {
-			normalCache = getWorldMatrix();
-			normalCacheMatrix = _getNormalMatrix();
-			return normalCacheMatrix;
+		updateTransform();
+		if (normalVersion != version) {
+			worldMatrix.normalMatrix(normalMatrix);
+			normalVersion = version;
 		}
+		return normalMatrix;
 	}
 
-	private Matrix4f _getWorldMatrix() {
-		return new Matrix4f().applyTranslation(_pos).applyRotation(_rot).applyScale(_scale);
+	private void updateTransform() {
+		if (store != null) {
+			// Only reads the slot, the store is updated once a frame by the scene
+			pullTransform();
+			return;
+		}
+		if (parent != null) {
+			parent.updateTransform();
+		}
+		refreshTransform();
 	}
 
-	private Matrix4f _getNormalMatrix() {
-		return getWorldMatrix().inverseCopy().transpose();
+	private void pushTransform() {
+		if (dirty) {
+			store.markDirty(handle);
+			dirty = false;
+		}
+		store.setLocal(handle, relativePos, relativeRot, relativeScale);
+	}
+
+	private void pullTransform() {
+		int current = store.getVersion(handle);
+		if (current == storeVersion) {
+			return;
+		}
+		store.getWorldPosition(handle, worldPos);
+		store.getWorldRotation(handle, worldRot);
+		store.getWorldScale(handle, worldScale);
+		store.getWorldMatrix(handle, worldMatrix);
+		storeVersion = current;
+		version++;
+		transformChanges++;
+	}
+
+	private void refreshTransform() {
+		if (!dirty && (parent == null || parent.version == parentVersion)) {
+			return;
+		}
+		_relPos.transcribe(relativePos);
+		_relRot.transcribe(relativeRot);
+		_relScale.transcribe(relativeScale);
+
+		if (parent != null) {
+			Matrix4f ptm = parent.worldMatrix;
+			float x = relativePos.x, y = relativePos.y, z = relativePos.z;
+			worldPos.x = x * ptm.v00 + y * ptm.v01 + z * ptm.v02 + ptm.v03;
+			worldPos.y = x * ptm.v10 + y * ptm.v11 + z * ptm.v12 + ptm.v13;
+			worldPos.z = x * ptm.v20 + y * ptm.v21 + z * ptm.v22 + ptm.v23;
+			parent.worldRot.mulCopy(relativeRot, worldRot);
+			relativeScale.mulCopy(parent.worldScale, worldScale);
+			parentVersion = parent.version;
+		} else {
+			worldPos.transcribe(relativePos);
+			worldRot.transcribe(relativeRot);
+			worldScale.transcribe(relativeScale);
+		}
+		adjustWorldScale(worldScale);
+
+		// Translation * rotation * scale, written out directly
+		Matrix4f.rotation(worldRot, worldMatrix);
+		worldMatrix.v00 *= worldScale.x;
+		worldMatrix.v10 *= worldScale.x;
+		worldMatrix.v20 *= worldScale.x;
+		worldMatrix.v01 *= worldScale.y;
+		worldMatrix.v11 *= worldScale.y;
+		worldMatrix.v21 *= worldScale.y;
+		worldMatrix.v02 *= worldScale.z;
+		worldMatrix.v12 *= worldScale.z;
+		worldMatrix.v22 *= worldScale.z;
+		worldMatrix.v03 = worldPos.x;
+		worldMatrix.v13 = worldPos.y;
+		worldMatrix.v23 = worldPos.z;
+
+		dirty = false;
+		version++;
 	}
 
 }
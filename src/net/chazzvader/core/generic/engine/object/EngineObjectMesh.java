@@ -5,6 +5,7 @@ import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.mesh.Mesh;
 import net.chazzvader.core.generic.engine.render.MeshRendererImplementation;
 import net.chazzvader.core.generic.engine.render.material.Material;
+import net.chazzvader.core.generic.math.Bounds;
 import net.chazzvader.core.generic.math.Quaternion;
 import net.chazzvader.core.generic.math.Vector3f;
 
@@ -68,6 +69,29 @@ public class EngineObjectMesh extends EngineObject {
 		meshRendererImplementation.render();
 	}
 
+	@Override
+	public Bounds getLocalBounds() {
+		return meshRendererImplementation == null ? null : meshRendererImplementation.getMesh().getBounds();
+	}
+
+	@Override
+	public Mesh getRaycastMesh() {
+		return meshRendererImplementation == null ? null : meshRendererImplementation.getMesh();
+	}
+
+	@Override
+	public Material getRenderMaterial() {
+		return material;
+	}
+
+	@Override
+	public MeshRendererImplementation getInstanceRenderer() {
+		if (meshRendererImplementation == null || material == null || !material.canBindInstanced(this)) {
+			return null;
+		}
+		return meshRendererImplementation;
+	}
+
 	@Override
 	public void update(double delta) {
 		checkDelete();
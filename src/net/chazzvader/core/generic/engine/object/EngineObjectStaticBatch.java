@@ -0,0 +1,129 @@
+package net.chazzvader.core.generic.engine.object;
+
+import net.chazzvader.core.generic.engine.StaticBatcher;
+import net.chazzvader.core.generic.engine.StaticBatcher.Batch;
+import net.chazzvader.core.generic.engine.render.MeshRendererImplementation;
+import net.chazzvader.core.generic.engine.render.material.Material;
+import net.chazzvader.core.generic.math.Bounds;
+import net.chazzvader.core.generic.math.Frustum;
+
+/**
+ * A mesh object made by a {@link StaticBatcher} out of lots of static objects.
+ * The mesh is already in world space, so this object stays at the origin. In
+ * the main pass only the pieces inside the view of the active camera are
+ * drawn, with pieces next to each other in the mesh drawn together.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class EngineObjectStaticBatch extends EngineObjectMesh {
+
+	private final int[] rangeStarts;
+	private final int[] rangeCounts;
+	private final Bounds[] rangeBounds;
+	private final EngineObject[] sources;
+
+	private int lastRangesDrawn = 0;
+	private int lastDraws = 0;
+
+	/**
+	 * Creates a batch object.
+	 *
+	 * @param batch    The merged mesh.
+	 * @param material The material shared by every piece.
+	 * @param sources  The objects the pieces came from, in the order of the
+	 *                 ranges.
+	 */
+	public EngineObjectStaticBatch(Batch batch, Material material, EngineObject[] sources) {
+		super(batch.mesh, material);
+		this.rangeStarts = batch.rangeStarts;
+		this.rangeCounts = batch.rangeCounts;
+		this.rangeBounds = batch.rangeBounds;
+		this.sources = sources;
+		setStatic(true);
+	}
+
+	@Override
+	public void render() {
+		material.bind(this);
+		Frustum frustum = null;
+		if (scene != null && scene.isFrustumCulling() && scene.getActiveCamera() != null
+				&& !(getRenderContext() != null && getRenderContext().isDepthOnly())) {
+			frustum = scene.getActiveCamera().getFrustum();
+		}
+		if (frustum == null) {
+			meshRendererImplementation.render();
+			lastRangesDrawn = rangeStarts.length;
+			lastDraws = 1;
+			return;
+		}
+		int ranges = 0, draws = 0;
+		int runStart = -1, runEnd = -1;
+		for (int i = 0; i < rangeStarts.length; i++) {
+			if (!frustum.intersects(rangeBounds[i])) {
+				continue;
+			}
+			ranges++;
+			if (rangeStarts[i] == runEnd) {
+				runEnd += rangeCounts[i];
+				continue;
+			}
+			if (runStart != -1) {
+				meshRendererImplementation.renderRange(runStart, runEnd - runStart);
+				draws++;
+			}
+			runStart = rangeStarts[i];
+			runEnd = runStart + rangeCounts[i];
+		}
+		if (runStart != -1) {
+			meshRendererImplementation.renderRange(runStart, runEnd - runStart);
+			draws++;
+		}
+		lastRangesDrawn = ranges;
+		lastDraws = draws;
+	}
+
+	@Override
+	public MeshRendererImplementation getInstanceRenderer() {
+		return null;
+	}
+
+	/**
+	 * The objects the pieces of this batch came from. They were deactivated when
+	 * the batch was made.
+	 *
+	 * @return The source objects.
+	 */
+	public EngineObject[] getSources() {
+		return sources;
+	}
+
+	/**
+	 * The amount of pieces in this batch.
+	 *
+	 * @return The amount of pieces.
+	 */
+	public int getRangeCount() {
+		return rangeStarts.length;
+	}
+
+	/**
+	 * The amount of pieces drawn the last time this batch was drawn.
+	 *
+	 * @return The amount of pieces drawn.
+	 */
+	public int getLastRangesDrawn() {
+		return lastRangesDrawn;
+	}
+
+	/**
+	 * The amount of draws the last time this batch was drawn.
+	 *
+	 * @return The amount of draws.
+	 */
+	public int getLastDraws() {
+		return lastDraws;
+	}
+
+}
@@ -4,8 +4,10 @@ import java.awt.Color;
 
 import net.chazzvader.core.generic.engine.creator.ObjectCreator;
 import net.chazzvader.core.generic.engine.render.material.MaterialLight;
+import net.chazzvader.core.generic.math.MathArena;
 import net.chazzvader.core.generic.math.Matrix4f;
 import net.chazzvader.core.generic.math.Quaternion;
+import net.chazzvader.core.generic.math.StaticMath;
 import net.chazzvader.core.generic.math.Vector3f;
 import net.chazzvader.core.generic.util.Utils;
 
@@ -68,6 +70,19 @@ public class Light extends EngineObject {
 	 */
 	public float targetDistance;
 
+	/**
+	 * The distance past which the light is treated as having no effect. This is
+	 * twice the target distance, the same as the far plane of the shadow maps,
+	 * where the light is down to about a twentieth of its brightness. The shader
+	 * fades the light smoothly to nothing at this range so there is no visible
+	 * edge where it stops.
+	 * 
+	 * @return The range of the light.
+	 */
+	public float range() {
+		return targetDistance * 2;
+	}
+
 	/**
 	 * Calculates values for constant, linear and quadratic given a target distance.
 	 * Based of equations that roughly model the values in <a href=
@@ -145,35 +160,35 @@ public class Light extends EngineObject {
 		scene.add(ObjectCreator.instaSphere(0.3f, 16, new MaterialLight(this), false).setParent(this));
 	}
 
+	private static final Vector3f[] FACE_DIRECTIONS = new Vector3f[] { StaticMath.POSITIVE_X, StaticMath.NEGATIVE_X,
+			StaticMath.POSITIVE_Y, StaticMath.NEGATIVE_Y, StaticMath.POSITIVE_Z, StaticMath.NEGATIVE_Z };
+	private static final Vector3f[] FACE_UPS = new Vector3f[] { StaticMath.NEGATIVE_Y, StaticMath.NEGATIVE_Y,
+			StaticMath.POSITIVE_Z, StaticMath.NEGATIVE_Z, StaticMath.NEGATIVE_Y, StaticMath.NEGATIVE_Y };
+
 	private Vector3f _pos = null;
-	private Quaternion _rot = null;
-	private Matrix4f[] cachedMatrices;
+	private Matrix4f[] cachedMatrices = new Matrix4f[] { new Matrix4f(), new Matrix4f(), new Matrix4f(),
+			new Matrix4f(), new Matrix4f(), new Matrix4f() };
 
 	/**
-	 * Returns an array of 6 view matrices to render shadow maps.
+	 * Returns an array of 6 view matrices to render shadow maps. The same array is
+	 * returned every time and updated in place when the light moves.
 	 * 
 	 * @return The 6 view matrices.
 	 */
 	public Matrix4f[] getViewMatrix() {
-		if (pos().equals(_pos) && rot().equals(_rot)) {
-			return cachedMatrices;
-		} else {
-			_rot = rot();
-			_pos = pos();
-			cachedMatrices = _getViewMatrix();
+		Vector3f pos = pos();
+		if (pos.equals(_pos)) {
 			return cachedMatrices;
 		}
-	}
-
-	private Matrix4f[] _getViewMatrix() {
-		Matrix4f[] ret = new Matrix4f[6];
-		ret[0] = Matrix4f.lookAt(pos(), pos().addCopy(new Vector3f(1, 0, 0)), new Vector3f(0, -1, 0));
-		ret[1] = Matrix4f.lookAt(pos(), pos().addCopy(new Vector3f(-1, 0, 0)), new Vector3f(0, -1, 0));
-		ret[2] = Matrix4f.lookAt(pos(), pos().addCopy(new Vector3f(0, 1, 0)), new Vector3f(0, 0, 1));
-		ret[3] = Matrix4f.lookAt(pos(), pos().addCopy(new Vector3f(0, -1, 0)), new Vector3f(0, 0, -1));
-		ret[4] = Matrix4f.lookAt(pos(), pos().addCopy(new Vector3f(0, 0, 1)), new Vector3f(0, -1, 0));
-		ret[5] = Matrix4f.lookAt(pos(), pos().addCopy(new Vector3f(0, 0, -1)), new Vector3f(0, -1, 0));
-		return ret;
+		_pos = _pos == null ? Vector3f.copyOf(pos) : _pos.transcribe(pos);
+		MathArena arena = MathArena.get();
+		arena.push();
+		Vector3f target = arena.vector3();
+		for (int i = 0; i < 6; i++) {
+			Matrix4f.lookAt(_pos, _pos.addCopy(FACE_DIRECTIONS[i], target), FACE_UPS[i], cachedMatrices[i]);
+		}
+		arena.pop();
+		return cachedMatrices;
 	}
 
 	private float _targetDistance;
@@ -190,7 +205,7 @@ public class Light extends EngineObject {
 			return projMatrix;
 		} else {
 			_targetDistance = targetDistance;
-			return (projMatrix = Matrix4f.perspective(90, 1, 0.1f, targetDistance * 2));
+			return Matrix4f.perspective(90, 1, 0.1f, targetDistance * 2, projMatrix);
 		}
 	}
 
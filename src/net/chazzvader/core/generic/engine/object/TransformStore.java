@@ -0,0 +1,559 @@
+package net.chazzvader.core.generic.engine.object;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.math.MatrixBatch;
+import net.chazzvader.core.generic.math.Matrix4f;
+import net.chazzvader.core.generic.math.Quaternion;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Stores a large amount of transforms as a structure of arrays, instead of a
+ * few objects per transform. Every transform lives in a slot, identified by a
+ * handle, and all the positions, rotations, scales and world matrices sit next
+ * to each other in plain float arrays. {@link #update()} then builds every
+ * world transform that needs it in one linear sweep, parents before children,
+ * without touching a single object. The world matrices are built with
+ * {@link MatrixBatch}.<br>
+ * <br>
+ * The world transform is composed exactly like {@link EngineObject} does it,
+ * so an object can be moved into a store without changing where it ends up.
+ * World matrices are kept in column major order, the same as
+ * {@link Matrix4f#toFloatArray()}, so they can be uploaded as is.<br>
+ * <br>
+ * Objects can be bound to a store with
+ * {@link EngineObject#bindTransform(TransformStore)}, after which they act as a
+ * view onto their slot. The store can also be used on its own with handles. It
+ * doesn't touch the renderer, and is not thread safe.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class TransformStore {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int capacity = INITIAL_CAPACITY;
+	private int size = 0;
+
+	private float[] localPos = new float[capacity * 3];
+	private float[] localRot = new float[capacity * 4];
+	private float[] localScale = new float[capacity * 3];
+
+	private float[] worldPos = new float[capacity * 3];
+	private float[] worldRot = new float[capacity * 4];
+	private float[] worldScale = new float[capacity * 3];
+	private float[] worldMatrix = new float[capacity * 16];
+
+	private int[] parents = new int[capacity];
+	// The children of every slot as a linked list, so a release only visits its own children
+	private int[] firstChild = new int[capacity];
+	private int[] nextSibling = new int[capacity];
+	private int[] previousSibling = new int[capacity];
+	private int[] versions = new int[capacity];
+	private int[] stamps = new int[capacity];
+	private boolean[] dirty = new boolean[capacity];
+	private boolean[] alive = new boolean[capacity];
+
+	private int[] free = new int[capacity];
+	private int freeCount = 0;
+
+	private int[] order = new int[capacity];
+	private int[] depths = new int[capacity];
+	private int orderCount = 0;
+	private boolean orderDirty = false;
+
+	private boolean anyDirty = false;
+	private int sweep = 0;
+	private int lastUpdated = 0;
+
+	/**
+	 * Takes a new slot, at the origin with no rotation, a scale of one and no
+	 * parent. Slots of released transforms are reused first, so the handles stay
+	 * dense.
+	 *
+	 * @return The handle of the new transform.
+	 */
+	public int allocate() {
+		int handle;
+		if (freeCount > 0) {
+			handle = free[--freeCount];
+		} else {
+			if (size == capacity) {
+				grow();
+			}
+			handle = size++;
+		}
+		localPos[handle * 3 + 0] = 0;
+		localPos[handle * 3 + 1] = 0;
+		localPos[handle * 3 + 2] = 0;
+		localRot[handle * 4 + 0] = 1;
+		localRot[handle * 4 + 1] = 0;
+		localRot[handle * 4 + 2] = 0;
+		localRot[handle * 4 + 3] = 0;
+		localScale[handle * 3 + 0] = 1;
+		localScale[handle * 3 + 1] = 1;
+		localScale[handle * 3 + 2] = 1;
+		parents[handle] = -1;
+		firstChild[handle] = -1;
+		nextSibling[handle] = -1;
+		previousSibling[handle] = -1;
+		alive[handle] = true;
+		stamps[handle] = -1;
+		markDirty(handle);
+		orderDirty = true;
+		return handle;
+	}
+
+	/**
+	 * Frees a slot so it can be reused. Any children of the transform lose their
+	 * parent. Only the children of the transform are visited, not every slot.
+	 *
+	 * @param handle The handle of the transform.
+	 */
+	public void release(int handle) {
+		if (!check(handle)) {
+			return;
+		}
+		alive[handle] = false;
+		unlink(handle);
+		int child = firstChild[handle];
+		while (child != -1) {
+			int next = nextSibling[child];
+			parents[child] = -1;
+			nextSibling[child] = -1;
+			previousSibling[child] = -1;
+			markDirty(child);
+			child = next;
+		}
+		firstChild[handle] = -1;
+		free[freeCount++] = handle;
+		orderDirty = true;
+	}
+
+	/**
+	 * Sets the parent of a transform.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param parent The handle of the parent, or -1 for none.
+	 */
+	public void setParent(int handle, int parent) {
+		if (!check(handle) || (parent != -1 && !check(parent))) {
+			return;
+		}
+		if (parents[handle] != parent) {
+			unlink(handle);
+			parents[handle] = parent;
+			if (parent != -1) {
+				nextSibling[handle] = firstChild[parent];
+				if (firstChild[parent] != -1) {
+					previousSibling[firstChild[parent]] = handle;
+				}
+				firstChild[parent] = handle;
+			}
+		}
+		markDirty(handle);
+		orderDirty = true;
+	}
+
+	// Takes a slot out of the child list of its parent
+	private void unlink(int handle) {
+		int parent = parents[handle];
+		if (parent == -1) {
+			return;
+		}
+		int previous = previousSibling[handle], next = nextSibling[handle];
+		if (previous == -1) {
+			firstChild[parent] = next;
+		} else {
+			nextSibling[previous] = next;
+		}
+		if (next != -1) {
+			previousSibling[next] = previous;
+		}
+		nextSibling[handle] = -1;
+		previousSibling[handle] = -1;
+	}
+
+	/**
+	 * Gets the parent of a transform.
+	 *
+	 * @param handle The handle of the transform.
+	 * @return The handle of the parent, or -1 for none.
+	 */
+	public int getParent(int handle) {
+		return parents[handle];
+	}
+
+	/**
+	 * Sets the position of a transform, relative to its parent.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param x      The relative x position.
+	 * @param y      The relative y position.
+	 * @param z      The relative z position.
+	 */
+	public void setPosition(int handle, float x, float y, float z) {
+		localPos[handle * 3 + 0] = x;
+		localPos[handle * 3 + 1] = y;
+		localPos[handle * 3 + 2] = z;
+		markDirty(handle);
+	}
+
+	/**
+	 * Sets the rotation of a transform, relative to its parent.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param q      The relative rotation.
+	 */
+	public void setRotation(int handle, Quaternion q) {
+		localRot[handle * 4 + 0] = q.a;
+		localRot[handle * 4 + 1] = q.b;
+		localRot[handle * 4 + 2] = q.c;
+		localRot[handle * 4 + 3] = q.d;
+		markDirty(handle);
+	}
+
+	/**
+	 * Sets the scale of a transform, relative to its parent.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param x      The relative x scale.
+	 * @param y      The relative y scale.
+	 * @param z      The relative z scale.
+	 */
+	public void setScale(int handle, float x, float y, float z) {
+		localScale[handle * 3 + 0] = x;
+		localScale[handle * 3 + 1] = y;
+		localScale[handle * 3 + 2] = z;
+		markDirty(handle);
+	}
+
+	/**
+	 * Sets the position, rotation and scale of a transform at once, only marking
+	 * it dirty if something actually changed.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param pos    The relative position.
+	 * @param rot    The relative rotation.
+	 * @param scale  The relative scale.
+	 */
+	public void setLocal(int handle, Vector3f pos, Quaternion rot, Vector3f scale) {
+		int o3 = handle * 3, o4 = handle * 4;
+		if (localPos[o3 + 0] == pos.x && localPos[o3 + 1] == pos.y && localPos[o3 + 2] == pos.z
+				&& localRot[o4 + 0] == rot.a && localRot[o4 + 1] == rot.b && localRot[o4 + 2] == rot.c
+				&& localRot[o4 + 3] == rot.d && localScale[o3 + 0] == scale.x && localScale[o3 + 1] == scale.y
+				&& localScale[o3 + 2] == scale.z) {
+			return;
+		}
+		localPos[o3 + 0] = pos.x;
+		localPos[o3 + 1] = pos.y;
+		localPos[o3 + 2] = pos.z;
+		localRot[o4 + 0] = rot.a;
+		localRot[o4 + 1] = rot.b;
+		localRot[o4 + 2] = rot.c;
+		localRot[o4 + 3] = rot.d;
+		localScale[o3 + 0] = scale.x;
+		localScale[o3 + 1] = scale.y;
+		localScale[o3 + 2] = scale.z;
+		markDirty(handle);
+	}
+
+	/**
+	 * Forces a transform, and so all its children, to be rebuilt on the next
+	 * update.
+	 *
+	 * @param handle The handle of the transform.
+	 */
+	public void markDirty(int handle) {
+		dirty[handle] = true;
+		anyDirty = true;
+	}
+
+	/**
+	 * Is there anything for {@link #update()} to do?
+	 *
+	 * @return True if any transform changed since the last update.
+	 */
+	public boolean needsUpdate() {
+		return anyDirty || orderDirty;
+	}
+
+	/**
+	 * Builds the world transform of every transform that changed, or whose parent
+	 * changed, in one sweep over the arrays. Does nothing if nothing changed.
+	 */
+	public void update() {
+		if (orderDirty) {
+			rebuildOrder();
+		}
+		if (!anyDirty) {
+			lastUpdated = 0;
+			return;
+		}
+		sweep++;
+		int updated = 0;
+		for (int k = 0; k < orderCount; k++) {
+			int i = order[k];
+			int p = parents[i];
+			if (!dirty[i] && (p == -1 || stamps[p] != sweep)) {
+				continue;
+			}
+			composeWorld(i, p);
+			MatrixBatch.composeAt(worldPos, worldRot, worldScale, worldMatrix, i);
+			dirty[i] = false;
+			stamps[i] = sweep;
+			versions[i]++;
+			updated++;
+		}
+		anyDirty = false;
+		lastUpdated = updated;
+	}
+
+	// The world position, rotation and scale, MatrixBatch builds the matrix from them
+	private void composeWorld(int i, int p) {
+		int o3 = i * 3, o4 = i * 4;
+		float px, py, pz, ra, rb, rc, rd, sx, sy, sz;
+		if (p != -1) {
+			int p3 = p * 3, p4 = p * 4, p16 = p * 16;
+			float x = localPos[o3 + 0], y = localPos[o3 + 1], z = localPos[o3 + 2];
+			px = x * worldMatrix[p16 + 0] + y * worldMatrix[p16 + 4] + z * worldMatrix[p16 + 8] + worldMatrix[p16 + 12];
+			py = x * worldMatrix[p16 + 1] + y * worldMatrix[p16 + 5] + z * worldMatrix[p16 + 9] + worldMatrix[p16 + 13];
+			pz = x * worldMatrix[p16 + 2] + y * worldMatrix[p16 + 6] + z * worldMatrix[p16 + 10]
+					+ worldMatrix[p16 + 14];
+
+			float a = worldRot[p4 + 0], b = worldRot[p4 + 1], c = worldRot[p4 + 2], d = worldRot[p4 + 3];
+			float qa = localRot[o4 + 0], qb = localRot[o4 + 1], qc = localRot[o4 + 2], qd = localRot[o4 + 3];
+			ra = (a * qa - b * qb - c * qc - d * qd);
+			rb = (a * qb + b * qa + c * qd - d * qc);
+			rc = (a * qc - b * qd + c * qa + d * qb);
+			rd = (a * qd + b * qc - c * qb + d * qa);
+
+			sx = localScale[o3 + 0] * worldScale[p3 + 0];
+			sy = localScale[o3 + 1] * worldScale[p3 + 1];
+			sz = localScale[o3 + 2] * worldScale[p3 + 2];
+		} else {
+			px = localPos[o3 + 0];
+			py = localPos[o3 + 1];
+			pz = localPos[o3 + 2];
+			ra = localRot[o4 + 0];
+			rb = localRot[o4 + 1];
+			rc = localRot[o4 + 2];
+			rd = localRot[o4 + 3];
+			sx = localScale[o3 + 0];
+			sy = localScale[o3 + 1];
+			sz = localScale[o3 + 2];
+		}
+		worldPos[o3 + 0] = px;
+		worldPos[o3 + 1] = py;
+		worldPos[o3 + 2] = pz;
+		worldRot[o4 + 0] = ra;
+		worldRot[o4 + 1] = rb;
+		worldRot[o4 + 2] = rc;
+		worldRot[o4 + 3] = rd;
+		worldScale[o3 + 0] = sx;
+		worldScale[o3 + 1] = sy;
+		worldScale[o3 + 2] = sz;
+	}
+
+	/*
+	 * Sorts the live slots by depth with a counting sort, so every parent is
+	 * visited before its children. Only runs when the hierarchy changed.
+	 */
+	private void rebuildOrder() {
+		int maxDepth = 0;
+		for (int i = 0; i < size; i++) {
+			depths[i] = -1;
+		}
+		for (int i = 0; i < size; i++) {
+			if (alive[i]) {
+				maxDepth = Math.max(maxDepth, depth(i));
+			}
+		}
+		int[] counts = new int[maxDepth + 2];
+		for (int i = 0; i < size; i++) {
+			if (alive[i]) {
+				counts[depths[i] + 1]++;
+			}
+		}
+		for (int i = 1; i < counts.length; i++) {
+			counts[i] += counts[i - 1];
+		}
+		orderCount = 0;
+		for (int i = 0; i < size; i++) {
+			if (alive[i]) {
+				order[counts[depths[i]]++] = i;
+				orderCount++;
+			}
+		}
+		orderDirty = false;
+	}
+
+	private int depth(int handle) {
+		int depth = 0;
+		int i = handle;
+		while (parents[i] != -1 && depths[i] == -1) {
+			i = parents[i];
+			depth++;
+			if (depth > size) {
+				Logging.log("Transform hierarchy contains a cycle, breaking it", "Transform Store",
+						LoggingLevel.ERR);
+				unlink(handle);
+				parents[handle] = -1;
+				return depths[handle] = 0;
+			}
+		}
+		int base = depths[i] == -1 ? 0 : depths[i];
+		depth += base;
+		int result = depth;
+		i = handle;
+		while (depths[i] == -1) {
+			depths[i] = depth--;
+			if (parents[i] == -1) {
+				break;
+			}
+			i = parents[i];
+		}
+		return result;
+	}
+
+	private void grow() {
+		capacity *= 2;
+		localPos = Arrays.copyOf(localPos, capacity * 3);
+		localRot = Arrays.copyOf(localRot, capacity * 4);
+		localScale = Arrays.copyOf(localScale, capacity * 3);
+		worldPos = Arrays.copyOf(worldPos, capacity * 3);
+		worldRot = Arrays.copyOf(worldRot, capacity * 4);
+		worldScale = Arrays.copyOf(worldScale, capacity * 3);
+		worldMatrix = Arrays.copyOf(worldMatrix, capacity * 16);
+		parents = Arrays.copyOf(parents, capacity);
+		firstChild = Arrays.copyOf(firstChild, capacity);
+		nextSibling = Arrays.copyOf(nextSibling, capacity);
+		previousSibling = Arrays.copyOf(previousSibling, capacity);
+		versions = Arrays.copyOf(versions, capacity);
+		stamps = Arrays.copyOf(stamps, capacity);
+		dirty = Arrays.copyOf(dirty, capacity);
+		alive = Arrays.copyOf(alive, capacity);
+		free = Arrays.copyOf(free, capacity);
+		order = Arrays.copyOf(order, capacity);
+		depths = Arrays.copyOf(depths, capacity);
+	}
+
+	private boolean check(int handle) {
+		if (handle < 0 || handle >= size || !alive[handle]) {
+			Logging.log("Invalid transform handle " + handle, "Transform Store", LoggingLevel.ERR);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Copies the world position of a transform, as of the last update.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param copy   A vector that is used to avoid calls to new. Any value in that
+	 *               vector will be overridden.
+	 * @return The world position.
+	 */
+	public Vector3f getWorldPosition(int handle, Vector3f copy) {
+		copy = copy == null ? new Vector3f() : copy;
+		return copy.transcribe(worldPos[handle * 3 + 0], worldPos[handle * 3 + 1], worldPos[handle * 3 + 2]);
+	}
+
+	/**
+	 * Copies the world rotation of a transform, as of the last update.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param copy   A quaternion that is used to avoid calls to new. Any value in
+	 *               that quaternion will be overridden.
+	 * @return The world rotation.
+	 */
+	public Quaternion getWorldRotation(int handle, Quaternion copy) {
+		copy = copy == null ? new Quaternion() : copy;
+		return copy.transcribe(worldRot[handle * 4 + 0], worldRot[handle * 4 + 1], worldRot[handle * 4 + 2],
+				worldRot[handle * 4 + 3]);
+	}
+
+	/**
+	 * Copies the world scale of a transform, as of the last update.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param copy   A vector that is used to avoid calls to new. Any value in that
+	 *               vector will be overridden.
+	 * @return The world scale.
+	 */
+	public Vector3f getWorldScale(int handle, Vector3f copy) {
+		copy = copy == null ? new Vector3f() : copy;
+		return copy.transcribe(worldScale[handle * 3 + 0], worldScale[handle * 3 + 1], worldScale[handle * 3 + 2]);
+	}
+
+	/**
+	 * Copies the world matrix of a transform, as of the last update.
+	 *
+	 * @param handle The handle of the transform.
+	 * @param copy   A matrix that is used to avoid calls to new. Any value in that
+	 *               matrix will be overridden.
+	 * @return The world matrix.
+	 */
+	public Matrix4f getWorldMatrix(int handle, Matrix4f copy) {
+		copy = copy == null ? new Matrix4f() : copy;
+		float[] m = worldMatrix;
+		int o = handle * 16;
+		return copy.transcribe(m[o + 0], m[o + 1], m[o + 2], m[o + 3], m[o + 4], m[o + 5], m[o + 6], m[o + 7],
+				m[o + 8], m[o + 9], m[o + 10], m[o + 11], m[o + 12], m[o + 13], m[o + 14], m[o + 15]);
+	}
+
+	/**
+	 * The raw world matrices, 16 floats per slot in column major order. Only
+	 * slots below {@link #getSlotCount()} that are in use hold anything. The
+	 * array is replaced when the store grows, so don't keep it.
+	 *
+	 * @return The backing world matrix array.
+	 */
+	public float[] getWorldMatrices() {
+		return worldMatrix;
+	}
+
+	/**
+	 * The version of a transform, changes every time its world transform is
+	 * rebuilt.
+	 *
+	 * @param handle The handle of the transform.
+	 * @return The version of the transform.
+	 */
+	public int getVersion(int handle) {
+		return versions[handle];
+	}
+
+	/**
+	 * The amount of slots that have been handed out, in use or released. Every
+	 * handle is below this.
+	 *
+	 * @return The amount of slots.
+	 */
+	public int getSlotCount() {
+		return size;
+	}
+
+	/**
+	 * The amount of transforms in use.
+	 *
+	 * @return The amount of transforms in use.
+	 */
+	public int getCount() {
+		return size - freeCount;
+	}
+
+	/**
+	 * How many transforms the last {@link #update()} rebuilt.
+	 *
+	 * @return The amount of transforms rebuilt.
+	 */
+	public int getLastUpdated() {
+		return lastUpdated;
+	}
+
+}
@@ -155,6 +155,7 @@ public abstract class EngineObjectTextBase extends EngineObjectMesh {
 			this.texture = getTexture();
 			size.x = texture.getWidth();
 			size.y = texture.getHeight();
+			markTransformDirty();
 		} else {
 			this.texture.swapData(getRawTexture(), 0, 0, size.x, size.y);
 		}
@@ -197,9 +198,15 @@ public abstract class EngineObjectTextBase extends EngineObjectMesh {
 		return (float) size.x / (float) size.y;
 	}
 
+	@Override
+	protected void adjustWorldScale(Vector3f scale) {
+		scale.transcribe(relativeScale.x * getAspectRatio(), relativeScale.y, relativeScale.z);
+	}
+
 	@Override
 	public Vector3f scale() {
-		return new Vector3f(relativeScale.x * getAspectRatio(), relativeScale.y, relativeScale.z);
+		// Always the adjusted scale, even without a parent
+		return worldScale();
 	}
 
 	@Override
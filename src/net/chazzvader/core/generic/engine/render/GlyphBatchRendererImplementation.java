@@ -0,0 +1,57 @@
+package net.chazzvader.core.generic.engine.render;
+
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.Configuration.Renderer;
+import net.chazzvader.core.generic.engine.EngineItem;
+import net.chazzvader.core.generic.engine.render.material.Texture;
+import net.chazzvader.core.generic.engine.ui.GlyphBatch;
+import net.chazzvader.core.opengl.engine.render.OpenGLGlyphBatchRendererImplementation;
+
+/**
+ * Draws a {@link GlyphBatch} with one instanced draw call per run.<br>
+ * <br>
+ * Implementation depends on renderer.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ * @see OpenGLGlyphBatchRendererImplementation
+ */
+public abstract class GlyphBatchRendererImplementation extends EngineItem {
+
+	protected int lastDrawCalls = 0;
+
+	/**
+	 * Static method to get the correctly, API-specific, implementation.
+	 *
+	 * @return The implementation.
+	 */
+	public static GlyphBatchRendererImplementation getGlyphBatchImplementation() {
+		Renderer renderer = Configuration.getRendererVerifyFinalized();
+		switch (renderer) {
+		case GENERIC:
+			break;
+		case OPEN_GL:
+			return new OpenGLGlyphBatchRendererImplementation();
+		}
+		return null;
+	}
+
+	/**
+	 * Uploads and draws every glyph in the batch. The batch is not cleared.<br>
+	 * Implementation depends on renderer.
+	 *
+	 * @param batch The batch to draw.
+	 */
+	public abstract void render(GlyphBatch<Texture> batch);
+
+	/**
+	 * The amount of draw calls the last {@link #render(GlyphBatch)} issued.
+	 *
+	 * @return The amount of draw calls.
+	 */
+	public int getLastDrawCalls() {
+		return lastDrawCalls;
+	}
+
+}
@@ -0,0 +1,320 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.math.Matrix4f;
+
+/**
+ * A CPU side buffer of mesh instances, used to draw lots of objects that share
+ * a mesh and a material in one draw call each. Instances are added in any
+ * order, and {@link #build()} groups them into runs that share both, and packs
+ * the data of every instance as {@link #FLOATS_PER_INSTANCE} floats, laid out
+ * as:<br>
+ * <code>world matrix (16, column major), normal matrix (9, column major)</code><br>
+ * The normal matrix is the inverse transpose of the top left of the world
+ * matrix, so normals stay correct on stretched objects.<br>
+ * <br>
+ * Runs come out in the order their first instance was added, and instances
+ * keep the order they were added in inside their run, so sorting before adding
+ * is kept as much as possible. Meshes and materials are compared by identity.
+ * This class does not touch the renderer at all, so it can be filled and
+ * inspected without a window.
+ *
+ * @author csbru
+ * @version 1
+ * @since 1.0
+ * @param <T> The type of the things being drawn.
+ */
+public class InstanceBatch<T> {
+
+	/**
+	 * The amount of floats every instance takes up in the instance buffer.
+	 */
+	public static final int FLOATS_PER_INSTANCE = 25;
+
+	private static final int INITIAL_INSTANCES = 64;
+
+	private Object[] pendingItems = new Object[INITIAL_INSTANCES];
+	private int[] pendingGroups = new int[INITIAL_INSTANCES];
+	private float[] pendingMatrices = new float[INITIAL_INSTANCES * 16];
+	private int count = 0;
+
+	private Object[] groupMeshes = new Object[INITIAL_INSTANCES];
+	private Object[] groupMaterials = new Object[INITIAL_INSTANCES];
+	private int[] groupCounts = new int[INITIAL_INSTANCES];
+	private int groupCount = 0;
+	private int[] table = new int[INITIAL_INSTANCES * 2];
+
+	private Object[] items = new Object[INITIAL_INSTANCES];
+	private float[] instances = new float[INITIAL_INSTANCES * FLOATS_PER_INSTANCE];
+
+	private int resizes = 0;
+
+	/**
+	 * Adds an instance to the batch. Nothing is grouped until
+	 * {@link #build()}.
+	 *
+	 * @param item     The thing being drawn.
+	 * @param mesh     The mesh it draws, instances are only grouped with the
+	 *                 exact same mesh.
+	 * @param material The material it draws with, instances are only grouped
+	 *                 with the exact same material. May be null.
+	 * @param world    The world matrix of the instance. Only read, not kept.
+	 */
+	public void add(T item, Object mesh, Object material, Matrix4f world) {
+		if (count == pendingItems.length) {
+			int newLength = count * 2;
+			pendingItems = Arrays.copyOf(pendingItems, newLength);
+			pendingGroups = Arrays.copyOf(pendingGroups, newLength);
+			pendingMatrices = Arrays.copyOf(pendingMatrices, newLength * 16);
+			resizes++;
+		}
+		pendingItems[count] = item;
+		pendingGroups[count] = group(mesh, material);
+		float[] m = pendingMatrices;
+		int o = count * 16;
+		m[o + 0] = world.v00;
+		m[o + 1] = world.v10;
+		m[o + 2] = world.v20;
+		m[o + 3] = world.v30;
+		m[o + 4] = world.v01;
+		m[o + 5] = world.v11;
+		m[o + 6] = world.v21;
+		m[o + 7] = world.v31;
+		m[o + 8] = world.v02;
+		m[o + 9] = world.v12;
+		m[o + 10] = world.v22;
+		m[o + 11] = world.v32;
+		m[o + 12] = world.v03;
+		m[o + 13] = world.v13;
+		m[o + 14] = world.v23;
+		m[o + 15] = world.v33;
+		count++;
+	}
+
+	private int group(Object mesh, Object material) {
+		int mask = table.length - 1;
+		int slot = hash(mesh, material) & mask;
+		while (true) {
+			int group = table[slot] - 1;
+			if (group == -1) {
+				break;
+			}
+			if (groupMeshes[group] == mesh && groupMaterials[group] == material) {
+				groupCounts[group]++;
+				return group;
+			}
+			slot = (slot + 1) & mask;
+		}
+		if (groupCount == groupMeshes.length) {
+			int newLength = groupCount * 2;
+			groupMeshes = Arrays.copyOf(groupMeshes, newLength);
+			groupMaterials = Arrays.copyOf(groupMaterials, newLength);
+			groupCounts = Arrays.copyOf(groupCounts, newLength);
+			resizes++;
+		}
+		int group = groupCount++;
+		groupMeshes[group] = mesh;
+		groupMaterials[group] = material;
+		groupCounts[group] = 1;
+		table[slot] = group + 1;
+		if (groupCount * 2 > table.length) {
+			rehash(table.length * 2);
+		}
+		return group;
+	}
+
+	private static int hash(Object mesh, Object material) {
+		int h = System.identityHashCode(mesh) * 31 + System.identityHashCode(material);
+		return h ^ (h >>> 16);
+	}
+
+	private void rehash(int length) {
+		table = new int[length];
+		int mask = length - 1;
+		for (int group = 0; group < groupCount; group++) {
+			int slot = hash(groupMeshes[group], groupMaterials[group]) & mask;
+			while (table[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = group + 1;
+		}
+		resizes++;
+	}
+
+	/**
+	 * Groups the instances added so far into runs and packs their instance data.
+	 * Call once after adding everything, and before reading any runs or
+	 * instances.
+	 */
+	public void build() {
+		if (items.length < count) {
+			items = new Object[pendingItems.length];
+			instances = new float[pendingItems.length * FLOATS_PER_INSTANCE];
+			resizes++;
+		}
+		// Turn the counts into run starts, then place every instance
+		int[] starts = groupCounts;
+		int total = 0;
+		for (int group = 0; group < groupCount; group++) {
+			int length = starts[group];
+			starts[group] = total;
+			total += length;
+		}
+		for (int i = 0; i < count; i++) {
+			int to = starts[pendingGroups[i]]++;
+			items[to] = pendingItems[i];
+			pack(pendingMatrices, i * 16, instances, to * FLOATS_PER_INSTANCE);
+			pendingItems[i] = null;
+		}
+		// Every start is now the end of its run, which is the next start
+		for (int group = groupCount - 1; group > 0; group--) {
+			starts[group] = starts[group - 1];
+		}
+		if (groupCount > 0) {
+			starts[0] = 0;
+		}
+	}
+
+	private static void pack(float[] m, int from, float[] to, int o) {
+		System.arraycopy(m, from, to, o, 16);
+		float m00 = m[from + 0], m10 = m[from + 1], m20 = m[from + 2];
+		float m01 = m[from + 4], m11 = m[from + 5], m21 = m[from + 6];
+		float m02 = m[from + 8], m12 = m[from + 9], m22 = m[from + 10];
+		float c00 = m11 * m22 - m12 * m21;
+		float c01 = m12 * m20 - m10 * m22;
+		float c02 = m10 * m21 - m11 * m20;
+		float c10 = m02 * m21 - m01 * m22;
+		float c11 = m00 * m22 - m02 * m20;
+		float c12 = m01 * m20 - m00 * m21;
+		float c20 = m01 * m12 - m02 * m11;
+		float c21 = m02 * m10 - m00 * m12;
+		float c22 = m00 * m11 - m01 * m10;
+		float det = m00 * c00 + m01 * c01 + m02 * c02;
+		float inv = det == 0 ? 0 : 1 / det;
+		// The inverse transpose is the cofactor matrix over the determinant
+		to[o + 16] = c00 * inv;
+		to[o + 17] = c10 * inv;
+		to[o + 18] = c20 * inv;
+		to[o + 19] = c01 * inv;
+		to[o + 20] = c11 * inv;
+		to[o + 21] = c21 * inv;
+		to[o + 22] = c02 * inv;
+		to[o + 23] = c12 * inv;
+		to[o + 24] = c22 * inv;
+	}
+
+	/**
+	 * Empties the batch. The backing arrays are kept so a steady state frame does
+	 * not allocate.
+	 */
+	public void clear() {
+		Arrays.fill(items, 0, count, null);
+		Arrays.fill(pendingItems, 0, count, null);
+		Arrays.fill(groupMeshes, 0, groupCount, null);
+		Arrays.fill(groupMaterials, 0, groupCount, null);
+		Arrays.fill(table, 0);
+		count = 0;
+		groupCount = 0;
+	}
+
+	/**
+	 * Is there anything to draw?
+	 *
+	 * @return True if there are no instances in the batch.
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * The packed instance data, valid after {@link #build()}. Only the first
+	 * <code>getInstanceCount() * FLOATS_PER_INSTANCE</code> floats are valid, the
+	 * rest is left over capacity.
+	 *
+	 * @return The backing instance array.
+	 */
+	public float[] getInstanceData() {
+		return instances;
+	}
+
+	/**
+	 * The amount of instances in the batch.
+	 *
+	 * @return The amount of instances in the batch.
+	 */
+	public int getInstanceCount() {
+		return count;
+	}
+
+	/**
+	 * Gets a packed instance, valid after {@link #build()}.
+	 *
+	 * @param instance The index of the instance, in packed order.
+	 * @return The thing being drawn.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getItem(int instance) {
+		return (T) items[instance];
+	}
+
+	/**
+	 * The amount of runs in the batch. Every run is one draw call.
+	 *
+	 * @return The amount of runs in the batch.
+	 */
+	public int getRunCount() {
+		return groupCount;
+	}
+
+	/**
+	 * The index of the first instance of a run, valid after {@link #build()}.
+	 *
+	 * @param run The index of the run.
+	 * @return The index of the first instance of the run.
+	 */
+	public int getRunStart(int run) {
+		return groupCounts[run];
+	}
+
+	/**
+	 * The amount of instances in a run, valid after {@link #build()}.
+	 *
+	 * @param run The index of the run.
+	 * @return The amount of instances in the run.
+	 */
+	public int getRunLength(int run) {
+		return (run + 1 < groupCount ? groupCounts[run + 1] : count) - groupCounts[run];
+	}
+
+	/**
+	 * The mesh shared by a run.
+	 *
+	 * @param run The index of the run.
+	 * @return The mesh.
+	 */
+	public Object getRunMesh(int run) {
+		return groupMeshes[run];
+	}
+
+	/**
+	 * The material shared by a run.
+	 *
+	 * @param run The index of the run.
+	 * @return The material.
+	 */
+	public Object getRunMaterial(int run) {
+		return groupMaterials[run];
+	}
+
+	/**
+	 * How many times the backing arrays had to grow. Should stop increasing once
+	 * the batch has seen its largest frame.
+	 *
+	 * @return The amount of times the backing arrays were resized.
+	 */
+	public int getResizeCount() {
+		return resizes;
+	}
+
+}
@@ -0,0 +1,58 @@
+package net.chazzvader.core.generic.engine.render;
+
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.Configuration.Renderer;
+import net.chazzvader.core.generic.engine.EngineItem;
+import net.chazzvader.core.opengl.engine.render.OpenGLInstanceBatchRendererImplementation;
+
+/**
+ * Draws the runs of an {@link InstanceBatch} with one instanced draw call each.
+ * The material has to be bound with
+ * {@link net.chazzvader.core.generic.engine.render.material.Material#bindInstanced(net.chazzvader.core.generic.engine.object.EngineObject)
+ * bindInstanced} first.<br>
+ * <br>
+ * Implementation depends on renderer.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ * @see OpenGLInstanceBatchRendererImplementation
+ */
+public abstract class InstanceBatchRendererImplementation extends EngineItem {
+
+	/**
+	 * Static method to get the correctly, API-specific, implementation.
+	 *
+	 * @return The implementation.
+	 */
+	public static InstanceBatchRendererImplementation getInstanceBatchImplementation() {
+		Renderer renderer = Configuration.getRendererVerifyFinalized();
+		switch (renderer) {
+		case GENERIC:
+			break;
+		case OPEN_GL:
+			return new OpenGLInstanceBatchRendererImplementation();
+		}
+		return null;
+	}
+
+	/**
+	 * Uploads the instance data of every instance in a built batch. The batch is
+	 * not cleared.<br>
+	 * Implementation depends on renderer.
+	 *
+	 * @param batch The batch to upload.
+	 */
+	public abstract void upload(InstanceBatch<?> batch);
+
+	/**
+	 * Draws a range of the last uploaded instances with a mesh.<br>
+	 * Implementation depends on renderer.
+	 *
+	 * @param mesh  The renderer of the mesh shared by the instances.
+	 * @param start The index of the first instance.
+	 * @param count The amount of instances.
+	 */
+	public abstract void render(MeshRendererImplementation mesh, int start, int count);
+
+}
@@ -0,0 +1,367 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.math.Matrix4f;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Splits the view frustum into a grid of clusters and works out which lights
+ * can reach each one, so a pixel only has to go through the lights of its own
+ * cluster instead of every light in the scene.<br>
+ * <br>
+ * The grid is made of tiles across the screen, and slices in depth. Slices get
+ * exponentially deeper further from the camera, so clusters stay about as deep
+ * as they are wide. A light is added to a cluster if its range sphere touches
+ * the box around the cluster in view space.<br>
+ * <br>
+ * The result is one int array, ready to be uploaded. It starts with an offset
+ * into the array and an amount of lights for each cluster, and after that come
+ * the light indices of each cluster, in order. Clusters are numbered
+ * <code>(slice * tilesY + tileY) * tilesX + tileX</code>, with tile 0, 0 at the
+ * bottom left of the screen and slice 0 at the near plane.<br>
+ * <br>
+ * Only perspective projections are clustered. For anything else the grid is
+ * one cluster holding every light.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class LightClusters {
+
+	private final int gridX, gridY, gridSlices;
+	private int tilesX, tilesY, slices;
+
+	private boolean perspective;
+	private float xScale, yScale, near, far, sliceScale;
+	private float[] sliceDepths;
+
+	private int[] data = new int[0];
+	private int dataLength = 0;
+
+	private float[] lightData = new float[0];
+	private int[] pairClusters = new int[64];
+	private int[] pairLights = new int[64];
+	private int pairCount = 0;
+
+	/**
+	 * Creates clusters, with the given grid used for perspective projections.
+	 *
+	 * @param tilesX The amount of tiles across the screen.
+	 * @param tilesY The amount of tiles up the screen.
+	 * @param slices The amount of slices in depth.
+	 */
+	public LightClusters(int tilesX, int tilesY, int slices) {
+		if (tilesX < 1 || tilesY < 1 || slices < 1) {
+			throw new IllegalArgumentException("The grid needs at least one cluster in every direction");
+		}
+		this.gridX = tilesX;
+		this.gridY = tilesY;
+		this.gridSlices = slices;
+		setProjection(null);
+	}
+
+	/**
+	 * Sets the projection the clusters are made for. Perspective projections,
+	 * like the ones made by
+	 * {@link Matrix4f#perspective(float, float, float, float)}, use the grid given
+	 * to the constructor, anything else uses one cluster.
+	 *
+	 * @param projection The projection matrix, or null for one cluster.
+	 * @return Itself for chaining.
+	 */
+	public LightClusters setProjection(Matrix4f projection) {
+		perspective = projection != null && projection.v32 == -1 && projection.v33 == 0;
+		if (!perspective) {
+			tilesX = tilesY = slices = 1;
+			return this;
+		}
+		tilesX = gridX;
+		tilesY = gridY;
+		slices = gridSlices;
+		xScale = projection.v00;
+		yScale = projection.v11;
+		// Worked back out of the depth row of the matrix
+		near = projection.v23 / (projection.v22 - 1);
+		far = projection.v23 / (projection.v22 + 1);
+		sliceScale = (float) (slices / Math.log(far / near));
+		if (sliceDepths == null || sliceDepths.length != slices + 1) {
+			sliceDepths = new float[slices + 1];
+		}
+		for (int i = 0; i <= slices; i++) {
+			sliceDepths[i] = (float) (near * Math.pow(far / near, (double) i / slices));
+		}
+		sliceDepths[slices] = far;
+		return this;
+	}
+
+	/**
+	 * Assigns lights to the clusters.
+	 *
+	 * @param view   The view matrix of the camera.
+	 * @param lights The lights, with their range from {@link Light#range()}.
+	 * @return Itself for chaining.
+	 */
+	public LightClusters assign(Matrix4f view, ArrayList<Light> lights) {
+		int count = lights.size();
+		if (lightData.length < count * 4) {
+			lightData = new float[count * 4];
+		}
+		for (int i = 0; i < count; i++) {
+			Light light = lights.get(i);
+			Vector3f pos = light.pos();
+			lightData[i * 4] = pos.x;
+			lightData[i * 4 + 1] = pos.y;
+			lightData[i * 4 + 2] = pos.z;
+			lightData[i * 4 + 3] = light.range();
+		}
+		return assign(view, lightData, count);
+	}
+
+	/**
+	 * Assigns lights to the clusters.
+	 *
+	 * @param view   The view matrix of the camera.
+	 * @param lights The lights, 4 floats each, the world space position and the
+	 *               range.
+	 * @param count  The amount of lights.
+	 * @return Itself for chaining.
+	 */
+	public LightClusters assign(Matrix4f view, float[] lights, int count) {
+		pairCount = 0;
+		for (int i = 0; i < count; i++) {
+			float x = lights[i * 4], y = lights[i * 4 + 1], z = lights[i * 4 + 2], r = lights[i * 4 + 3];
+			if (!perspective) {
+				addPair(0, i);
+				continue;
+			}
+			// Into view space, with depth going forwards
+			float vx = view.v00 * x + view.v01 * y + view.v02 * z + view.v03;
+			float vy = view.v10 * x + view.v11 * y + view.v12 * z + view.v13;
+			float d = -(view.v20 * x + view.v21 * y + view.v22 * z + view.v23);
+			addLight(i, vx, vy, d, r);
+		}
+		build();
+		return this;
+	}
+
+	private void addLight(int light, float x, float y, float d, float r) {
+		if (d + r < near || d - r > far) {
+			return;
+		}
+		int firstSlice = slice(d - r), lastSlice = slice(d + r);
+		for (int s = firstSlice; s <= lastSlice; s++) {
+			float z0 = sliceDepths[s], z1 = sliceDepths[s + 1];
+			// Depths of the sphere inside this slice, bounding the tiles it can touch
+			float dMin = Math.max(z0, d - r), dMax = Math.min(z1, d + r);
+			int x0 = tile(minSlope(x - r, dMin, dMax) * xScale, tilesX);
+			int x1 = tile(maxSlope(x + r, dMin, dMax) * xScale, tilesX);
+			int y0 = tile(minSlope(y - r, dMin, dMax) * yScale, tilesY);
+			int y1 = tile(maxSlope(y + r, dMin, dMax) * yScale, tilesY);
+			if (x1 < 0 || y1 < 0 || x0 >= tilesX || y0 >= tilesY) {
+				continue;
+			}
+			x0 = Math.max(x0, 0);
+			y0 = Math.max(y0, 0);
+			x1 = Math.min(x1, tilesX - 1);
+			y1 = Math.min(y1, tilesY - 1);
+			for (int ty = y0; ty <= y1; ty++) {
+				float bottom = (ty * 2f / tilesY - 1) / yScale, top = ((ty + 1) * 2f / tilesY - 1) / yScale;
+				float distY = axisDistance(y, bottom, top, z0, z1);
+				if (distY > r) {
+					continue;
+				}
+				for (int tx = x0; tx <= x1; tx++) {
+					float left = (tx * 2f / tilesX - 1) / xScale, right = ((tx + 1) * 2f / tilesX - 1) / xScale;
+					float distX = axisDistance(x, left, right, z0, z1);
+					float distD = d < z0 ? z0 - d : d > z1 ? d - z1 : 0;
+					if (distX * distX + distY * distY + distD * distD <= r * r) {
+						addPair((s * tilesY + ty) * tilesX + tx, light);
+					}
+				}
+			}
+		}
+	}
+
+	// The smallest x / depth of a range of x over a range of depth
+	private static float minSlope(float x, float dMin, float dMax) {
+		return x / (x >= 0 ? dMax : dMin);
+	}
+
+	// The largest x / depth of a range of x over a range of depth
+	private static float maxSlope(float x, float dMin, float dMax) {
+		return x / (x >= 0 ? dMin : dMax);
+	}
+
+	private static int tile(float ndc, int tiles) {
+		float t = (ndc + 1) * 0.5f * tiles;
+		// Clamped before the cast so huge slopes don't wrap around
+		return (int) Math.floor(Math.max(-1, Math.min(tiles, t)));
+	}
+
+	// Distance from a coordinate to the box around a tile between two depths
+	private static float axisDistance(float v, float slope0, float slope1, float z0, float z1) {
+		float min = Math.min(slope0 * z0, slope0 * z1);
+		float max = Math.max(slope1 * z0, slope1 * z1);
+		return v < min ? min - v : v > max ? v - max : 0;
+	}
+
+	private void addPair(int cluster, int light) {
+		if (pairCount == pairClusters.length) {
+			pairClusters = Arrays.copyOf(pairClusters, pairCount * 2);
+			pairLights = Arrays.copyOf(pairLights, pairCount * 2);
+		}
+		pairClusters[pairCount] = cluster;
+		pairLights[pairCount++] = light;
+	}
+
+	// Counting sort of the pairs by cluster, keeping lights in order
+	private void build() {
+		int clusters = getClusterCount();
+		dataLength = clusters * 2 + pairCount;
+		if (data.length < dataLength) {
+			data = new int[Math.max(dataLength, data.length * 2)];
+		}
+		Arrays.fill(data, 0, clusters * 2, 0);
+		for (int i = 0; i < pairCount; i++) {
+			data[pairClusters[i] * 2 + 1]++;
+		}
+		int offset = clusters * 2;
+		for (int c = 0; c < clusters; c++) {
+			data[c * 2] = offset;
+			offset += data[c * 2 + 1];
+		}
+		for (int c = 0; c < clusters; c++) {
+			// Used as a write cursor, and set back to the start afterwards
+			data[c * 2 + 1] = data[c * 2];
+		}
+		for (int i = 0; i < pairCount; i++) {
+			data[data[pairClusters[i] * 2 + 1]++] = pairLights[i];
+		}
+		for (int c = 0; c < clusters; c++) {
+			data[c * 2 + 1] -= data[c * 2];
+		}
+	}
+
+	/**
+	 * The slice a view space depth is in, clamped to the grid.
+	 *
+	 * @param depth The depth, the distance in front of the camera.
+	 * @return The slice.
+	 */
+	public int slice(float depth) {
+		if (!perspective || depth <= near) {
+			return 0;
+		}
+		int s = (int) (Math.log(depth / near) * sliceScale);
+		return Math.min(s, slices - 1);
+	}
+
+	/**
+	 * The amount of tiles across the screen.
+	 *
+	 * @return The amount of tiles across the screen.
+	 */
+	public int getTilesX() {
+		return tilesX;
+	}
+
+	/**
+	 * The amount of tiles up the screen.
+	 *
+	 * @return The amount of tiles up the screen.
+	 */
+	public int getTilesY() {
+		return tilesY;
+	}
+
+	/**
+	 * The amount of slices in depth.
+	 *
+	 * @return The amount of slices in depth.
+	 */
+	public int getSlices() {
+		return slices;
+	}
+
+	/**
+	 * The near plane of the projection.
+	 *
+	 * @return The near plane, 0 if it isn't a perspective projection.
+	 */
+	public float getNear() {
+		return perspective ? near : 0;
+	}
+
+	/**
+	 * The far plane of the projection.
+	 *
+	 * @return The far plane, 0 if it isn't a perspective projection.
+	 */
+	public float getFar() {
+		return perspective ? far : 0;
+	}
+
+	/**
+	 * What the log of a depth is multiplied by to get its slice, so a shader can
+	 * work out the slice as <code>log(depth) * scale - log(near) * scale</code>.
+	 *
+	 * @return The scale, 0 if it isn't a perspective projection.
+	 */
+	public float getSliceScale() {
+		return perspective ? sliceScale : 0;
+	}
+
+	/**
+	 * The total amount of clusters.
+	 *
+	 * @return The amount of clusters.
+	 */
+	public int getClusterCount() {
+		return tilesX * tilesY * slices;
+	}
+
+	/**
+	 * The amount of lights in a cluster.
+	 *
+	 * @param cluster The cluster.
+	 * @return The amount of lights.
+	 */
+	public int getLightCount(int cluster) {
+		return data[cluster * 2 + 1];
+	}
+
+	/**
+	 * One of the lights in a cluster.
+	 *
+	 * @param cluster The cluster.
+	 * @param i       Which of the lights of the cluster.
+	 * @return The index of the light in the list given to assign.
+	 */
+	public int getLight(int cluster, int i) {
+		return data[data[cluster * 2] + i];
+	}
+
+	/**
+	 * The offsets, counts and light indices, as described in the class. Only the
+	 * first {@link #getDataLength()} ints are used. The array is reused.
+	 *
+	 * @return The cluster data.
+	 */
+	public int[] getData() {
+		return data;
+	}
+
+	/**
+	 * The amount of used ints in {@link #getData()}.
+	 *
+	 * @return The amount of used ints.
+	 */
+	public int getDataLength() {
+		return dataLength;
+	}
+
+}
@@ -0,0 +1,265 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.function.Function;
+
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.engine.IDeletable;
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
+
+/**
+ * Shares whatever a renderer uploads a mesh to, so every user of a mesh gets
+ * the same buffers and they are only uploaded once. Entries are reference
+ * counted, {@link #acquire(Mesh)} adds a user and {@link #release(Mesh)} takes
+ * one away, and the uploaded data is deleted when the last user is gone.<br>
+ * <br>
+ * Meshes are always matched by identity. With content matching on, a mesh
+ * that isn't the same instance but has exactly the same data, like two loads
+ * of the same file, shares too. That costs a hash of the whole mesh on the
+ * first acquire of every new instance, so it is off by default. The hash is
+ * taken when a mesh is uploaded and kept with the entry, so the entry can
+ * still be found and removed if the mesh is changed later.<br>
+ * <br>
+ * Meshes must not be changed while they are in the cache, as the uploaded
+ * version is not updated.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ * @param <T> The type meshes are uploaded to.
+ */
+public class MeshCache<T extends IDeletable> {
+
+	private static class Entry<T> {
+		private final T value;
+		private final Mesh mesh;
+		private final long bytes;
+		private final boolean hashed;
+		private final int contentHash;
+		private int references = 0;
+		private ArrayList<Mesh> aliases = null;
+
+		private Entry(T value, Mesh mesh, long bytes, boolean hashed, int contentHash) {
+			this.value = value;
+			this.mesh = mesh;
+			this.bytes = bytes;
+			this.hashed = hashed;
+			this.contentHash = contentHash;
+		}
+	}
+
+	private final Function<Mesh, T> upload;
+	private final IdentityHashMap<Mesh, Entry<T>> byIdentity = new IdentityHashMap<>();
+	private final HashMap<Integer, ArrayList<Entry<T>>> byContent = new HashMap<>();
+	private boolean contentMatching = false;
+
+	private int hits = 0;
+	private int misses = 0;
+	private int references = 0;
+	private int entries = 0;
+	private long bytes = 0;
+	private long sharedBytes = 0;
+
+	/**
+	 * Creates an empty cache.
+	 *
+	 * @param upload Uploads a mesh, called on a miss.
+	 */
+	public MeshCache(Function<Mesh, T> upload) {
+		this.upload = upload;
+	}
+
+	/**
+	 * Gets the uploaded version of a mesh, uploading it if no one else is using
+	 * it. Every acquire has to be matched with a {@link #release(Mesh)}.
+	 *
+	 * @param mesh The mesh.
+	 * @return The uploaded mesh.
+	 */
+	public T acquire(Mesh mesh) {
+		Entry<T> entry = byIdentity.get(mesh);
+		int contentHash = 0;
+		if (entry == null && contentMatching) {
+			contentHash = mesh.hashCode();
+			entry = findContent(mesh, contentHash);
+			if (entry != null) {
+				if (entry.aliases == null) {
+					entry.aliases = new ArrayList<>();
+				}
+				entry.aliases.add(mesh);
+				byIdentity.put(mesh, entry);
+			}
+		}
+		if (entry == null) {
+			misses++;
+			entry = new Entry<T>(upload.apply(mesh), mesh, byteSize(mesh), contentMatching, contentHash);
+			byIdentity.put(mesh, entry);
+			if (contentMatching) {
+				ArrayList<Entry<T>> sameHash = byContent.get(contentHash);
+				if (sameHash == null) {
+					sameHash = new ArrayList<>(1);
+					byContent.put(contentHash, sameHash);
+				}
+				sameHash.add(entry);
+			}
+			bytes += entry.bytes;
+			entries++;
+		} else {
+			hits++;
+			sharedBytes += entry.bytes;
+		}
+		entry.references++;
+		references++;
+		return entry.value;
+	}
+
+	/**
+	 * Stops using a mesh. If this was the last user, the uploaded version is
+	 * deleted.
+	 *
+	 * @param mesh The mesh, as passed to {@link #acquire(Mesh)}.
+	 */
+	public void release(Mesh mesh) {
+		Entry<T> entry = byIdentity.get(mesh);
+		if (entry == null) {
+			Logging.log("Released a mesh that isn't in the cache", "Mesh Cache", LoggingLevel.ERR);
+			return;
+		}
+		entry.references--;
+		references--;
+		if (entry.references > 0) {
+			sharedBytes -= entry.bytes;
+			return;
+		}
+		byIdentity.remove(entry.mesh);
+		if (entry.hashed) {
+			ArrayList<Entry<T>> sameHash = byContent.get(entry.contentHash);
+			sameHash.remove(entry);
+			if (sameHash.isEmpty()) {
+				byContent.remove(entry.contentHash);
+			}
+		}
+		if (entry.aliases != null) {
+			for (int i = 0; i < entry.aliases.size(); i++) {
+				byIdentity.remove(entry.aliases.get(i));
+			}
+		}
+		bytes -= entry.bytes;
+		entries--;
+		entry.value.delete();
+	}
+
+	// An entry with the same data, the hash only narrows it down. An entry whose
+	// mesh was changed after upload won't match anymore, which only costs an
+	// extra upload.
+	private Entry<T> findContent(Mesh mesh, int contentHash) {
+		ArrayList<Entry<T>> sameHash = byContent.get(contentHash);
+		if (sameHash == null) {
+			return null;
+		}
+		for (int i = 0; i < sameHash.size(); i++) {
+			if (sameHash.get(i).mesh.equals(mesh)) {
+				return sameHash.get(i);
+			}
+		}
+		return null;
+	}
+
+	private static long byteSize(Mesh mesh) {
+		long size = 0;
+		for (int i = 0; i < mesh.properties.length; i++) {
+			VertexedProperty property = mesh.properties[i];
+			switch (property.dataType) {
+			case BYTE:
+				size += property.byteProp.length;
+				break;
+			case FLOAT:
+				size += property.floatProp.length * 4L;
+				break;
+			case INT:
+				size += property.intProp.length * 4L;
+				break;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Turns matching meshes by their data on or off. Meshes already in the cache
+	 * are only matched by identity until they are uploaded again.
+	 *
+	 * @param contentMatching If meshes with the same data should share.
+	 */
+	public void setContentMatching(boolean contentMatching) {
+		this.contentMatching = contentMatching;
+	}
+
+	/**
+	 * Are meshes matched by their data?
+	 *
+	 * @return True if meshes with the same data share.
+	 * @see #setContentMatching(boolean)
+	 */
+	public boolean isContentMatching() {
+		return contentMatching;
+	}
+
+	/**
+	 * How many acquires found the mesh already uploaded.
+	 *
+	 * @return The amount of hits.
+	 */
+	public int getHits() {
+		return hits;
+	}
+
+	/**
+	 * How many acquires had to upload the mesh.
+	 *
+	 * @return The amount of misses.
+	 */
+	public int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * The amount of meshes currently uploaded.
+	 *
+	 * @return The amount of entries.
+	 */
+	public int getEntryCount() {
+		return entries;
+	}
+
+	/**
+	 * The amount of users of all the meshes in the cache.
+	 *
+	 * @return The amount of references.
+	 */
+	public int getReferenceCount() {
+		return references;
+	}
+
+	/**
+	 * The size of the mesh data currently uploaded, in bytes.
+	 *
+	 * @return The amount of bytes uploaded.
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * How many more bytes would be uploaded if every user had their own copy.
+	 *
+	 * @return The amount of bytes saved by sharing.
+	 */
+	public long getSharedBytes() {
+		return sharedBytes;
+	}
+
+}
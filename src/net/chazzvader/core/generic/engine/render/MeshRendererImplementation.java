@@ -59,10 +59,45 @@ public abstract class MeshRendererImplementation extends EngineItem {
 		return null;
 	}
 
+	/**
+	 * Gets the cache meshes are uploaded through for the current renderer, for
+	 * its hit, miss and memory counters.
+	 * 
+	 * @return The mesh cache, or null if the renderer doesn't have one.
+	 */
+	public static MeshCache<?> getMeshCache() {
+		Renderer renderer = Configuration.getRendererVerifyFinalized();
+		switch (renderer) {
+		case GENERIC:
+			break;
+		case OPEN_GL:
+			return OpenGLMeshRendererImplementation.CACHE;
+		}
+		return null;
+	}
+
+	/**
+	 * The mesh being rendered.
+	 * 
+	 * @return The mesh.
+	 */
+	public Mesh getMesh() {
+		return mesh;
+	}
+
 	/**
 	 * Renders the mesh.<br>
 	 * Implementation depends on renderer.
 	 */
 	public abstract void render();
 
+	/**
+	 * Renders part of the mesh, a run of consecutive indices.<br>
+	 * Implementation depends on renderer.
+	 * 
+	 * @param first The first index to draw.
+	 * @param count The amount of indices to draw, a multiple of 3.
+	 */
+	public abstract void renderRange(int first, int count);
+
 }
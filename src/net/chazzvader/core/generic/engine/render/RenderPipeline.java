@@ -77,6 +77,37 @@ public abstract class RenderPipeline extends EngineItem {
 	 */
 	public abstract Light getRenderingLight();
 
+	/**
+	 * Which shadow casters are drawn into a shadow map.
+	 * @author csbru
+	 * @version 1
+	 * @since 1.0
+	 * @see ShadowCache
+	 */
+	public static enum ShadowCasters {
+		/**
+		 * Every shadow caster.
+		 */
+		ALL,
+		/**
+		 * Only static shadow casters.
+		 */
+		STATIC,
+		/**
+		 * Only shadow casters that aren't static.
+		 */
+		DYNAMIC;
+	}
+
+	/**
+	 * Which shadow casters are drawn into the shadow map being rendered, so
+	 * static ones can be drawn once and kept. Not used during regular rendering.
+	 * @return The shadow casters to draw.
+	 */
+	public ShadowCasters getShadowCasters() {
+		return ShadowCasters.ALL;
+	}
+
 	/**
 	 * Gets the standard 3d render context for this pipeline.
 	 * @return The standard 3d render
@@ -0,0 +1,465 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.Arrays;
+import java.util.WeakHashMap;
+
+import net.chazzvader.core.generic.engine.render.material.Material;
+import net.chazzvader.core.generic.engine.render.material.Shader;
+
+/**
+ * A list of things to draw, each with a 64 bit sort key, that can be sorted so
+ * draws sharing a shader, material and textures end up next to each other and
+ * the binds between them can be skipped.<br>
+ * <br>
+ * Opaque keys are laid out, from the highest bits to the lowest, as pass (2),
+ * shader (14), material (14), texture set (10), depth (24), so opaque draws
+ * are grouped by state and then go front to back inside each group, which lets
+ * the depth test throw away hidden pixels early. Transparent keys are pass (2),
+ * inverted depth (24), shader (14), material (14), texture set (10), so
+ * transparent draws come after every opaque one and go back to front, which
+ * they need to blend properly.<br>
+ * <br>
+ * Shader and material ids come from {@link #shaderId(Shader)} and
+ * {@link #materialId(Material)}, which number them densely per queue instead of
+ * using their item ids, so two different ones only share an id if more than
+ * 16383 of them are drawn in the same frame. Texture set ids that don't fit in
+ * their bits wrap around, which only makes the grouping a little worse.<br>
+ * <br>
+ * Sorting is a least significant digit radix sort, 8 bits at a time, which is
+ * stable and linear in the amount of draws. Digits that are the same for every
+ * key, like the pass when nothing is transparent, are skipped.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ * @param <T> The type of thing being drawn.
+ */
+public class RenderQueue<T> {
+
+	/**
+	 * The pass of opaque draws, drawn first.
+	 */
+	public static final int PASS_OPAQUE = 0;
+	/**
+	 * The pass of transparent draws, drawn after all the opaque ones.
+	 */
+	public static final int PASS_TRANSPARENT = 1;
+
+	/**
+	 * The amount of bits for the shader id.
+	 */
+	public static final int SHADER_BITS = 14;
+	/**
+	 * The amount of bits for the material id.
+	 */
+	public static final int MATERIAL_BITS = 14;
+	/**
+	 * The amount of bits for the texture set id.
+	 */
+	public static final int TEXTURE_BITS = 10;
+	/**
+	 * The amount of bits for the depth.
+	 */
+	public static final int DEPTH_BITS = 24;
+
+	private static final int SHADER_MASK = (1 << SHADER_BITS) - 1;
+	private static final int MATERIAL_MASK = (1 << MATERIAL_BITS) - 1;
+	private static final int TEXTURE_MASK = (1 << TEXTURE_BITS) - 1;
+	private static final int DEPTH_MASK = (1 << DEPTH_BITS) - 1;
+
+	private static final int PASS_SHIFT = 62;
+
+	private static final int OPAQUE_SHADER_SHIFT = MATERIAL_BITS + TEXTURE_BITS + DEPTH_BITS;
+	private static final int OPAQUE_MATERIAL_SHIFT = TEXTURE_BITS + DEPTH_BITS;
+	private static final int OPAQUE_TEXTURE_SHIFT = DEPTH_BITS;
+
+	private static final int TRANSPARENT_DEPTH_SHIFT = SHADER_BITS + MATERIAL_BITS + TEXTURE_BITS;
+	private static final int TRANSPARENT_SHADER_SHIFT = MATERIAL_BITS + TEXTURE_BITS;
+	private static final int TRANSPARENT_MATERIAL_SHIFT = TEXTURE_BITS;
+
+	/**
+	 * Turns a depth into an unsigned 24 bit number that sorts the same way.
+	 * Positive floats sort the same as their bits, so this is just the top of the
+	 * bits, and doesn't need to know how far away things can be. Negative depths,
+	 * things behind the viewer, and NaN count as 0.
+	 *
+	 * @param depth The depth, any increasing measure of distance from the viewer.
+	 * @return The depth as a 24 bit number.
+	 */
+	public static int depthBits(float depth) {
+		if (!(depth > 0)) {
+			return 0;
+		}
+		return Float.floatToRawIntBits(depth) >>> (31 - DEPTH_BITS);
+	}
+
+	/**
+	 * Makes a key for an opaque draw.
+	 *
+	 * @param shader   The shader id, from {@link #shaderId(Shader)}.
+	 * @param material The material id, from {@link #materialId(Material)}.
+	 * @param textures The texture set id.
+	 * @param depth    The depth, any increasing measure of distance from the
+	 *                 viewer.
+	 * @return The key.
+	 */
+	public static long opaqueKey(int shader, int material, int textures, float depth) {
+		return ((long) PASS_OPAQUE << PASS_SHIFT) | ((long) (shader & SHADER_MASK) << OPAQUE_SHADER_SHIFT)
+				| ((long) (material & MATERIAL_MASK) << OPAQUE_MATERIAL_SHIFT)
+				| ((long) (textures & TEXTURE_MASK) << OPAQUE_TEXTURE_SHIFT) | depthBits(depth);
+	}
+
+	/**
+	 * Makes a key for a transparent draw. These sort after every opaque key,
+	 * furthest first.
+	 *
+	 * @param shader   The shader id, from {@link #shaderId(Shader)}.
+	 * @param material The material id, from {@link #materialId(Material)}.
+	 * @param textures The texture set id.
+	 * @param depth    The depth, any increasing measure of distance from the
+	 *                 viewer.
+	 * @return The key.
+	 */
+	public static long transparentKey(int shader, int material, int textures, float depth) {
+		return ((long) PASS_TRANSPARENT << PASS_SHIFT)
+				| ((long) (DEPTH_MASK - depthBits(depth)) << TRANSPARENT_DEPTH_SHIFT)
+				| ((long) (shader & SHADER_MASK) << TRANSPARENT_SHADER_SHIFT)
+				| ((long) (material & MATERIAL_MASK) << TRANSPARENT_MATERIAL_SHIFT) | (textures & TEXTURE_MASK);
+	}
+
+	/**
+	 * Gets the pass out of a key.
+	 *
+	 * @param key The key.
+	 * @return The pass.
+	 */
+	public static int passOf(long key) {
+		return (int) (key >>> PASS_SHIFT);
+	}
+
+	/**
+	 * Gets the shader id out of a key, as stored in the key.
+	 *
+	 * @param key The key.
+	 * @return The shader id.
+	 */
+	public static int shaderOf(long key) {
+		int shift = passOf(key) == PASS_OPAQUE ? OPAQUE_SHADER_SHIFT : TRANSPARENT_SHADER_SHIFT;
+		return (int) (key >>> shift) & SHADER_MASK;
+	}
+
+	/**
+	 * Gets the material id out of a key, as stored in the key.
+	 *
+	 * @param key The key.
+	 * @return The material id.
+	 */
+	public static int materialOf(long key) {
+		int shift = passOf(key) == PASS_OPAQUE ? OPAQUE_MATERIAL_SHIFT : TRANSPARENT_MATERIAL_SHIFT;
+		return (int) (key >>> shift) & MATERIAL_MASK;
+	}
+
+	/**
+	 * Gets the texture set id out of a key, as stored in the key.
+	 *
+	 * @param key The key.
+	 * @return The texture set id.
+	 */
+	public static int texturesOf(long key) {
+		int shift = passOf(key) == PASS_OPAQUE ? OPAQUE_TEXTURE_SHIFT : 0;
+		return (int) (key >>> shift) & TEXTURE_MASK;
+	}
+
+	private long[] keys;
+	private Object[] items;
+	private long[] scratchKeys;
+	private Object[] scratchItems;
+	private int size = 0;
+	private final int[] counts = new int[8 * 256];
+
+	private final WeakHashMap<Shader, Integer> shaderIds = new WeakHashMap<>();
+	private final WeakHashMap<Material, Integer> materialIds = new WeakHashMap<>();
+	private int nextShaderId = 1, nextMaterialId = 1;
+
+	private int shaderChanges, materialChanges, textureChanges;
+	private int unsortedShaderChanges, unsortedMaterialChanges, unsortedTextureChanges;
+
+	/**
+	 * Creates an empty queue.
+	 */
+	public RenderQueue() {
+		this(64);
+	}
+
+	/**
+	 * Creates an empty queue with room for some draws before it has to grow.
+	 *
+	 * @param capacity The starting capacity.
+	 */
+	public RenderQueue(int capacity) {
+		capacity = Math.max(capacity, 1);
+		keys = new long[capacity];
+		items = new Object[capacity];
+		scratchKeys = new long[capacity];
+		scratchItems = new Object[capacity];
+	}
+
+	/**
+	 * Gets the id of a shader for the keys of this queue. Every shader gets its own
+	 * id the first time it is seen, counting up from 1.
+	 *
+	 * @param shader The shader, may be null.
+	 * @return The id of the shader, 0 for null.
+	 */
+	public int shaderId(Shader shader) {
+		if (shader == null) {
+			return 0;
+		}
+		Integer id = shaderIds.get(shader);
+		if (id == null) {
+			id = nextShaderId++;
+			shaderIds.put(shader, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Gets the id of a material for the keys of this queue. Every material gets its
+	 * own id the first time it is seen, counting up from 1.
+	 *
+	 * @param material The material, may be null.
+	 * @return The id of the material, 0 for null.
+	 */
+	public int materialId(Material material) {
+		if (material == null) {
+			return 0;
+		}
+		Integer id = materialIds.get(material);
+		if (id == null) {
+			id = nextMaterialId++;
+			materialIds.put(material, id);
+		}
+		return id;
+	}
+
+	/**
+	 * Adds a draw to the end of the queue.
+	 *
+	 * @param key  The sort key, from {@link #opaqueKey(int, int, int, float)} or
+	 *             {@link #transparentKey(int, int, int, float)}.
+	 * @param item The thing to draw.
+	 */
+	public void add(long key, T item) {
+		if (size == keys.length) {
+			int capacity = size * 2;
+			long[] newKeys = new long[capacity];
+			Object[] newItems = new Object[capacity];
+			System.arraycopy(keys, 0, newKeys, 0, size);
+			System.arraycopy(items, 0, newItems, 0, size);
+			keys = newKeys;
+			items = newItems;
+			scratchKeys = new long[capacity];
+			scratchItems = new Object[capacity];
+		}
+		keys[size] = key;
+		items[size] = item;
+		size++;
+	}
+
+	/**
+	 * Sorts the queue by key. Draws with the same key stay in the order they were
+	 * added. Also counts how many state changes drawing in order would cost
+	 * before and after sorting.
+	 */
+	public void sort() {
+		unsortedShaderChanges = countShaderChanges();
+		unsortedMaterialChanges = countMaterialChanges();
+		unsortedTextureChanges = countTextureChanges();
+
+		int n = size;
+		if (n > 1) {
+			int[] counts = this.counts;
+			Arrays.fill(counts, 0);
+			long[] keys = this.keys;
+			for (int i = 0; i < n; i++) {
+				long key = keys[i];
+				for (int digit = 0; digit < 8; digit++) {
+					counts[(digit << 8) | (int) ((key >>> (digit << 3)) & 0xFF)]++;
+				}
+			}
+			for (int digit = 0; digit < 8; digit++) {
+				int base = digit << 8;
+				if (counts[base | (int) ((keys[0] >>> (digit << 3)) & 0xFF)] == n) {
+					continue;
+				}
+				int total = 0;
+				for (int i = 0; i < 256; i++) {
+					int count = counts[base + i];
+					counts[base + i] = total;
+					total += count;
+				}
+				int shift = digit << 3;
+				long[] fromKeys = this.keys, toKeys = this.scratchKeys;
+				Object[] fromItems = this.items, toItems = this.scratchItems;
+				for (int i = 0; i < n; i++) {
+					long key = fromKeys[i];
+					int to = counts[base + (int) ((key >>> shift) & 0xFF)]++;
+					toKeys[to] = key;
+					toItems[to] = fromItems[i];
+				}
+				this.keys = toKeys;
+				this.scratchKeys = fromKeys;
+				this.items = toItems;
+				this.scratchItems = fromItems;
+				keys = toKeys;
+			}
+		}
+
+		shaderChanges = countShaderChanges();
+		materialChanges = countMaterialChanges();
+		textureChanges = countTextureChanges();
+	}
+
+	private int countShaderChanges() {
+		int changes = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || shaderOf(keys[i]) != shaderOf(keys[i - 1])) {
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	private int countMaterialChanges() {
+		int changes = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || shaderOf(keys[i]) != shaderOf(keys[i - 1])
+					|| materialOf(keys[i]) != materialOf(keys[i - 1])) {
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	private int countTextureChanges() {
+		int changes = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || texturesOf(keys[i]) != texturesOf(keys[i - 1])) {
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+	/**
+	 * Empties the queue, keeping its memory for the next frame. If the shader or
+	 * material ids have run out, they are handed out again from 1.
+	 */
+	public void clear() {
+		Arrays.fill(items, 0, size, null);
+		Arrays.fill(scratchItems, 0, size, null);
+		size = 0;
+		// Numbers again once the ids run out, between frames so no keys are mixed
+		if (nextShaderId > SHADER_MASK) {
+			shaderIds.clear();
+			nextShaderId = 1;
+		}
+		if (nextMaterialId > MATERIAL_MASK) {
+			materialIds.clear();
+			nextMaterialId = 1;
+		}
+	}
+
+	/**
+	 * The amount of draws in the queue.
+	 *
+	 * @return The size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets a draw.
+	 *
+	 * @param index The index of the draw, in sorted order after
+	 *              {@link #sort()}.
+	 * @return The thing to draw.
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int index) {
+		return (T) items[index];
+	}
+
+	/**
+	 * Gets the key of a draw.
+	 *
+	 * @param index The index of the draw, in sorted order after
+	 *              {@link #sort()}.
+	 * @return The key.
+	 */
+	public long getKey(int index) {
+		return keys[index];
+	}
+
+	/**
+	 * How many times the shader changes when drawing the queue in order, as of
+	 * the last sort.
+	 *
+	 * @return The amount of shader changes.
+	 */
+	public int getShaderChanges() {
+		return shaderChanges;
+	}
+
+	/**
+	 * How many shader changes sorting saved compared to drawing in the order
+	 * things were added, as of the last sort.
+	 *
+	 * @return The amount of shader binds saved.
+	 */
+	public int getShaderChangesSaved() {
+		return unsortedShaderChanges - shaderChanges;
+	}
+
+	/**
+	 * How many times the material changes when drawing the queue in order, as
+	 * of the last sort.
+	 *
+	 * @return The amount of material changes.
+	 */
+	public int getMaterialChanges() {
+		return materialChanges;
+	}
+
+	/**
+	 * How many material changes sorting saved compared to drawing in the order
+	 * things were added, as of the last sort.
+	 *
+	 * @return The amount of material binds saved.
+	 */
+	public int getMaterialChangesSaved() {
+		return unsortedMaterialChanges - materialChanges;
+	}
+
+	/**
+	 * How many times the texture set changes when drawing the queue in order, as
+	 * of the last sort.
+	 *
+	 * @return The amount of texture set changes.
+	 */
+	public int getTextureChanges() {
+		return textureChanges;
+	}
+
+	/**
+	 * How many texture set changes sorting saved compared to drawing in the order
+	 * things were added, as of the last sort.
+	 *
+	 * @return The amount of texture set binds saved.
+	 */
+	public int getTextureChangesSaved() {
+		return unsortedTextureChanges - textureChanges;
+	}
+
+}
@@ -0,0 +1,581 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.engine.object.Camera;
+import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.math.Matrix4f;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Packs the shadow maps of point lights into shared square pages, so the
+ * memory used for shadows depends on how important the lights are on screen,
+ * not on how many there are.<br>
+ * <br>
+ * Every light gets a tile size from its importance, see
+ * {@link #importance(Camera, Light)}: the maximum tile size times the
+ * importance, rounded up to a power of 2 and kept between the minimum and
+ * maximum tile size. A light with an importance of 0 gets no tiles, and has no
+ * shadow. The 6 faces of a light get a tile each, all in the same page.<br>
+ * <br>
+ * Pages are split into tiles like a quadtree: a free square can be split into
+ * 4 squares of half the size, and 4 free squares next to each other are joined
+ * back together. Tiles are put in the smallest free square they fit in, so big
+ * squares are kept free for big tiles. Lights keep their tiles until their size
+ * changes, and a size only changes once the importance has moved a good way past
+ * the size, see {@link #HYSTERESIS}, so tiles don't move around every frame.
+ * <br>
+ * <br>
+ * When there isn't room for everything, more important lights go first, and
+ * get smaller tiles, or no tiles, if there isn't room for the size they want.
+ * If a light ends up with a smaller tile than a less important light, all the
+ * lights are packed again from scratch, most important first.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class ShadowAtlas {
+
+	/**
+	 * How far past its current tile size the ideal size of a light has to go
+	 * before it gets a new size, as a fraction of the size.
+	 */
+	public static final float HYSTERESIS = 0.25f;
+
+	/**
+	 * The amount of tiles a light gets, 1 for each face of a cube.
+	 */
+	public static final int FACES = 6;
+
+	private static final byte FREE = 0, USED = 1, SPLIT = 2;
+
+	private final int pageSize, maxPages, maxTile, minTile;
+	private final int nodesPerPage;
+	private final byte[] nodes;
+
+	private int count = 0;
+	private int pageCount = 0;
+	private int[] sizes = new int[0];
+	private int[] pages = new int[0];
+	private int[] tiles = new int[0];
+	private int[] desired = new int[0];
+	private float[] importances = new float[0];
+	private boolean[] moved = new boolean[0];
+	private int[] order = new int[0];
+	private int[] blockedSizes = new int[0];
+	private int[] blockedAt = new int[0];
+	private int releases = 0;
+	private final int[] placed = new int[FACES];
+
+	private int bestNode, bestLevel;
+	private int repacks = 0;
+
+	/**
+	 * Creates an empty atlas.
+	 *
+	 * @param pageSize The width and height of a page in texels.
+	 * @param maxPages The most pages that can be used.
+	 * @param maxTile  The biggest tile size.
+	 * @param minTile  The smallest tile size.
+	 * @see #check(int, int, int, int)
+	 */
+	public ShadowAtlas(int pageSize, int maxPages, int maxTile, int minTile) {
+		check(pageSize, maxPages, maxTile, minTile);
+		this.pageSize = pageSize;
+		this.maxPages = maxPages;
+		this.maxTile = maxTile;
+		this.minTile = minTile;
+		int levels = level(minTile);
+		this.nodesPerPage = first(levels + 1);
+		this.nodes = new byte[nodesPerPage * maxPages];
+	}
+
+	/**
+	 * Makes sure the sizes can be used for an atlas. All the sizes have to be
+	 * powers of 2, and the biggest tile at most a quarter of the page size, so the
+	 * 6 faces of a light fit in one page.
+	 *
+	 * @param pageSize The width and height of a page in texels.
+	 * @param maxPages The most pages that can be used.
+	 * @param maxTile  The biggest tile size.
+	 * @param minTile  The smallest tile size.
+	 * @throws IllegalArgumentException If the sizes can't be used.
+	 */
+	public static void check(int pageSize, int maxPages, int maxTile, int minTile) {
+		if (Integer.bitCount(pageSize) != 1 || Integer.bitCount(maxTile) != 1 || Integer.bitCount(minTile) != 1) {
+			throw new IllegalArgumentException("Shadow atlas sizes have to be powers of 2");
+		}
+		if (maxPages < 1) {
+			throw new IllegalArgumentException("A shadow atlas needs at least one page");
+		}
+		if (minTile > maxTile || maxTile > pageSize / 4) {
+			throw new IllegalArgumentException(
+					"Shadow tiles have to be at most a quarter of the page size, and the smallest at most the biggest");
+		}
+	}
+
+	/**
+	 * How important a light's shadow is to a camera, from 0 to 1. This is how
+	 * much of the height of the screen the range of the light covers, so it goes
+	 * down as the light gets further away, and is 1 if the camera is inside the
+	 * range. It is 0 if the range is completely off screen, since the light
+	 * can't light anything the camera sees.
+	 *
+	 * @param camera The camera.
+	 * @param light  The light, with its range from {@link Light#range()}.
+	 * @return The importance.
+	 */
+	public static float importance(Camera camera, Light light) {
+		Vector3f pos = light.pos();
+		float range = light.range();
+		if (!camera.getFrustum().intersectsSphere(pos.x, pos.y, pos.z, range)) {
+			return 0;
+		}
+		Matrix4f projection = camera.getProjectionMatrix();
+		if (projection.v32 != -1 || projection.v33 != 0) {
+			// Not a perspective projection, the size on screen doesn't depend on distance
+			return Math.min(1, Math.abs(projection.v11) * range);
+		}
+		Vector3f eye = camera.pos();
+		float dx = pos.x - eye.x, dy = pos.y - eye.y, dz = pos.z - eye.z;
+		float distanceSquared = dx * dx + dy * dy + dz * dz;
+		if (distanceSquared <= range * range) {
+			return 1;
+		}
+		return Math.min(1, projection.v11 * range / (float) Math.sqrt(distanceSquared - range * range));
+	}
+
+	/**
+	 * Works out the tile size of every light from its importance, and moves,
+	 * adds and removes tiles to match. Lights are numbered by their place in the
+	 * array, and lights past the amount are removed.
+	 *
+	 * @param importance The importance of each light, from 0 to 1.
+	 * @param count      The amount of lights.
+	 */
+	public void update(float[] importance, int count) {
+		ensureLights(count);
+		Arrays.fill(moved, false);
+		for (int i = count; i < this.count; i++) {
+			release(i);
+		}
+		if (count != this.count) {
+			for (int i = 0; i < count; i++) {
+				order[i] = i;
+			}
+			this.count = count;
+		}
+		for (int i = 0; i < count; i++) {
+			// Also turns NaN into 0
+			importances[i] = importance[i] > 0 ? Math.min(importance[i], 1) : 0;
+		}
+		sort();
+		// Shrinking first, to make room
+		for (int i = 0; i < count; i++) {
+			desired[i] = size(importances[i], sizes[i]);
+			if (desired[i] < sizes[i]) {
+				release(i);
+			}
+		}
+		for (int k = 0; k < count; k++) {
+			int light = order[k];
+			// Lights that didn't fit aren't tried again until something is freed
+			boolean blocked = blockedSizes[light] == desired[light] && blockedAt[light] == releases;
+			if (desired[light] > sizes[light] && !blocked) {
+				grow(light);
+			}
+		}
+		if (inverted()) {
+			repack();
+		}
+		pageCount = 0;
+		for (int i = 0; i < count; i++) {
+			if (sizes[i] > 0) {
+				pageCount = Math.max(pageCount, pages[i] + 1);
+			}
+		}
+	}
+
+	// The tile size for an importance, keeping the current size if it is close
+	private int size(float importance, int current) {
+		if (importance <= 0) {
+			return 0;
+		}
+		float ideal = importance * maxTile;
+		if (current > 0 && ideal > current * 0.5f * (1 - HYSTERESIS) && ideal <= current * (1 + HYSTERESIS)) {
+			return current;
+		}
+		int size = minTile;
+		while (size < ideal && size < maxTile) {
+			size <<= 1;
+		}
+		return size;
+	}
+
+	// Insertion sort by importance, most important first. The order of the last
+	// update is kept, so it is close to sorted already.
+	private void sort() {
+		for (int i = 1; i < count; i++) {
+			int light = order[i];
+			float value = importances[light];
+			int j = i - 1;
+			while (j >= 0 && importances[order[j]] < value) {
+				order[j + 1] = order[j];
+				j--;
+			}
+			order[j + 1] = light;
+		}
+	}
+
+	// Gives a light the biggest tiles it can get up to the size it wants, keeping
+	// its tiles if nothing bigger fits
+	private void grow(int light) {
+		int current = sizes[light];
+		for (int size = desired[light]; size > current && size >= minTile; size >>= 1) {
+			int page = place(size);
+			if (page != -1) {
+				release(light);
+				take(light, size, page);
+				return;
+			}
+		}
+		if (current > 0) {
+			// Its own tiles may be in the way
+			int page = pages[light];
+			boolean wasMoved = moved[light];
+			int released = releases;
+			release(light);
+			for (int size = desired[light]; size > current; size >>= 1) {
+				int newPage = place(size);
+				if (newPage != -1) {
+					take(light, size, newPage);
+					return;
+				}
+			}
+			// Put back exactly where it was, so it doesn't have to be drawn again
+			int level = level(current);
+			for (int f = 0; f < FACES; f++) {
+				claim(page, level, tiles[light * FACES + f]);
+			}
+			sizes[light] = current;
+			moved[light] = wasMoved;
+			// Nothing was freed in the end
+			releases = released;
+		}
+		blockedSizes[light] = desired[light];
+		blockedAt[light] = releases;
+	}
+
+	// A light wanting more than it got, while a less important light got more
+	private boolean inverted() {
+		int lessImportant = 0;
+		for (int k = count - 1; k >= 0; k--) {
+			int light = order[k];
+			if (sizes[light] < desired[light] && lessImportant > sizes[light]) {
+				return true;
+			}
+			lessImportant = Math.max(lessImportant, sizes[light]);
+		}
+		return false;
+	}
+
+	private void repack() {
+		repacks++;
+		int[] oldSizes = Arrays.copyOf(sizes, count);
+		int[] oldPages = Arrays.copyOf(pages, count);
+		int[] oldTiles = Arrays.copyOf(tiles, count * FACES);
+		for (int i = 0; i < count; i++) {
+			release(i);
+		}
+		for (int k = 0; k < count; k++) {
+			int light = order[k];
+			for (int size = desired[light]; size >= minTile; size >>= 1) {
+				int page = place(size);
+				if (page != -1) {
+					take(light, size, page);
+					break;
+				}
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			blockedSizes[i] = sizes[i] < desired[i] ? desired[i] : 0;
+			blockedAt[i] = releases;
+		}
+		for (int i = 0; i < count; i++) {
+			moved[i] = sizes[i] != oldSizes[i] || pages[i] != oldPages[i];
+			for (int f = 0; f < FACES && !moved[i]; f++) {
+				moved[i] = tiles[i * FACES + f] != oldTiles[i * FACES + f];
+			}
+		}
+	}
+
+	// Finds 6 tiles of a size in the first page they fit in, and puts them in
+	// placed. Returns the page, or -1 if they don't fit anywhere.
+	private int place(int size) {
+		int level = level(size);
+		for (int page = 0; page < maxPages; page++) {
+			int f = 0;
+			while (f < FACES && (placed[f] = allocate(page, level)) != -1) {
+				f++;
+			}
+			if (f == FACES) {
+				return page;
+			}
+			while (f-- > 0) {
+				free(page, level, placed[f]);
+			}
+		}
+		return -1;
+	}
+
+	private void take(int light, int size, int page) {
+		sizes[light] = size;
+		pages[light] = page;
+		System.arraycopy(placed, 0, tiles, light * FACES, FACES);
+		moved[light] = true;
+	}
+
+	private void release(int light) {
+		if (sizes[light] == 0) {
+			return;
+		}
+		int level = level(sizes[light]);
+		for (int f = 0; f < FACES; f++) {
+			free(pages[light], level, tiles[light * FACES + f]);
+		}
+		sizes[light] = 0;
+		moved[light] = true;
+		releases++;
+	}
+
+	// Takes a tile at a level of a page, returns its index in the level or -1
+	private int allocate(int page, int level) {
+		bestNode = -1;
+		bestLevel = -1;
+		find(page * nodesPerPage, 0, 0, level);
+		if (bestNode == -1) {
+			return -1;
+		}
+		int base = page * nodesPerPage;
+		int l = bestLevel, node = bestNode;
+		while (l < level) {
+			nodes[base + first(l) + node] = SPLIT;
+			node *= 4;
+			l++;
+		}
+		nodes[base + first(level) + node] = USED;
+		return node;
+	}
+
+	// Takes a tile at a known place, splitting the squares above it
+	private void claim(int page, int level, int node) {
+		int base = page * nodesPerPage;
+		for (int l = 0; l < level; l++) {
+			int above = base + first(l) + (node >> (2 * (level - l)));
+			if (nodes[above] == FREE) {
+				nodes[above] = SPLIT;
+			}
+		}
+		nodes[base + first(level) + node] = USED;
+	}
+
+	// Looks for the smallest free square at or above a level, going through split
+	// squares, and stops early at one that is exactly the right size
+	private void find(int base, int l, int node, int level) {
+		byte state = nodes[base + first(l) + node];
+		if (state == USED) {
+			return;
+		}
+		if (state == FREE) {
+			if (l > bestLevel) {
+				bestLevel = l;
+				bestNode = node;
+			}
+			return;
+		}
+		if (l == level) {
+			return;
+		}
+		for (int c = 0; c < 4 && bestLevel != level; c++) {
+			find(base, l + 1, node * 4 + c, level);
+		}
+	}
+
+	// Frees a tile, and joins it with its neighbours while all 4 are free
+	private void free(int page, int level, int node) {
+		int base = page * nodesPerPage;
+		nodes[base + first(level) + node] = FREE;
+		while (level > 0) {
+			int children = base + first(level) + (node & ~3);
+			if (nodes[children] != FREE || nodes[children + 1] != FREE || nodes[children + 2] != FREE
+					|| nodes[children + 3] != FREE) {
+				break;
+			}
+			level--;
+			node >>= 2;
+			nodes[base + first(level) + node] = FREE;
+		}
+	}
+
+	// The level of the quadtree tiles of a size are at, the page is level 0
+	private int level(int size) {
+		return Integer.numberOfTrailingZeros(pageSize) - Integer.numberOfTrailingZeros(size);
+	}
+
+	// The index of the first node of a level, every level has 4 times as many
+	private static int first(int level) {
+		return ((1 << (level * 2)) - 1) / 3;
+	}
+
+	// Every other bit, used to turn an index in a level into x and y
+	private static int compact(int value) {
+		value &= 0x55555555;
+		value = (value | (value >>> 1)) & 0x33333333;
+		value = (value | (value >>> 2)) & 0x0F0F0F0F;
+		value = (value | (value >>> 4)) & 0x00FF00FF;
+		value = (value | (value >>> 8)) & 0x0000FFFF;
+		return value;
+	}
+
+	private void ensureLights(int count) {
+		if (sizes.length >= count) {
+			return;
+		}
+		int capacity = Math.max(count, sizes.length * 2);
+		sizes = Arrays.copyOf(sizes, capacity);
+		pages = Arrays.copyOf(pages, capacity);
+		tiles = Arrays.copyOf(tiles, capacity * FACES);
+		desired = Arrays.copyOf(desired, capacity);
+		importances = Arrays.copyOf(importances, capacity);
+		moved = Arrays.copyOf(moved, capacity);
+		order = Arrays.copyOf(order, capacity);
+		blockedSizes = Arrays.copyOf(blockedSizes, capacity);
+		blockedAt = Arrays.copyOf(blockedAt, capacity);
+	}
+
+	/**
+	 * The tile size of a light.
+	 *
+	 * @param light The light.
+	 * @return The width and height of each of its tiles in texels, 0 if it has no
+	 *         tiles.
+	 */
+	public int getTileSize(int light) {
+		return light < count ? sizes[light] : 0;
+	}
+
+	/**
+	 * The page the tiles of a light are in.
+	 *
+	 * @param light The light.
+	 * @return The page, only useful if the light has tiles.
+	 */
+	public int getPage(int light) {
+		return pages[light];
+	}
+
+	/**
+	 * The x position of the tile of one face of a light in its page.
+	 *
+	 * @param light The light.
+	 * @param face  The face, in the order of the cube map layers: +x, -x, +y, -y,
+	 *              +z, -z.
+	 * @return The x position in texels.
+	 */
+	public int getTileX(int light, int face) {
+		return compact(tiles[light * FACES + face]) * sizes[light];
+	}
+
+	/**
+	 * The y position of the tile of one face of a light in its page.
+	 *
+	 * @param light The light.
+	 * @param face  The face, in the order of the cube map layers: +x, -x, +y, -y,
+	 *              +z, -z.
+	 * @return The y position in texels.
+	 */
+	public int getTileY(int light, int face) {
+		return compact(tiles[light * FACES + face] >>> 1) * sizes[light];
+	}
+
+	/**
+	 * Whether the tiles of a light were moved, added or removed by the last
+	 * update, so its shadow has to be drawn again.
+	 *
+	 * @param light The light.
+	 * @return True if the tiles changed.
+	 */
+	public boolean hasMoved(int light) {
+		return light < count && moved[light];
+	}
+
+	/**
+	 * The amount of pages needed for the tiles, one more than the last page with
+	 * tiles in it.
+	 *
+	 * @return The amount of pages used.
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * The area of all the tiles.
+	 *
+	 * @return The area in texels.
+	 */
+	public long getUsedArea() {
+		long area = 0;
+		for (int i = 0; i < count; i++) {
+			area += (long) sizes[i] * sizes[i] * FACES;
+		}
+		return area;
+	}
+
+	/**
+	 * The amount of times all the lights were packed again from scratch.
+	 *
+	 * @return The amount of times.
+	 */
+	public int getRepackCount() {
+		return repacks;
+	}
+
+	/**
+	 * The width and height of a page.
+	 *
+	 * @return The size in texels.
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * The most pages that can be used.
+	 *
+	 * @return The amount of pages.
+	 */
+	public int getMaxPages() {
+		return maxPages;
+	}
+
+	/**
+	 * The biggest tile size.
+	 *
+	 * @return The size in texels.
+	 */
+	public int getMaxTile() {
+		return maxTile;
+	}
+
+	/**
+	 * The smallest tile size.
+	 *
+	 * @return The size in texels.
+	 */
+	public int getMinTile() {
+		return minTile;
+	}
+
+}
@@ -0,0 +1,249 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.engine.BoundingVolumeHierarchy;
+import net.chazzvader.core.generic.engine.Scene;
+import net.chazzvader.core.generic.engine.object.EngineObject;
+import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Works out which shadow maps need to be drawn again. Each shadow map slot
+ * remembers the light it was drawn for, where the light was, and a fingerprint
+ * of the shadow casters in its range: which objects they were and the version
+ * of their transforms. A map is only drawn again when one of those changed, so
+ * when the light moves, or a caster in its range moves, appears or
+ * disappears.<br>
+ * <br>
+ * Static casters, see {@link EngineObject#isStatic()}, get their own
+ * fingerprint, so when only dynamic casters changed the pipeline can keep a
+ * copy of the static casters' shadows and only draw the dynamic ones over it.
+ * <br>
+ * <br>
+ * Casters are found the same way the shadow pass finds them: active objects in
+ * the 3d context, in range of the light going by the scene's spatial index if
+ * culling is on, and objects without bounds always. Changes to what an object
+ * draws that don't change its transform, like a new mesh, aren't noticed, call
+ * {@link #invalidate(int)} for those.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class ShadowCache {
+
+	/**
+	 * What has to be drawn into a shadow map.
+	 *
+	 * @author csbru
+	 * @since 1.0
+	 * @version 1
+	 */
+	public enum Update {
+		/**
+		 * Nothing changed, the map can be used as it is.
+		 */
+		NONE,
+		/**
+		 * Only dynamic casters changed, the static ones can be kept.
+		 */
+		DYNAMIC,
+		/**
+		 * Everything has to be drawn again.
+		 */
+		ALL
+	}
+
+	private Light[] lights = new Light[0];
+	private float[] lightStates = new float[0];
+	private long[] staticHashes = new long[0];
+	private long[] dynamicHashes = new long[0];
+	private int[] staticCounts = new int[0];
+
+	private RenderContext hashContext;
+	private long staticHash, dynamicHash;
+	private int staticCount;
+	private final BoundingVolumeHierarchy.Visitor<EngineObject> hashInRange = (object, handle) -> {
+		hashCaster(object);
+		return true;
+	};
+
+	private int rendered = 0, partial = 0, skipped = 0;
+
+	/**
+	 * Works out what has to be drawn into a shadow map, and remembers the current
+	 * state as drawn. The scene's spatial index should be up to date.
+	 *
+	 * @param slot    The shadow map.
+	 * @param light   The light the map is for.
+	 * @param scene   The scene.
+	 * @param context The render context shadow casters are drawn with.
+	 * @return What has to be drawn.
+	 * @see Scene#updateSpatialIndex()
+	 */
+	public Update check(int slot, Light light, Scene scene, RenderContext context) {
+		ensureSlots(slot + 1);
+		hashCasters(light, scene, context);
+		Vector3f pos = light.pos();
+		float range = light.range();
+		int s = slot * 4;
+		Update update;
+		if (lights[slot] != light || lightStates[s] != pos.x || lightStates[s + 1] != pos.y
+				|| lightStates[s + 2] != pos.z || lightStates[s + 3] != range || staticHashes[slot] != staticHash) {
+			update = Update.ALL;
+		} else if (dynamicHashes[slot] != dynamicHash) {
+			update = Update.DYNAMIC;
+		} else {
+			update = Update.NONE;
+		}
+		lights[slot] = light;
+		lightStates[s] = pos.x;
+		lightStates[s + 1] = pos.y;
+		lightStates[s + 2] = pos.z;
+		lightStates[s + 3] = range;
+		staticHashes[slot] = staticHash;
+		dynamicHashes[slot] = dynamicHash;
+		staticCounts[slot] = staticCount;
+		switch (update) {
+		case NONE:
+			skipped++;
+			break;
+		case DYNAMIC:
+			partial++;
+			rendered++;
+			break;
+		default:
+			rendered++;
+			break;
+		}
+		return update;
+	}
+
+	/*
+	 * Casters are combined by adding up a hash of each one, so the order the
+	 * spatial index visits them in doesn't matter and only the objects in range
+	 * of the light are touched.
+	 */
+	private void hashCasters(Light light, Scene scene, RenderContext context) {
+		hashContext = context;
+		staticHash = 0;
+		dynamicHash = 0;
+		staticCount = 0;
+		if (scene.isFrustumCulling()) {
+			Vector3f pos = light.pos();
+			scene.getSpatialIndex().querySphere(pos.x, pos.y, pos.z, light.range(), hashInRange);
+			ArrayList<EngineObject> unbounded = scene.getUnboundedObjects();
+			for (int i = 0; i < unbounded.size(); i++) {
+				hashCaster(unbounded.get(i));
+			}
+		} else {
+			ArrayList<EngineObject> objects = scene.getObjects();
+			for (int i = 0; i < objects.size(); i++) {
+				hashCaster(objects.get(i));
+			}
+		}
+		hashContext = null;
+	}
+
+	private void hashCaster(EngineObject object) {
+		if (!object.isActive() || object.getRenderContext() != hashContext) {
+			return;
+		}
+		long hash = mix(mix(0x2545F4914F6CDD1DL, object.getItemId()), object.getTransformVersion());
+		if (object.isStatic()) {
+			staticHash += hash;
+			staticCount++;
+		} else {
+			dynamicHash += hash;
+		}
+	}
+
+	private static long mix(long hash, int value) {
+		hash = (hash ^ value) * 0x9E3779B97F4A7C15L;
+		return hash ^ (hash >>> 32);
+	}
+
+	private void ensureSlots(int slots) {
+		if (lights.length >= slots) {
+			return;
+		}
+		lights = Arrays.copyOf(lights, slots);
+		lightStates = Arrays.copyOf(lightStates, slots * 4);
+		staticHashes = Arrays.copyOf(staticHashes, slots);
+		dynamicHashes = Arrays.copyOf(dynamicHashes, slots);
+		staticCounts = Arrays.copyOf(staticCounts, slots);
+	}
+
+	/**
+	 * Makes a shadow map be drawn again completely the next time it is checked.
+	 *
+	 * @param slot The shadow map.
+	 */
+	public void invalidate(int slot) {
+		if (slot < lights.length) {
+			lights[slot] = null;
+		}
+	}
+
+	/**
+	 * Makes every shadow map be drawn again completely the next time they are
+	 * checked. Used when the maps themselves are made again.
+	 */
+	public void invalidateAll() {
+		Arrays.fill(lights, null);
+	}
+
+	/**
+	 * Whether there were static casters in range of the light of a shadow map
+	 * when it was last checked.
+	 *
+	 * @param slot The shadow map.
+	 * @return True if there were static casters.
+	 */
+	public boolean hasStaticCasters(int slot) {
+		return slot < staticCounts.length && staticCounts[slot] > 0;
+	}
+
+	/**
+	 * Resets the counters, call before checking the maps of a frame.
+	 */
+	public void beginFrame() {
+		rendered = 0;
+		partial = 0;
+		skipped = 0;
+	}
+
+	/**
+	 * The amount of shadow maps drawn since {@link #beginFrame()}, so in the last
+	 * frame once it is done, including the ones where only dynamic casters were
+	 * drawn.
+	 *
+	 * @return The amount of shadow maps drawn.
+	 */
+	public int getRenderedCount() {
+		return rendered;
+	}
+
+	/**
+	 * The amount of shadow maps where only dynamic casters were drawn since
+	 * {@link #beginFrame()}.
+	 *
+	 * @return The amount of shadow maps partly drawn.
+	 */
+	public int getPartialCount() {
+		return partial;
+	}
+
+	/**
+	 * The amount of shadow maps that didn't need to be drawn since
+	 * {@link #beginFrame()}.
+	 *
+	 * @return The amount of shadow maps skipped.
+	 */
+	public int getSkippedCount() {
+		return skipped;
+	}
+
+}
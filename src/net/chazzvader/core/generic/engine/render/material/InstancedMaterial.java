@@ -0,0 +1,39 @@
+package net.chazzvader.core.generic.engine.render.material;
+
+import net.chazzvader.core.generic.engine.object.EngineObject;
+
+/**
+ * A material that can also be bound for drawing many instances of an object at
+ * once, with the world matrices coming from the instance data. Extend this
+ * instead of {@link Material} to opt in to instancing.
+ * 
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public abstract class InstancedMaterial extends Material {
+
+	/**
+	 * Basic instanced material constructor
+	 * 
+	 * @param transparentShadow If this material should be transparent in the shadow
+	 *                          process
+	 */
+	public InstancedMaterial(boolean transparentShadow) {
+		super(transparentShadow);
+	}
+
+	@Override
+	protected boolean supportsInstancing() {
+		return true;
+	}
+
+	/**
+	 * Version of bindInstanced, used when not in a stage like shadows that
+	 * requires a different shader.
+	 * 
+	 * @param object One of the objects being drawn
+	 */
+	protected abstract void _bindInstanced(EngineObject object);
+
+}
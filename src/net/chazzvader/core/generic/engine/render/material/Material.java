@@ -1,5 +1,7 @@
 package net.chazzvader.core.generic.engine.render.material;
 
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.EngineItem;
 import net.chazzvader.core.generic.engine.creator.ShaderCreator;
 import net.chazzvader.core.generic.engine.object.EngineObject;
@@ -15,6 +17,7 @@ import net.chazzvader.core.generic.engine.object.EngineObject;
 public abstract class Material extends EngineItem {
 
 	private boolean transparentShadow = false;
+	private boolean transparent = false;
 
 	/**
 	 * Basic material constructor
@@ -28,6 +31,7 @@ public abstract class Material extends EngineItem {
 
 	private Shader shadowShader = ShaderCreator.shadowShader();
 	private Shader transparentShader = ShaderCreator.transparentShader();
+	private Shader shadowInstancedShader = null;
 
 	/**
 	 * Binds the material.<br>
@@ -46,10 +50,59 @@ public abstract class Material extends EngineItem {
 			} else {
 				shadowShader.bind();
 				shadowShader.setUniformMat4f("world_matrix", object.getWorldMatrix());
+				shadowShader.setUniform1i("face_mask", object.shadowFaces);
 			}
 		}
 	}
 
+	/**
+	 * Can this material be bound for drawing many instances of an object at once?
+	 * Transparent shadows are never instanced, as they don't draw anything.
+	 * 
+	 * @param object The object to bind for
+	 * @return True if {@link #bindInstanced(EngineObject)} can be used.
+	 */
+	public boolean canBindInstanced(EngineObject object) {
+		if (!supportsInstancing()) {
+			return false;
+		}
+		boolean depthOnly = object.getRenderContext() != null && object.getRenderContext().isDepthOnly();
+		return !(depthOnly && transparentShadow);
+	}
+
+	/**
+	 * Binds the material for drawing many instances at once, with the world
+	 * matrices coming from the instance data instead of the object. Only call
+	 * if {@link #canBindInstanced(EngineObject)} is true.
+	 * 
+	 * @param object One of the objects being drawn, for the render context
+	 */
+	public void bindInstanced(EngineObject object) {
+		if (object.getRenderContext() != null && object.getRenderContext().isDepthOnly()) {
+			if (shadowInstancedShader == null) {
+				shadowInstancedShader = ShaderCreator.shadowInstancedShader();
+			}
+			shadowInstancedShader.bind();
+			shadowInstancedShader.setUniform1i("face_mask", object.shadowFaces);
+		} else if (this instanceof InstancedMaterial) {
+			((InstancedMaterial) this)._bindInstanced(object);
+		} else {
+			Logging.log("Material can't be instanced, binding it normally", "Material", LoggingLevel.ERR);
+			_bind(object);
+		}
+	}
+
+	/**
+	 * Does this material have an instanced version? True for every
+	 * {@link InstancedMaterial}, which can override this to turn instancing off
+	 * again.
+	 * 
+	 * @return True if the material can be instanced, false by default.
+	 */
+	protected boolean supportsInstancing() {
+		return false;
+	}
+
 	/**
 	 * Version of bind, used when not in a stage like shadows that requires a
 	 * different shader.
@@ -64,4 +117,35 @@ public abstract class Material extends EngineItem {
 	 * @return The shader
 	 */
 	public abstract Shader getShader();
+
+	/**
+	 * Gets a number that is the same for materials that bind the same textures,
+	 * and is usually different otherwise. Used to sort draws so texture binds can
+	 * be skipped.
+	 * 
+	 * @return The texture set id, 0 if the material doesn't bind any textures.
+	 */
+	public int getTextureSetId() {
+		return 0;
+	}
+
+	/**
+	 * Does this material blend with what is behind it? Transparent materials are
+	 * drawn after everything else, from back to front.
+	 * 
+	 * @return True if the material is transparent.
+	 */
+	public boolean isTransparent() {
+		return transparent;
+	}
+
+	/**
+	 * Sets if this material blends with what is behind it.
+	 * 
+	 * @param transparent If the material is transparent.
+	 * @see #isTransparent()
+	 */
+	public void setTransparent(boolean transparent) {
+		this.transparent = transparent;
+	}
 }
@@ -18,9 +18,10 @@ import net.chazzvader.core.opengl.shader.OpenGLShaderLocations;
  * @since 1.0
  * @version 1
  */
-public class MaterialBasic extends Material {
+public class MaterialBasic extends InstancedMaterial {
 
 	private Shader shader;
+	private Shader instancedShader;
 
 	/**
 	 * A color multiplier, applies as a tint. White (default) means no tint and
@@ -149,10 +150,27 @@ public class MaterialBasic extends Material {
 		shader.setUniform1i("specular", OpenGLShaderLocations.TEXTURE_SPECULAR);
 		shader.setUniform1i("normals_tex", OpenGLShaderLocations.TEXTURE_NORMAL);
 		shader.unbind();
+		this.instancedShader = ShaderCreator.basicInstancedShader();
+		instancedShader.bind();
+		instancedShader.setUniform1i("diffuse", OpenGLShaderLocations.TEXTURE_DIFFUSE);
+		instancedShader.setUniform1i("specular", OpenGLShaderLocations.TEXTURE_SPECULAR);
+		instancedShader.setUniform1i("normals_tex", OpenGLShaderLocations.TEXTURE_NORMAL);
+		instancedShader.unbind();
 	}
 
 	@Override
 	protected void _bind(EngineObject object) {
+		bindShared(shader);
+		shader.setUniformMat4f("world_matrix", object.getWorldMatrix());
+		shader.setUniformMat4f("normal_matrix", object.getNormalMatrix());
+	}
+
+	@Override
+	protected void _bindInstanced(EngineObject object) {
+		bindShared(instancedShader);
+	}
+
+	private void bindShared(Shader shader) {
 		shader.bind();
 		diffuse.bind();
 		shader.setUniform1i("tc_debug_flag", textureCoordinatesDebug ? 1 : 0);
@@ -163,7 +181,6 @@ public class MaterialBasic extends Material {
 		shader.setUniform3f("view_pos", Application.getInstance().getActiveScene().getActiveCamera().relativePos);
 		shader.setUniform3f("color_multiplier", colorMultiplier);
 		shader.setUniform1i("specular_power", specularPower);
-		shader.setUniformMat4f("world_matrix", object.getWorldMatrix());
 		Renderer renderer = Configuration.getRendererVerifyFinalized();
 		switch (renderer) {
 		case GENERIC:
@@ -186,4 +203,9 @@ public class MaterialBasic extends Material {
 		return shader;
 	}
 
+	@Override
+	public int getTextureSetId() {
+		return (diffuse.getItemId() * 31 + specular.getItemId()) * 31 + normal.getItemId();
+	}
+
 }
@@ -91,4 +91,9 @@ public class MaterialSimple extends Material {
 		return shader;
 	}
 
+	@Override
+	public int getTextureSetId() {
+		return texture == null ? 0 : texture.getItemId();
+	}
+
 }
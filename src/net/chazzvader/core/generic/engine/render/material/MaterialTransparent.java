@@ -19,6 +19,7 @@ public class MaterialTransparent extends Material {
 	 */
 	public MaterialTransparent(boolean transparentShadow) {
 		super(transparentShadow);
+		setTransparent(true);
 	}
 
 	@Override
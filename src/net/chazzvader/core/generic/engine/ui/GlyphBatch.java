@@ -0,0 +1,190 @@
+package net.chazzvader.core.generic.engine.ui;
+
+import java.util.Arrays;
+
+/**
+ * A CPU side buffer of glyph instances, used to draw large amounts of quick
+ * text in as few draw calls as possible. Every glyph is written as
+ * {@link #FLOATS_PER_GLYPH} floats, laid out as:<br>
+ * <code>center x, center y, half width, half height, u0, v0, u1, v1, r, g, b</code><br>
+ * Positions and sizes are already in normalized device coordinates, so the
+ * shader only has to scale and offset the standard UI quad.<br>
+ * <br>
+ * Glyphs are grouped into runs of consecutive glyphs that share an atlas. The
+ * color is per glyph so it does not split runs. This class does not touch the
+ * renderer at all, and the atlas type is generic, so it can be filled and
+ * inspected without a window.
+ *
+ * @author csbru
+ * @version 1
+ * @since 1.0
+ * @param <T> The type of the atlas the glyphs are sampled from.
+ */
+public class GlyphBatch<T> {
+
+	/**
+	 * The amount of floats every glyph takes up in the instance buffer.
+	 */
+	public static final int FLOATS_PER_GLYPH = 11;
+
+	private static final int INITIAL_GLYPHS = 256;
+	private static final int INITIAL_RUNS = 4;
+
+	private float[] instances = new float[INITIAL_GLYPHS * FLOATS_PER_GLYPH];
+	private int glyphCount = 0;
+
+	private Object[] runAtlas = new Object[INITIAL_RUNS];
+	private int[] runStart = new int[INITIAL_RUNS];
+	private int[] runLength = new int[INITIAL_RUNS];
+	private int runCount = 0;
+
+	private int resizes = 0;
+
+	/**
+	 * Adds a glyph to the batch. If the atlas is different to the last glyph added
+	 * a new run is started.
+	 *
+	 * @param atlas      The atlas to sample from.
+	 * @param centerX    The x position of the center of the glyph, in normalized
+	 *                   device coordinates.
+	 * @param centerY    The y position of the center of the glyph, in normalized
+	 *                   device coordinates.
+	 * @param halfWidth  Half the width of the glyph, in normalized device
+	 *                   coordinates.
+	 * @param halfHeight Half the height of the glyph, in normalized device
+	 *                   coordinates.
+	 * @param u0         The left texture coordinate.
+	 * @param v0         The bottom texture coordinate.
+	 * @param u1         The right texture coordinate.
+	 * @param v1         The top texture coordinate.
+	 * @param r          The red color multiplier.
+	 * @param g          The green color multiplier.
+	 * @param b          The blue color multiplier.
+	 */
+	public void add(T atlas, float centerX, float centerY, float halfWidth, float halfHeight, float u0, float v0,
+			float u1, float v1, float r, float g, float b) {
+		if (runCount == 0 || runAtlas[runCount - 1] != atlas) {
+			if (runCount == runAtlas.length) {
+				int newLength = runAtlas.length * 2;
+				runAtlas = Arrays.copyOf(runAtlas, newLength);
+				runStart = Arrays.copyOf(runStart, newLength);
+				runLength = Arrays.copyOf(runLength, newLength);
+				resizes++;
+			}
+			runAtlas[runCount] = atlas;
+			runStart[runCount] = glyphCount;
+			runLength[runCount] = 0;
+			runCount++;
+		}
+		int offset = glyphCount * FLOATS_PER_GLYPH;
+		if (offset + FLOATS_PER_GLYPH > instances.length) {
+			instances = Arrays.copyOf(instances, instances.length * 2);
+			resizes++;
+		}
+		instances[offset + 0] = centerX;
+		instances[offset + 1] = centerY;
+		instances[offset + 2] = halfWidth;
+		instances[offset + 3] = halfHeight;
+		instances[offset + 4] = u0;
+		instances[offset + 5] = v0;
+		instances[offset + 6] = u1;
+		instances[offset + 7] = v1;
+		instances[offset + 8] = r;
+		instances[offset + 9] = g;
+		instances[offset + 10] = b;
+		glyphCount++;
+		runLength[runCount - 1]++;
+	}
+
+	/**
+	 * Empties the batch. The backing arrays are kept so a steady state frame does
+	 * not allocate.
+	 */
+	public void clear() {
+		for (int i = 0; i < runCount; i++) {
+			runAtlas[i] = null;
+		}
+		glyphCount = 0;
+		runCount = 0;
+	}
+
+	/**
+	 * Is there anything to draw?
+	 *
+	 * @return True if there are no glyphs in the batch.
+	 */
+	public boolean isEmpty() {
+		return glyphCount == 0;
+	}
+
+	/**
+	 * The raw instance data. Only the first
+	 * <code>getGlyphCount() * FLOATS_PER_GLYPH</code> floats are valid, the rest
+	 * is left over capacity.
+	 *
+	 * @return The backing instance array.
+	 */
+	public float[] getInstanceData() {
+		return instances;
+	}
+
+	/**
+	 * The amount of glyphs in the batch.
+	 *
+	 * @return The amount of glyphs in the batch.
+	 */
+	public int getGlyphCount() {
+		return glyphCount;
+	}
+
+	/**
+	 * The amount of runs in the batch. Every run is one draw call.
+	 *
+	 * @return The amount of runs in the batch.
+	 */
+	public int getRunCount() {
+		return runCount;
+	}
+
+	/**
+	 * The atlas used by a run.
+	 *
+	 * @param run The index of the run.
+	 * @return The atlas used by the run.
+	 */
+	@SuppressWarnings("unchecked")
+	public T getRunAtlas(int run) {
+		return (T) runAtlas[run];
+	}
+
+	/**
+	 * The index of the first glyph of a run.
+	 *
+	 * @param run The index of the run.
+	 * @return The index of the first glyph of the run.
+	 */
+	public int getRunStart(int run) {
+		return runStart[run];
+	}
+
+	/**
+	 * The amount of glyphs in a run.
+	 *
+	 * @param run The index of the run.
+	 * @return The amount of glyphs in the run.
+	 */
+	public int getRunLength(int run) {
+		return runLength[run];
+	}
+
+	/**
+	 * How many times the backing arrays had to grow. Should stop increasing once
+	 * the batch has seen its largest frame.
+	 *
+	 * @return The amount of times the backing arrays were resized.
+	 */
+	public int getResizeCount() {
+		return resizes;
+	}
+
+}
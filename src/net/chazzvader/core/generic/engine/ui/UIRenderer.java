@@ -17,13 +17,13 @@ import net.chazzvader.core.generic.engine.event.type.IEventHandlerKey;
 import net.chazzvader.core.generic.engine.event.type.IEventHandlerMouseButton;
 import net.chazzvader.core.generic.engine.event.type.IEventHandlerMouseMoved;
 import net.chazzvader.core.generic.engine.event.type.IEventHandlerScroll;
+import net.chazzvader.core.generic.engine.render.GlyphBatchRendererImplementation;
 import net.chazzvader.core.generic.engine.render.MeshRendererImplementation;
 import net.chazzvader.core.generic.engine.render.material.MaterialUI;
 import net.chazzvader.core.generic.engine.render.material.Texture;
 import net.chazzvader.core.generic.math.Matrix4f;
 import net.chazzvader.core.generic.math.Vector2f;
 import net.chazzvader.core.generic.math.Vector3f;
-import net.chazzvader.core.generic.math.Vector4f;
 
 /**
  * Immediate mode UIRenderer.
@@ -40,9 +40,11 @@ public class UIRenderer extends EngineItemRenderable {
 	 */
 	public UIRenderer() {
 		provider = Application.getInstance().getWindow().getRenderPipeline().getUIProvider();
+		Application.getInstance().addUIRenderer(this);
 
 		standardMaterial = new MaterialUI();
 		standardRenderer = MeshRendererImplementation.getMeshImplementation(ObjectCreator.quadUI(), standardMaterial);
+		glyphRenderer = GlyphBatchRendererImplementation.getGlyphBatchImplementation();
 
 		eventStateInstance = new EventState();
 
@@ -68,27 +70,73 @@ public class UIRenderer extends EngineItemRenderable {
 	private MaterialUI standardMaterial;
 	private MeshRendererImplementation standardRenderer;
 
+	private GlyphBatch<Texture> glyphBatch = new GlyphBatch<Texture>();
+	private GlyphBatchRendererImplementation glyphRenderer;
+	private int textDrawCalls = 0;
+
 	/**
 	 * Renders the standard quad with the settings currently applied to
 	 * {@link #standardMaterial}. Not recommended to call directly.
 	 */
 	public void render() {
+		// Text batched before this has to go under it
+		flushText();
 		standardMaterial.bind(null);
 		standardRenderer.render();
 	}
 
 	/**
-	 * Does any frame starting procedure.
+	 * Does any frame starting procedure. Throws away any text left over from a
+	 * frame that was never ended. Called by the {@link Application} right before
+	 * {@link Application#renderUI()}, for every UI renderer.
 	 */
 	public void startFrame() {
-
+		glyphBatch.clear();
+		textDrawCalls = 0;
 	}
 
 	/**
-	 * Does any frame ending procedure.
+	 * Does any frame ending procedure. Draws all the quick text batched this frame.
+	 * Called by the {@link Application} right after
+	 * {@link Application#renderUI()}, for every UI renderer.
+	 * 
+	 * @see #flushText()
 	 */
 	public void endFrame() {
+		flushText();
+	}
+
+	/**
+	 * Draws all quick text batched so far and empties the batch. Quick text is only
+	 * put on screen when this is called, which happens automatically in
+	 * {@link #endFrame()} and before anything else this renderer draws, so text
+	 * stays in the order it was drawn in.
+	 */
+	public void flushText() {
+		if (glyphBatch.isEmpty()) {
+			return;
+		}
+		glyphRenderer.render(glyphBatch);
+		textDrawCalls += glyphRenderer.getLastDrawCalls();
+		glyphBatch.clear();
+	}
+
+	/**
+	 * The amount of draw calls used for quick text since the start of the frame.
+	 * 
+	 * @return The amount of draw calls used for quick text.
+	 */
+	public int getTextDrawCalls() {
+		return textDrawCalls;
+	}
 
+	/**
+	 * The batch quick text is written to before being drawn.
+	 * 
+	 * @return The glyph batch.
+	 */
+	public GlyphBatch<Texture> getGlyphBatch() {
+		return glyphBatch;
 	}
 
 	/**
@@ -725,31 +773,37 @@ public class UIRenderer extends EngineItemRenderable {
 				0.4296875f, 0.4375f, 0.453125f, 0.453125f, 0.453125f, 0.453125f, 0.453125f, 0.52734375f, 0.453125f,
 				0.4375f, 0.4375f, 0.4375f, 0.4375f, 0.37109375f, 0.453125f, 0.37109375f };
 
-		private Vector2f size = new Vector2f();
-		private Vector4f texCoord = new Vector4f();
-		private Vector4f defaultTexCoord = new Vector4f(0, 0, 1, 1);
-		private Vector3f defaultColorMul = new Vector3f(1, 1, 1);
-
 		/**
 		 * Draws a character for use with text rendering. This method is not intended to
-		 * be called directly, although it can.
+		 * be called directly, although it can. Uses the color multiplier of the
+		 * standard material.
 		 * 
 		 * @param character The character to render.
 		 * @param pos       The position of the left center of the character.
 		 * @param height    The height of the character.
 		 */
 		public void drawCharacter(int character, Vector2f pos, float height) {
+			drawCharacter(character, pos.x, pos.y, height, getWindowAspectRatio(), standardMaterial.color_multiplier);
+		}
+
+		/**
+		 * Adds a character to the glyph batch. It is drawn on the next
+		 * {@link UIRenderer#flushText()}.
+		 * 
+		 * @param character   The character to render.
+		 * @param x           The x position of the left center of the character.
+		 * @param y           The y position of the left center of the character.
+		 * @param height      The height of the character.
+		 * @param aspectRatio The aspect ratio of the window.
+		 * @param color       The color of the character.
+		 */
+		public void drawCharacter(int character, float x, float y, float height, float aspectRatio, Vector3f color) {
 			float texX = character % 16;
 			float texY = character / 16;
-			texCoord.x = texX / 16f;
-			texCoord.y = texY / 16f;
-			texCoord.z = (texX + width[character]) / 16f;
-			texCoord.w = (texY + 1) / 16f;
-			standardMaterial.overrideTexCoords = texCoord;
-			size.x = height * width[character] / getWindowAspectRatio();
-			size.y = height;
-			texture().drawTextureFinal(atlas, pos, size, Alignment.LEFT);
-			standardMaterial.overrideTexCoords = defaultTexCoord;
+			float halfWidth = height * width[character] / aspectRatio;
+			glyphBatch.add(atlas, x * 2 - 1 + Alignment.LEFT.x * halfWidth, y * 2 - 1 + Alignment.LEFT.y * height,
+					halfWidth, height, texX / 16f, texY / 16f, (texX + width[character]) / 16f, (texY + 1) / 16f,
+					color.x, color.y, color.z);
 		}
 
 		/**
@@ -764,18 +818,16 @@ public class UIRenderer extends EngineItemRenderable {
 		 */
 		public void drawTextFinal(String text, Vector2f pos, float height, Vector3f color) {
 			lockUIPointer();
-			pos = pos.copy();
-			char[] chars = text.toCharArray();
-			standardMaterial.color_multiplier = color;
-			for (int i = 0; i < chars.length; i++) {
-				int currentIndex = chars[i];
+			float aspectRatio = getWindowAspectRatio();
+			float x = pos.x;
+			for (int i = 0; i < text.length(); i++) {
+				int currentIndex = text.charAt(i);
 				if (currentIndex > 255) {
 					currentIndex = 2;/* Turn unknown into a blank character. */
 				}
-				drawCharacter(currentIndex, pos, height);
-				pos.x += width[currentIndex] * height / getWindowAspectRatio();
+				drawCharacter(currentIndex, x, pos.y, height, aspectRatio, color);
+				x += width[currentIndex] * height / aspectRatio;
 			}
-			standardMaterial.color_multiplier = defaultColorMul;
 			unlockUIPointer();
 			bumpUIPointer(getTextSize(text, height / 2f));
 		}
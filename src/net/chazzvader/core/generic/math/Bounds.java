@@ -0,0 +1,180 @@
+package net.chazzvader.core.generic.math;
+
+/**
+ * A bounding volume, both an axis aligned box and a sphere around a set of
+ * points. The box is tighter for long and thin shapes, the sphere is cheaper to
+ * test and to move around, so both are kept.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class Bounds {
+
+	/**
+	 * The minimum corner of the box.
+	 */
+	public float minX, minY, minZ;
+
+	/**
+	 * The maximum corner of the box.
+	 */
+	public float maxX, maxY, maxZ;
+
+	/**
+	 * The center of the sphere, which is also the center of the box.
+	 */
+	public float centerX, centerY, centerZ;
+
+	/**
+	 * The radius of the sphere.
+	 */
+	public float radius;
+
+	/**
+	 * Creates empty bounds, a single point at the origin.
+	 */
+	public Bounds() {
+
+	}
+
+	/**
+	 * Creates bounds from a box, with the sphere around it.
+	 *
+	 * @param minX The minimum x of the box.
+	 * @param minY The minimum y of the box.
+	 * @param minZ The minimum z of the box.
+	 * @param maxX The maximum x of the box.
+	 * @param maxY The maximum y of the box.
+	 * @param maxZ The maximum z of the box.
+	 */
+	public Bounds(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		setBox(minX, minY, minZ, maxX, maxY, maxZ);
+	}
+
+	/**
+	 * Sets the box, and sets the sphere to the sphere around the box.
+	 *
+	 * @param minX The minimum x of the box.
+	 * @param minY The minimum y of the box.
+	 * @param minZ The minimum z of the box.
+	 * @param maxX The maximum x of the box.
+	 * @param maxY The maximum y of the box.
+	 * @param maxZ The maximum z of the box.
+	 * @return This object.
+	 */
+	public Bounds setBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		this.minX = minX;
+		this.minY = minY;
+		this.minZ = minZ;
+		this.maxX = maxX;
+		this.maxY = maxY;
+		this.maxZ = maxZ;
+		centerX = (minX + maxX) * 0.5f;
+		centerY = (minY + maxY) * 0.5f;
+		centerZ = (minZ + maxZ) * 0.5f;
+		float ex = maxX - centerX, ey = maxY - centerY, ez = maxZ - centerZ;
+		radius = (float) Math.sqrt(ex * ex + ey * ey + ez * ez);
+		return this;
+	}
+
+	/**
+	 * Works out the bounds of a set of points. The sphere is centered on the box,
+	 * and is only as big as the furthest point needs, which is usually a bit
+	 * smaller than the sphere around the box.
+	 *
+	 * @param positions The points, 3 floats each.
+	 * @param copy      A bounds object that is used to avoid calls to new. Any
+	 *                  value in it will be overridden.
+	 * @return The bounds of the points.
+	 */
+	public static Bounds fromPositions(float[] positions, Bounds copy) {
+		copy = copy == null ? new Bounds() : copy;
+		if (positions == null || positions.length < 3) {
+			return copy.setBox(0, 0, 0, 0, 0, 0);
+		}
+		float minX = Float.POSITIVE_INFINITY, minY = Float.POSITIVE_INFINITY, minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY, maxY = Float.NEGATIVE_INFINITY, maxZ = Float.NEGATIVE_INFINITY;
+		for (int i = 0; i + 2 < positions.length; i += 3) {
+			float x = positions[i + 0], y = positions[i + 1], z = positions[i + 2];
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			minZ = Math.min(minZ, z);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+			maxZ = Math.max(maxZ, z);
+		}
+		copy.setBox(minX, minY, minZ, maxX, maxY, maxZ);
+		float radiusSquared = 0;
+		for (int i = 0; i + 2 < positions.length; i += 3) {
+			float dx = positions[i + 0] - copy.centerX;
+			float dy = positions[i + 1] - copy.centerY;
+			float dz = positions[i + 2] - copy.centerZ;
+			radiusSquared = Math.max(radiusSquared, dx * dx + dy * dy + dz * dz);
+		}
+		copy.radius = (float) Math.sqrt(radiusSquared);
+		return copy;
+	}
+
+	/**
+	 * Moves these bounds by a matrix. The box of the result is the box around the
+	 * moved box, so it may be bigger than it has to be, and the sphere is moved
+	 * and grown by the largest scale of the matrix. (this object is not affected)
+	 *
+	 * @param mat  The matrix to move the bounds by. Should be affine.
+	 * @param copy A bounds object that is used to avoid calls to new. Any value in
+	 *             it will be overridden.
+	 * @return The moved bounds.
+	 */
+	public Bounds transformCopy(Matrix4f mat, Bounds copy) {
+		copy = copy == null ? new Bounds() : copy;
+		float cx = centerX, cy = centerY, cz = centerZ;
+		float ex = maxX - cx, ey = maxY - cy, ez = maxZ - cz;
+		float r = radius;
+		float wx = mat.v00 * cx + mat.v01 * cy + mat.v02 * cz + mat.v03;
+		float wy = mat.v10 * cx + mat.v11 * cy + mat.v12 * cz + mat.v13;
+		float wz = mat.v20 * cx + mat.v21 * cy + mat.v22 * cz + mat.v23;
+		float hx = Math.abs(mat.v00) * ex + Math.abs(mat.v01) * ey + Math.abs(mat.v02) * ez;
+		float hy = Math.abs(mat.v10) * ex + Math.abs(mat.v11) * ey + Math.abs(mat.v12) * ez;
+		float hz = Math.abs(mat.v20) * ex + Math.abs(mat.v21) * ey + Math.abs(mat.v22) * ez;
+		copy.minX = wx - hx;
+		copy.minY = wy - hy;
+		copy.minZ = wz - hz;
+		copy.maxX = wx + hx;
+		copy.maxY = wy + hy;
+		copy.maxZ = wz + hz;
+		copy.centerX = wx;
+		copy.centerY = wy;
+		copy.centerZ = wz;
+		copy.radius = r * maxScale(mat);
+		return copy;
+	}
+
+	/**
+	 * The largest amount a matrix scales any direction by, or a bit more. Used to
+	 * grow a sphere when moving it by the matrix. This is the length of the longest
+	 * column when the columns are at right angles, as they are for any mix of
+	 * translation, rotation and scale, and is only larger when the matrix shears.
+	 *
+	 * @param mat The matrix.
+	 * @return The largest scale of the matrix, never too small.
+	 */
+	public static float maxScale(Matrix4f mat) {
+		float l0 = mat.v00 * mat.v00 + mat.v10 * mat.v10 + mat.v20 * mat.v20;
+		float l1 = mat.v01 * mat.v01 + mat.v11 * mat.v11 + mat.v21 * mat.v21;
+		float l2 = mat.v02 * mat.v02 + mat.v12 * mat.v12 + mat.v22 * mat.v22;
+		float d01 = Math.abs(mat.v00 * mat.v01 + mat.v10 * mat.v11 + mat.v20 * mat.v21);
+		float d02 = Math.abs(mat.v00 * mat.v02 + mat.v10 * mat.v12 + mat.v20 * mat.v22);
+		float d12 = Math.abs(mat.v01 * mat.v02 + mat.v11 * mat.v12 + mat.v21 * mat.v22);
+		// Gershgorin bound on the largest eigenvalue of the transpose times the matrix
+		float max = Math.max(l0 + d01 + d02, Math.max(l1 + d01 + d12, l2 + d02 + d12));
+		return (float) Math.sqrt(max);
+	}
+
+	@Override
+	public String toString() {
+		return "Bounds [min=(" + minX + ", " + minY + ", " + minZ + "), max=(" + maxX + ", " + maxY + ", " + maxZ
+				+ "), center=(" + centerX + ", " + centerY + ", " + centerZ + "), radius=" + radius + "]";
+	}
+
+}
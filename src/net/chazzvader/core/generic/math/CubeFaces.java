@@ -0,0 +1,120 @@
+package net.chazzvader.core.generic.math;
+
+/**
+ * Works out which faces of a cube map, centered on a point light, a box can be
+ * seen in, so a shadow caster is only drawn into the faces it touches instead
+ * of all 6.<br>
+ * <br>
+ * Each face sees a square pyramid, 90 degrees wide, going out from the light.
+ * The face looking along +x is every point where <code>x &gt;= |y|</code> and
+ * <code>x &gt;= |z|</code>, relative to the light, so it is bounded by the 4
+ * planes <code>x = &#177;y</code> and <code>x = &#177;z</code>, and the other
+ * faces are the same along their own axis. A box is tested against the 4 planes
+ * of each face using the corner furthest inside each plane. Like
+ * {@link Frustum}, this is conservative: a box just outside the corner of a
+ * face may be counted in it, but never the other way around.<br>
+ * <br>
+ * The mask has one bit per face, in the order of the cube map layers: +x, -x,
+ * +y, -y, +z, -z.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class CubeFaces {
+
+	/**
+	 * The mask with every face.
+	 */
+	public static final int ALL = 0x3F;
+
+	private CubeFaces() {
+	}
+
+	/**
+	 * The faces a box can be seen in from a light, empty if the box is out of
+	 * range.
+	 *
+	 * @param x     The x position of the light.
+	 * @param y     The y position of the light.
+	 * @param z     The z position of the light.
+	 * @param range The range of the light.
+	 * @param box   The box, only the minimum and maximum are used.
+	 * @return The faces, one bit per face.
+	 */
+	public static int mask(float x, float y, float z, float range, Bounds box) {
+		return mask(x, y, z, range, box.minX, box.minY, box.minZ, box.maxX, box.maxY, box.maxZ);
+	}
+
+	/**
+	 * The faces a box can be seen in from a light, empty if the box is out of
+	 * range.
+	 *
+	 * @param x     The x position of the light.
+	 * @param y     The y position of the light.
+	 * @param z     The z position of the light.
+	 * @param range The range of the light.
+	 * @param minX  The minimum x of the box.
+	 * @param minY  The minimum y of the box.
+	 * @param minZ  The minimum z of the box.
+	 * @param maxX  The maximum x of the box.
+	 * @param maxY  The maximum y of the box.
+	 * @param maxZ  The maximum z of the box.
+	 * @return The faces, one bit per face.
+	 */
+	public static int mask(float x, float y, float z, float range, float minX, float minY, float minZ, float maxX,
+			float maxY, float maxZ) {
+		// Relative to the light
+		minX -= x;
+		minY -= y;
+		minZ -= z;
+		maxX -= x;
+		maxY -= y;
+		maxZ -= z;
+		float dx = minX > 0 ? minX : maxX < 0 ? -maxX : 0;
+		float dy = minY > 0 ? minY : maxY < 0 ? -maxY : 0;
+		float dz = minZ > 0 ? minZ : maxZ < 0 ? -maxZ : 0;
+		if (dx * dx + dy * dy + dz * dz > range * range) {
+			return 0;
+		}
+		int mask = 0;
+		if (face(maxX, minY, maxY, minZ, maxZ)) {
+			mask |= 1;
+		}
+		if (face(-minX, minY, maxY, minZ, maxZ)) {
+			mask |= 2;
+		}
+		if (face(maxY, minX, maxX, minZ, maxZ)) {
+			mask |= 4;
+		}
+		if (face(-minY, minX, maxX, minZ, maxZ)) {
+			mask |= 8;
+		}
+		if (face(maxZ, minX, maxX, minY, maxY)) {
+			mask |= 16;
+		}
+		if (face(-minZ, minX, maxX, minY, maxY)) {
+			mask |= 32;
+		}
+		return mask;
+	}
+
+	// A face along an axis, given how far the box goes along it and its range on
+	// the other two axes. The box is inside the plane axis = a if the furthest
+	// along the axis is at least the smallest a, and inside axis = -a if it is at
+	// least minus the largest a.
+	private static boolean face(float far, float minA, float maxA, float minB, float maxB) {
+		return far >= minA && far >= -maxA && far >= minB && far >= -maxB;
+	}
+
+	/**
+	 * The amount of faces in a mask.
+	 *
+	 * @param mask The mask.
+	 * @return The amount of faces.
+	 */
+	public static int count(int mask) {
+		return Integer.bitCount(mask & ALL);
+	}
+
+}
@@ -0,0 +1,178 @@
+package net.chazzvader.core.generic.math;
+
+/**
+ * The 6 planes of a view frustum, used to skip anything the camera can't see.
+ * The planes are pulled straight out of a view projection matrix, with the
+ * method from Gribb and Hartmann, <a href=
+ * "https://www.gamedevs.org/uploads/fast-extraction-viewing-frustum-planes-from-world-view-projection-matrix.pdf">
+ * Fast Extraction of Viewing Frustum Planes from the World-View-Projection
+ * Matrix</a>. Every plane is stored as <code>a, b, c, d</code>, normalized and
+ * facing inwards, so a point is inside a plane when
+ * <code>ax + by + cz + d &gt;= 0</code>.<br>
+ * <br>
+ * The tests are conservative, they may say something is visible when it is
+ * just outside a corner of the frustum, but never the other way around.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class Frustum {
+
+	/**
+	 * The index of the left plane.
+	 */
+	public static final int LEFT = 0;
+	/**
+	 * The index of the right plane.
+	 */
+	public static final int RIGHT = 1;
+	/**
+	 * The index of the bottom plane.
+	 */
+	public static final int BOTTOM = 2;
+	/**
+	 * The index of the top plane.
+	 */
+	public static final int TOP = 3;
+	/**
+	 * The index of the near plane.
+	 */
+	public static final int NEAR = 4;
+	/**
+	 * The index of the far plane.
+	 */
+	public static final int FAR = 5;
+
+	/**
+	 * The planes, 4 floats each in the order of the plane indices.
+	 */
+	public final float[] planes = new float[24];
+
+	/**
+	 * Creates a frustum that contains everything. Call
+	 * {@link #set(Matrix4f)} to make it useful.
+	 */
+	public Frustum() {
+		for (int i = 0; i < 6; i++) {
+			planes[i * 4 + 3] = Float.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Creates a frustum from a view projection matrix.
+	 *
+	 * @param viewProjection The view projection matrix.
+	 */
+	public Frustum(Matrix4f viewProjection) {
+		set(viewProjection);
+	}
+
+	/**
+	 * Pulls the planes out of a view projection matrix, so the frustum matches
+	 * what the matrix would put on screen.
+	 *
+	 * @param m The view projection matrix, projection * view.
+	 * @return This frustum.
+	 */
+	public Frustum set(Matrix4f m) {
+		setPlane(LEFT, m.v30 + m.v00, m.v31 + m.v01, m.v32 + m.v02, m.v33 + m.v03);
+		setPlane(RIGHT, m.v30 - m.v00, m.v31 - m.v01, m.v32 - m.v02, m.v33 - m.v03);
+		setPlane(BOTTOM, m.v30 + m.v10, m.v31 + m.v11, m.v32 + m.v12, m.v33 + m.v13);
+		setPlane(TOP, m.v30 - m.v10, m.v31 - m.v11, m.v32 - m.v12, m.v33 - m.v13);
+		setPlane(NEAR, m.v30 + m.v20, m.v31 + m.v21, m.v32 + m.v22, m.v33 + m.v23);
+		setPlane(FAR, m.v30 - m.v20, m.v31 - m.v21, m.v32 - m.v22, m.v33 - m.v23);
+		return this;
+	}
+
+	private void setPlane(int plane, float a, float b, float c, float d) {
+		float length = (float) Math.sqrt(a * a + b * b + c * c);
+		float inv = length == 0 ? 0 : 1 / length;
+		planes[plane * 4 + 0] = a * inv;
+		planes[plane * 4 + 1] = b * inv;
+		planes[plane * 4 + 2] = c * inv;
+		planes[plane * 4 + 3] = length == 0 ? Float.POSITIVE_INFINITY : d * inv;
+	}
+
+	/**
+	 * Is any part of a sphere inside the frustum?
+	 *
+	 * @param x      The x position of the center.
+	 * @param y      The y position of the center.
+	 * @param z      The z position of the center.
+	 * @param radius The radius.
+	 * @return False if the sphere is completely outside.
+	 */
+	public boolean intersectsSphere(float x, float y, float z, float radius) {
+		float[] p = planes;
+		for (int i = 0; i < 24; i += 4) {
+			if (p[i] * x + p[i + 1] * y + p[i + 2] * z + p[i + 3] < -radius) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Is any part of an axis aligned box inside the frustum? Only the corner
+	 * furthest along each plane is tested.
+	 *
+	 * @param minX The minimum x of the box.
+	 * @param minY The minimum y of the box.
+	 * @param minZ The minimum z of the box.
+	 * @param maxX The maximum x of the box.
+	 * @param maxY The maximum y of the box.
+	 * @param maxZ The maximum z of the box.
+	 * @return False if the box is completely outside.
+	 */
+	public boolean intersectsBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+		float[] p = planes;
+		for (int i = 0; i < 24; i += 4) {
+			float a = p[i], b = p[i + 1], c = p[i + 2];
+			float x = a >= 0 ? maxX : minX;
+			float y = b >= 0 ? maxY : minY;
+			float z = c >= 0 ? maxZ : minZ;
+			if (a * x + b * y + c * z + p[i + 3] < 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Is any part of a set of bounds inside the frustum?
+	 *
+	 * @param bounds The bounds, in the same space as the frustum.
+	 * @return False if the bounds are completely outside.
+	 */
+	public boolean intersects(Bounds bounds) {
+		return intersectsSphere(bounds.centerX, bounds.centerY, bounds.centerZ, bounds.radius)
+				&& intersectsBox(bounds.minX, bounds.minY, bounds.minZ, bounds.maxX, bounds.maxY, bounds.maxZ);
+	}
+
+	/**
+	 * Is any part of a set of local bounds, moved by a world matrix, inside the
+	 * frustum? The sphere is tested first as it is cheap, and the box around the
+	 * moved box is only worked out if the sphere touches the frustum. Nothing is
+	 * allocated.
+	 *
+	 * @param local The bounds, in local space.
+	 * @param world The world matrix to move the bounds by.
+	 * @return False if the bounds are completely outside.
+	 */
+	public boolean intersects(Bounds local, Matrix4f world) {
+		float cx = local.centerX, cy = local.centerY, cz = local.centerZ;
+		float wx = world.v00 * cx + world.v01 * cy + world.v02 * cz + world.v03;
+		float wy = world.v10 * cx + world.v11 * cy + world.v12 * cz + world.v13;
+		float wz = world.v20 * cx + world.v21 * cy + world.v22 * cz + world.v23;
+		if (!intersectsSphere(wx, wy, wz, local.radius * Bounds.maxScale(world))) {
+			return false;
+		}
+		float ex = local.maxX - cx, ey = local.maxY - cy, ez = local.maxZ - cz;
+		float hx = Math.abs(world.v00) * ex + Math.abs(world.v01) * ey + Math.abs(world.v02) * ez;
+		float hy = Math.abs(world.v10) * ex + Math.abs(world.v11) * ey + Math.abs(world.v12) * ez;
+		float hz = Math.abs(world.v20) * ex + Math.abs(world.v21) * ey + Math.abs(world.v22) * ez;
+		return intersectsBox(wx - hx, wy - hy, wz - hz, wx + hx, wy + hy, wz + hz);
+	}
+
+}
@@ -0,0 +1,195 @@
+package net.chazzvader.core.generic.math;
+
+import java.util.Arrays;
+
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+
+/**
+ * A stack of reusable math objects, so hot code can get scratch matrices,
+ * vectors and quaternions without calling new every frame.<br>
+ * <br>
+ * Call {@link #push()} to open a scope, take whatever objects are needed, then
+ * call {@link #pop()} to hand every object taken since the matching push back
+ * to the arena. Objects are only ever created the first time the arena grows
+ * to a given size, after that every scope reuses them, so a steady state frame
+ * creates nothing. {@link #getCreated()} can be checked to confirm that.<br>
+ * <br>
+ * Objects handed out are reset (identity matrix, zero vector, identity
+ * quaternion). They must not be kept after the scope they were taken in is
+ * popped. An arena is not thread safe, use {@link #get()} for one per thread.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class MathArena {
+
+	private static final int INITIAL_SIZE = 16;
+
+	private static final ThreadLocal<MathArena> ARENAS = ThreadLocal.withInitial(MathArena::new);
+
+	/**
+	 * The arena for the calling thread.
+	 *
+	 * @return The arena for the calling thread.
+	 */
+	public static MathArena get() {
+		return ARENAS.get();
+	}
+
+	private Matrix4f[] matrices = new Matrix4f[INITIAL_SIZE];
+	private Vector3f[] vector3s = new Vector3f[INITIAL_SIZE];
+	private Vector4f[] vector4s = new Vector4f[INITIAL_SIZE];
+	private Quaternion[] quaternions = new Quaternion[INITIAL_SIZE];
+	private int matrixTop, vector3Top, vector4Top, quaternionTop;
+
+	private int[] scopes = new int[INITIAL_SIZE * 4];
+	private int depth = 0;
+
+	private long created = 0;
+
+	/**
+	 * Opens a new scope. Every object taken until the matching {@link #pop()} is
+	 * released by that pop.
+	 */
+	public void push() {
+		if ((depth + 1) * 4 > scopes.length) {
+			scopes = Arrays.copyOf(scopes, scopes.length * 2);
+		}
+		int offset = depth * 4;
+		scopes[offset + 0] = matrixTop;
+		scopes[offset + 1] = vector3Top;
+		scopes[offset + 2] = vector4Top;
+		scopes[offset + 3] = quaternionTop;
+		depth++;
+	}
+
+	/**
+	 * Closes the current scope, releasing every object taken since the matching
+	 * {@link #push()}.
+	 */
+	public void pop() {
+		if (depth == 0) {
+			Logging.log("Pop without matching push", "Math Arena", LoggingLevel.ERR);
+			return;
+		}
+		depth--;
+		int offset = depth * 4;
+		matrixTop = scopes[offset + 0];
+		vector3Top = scopes[offset + 1];
+		vector4Top = scopes[offset + 2];
+		quaternionTop = scopes[offset + 3];
+	}
+
+	/**
+	 * Takes a matrix from the arena, set to identity.
+	 *
+	 * @return A scratch matrix.
+	 */
+	public Matrix4f matrix() {
+		checkScope();
+		if (matrixTop == matrices.length) {
+			matrices = Arrays.copyOf(matrices, matrices.length * 2);
+		}
+		Matrix4f ret = matrices[matrixTop];
+		if (ret == null) {
+			ret = matrices[matrixTop] = new Matrix4f();
+			created++;
+		} else {
+			ret.reset();
+		}
+		matrixTop++;
+		return ret;
+	}
+
+	/**
+	 * Takes a vector from the arena, set to 0, 0, 0.
+	 *
+	 * @return A scratch vector.
+	 */
+	public Vector3f vector3() {
+		checkScope();
+		if (vector3Top == vector3s.length) {
+			vector3s = Arrays.copyOf(vector3s, vector3s.length * 2);
+		}
+		Vector3f ret = vector3s[vector3Top];
+		if (ret == null) {
+			ret = vector3s[vector3Top] = new Vector3f();
+			created++;
+		} else {
+			ret.transcribe(0, 0, 0);
+		}
+		vector3Top++;
+		return ret;
+	}
+
+	/**
+	 * Takes a vector from the arena, set to 0, 0, 0, 1.
+	 *
+	 * @return A scratch vector.
+	 */
+	public Vector4f vector4() {
+		checkScope();
+		if (vector4Top == vector4s.length) {
+			vector4s = Arrays.copyOf(vector4s, vector4s.length * 2);
+		}
+		Vector4f ret = vector4s[vector4Top];
+		if (ret == null) {
+			ret = vector4s[vector4Top] = new Vector4f();
+			created++;
+		} else {
+			ret.transcribe(0, 0, 0, 1);
+		}
+		vector4Top++;
+		return ret;
+	}
+
+	/**
+	 * Takes a quaternion from the arena, set to identity.
+	 *
+	 * @return A scratch quaternion.
+	 */
+	public Quaternion quaternion() {
+		checkScope();
+		if (quaternionTop == quaternions.length) {
+			quaternions = Arrays.copyOf(quaternions, quaternions.length * 2);
+		}
+		Quaternion ret = quaternions[quaternionTop];
+		if (ret == null) {
+			ret = quaternions[quaternionTop] = new Quaternion();
+			created++;
+		} else {
+			ret.transcribe(1, 0, 0, 0);
+		}
+		quaternionTop++;
+		return ret;
+	}
+
+	/**
+	 * The current amount of open scopes.
+	 *
+	 * @return The amount of open scopes.
+	 */
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * The total amount of math objects this arena has ever created. Stays constant
+	 * once the arena has seen its largest frame.
+	 *
+	 * @return The amount of math objects created.
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	private void checkScope() {
+		if (depth == 0) {
+			Logging.log("Taking from arena with no open scope, it will never be released", "Math Arena",
+					LoggingLevel.WARN);
+		}
+	}
+
+}
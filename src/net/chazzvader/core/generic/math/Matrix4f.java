@@ -392,23 +392,84 @@ public class Matrix4f {
 	 * @return The look at matrix
 	 */
 	public static Matrix4f lookAt(Vector3f pos, Vector3f target, Vector3f up) {
-		Vector3f direction = pos.subCopy(target).normalize();
-		Vector3f right = up.crossProductCopy(direction).normalize();
-		Vector3f cameraUp = direction.crossProductCopy(right).normalize();
+		return lookAt(pos, target, up, null);
+	}
+
+	/**
+	 * Creates a look at matrix for a camera. Includes translation.
+	 * 
+	 * @param pos    The position of the camera in world space
+	 * @param target What the camera is pointing at
+	 * @param copy   A matrix that is used to avoid calls to new. Any value in that
+	 *               matrix will be overridden.
+	 * @return The look at matrix
+	 * @see #lookAt(Vector3f, Vector3f)
+	 */
+	public static Matrix4f lookAt(Vector3f pos, Vector3f target, Matrix4f copy) {
+		return lookAt(pos, target, StaticMath.UP, copy);
+	}
+
+	/**
+	 * Creates a look at matrix for a camera. Includes translation. Does the same
+	 * math as {@link #lookAt(Vector3f, Vector3f, Vector3f)} on plain floats, so
+	 * nothing is allocated when a matrix is passed in.
+	 * 
+	 * @param pos    The position of the camera in world space
+	 * @param target What the camera is pointing at
+	 * @param up     The up vector
+	 * @param copy   A matrix that is used to avoid calls to new. Any value in that
+	 *               matrix will be overridden.
+	 * @return The look at matrix
+	 * @see #lookAt(Vector3f, Vector3f, Vector3f)
+	 */
+	public static Matrix4f lookAt(Vector3f pos, Vector3f target, Vector3f up, Matrix4f copy) {
+		float dx = pos.x - target.x;
+		float dy = pos.y - target.y;
+		float dz = pos.z - target.z;
+		float length = (float) Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
+		if (length != 0) {
+			dx /= length;
+			dy /= length;
+			dz /= length;
+		}
+
+		float rx = (up.y * dz) - (up.z * dy);
+		float ry = (up.z * dx) - (up.x * dz);
+		float rz = (up.x * dy) - (up.y * dx);
+		length = (float) Math.sqrt((rx * rx) + (ry * ry) + (rz * rz));
+		if (length != 0) {
+			rx /= length;
+			ry /= length;
+			rz /= length;
+		}
 
-		Matrix4f look = new Matrix4f();
+		float ux = (dy * rz) - (dz * ry);
+		float uy = (dz * rx) - (dx * rz);
+		float uz = (dx * ry) - (dy * rx);
+		length = (float) Math.sqrt((ux * ux) + (uy * uy) + (uz * uz));
+		if (length != 0) {
+			ux /= length;
+			uy /= length;
+			uz /= length;
+		}
+
+		Matrix4f look = _alloc(copy);
+
+		look.v00 = rx;
+		look.v01 = ry;
+		look.v02 = rz;
+		look.v10 = ux;
+		look.v11 = uy;
+		look.v12 = uz;
+		look.v20 = dx;
+		look.v21 = dy;
+		look.v22 = dz;
 
-		look.v00 = right.x;
-		look.v01 = right.y;
-		look.v02 = right.z;
-		look.v10 = cameraUp.x;
-		look.v11 = cameraUp.y;
-		look.v12 = cameraUp.z;
-		look.v20 = direction.x;
-		look.v21 = direction.y;
-		look.v22 = direction.z;
+		look.v03 = (rx * -pos.x) + (ry * -pos.y) + (rz * -pos.z);
+		look.v13 = (ux * -pos.x) + (uy * -pos.y) + (uz * -pos.z);
+		look.v23 = (dx * -pos.x) + (dy * -pos.y) + (dz * -pos.z);
 
-		return look.applyTranslation(pos.negateCopy());
+		return look;
 	}
 
 	/**
@@ -420,7 +481,23 @@ public class Matrix4f {
 	 * @return The look at matrix
 	 */
 	public static Matrix4f lookAtEuler(Vector3f pos, Vector3f angle) {
-		return lookAt(pos, pos.addCopy(angle.toDirection()));
+		return lookAtEuler(pos, angle, null, null);
+	}
+
+	/**
+	 * Version of {@link #lookAt(Vector3f, Vector3f)} that takes a Euler angles and
+	 * returns the look at matrix for that (ignores roll)
+	 * 
+	 * @param pos       The position (for the translation aspect)
+	 * @param angle     The angle, in Euler ryp
+	 * @param direction A vector that is used to avoid calls to new. Any value in
+	 *                  that vector will be overridden.
+	 * @param copy      A matrix that is used to avoid calls to new. Any value in
+	 *                  that matrix will be overridden.
+	 * @return The look at matrix
+	 */
+	public static Matrix4f lookAtEuler(Vector3f pos, Vector3f angle, Vector3f direction, Matrix4f copy) {
+		return lookAt(pos, angle.toDirection(direction).add(pos), copy);
 	}
 	
 	/**
@@ -432,7 +509,24 @@ public class Matrix4f {
 	 * @return The look at matrix
 	 */
 	public static Matrix4f lookAtQuaternion(Vector3f pos, Quaternion quaternion) {
-		return lookAt(pos, pos.addCopy(quaternion.toDirection()));
+		return lookAtQuaternion(pos, quaternion, null, null);
+	}
+
+	/**
+	 * Version of {@link #lookAt(Vector3f, Vector3f)} that takes a Quaternion and
+	 * returns the look at matrix for that (ignores roll)
+	 * 
+	 * @param pos        The position (for the translation aspect)
+	 * @param quaternion The quaternion
+	 * @param direction  A vector that is used to avoid calls to new. Any value in
+	 *                   that vector will be overridden.
+	 * @param copy       A matrix that is used to avoid calls to new. Any value in
+	 *                   that matrix will be overridden.
+	 * @return The look at matrix
+	 */
+	public static Matrix4f lookAtQuaternion(Vector3f pos, Quaternion quaternion, Vector3f direction,
+			Matrix4f copy) {
+		return lookAt(pos, quaternion.toDirection(direction).add(pos), copy);
 	}
 
 	/**
@@ -526,7 +620,23 @@ public class Matrix4f {
 	 * @return The perspective projection matrix
 	 */
 	public static Matrix4f perspective(float fov, float aspectRatio, float nearZ, float farZ) {
-		Matrix4f ret = new Matrix4f();
+		return perspective(fov, aspectRatio, nearZ, farZ, null);
+	}
+
+	/**
+	 * Creates a perspective projection matrix, writing it into <code>copy</code>.
+	 * 
+	 * @param fov         The field of view in degrees
+	 * @param aspectRatio The aspect ratio (width/height)
+	 * @param nearZ       The near z clipping distance
+	 * @param farZ        The far z clipping distance
+	 * @param copy        A matrix that is used to avoid calls to new. Any value in
+	 *                    that matrix will be overridden.
+	 * @return The perspective projection matrix
+	 * @see #perspective(float, float, float, float)
+	 */
+	public static Matrix4f perspective(float fov, float aspectRatio, float nearZ, float farZ, Matrix4f copy) {
+		Matrix4f ret = _alloc(copy);
 		float tanHalfFOV = (float) Math.tan(Math.toRadians(fov / 2));
 
 		ret.v00 = 1 / (aspectRatio * tanHalfFOV);
@@ -1285,8 +1395,24 @@ public class Matrix4f {
 	 * @see Matrix4f#lookAt(Vector3f, Vector3f)
 	 */
 	public Matrix4f applyLookAt(Vector3f pos, Vector3f target) {
-		Matrix4f lookAt = lookAt(pos, target);
-		return mul(lookAt);
+		return applyLookAt(pos, target, null, null);
+	}
+
+	/**
+	 * Creates a look at matrix and applies it (the matrix this is called on is
+	 * affected)
+	 * 
+	 * @param pos     The position of the camera in world space
+	 * @param target  What the camera is pointing at
+	 * @param lookAt  A matrix that is used to avoid calls to new. Any value in that
+	 *                matrix will be overridden.
+	 * @param mulHelp A matrix that is used to avoid calls to new. Any value in that
+	 *                matrix will be overridden.
+	 * @return The look at matrix
+	 * @see Matrix4f#lookAt(Vector3f, Vector3f)
+	 */
+	public Matrix4f applyLookAt(Vector3f pos, Vector3f target, Matrix4f lookAt, Matrix4f mulHelp) {
+		return mul(lookAt(pos, target, lookAt), mulHelp);
 	}
 
 	/**
@@ -1299,8 +1425,27 @@ public class Matrix4f {
 	 * @see Matrix4f#lookAtEuler(Vector3f, Vector3f)
 	 */
 	public Matrix4f applyLookAtEuler(Vector3f pos, Vector3f angle) {
-		Matrix4f lookAt = lookAtEuler(pos, angle);
-		return mul(lookAt);
+		return applyLookAtEuler(pos, angle, null, null, null);
+	}
+
+	/**
+	 * Creates a look at matrix and applies it Euler version (the matrix this is
+	 * called on is affected)
+	 * 
+	 * @param pos       The position (for the translation aspect)
+	 * @param angle     The angle, in Euler ryp
+	 * @param direction A vector that is used to avoid calls to new. Any value in
+	 *                  that vector will be overridden.
+	 * @param lookAt    A matrix that is used to avoid calls to new. Any value in
+	 *                  that matrix will be overridden.
+	 * @param mulHelp   A matrix that is used to avoid calls to new. Any value in
+	 *                  that matrix will be overridden.
+	 * @return The look at matrix
+	 * @see Matrix4f#lookAtEuler(Vector3f, Vector3f)
+	 */
+	public Matrix4f applyLookAtEuler(Vector3f pos, Vector3f angle, Vector3f direction, Matrix4f lookAt,
+			Matrix4f mulHelp) {
+		return mul(lookAtEuler(pos, angle, direction, lookAt), mulHelp);
 	}
 	
 	/**
@@ -1313,8 +1458,27 @@ public class Matrix4f {
 	 * @see Matrix4f#lookAtEuler(Vector3f, Vector3f)
 	 */
 	public Matrix4f applyLookAtQuaternion(Vector3f pos, Quaternion quaternion) {
-		Matrix4f lookAt = lookAtQuaternion(pos, quaternion);
-		return mul(lookAt);
+		return applyLookAtQuaternion(pos, quaternion, null, null, null);
+	}
+
+	/**
+	 * Creates a look at matrix and applies it Quaternion version (the matrix this
+	 * is called on is affected)
+	 * 
+	 * @param pos        The position (for the translation aspect)
+	 * @param quaternion The quaternion
+	 * @param direction  A vector that is used to avoid calls to new. Any value in
+	 *                   that vector will be overridden.
+	 * @param lookAt     A matrix that is used to avoid calls to new. Any value in
+	 *                   that matrix will be overridden.
+	 * @param mulHelp    A matrix that is used to avoid calls to new. Any value in
+	 *                   that matrix will be overridden.
+	 * @return The look at matrix
+	 * @see Matrix4f#lookAtQuaternion(Vector3f, Quaternion)
+	 */
+	public Matrix4f applyLookAtQuaternion(Vector3f pos, Quaternion quaternion, Vector3f direction, Matrix4f lookAt,
+			Matrix4f mulHelp) {
+		return mul(lookAtQuaternion(pos, quaternion, direction, lookAt), mulHelp);
 	}
 
 	/**
@@ -1714,15 +1878,191 @@ public class Matrix4f {
 	}
 
 	/**
-	 * Inverts the matrix (the matrix this is called on is affected) Code generated
-	 * by <a href=
-	 * "https://github.com/willnode/N-Matrix-Programmer">N-Matrix-Programmer</a>,
-	 * thanks<br>
-	 * Code adopted by csbru
+	 * What kind of transformation a matrix represents, from the most general to
+	 * the most specific. Every type is also all of the types before it, so a rigid
+	 * matrix is also a uniform scale, orthogonal and affine matrix. The more
+	 * specific the type the cheaper the matrix is to invert.
+	 * 
+	 * @author csbru
+	 * @since 1.0
+	 * @version 1
+	 * @see Matrix4f#getType()
+	 */
+	public enum MatrixType {
+		/**
+		 * Any matrix, for example a perspective projection.
+		 */
+		GENERAL,
+		/**
+		 * The bottom row is exactly 0, 0, 0, 1, so the matrix is a linear
+		 * transformation followed by a translation.
+		 */
+		AFFINE,
+		/**
+		 * Affine, and the first three columns are orthogonal. This is a rotation
+		 * with a scale on every axis, which is what
+		 * <code>translation * rotation * scale</code> always gives.
+		 */
+		ORTHOGONAL,
+		/**
+		 * Orthogonal, and the first three columns are the same length, so the scale
+		 * is the same on every axis.
+		 */
+		UNIFORM_SCALE,
+		/**
+		 * Uniform scale, with a scale of one. Only rotates and translates, this
+		 * includes view matrices made with lookAt.
+		 */
+		RIGID;
+	}
+
+	/**
+	 * How far, relative to the length of the columns, a matrix can be off and
+	 * still count as orthogonal, uniform scale or rigid. Matrices built from
+	 * normalized quaternions are within this.
+	 */
+	public static final float TYPE_TOLERANCE = 1e-5f;
+
+	/**
+	 * Is the bottom row of this matrix exactly 0, 0, 0, 1?
+	 * 
+	 * @return True if the matrix is affine.
+	 * @see MatrixType#AFFINE
+	 */
+	public boolean isAffine() {
+		return v30 == 0 && v31 == 0 && v32 == 0 && v33 == 1;
+	}
+
+	/**
+	 * Works out what kind of transformation this matrix represents. The fields of
+	 * the matrix are public, so this is worked out from the values every time
+	 * instead of being tracked, it only costs a few comparisons and, for affine
+	 * matrices, three dot products and lengths.
+	 * 
+	 * @return The most specific type of the matrix.
+	 */
+	public MatrixType getType() {
+		if (!isAffine()) {
+			return MatrixType.GENERAL;
+		}
+		float l0 = v00 * v00 + v10 * v10 + v20 * v20;
+		float l1 = v01 * v01 + v11 * v11 + v21 * v21;
+		float l2 = v02 * v02 + v12 * v12 + v22 * v22;
+		float d01 = v00 * v01 + v10 * v11 + v20 * v21;
+		float d02 = v00 * v02 + v10 * v12 + v20 * v22;
+		float d12 = v01 * v02 + v11 * v12 + v21 * v22;
+		float t = TYPE_TOLERANCE * Math.max(l0, Math.max(l1, l2));
+		if (t == 0 || Math.abs(d01) > t || Math.abs(d02) > t || Math.abs(d12) > t) {
+			return MatrixType.AFFINE;
+		}
+		if (Math.abs(l0 - l1) > t || Math.abs(l0 - l2) > t) {
+			return MatrixType.ORTHOGONAL;
+		}
+		if (Math.abs(l0 - 1) > TYPE_TOLERANCE) {
+			return MatrixType.UNIFORM_SCALE;
+		}
+		return MatrixType.RIGID;
+	}
+
+	/**
+	 * Inverts the matrix (the matrix this is called on is affected)<br>
+	 * <br>
+	 * Checks the type of the matrix first, and uses a cheaper method for affine
+	 * matrices. Orthogonal, uniform scale and rigid matrices, which is almost
+	 * every world and view matrix, only need a transpose and a scale of the
+	 * rotation part. The results match the general method within float rounding.
 	 * 
 	 * @return The inverted matrix
+	 * @see #getType()
 	 */
 	public Matrix4f inverse() {
+		switch (getType()) {
+		case GENERAL:
+			return _inverseGeneral();
+		case AFFINE:
+			return _inverseAffine();
+		case ORTHOGONAL:
+		case UNIFORM_SCALE:
+			return _inverseOrthogonal(false);
+		case RIGID:
+			return _inverseOrthogonal(true);
+		}
+		return this;
+	}
+
+	/*
+	 * The inverse of the rotation part is its transpose with every row divided by
+	 * the squared length of the matching column, and the translation is moved back
+	 * by that.
+	 */
+	private Matrix4f _inverseOrthogonal(boolean rigid) {
+		float i0 = 1, i1 = 1, i2 = 1;
+		if (!rigid) {
+			i0 = 1 / (v00 * v00 + v10 * v10 + v20 * v20);
+			i1 = 1 / (v01 * v01 + v11 * v11 + v21 * v21);
+			i2 = 1 / (v02 * v02 + v12 * v12 + v22 * v22);
+		}
+		float r00 = v00 * i0, r01 = v10 * i0, r02 = v20 * i0;
+		float r10 = v01 * i1, r11 = v11 * i1, r12 = v21 * i1;
+		float r20 = v02 * i2, r21 = v12 * i2, r22 = v22 * i2;
+		float tx = v03, ty = v13, tz = v23;
+		v00 = r00;
+		v01 = r01;
+		v02 = r02;
+		v10 = r10;
+		v11 = r11;
+		v12 = r12;
+		v20 = r20;
+		v21 = r21;
+		v22 = r22;
+		v03 = -(r00 * tx + r01 * ty + r02 * tz);
+		v13 = -(r10 * tx + r11 * ty + r12 * tz);
+		v23 = -(r20 * tx + r21 * ty + r22 * tz);
+		return this;
+	}
+
+	/*
+	 * Inverts the upper 3x3 with cofactors, and moves the translation back by the
+	 * result.
+	 */
+	private Matrix4f _inverseAffine() {
+		float c00 = v11 * v22 - v12 * v21;
+		float c01 = v12 * v20 - v10 * v22;
+		float c02 = v10 * v21 - v11 * v20;
+		float det = v00 * c00 + v01 * c01 + v02 * c02;
+		det = 1 / det;
+
+		float r00 = c00 * det;
+		float r01 = (v02 * v21 - v01 * v22) * det;
+		float r02 = (v01 * v12 - v02 * v11) * det;
+		float r10 = c01 * det;
+		float r11 = (v00 * v22 - v02 * v20) * det;
+		float r12 = (v02 * v10 - v00 * v12) * det;
+		float r20 = c02 * det;
+		float r21 = (v01 * v20 - v00 * v21) * det;
+		float r22 = (v00 * v11 - v01 * v10) * det;
+		float tx = v03, ty = v13, tz = v23;
+		v00 = r00;
+		v01 = r01;
+		v02 = r02;
+		v10 = r10;
+		v11 = r11;
+		v12 = r12;
+		v20 = r20;
+		v21 = r21;
+		v22 = r22;
+		v03 = -(r00 * tx + r01 * ty + r02 * tz);
+		v13 = -(r10 * tx + r11 * ty + r12 * tz);
+		v23 = -(r20 * tx + r21 * ty + r22 * tz);
+		return this;
+	}
+
+	/*
+	 * Code generated by <a href=
+	 * "https://github.com/willnode/N-Matrix-Programmer">N-Matrix-Programmer</a>,
+	 * thanks. Code adopted by csbru
+	 */
+	private Matrix4f _inverseGeneral() {
 		float A2323 = v22 * v33 - v23 * v32;
 		float A1323 = v21 * v33 - v23 * v31;
 		float A1223 = v21 * v32 - v22 * v31;
@@ -1746,24 +2086,24 @@ public class Matrix4f {
 				+ v02 * (v10 * A1323 - v11 * A0323 + v13 * A0123) - v03 * (v10 * A1223 - v11 * A0223 + v12 * A0123);
 		det = 1 / det;
 
-		Matrix4f copy = copyOf(this);
-
-		v00 = det * (copy.v11 * A2323 - copy.v12 * A1323 + copy.v13 * A1223);
-		v01 = det * -(copy.v01 * A2323 - copy.v02 * A1323 + copy.v03 * A1223);
-		v02 = det * (copy.v01 * A2313 - copy.v02 * A1313 + copy.v03 * A1213);
-		v03 = det * -(copy.v01 * A2312 - copy.v02 * A1312 + copy.v03 * A1212);
-		v10 = det * -(copy.v10 * A2323 - copy.v12 * A0323 + copy.v13 * A0223);
-		v11 = det * (copy.v00 * A2323 - copy.v02 * A0323 + copy.v03 * A0223);
-		v12 = det * -(copy.v00 * A2313 - copy.v02 * A0313 + copy.v03 * A0213);
-		v13 = det * (copy.v00 * A2312 - copy.v02 * A0312 + copy.v03 * A0212);
-		v20 = det * (copy.v10 * A1323 - copy.v11 * A0323 + copy.v13 * A0123);
-		v21 = det * -(copy.v00 * A1323 - copy.v01 * A0323 + copy.v03 * A0123);
-		v22 = det * (copy.v00 * A1313 - copy.v01 * A0313 + copy.v03 * A0113);
-		v23 = det * -(copy.v00 * A1312 - copy.v01 * A0312 + copy.v03 * A0112);
-		v30 = det * -(copy.v10 * A1223 - copy.v11 * A0223 + copy.v12 * A0123);
-		v31 = det * (copy.v00 * A1223 - copy.v01 * A0223 + copy.v02 * A0123);
-		v32 = det * -(copy.v00 * A1213 - copy.v01 * A0213 + copy.v02 * A0113);
-		v33 = det * (copy.v00 * A1212 - copy.v01 * A0212 + copy.v02 * A0112);
+		float c00 = v00, c01 = v01, c02 = v02, c03 = v03, c10 = v10, c11 = v11, c12 = v12, c13 = v13;
+
+		v00 = det * (c11 * A2323 - c12 * A1323 + c13 * A1223);
+		v01 = det * -(c01 * A2323 - c02 * A1323 + c03 * A1223);
+		v02 = det * (c01 * A2313 - c02 * A1313 + c03 * A1213);
+		v03 = det * -(c01 * A2312 - c02 * A1312 + c03 * A1212);
+		v10 = det * -(c10 * A2323 - c12 * A0323 + c13 * A0223);
+		v11 = det * (c00 * A2323 - c02 * A0323 + c03 * A0223);
+		v12 = det * -(c00 * A2313 - c02 * A0313 + c03 * A0213);
+		v13 = det * (c00 * A2312 - c02 * A0312 + c03 * A0212);
+		v20 = det * (c10 * A1323 - c11 * A0323 + c13 * A0123);
+		v21 = det * -(c00 * A1323 - c01 * A0323 + c03 * A0123);
+		v22 = det * (c00 * A1313 - c01 * A0313 + c03 * A0113);
+		v23 = det * -(c00 * A1312 - c01 * A0312 + c03 * A0112);
+		v30 = det * -(c10 * A1223 - c11 * A0223 + c12 * A0123);
+		v31 = det * (c00 * A1223 - c01 * A0223 + c02 * A0123);
+		v32 = det * -(c00 * A1213 - c01 * A0213 + c02 * A0113);
+		v33 = det * (c00 * A1212 - c01 * A0212 + c02 * A0112);
 
 		return this;
 	}
@@ -1775,7 +2115,83 @@ public class Matrix4f {
 	 * @see Matrix4f#inverse()
 	 */
 	public Matrix4f inverseCopy() {
-		return copyOf(this).inverse();
+		return inverseCopy(null);
+	}
+
+	/**
+	 * Inverts the matrix (the matrix this is called on is not affected)
+	 * 
+	 * @param copy A matrix that is used to avoid calls to new. Any value in that
+	 *             matrix will be overridden.
+	 * @return The inverted matrix
+	 * @see Matrix4f#inverse()
+	 */
+	public Matrix4f inverseCopy(Matrix4f copy) {
+		return _alloc(copy, this).inverse();
+	}
+
+	/**
+	 * Creates the normal matrix for this matrix, the inverse transpose, which is
+	 * used to transform normals so they stay perpendicular to the surface. Only
+	 * the upper 3x3 of the result is set, the rest is left as identity, as
+	 * normals have no translation. (the matrix this is called on is not affected)
+	 * <br>
+	 * <br>
+	 * For orthogonal matrices this is the rotation part with every column divided
+	 * by its squared length, and for rigid matrices it is just the rotation part,
+	 * so no inverse is needed at all. Other matrices invert the upper 3x3.
+	 * 
+	 * @param copy A matrix that is used to avoid calls to new. Any value in that
+	 *             matrix will be overridden.
+	 * @return The normal matrix
+	 */
+	public Matrix4f normalMatrix(Matrix4f copy) {
+		copy = _alloc(copy);
+		switch (getType()) {
+		case RIGID:
+			copy.v00 = v00;
+			copy.v10 = v10;
+			copy.v20 = v20;
+			copy.v01 = v01;
+			copy.v11 = v11;
+			copy.v21 = v21;
+			copy.v02 = v02;
+			copy.v12 = v12;
+			copy.v22 = v22;
+			break;
+		case ORTHOGONAL:
+		case UNIFORM_SCALE:
+			float i0 = 1 / (v00 * v00 + v10 * v10 + v20 * v20);
+			float i1 = 1 / (v01 * v01 + v11 * v11 + v21 * v21);
+			float i2 = 1 / (v02 * v02 + v12 * v12 + v22 * v22);
+			copy.v00 = v00 * i0;
+			copy.v10 = v10 * i0;
+			copy.v20 = v20 * i0;
+			copy.v01 = v01 * i1;
+			copy.v11 = v11 * i1;
+			copy.v21 = v21 * i1;
+			copy.v02 = v02 * i2;
+			copy.v12 = v12 * i2;
+			copy.v22 = v22 * i2;
+			break;
+		default:
+			// The cofactor matrix divided by the determinant is the inverse transpose
+			float c00 = v11 * v22 - v12 * v21;
+			float c01 = v12 * v20 - v10 * v22;
+			float c02 = v10 * v21 - v11 * v20;
+			float det = 1 / (v00 * c00 + v01 * c01 + v02 * c02);
+			copy.v00 = c00 * det;
+			copy.v01 = c01 * det;
+			copy.v02 = c02 * det;
+			copy.v10 = (v02 * v21 - v01 * v22) * det;
+			copy.v11 = (v00 * v22 - v02 * v20) * det;
+			copy.v12 = (v01 * v20 - v00 * v21) * det;
+			copy.v20 = (v01 * v12 - v02 * v11) * det;
+			copy.v21 = (v02 * v10 - v00 * v12) * det;
+			copy.v22 = (v00 * v11 - v01 * v10) * det;
+			break;
+		}
+		return copy;
 	}
 
 	/**
@@ -1822,7 +2238,10 @@ public class Matrix4f {
 
 	/**
 	 * Performs matrix multiplication this matrix with the passed matrix (the matrix
-	 * this is called on is affected)
+	 * this is called on is affected)<br>
+	 * <br>
+	 * If both matrices are affine the bottom row is skipped, and mulHelp isn't
+	 * touched.
 	 * 
 	 * @param mat     The matrix to multiply with
 	 * @param mulHelp A matrix that is used to avoid calls to new. Any value in that
@@ -1830,6 +2249,9 @@ public class Matrix4f {
 	 * @return The multiplied matrix
 	 */
 	public Matrix4f mul(Matrix4f mat, Matrix4f mulHelp) {
+		if (isAffine() && mat.isAffine()) {
+			return _mulAffine(mat);
+		}
 		mulHelp = _alloc(mulHelp, this);
 
 		this.v00 = (mulHelp.v00 * mat.v00) + (mulHelp.v01 * mat.v10) + (mulHelp.v02 * mat.v20)
@@ -1871,6 +2293,37 @@ public class Matrix4f {
 		return this;
 	}
 
+	/*
+	 * Both bottom rows are 0, 0, 0, 1, so the bottom row of the result is too and
+	 * only the upper 3x4 has to be worked out. No copy is needed either, as every
+	 * value of this matrix is read before anything is written.
+	 */
+	private Matrix4f _mulAffine(Matrix4f mat) {
+		float a00 = v00, a01 = v01, a02 = v02, a03 = v03;
+		float a10 = v10, a11 = v11, a12 = v12, a13 = v13;
+		float a20 = v20, a21 = v21, a22 = v22, a23 = v23;
+		float b00 = mat.v00, b01 = mat.v01, b02 = mat.v02, b03 = mat.v03;
+		float b10 = mat.v10, b11 = mat.v11, b12 = mat.v12, b13 = mat.v13;
+		float b20 = mat.v20, b21 = mat.v21, b22 = mat.v22, b23 = mat.v23;
+
+		v00 = a00 * b00 + a01 * b10 + a02 * b20;
+		v10 = a10 * b00 + a11 * b10 + a12 * b20;
+		v20 = a20 * b00 + a21 * b10 + a22 * b20;
+
+		v01 = a00 * b01 + a01 * b11 + a02 * b21;
+		v11 = a10 * b01 + a11 * b11 + a12 * b21;
+		v21 = a20 * b01 + a21 * b11 + a22 * b21;
+
+		v02 = a00 * b02 + a01 * b12 + a02 * b22;
+		v12 = a10 * b02 + a11 * b12 + a12 * b22;
+		v22 = a20 * b02 + a21 * b12 + a22 * b22;
+
+		v03 = a00 * b03 + a01 * b13 + a02 * b23 + a03;
+		v13 = a10 * b03 + a11 * b13 + a12 * b23 + a13;
+		v23 = a20 * b03 + a21 * b13 + a22 * b23 + a23;
+		return this;
+	}
+
 	/**
 	 * Performs scalar multiplication on the matrix (the matrix this is called on is
 	 * not affected)
@@ -1930,14 +2383,32 @@ public class Matrix4f {
 		return toFloatArrayCMO();
 	}
 
+	/**
+	 * Writes the matrix into an existing array, organized into column major order
+	 * 
+	 * @param array The array to write into, must have a length of at least 16
+	 * @return The passed array
+	 */
+	public float[] toFloatArray(float[] array) {
+		return toFloatArrayCMO(array);
+	}
+
 	/**
 	 * Gives the matrix as an array organized into column major order
 	 * 
 	 * @return The matrix as an array
 	 */
 	public float[] toFloatArrayCMO() {
-		float[] ret = new float[16];
+		return toFloatArrayCMO(new float[16]);
+	}
 
+	/**
+	 * Writes the matrix into an existing array, organized into column major order
+	 * 
+	 * @param ret The array to write into, must have a length of at least 16
+	 * @return The passed array
+	 */
+	public float[] toFloatArrayCMO(float[] ret) {
 		ret[0] = v00;
 		ret[1] = v10;
 		ret[2] = v20;
@@ -2007,10 +2478,10 @@ public class Matrix4f {
 	 * @return The result
 	 */
 	public Vector4f mul(Vector4f vec) {
-		float v0 = vec.dotProduct(row0());
-		float v1 = vec.dotProduct(row1());
-		float v2 = vec.dotProduct(row2());
-		float v3 = vec.dotProduct(row3());
+		float v0 = vec.x * v00 + vec.y * v01 + vec.z * v02 + vec.w * v03;
+		float v1 = vec.x * v10 + vec.y * v11 + vec.z * v12 + vec.w * v13;
+		float v2 = vec.x * v20 + vec.y * v21 + vec.z * v22 + vec.w * v23;
+		float v3 = vec.x * v30 + vec.y * v31 + vec.z * v32 + vec.w * v33;
 		vec.x = v0;
 		vec.y = v1;
 		vec.z = v2;
@@ -2026,7 +2497,23 @@ public class Matrix4f {
 	 * @return The result
 	 */
 	public Vector4f mulCopy(Vector4f vec) {
-		return mul(Vector4f.copyOf(vec));
+		return mulCopy(vec, null);
+	}
+
+	/**
+	 * Multiplies the this matrix by the passed vector (treating is as a 4x1 matrix)
+	 * (the passed vector is not affected)
+	 * 
+	 * @param vec  The vector to multiply by
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The result
+	 */
+	public Vector4f mulCopy(Vector4f vec, Vector4f copy) {
+		if (copy == null) {
+			return mul(Vector4f.copyOf(vec));
+		}
+		return mul(copy.transcribe(vec));
 	}
 
 	/**
@@ -2036,22 +2523,29 @@ public class Matrix4f {
 	 * @return The transposed matrix
 	 */
 	public Matrix4f transpose() {
-		Matrix4f copy = copyOf(this);
-		v01 = copy.v10;
-		v02 = copy.v20;
-		v03 = copy.v30;
+		float temp = v01;
+		v01 = v10;
+		v10 = temp;
+
+		temp = v02;
+		v02 = v20;
+		v20 = temp;
 
-		v10 = copy.v01;
-		v12 = copy.v21;
-		v13 = copy.v31;
+		temp = v03;
+		v03 = v30;
+		v30 = temp;
 
-		v20 = copy.v02;
-		v21 = copy.v12;
-		v23 = copy.v32;
+		temp = v12;
+		v12 = v21;
+		v21 = temp;
 
-		v30 = copy.v03;
-		v31 = copy.v13;
-		v32 = copy.v23;
+		temp = v13;
+		v13 = v31;
+		v31 = temp;
+
+		temp = v23;
+		v23 = v32;
+		v32 = temp;
 
 		return this;
 	}
@@ -2063,7 +2557,19 @@ public class Matrix4f {
 	 * @return The transposed matrix
 	 */
 	public Matrix4f transposeCopy() {
-		return copyOf(this).transpose();
+		return transposeCopy(null);
+	}
+
+	/**
+	 * Returns the transposed matrix i.e. the columns are replaced by the rows and
+	 * vice versa (the matrix this is called on is not affected)
+	 * 
+	 * @param copy A matrix that is used to avoid calls to new. Any value in that
+	 *             matrix will be overridden.
+	 * @return The transposed matrix
+	 */
+	public Matrix4f transposeCopy(Matrix4f copy) {
+		return _alloc(copy, this).transpose();
 	}
 
 	// May be incorrect nomenclature, but its private so it doesn't really matter.
@@ -0,0 +1,317 @@
+package net.chazzvader.core.generic.math;
+
+/**
+ * Kernels that work on whole arrays of matrices and points at once, instead of
+ * one <code>Matrix4f</code> at a time. Matrices are stored as 16 floats each in
+ * column major order, the same layout as {@link Matrix4f#toFloatArray()} and
+ * the world matrices of <code>TransformStore</code>, so matrix <code>i</code>
+ * starts at <code>i * 16</code>. Points and directions are stored as 3 floats
+ * each.<br>
+ * <br>
+ * Every kernel does the exact same float operations in the same order as the
+ * matching <code>Matrix4f</code> method, so results match bit for bit. Inputs
+ * are read into locals before anything is written, so the output array may be
+ * one of the input arrays.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class MatrixBatch {
+
+	private MatrixBatch() {
+	}
+
+	/**
+	 * The amount of floats one matrix takes up.
+	 */
+	public static final int MATRIX_FLOATS = 16;
+
+	/**
+	 * Writes a matrix into an array, in column major order.
+	 *
+	 * @param mat   The matrix to write.
+	 * @param array The array to write into.
+	 * @param index The index of the matrix in the array.
+	 */
+	public static void write(Matrix4f mat, float[] array, int index) {
+		int o = index * MATRIX_FLOATS;
+		array[o + 0] = mat.v00;
+		array[o + 1] = mat.v10;
+		array[o + 2] = mat.v20;
+		array[o + 3] = mat.v30;
+		array[o + 4] = mat.v01;
+		array[o + 5] = mat.v11;
+		array[o + 6] = mat.v21;
+		array[o + 7] = mat.v31;
+		array[o + 8] = mat.v02;
+		array[o + 9] = mat.v12;
+		array[o + 10] = mat.v22;
+		array[o + 11] = mat.v32;
+		array[o + 12] = mat.v03;
+		array[o + 13] = mat.v13;
+		array[o + 14] = mat.v23;
+		array[o + 15] = mat.v33;
+	}
+
+	/**
+	 * Reads a matrix out of an array.
+	 *
+	 * @param array The array to read from.
+	 * @param index The index of the matrix in the array.
+	 * @param copy  A matrix that is used to avoid calls to new. Any value in that
+	 *              matrix will be overridden.
+	 * @return The matrix.
+	 */
+	public static Matrix4f read(float[] array, int index, Matrix4f copy) {
+		copy = copy == null ? new Matrix4f() : copy;
+		int o = index * MATRIX_FLOATS;
+		return copy.transcribe(array[o + 0], array[o + 1], array[o + 2], array[o + 3], array[o + 4], array[o + 5],
+				array[o + 6], array[o + 7], array[o + 8], array[o + 9], array[o + 10], array[o + 11], array[o + 12],
+				array[o + 13], array[o + 14], array[o + 15]);
+	}
+
+	/**
+	 * Multiplies matrices pairwise, <code>out[i] = left[i] * right[i]</code>.
+	 *
+	 * @param left  The left matrices.
+	 * @param right The right matrices.
+	 * @param out   The array to write the results into.
+	 * @param count The amount of matrices.
+	 * @see Matrix4f#mul(Matrix4f)
+	 */
+	public static void mul(float[] left, float[] right, float[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			mul(left, i, right, i, out, i);
+		}
+	}
+
+	/**
+	 * Multiplies every matrix in a range with a matrix picked by index,
+	 * <code>out[i] = left[leftIndex[i]] * right[i]</code>. This is what composing
+	 * one level of a hierarchy looks like, with <code>left</code> holding the
+	 * world matrices of the parents and <code>right</code> the local matrices of
+	 * the children. <code>left</code> and <code>out</code> can be the same array
+	 * as long as no matrix in the range is its own parent.
+	 *
+	 * @param left      The left matrices.
+	 * @param leftIndex The index into left to use for every matrix in the range.
+	 * @param right     The right matrices.
+	 * @param out       The array to write the results into.
+	 * @param start     The index of the first matrix of the range.
+	 * @param count     The amount of matrices in the range.
+	 * @see Matrix4f#mul(Matrix4f)
+	 */
+	public static void mul(float[] left, int[] leftIndex, float[] right, float[] out, int start, int count) {
+		int end = start + count;
+		for (int i = start; i < end; i++) {
+			mul(left, leftIndex[i], right, i, out, i);
+		}
+	}
+
+	/**
+	 * Multiplies one matrix with every matrix in an array,
+	 * <code>out[i] = left * right[i]</code>. For example a view projection
+	 * matrix with a set of world matrices.
+	 *
+	 * @param left  The left matrix.
+	 * @param right The right matrices.
+	 * @param out   The array to write the results into.
+	 * @param count The amount of matrices.
+	 * @see Matrix4f#mul(Matrix4f)
+	 */
+	public static void mul(Matrix4f left, float[] right, float[] out, int count) {
+		float a00 = left.v00, a10 = left.v10, a20 = left.v20, a30 = left.v30;
+		float a01 = left.v01, a11 = left.v11, a21 = left.v21, a31 = left.v31;
+		float a02 = left.v02, a12 = left.v12, a22 = left.v22, a32 = left.v32;
+		float a03 = left.v03, a13 = left.v13, a23 = left.v23, a33 = left.v33;
+		for (int i = 0; i < count; i++) {
+			int o = i * MATRIX_FLOATS;
+			for (int c = 0; c < 4; c++) {
+				int oc = o + c * 4;
+				float b0 = right[oc + 0], b1 = right[oc + 1], b2 = right[oc + 2], b3 = right[oc + 3];
+				out[oc + 0] = (a00 * b0) + (a01 * b1) + (a02 * b2) + (a03 * b3);
+				out[oc + 1] = (a10 * b0) + (a11 * b1) + (a12 * b2) + (a13 * b3);
+				out[oc + 2] = (a20 * b0) + (a21 * b1) + (a22 * b2) + (a23 * b3);
+				out[oc + 3] = (a30 * b0) + (a31 * b1) + (a32 * b2) + (a33 * b3);
+			}
+		}
+	}
+
+	private static void mul(float[] left, int li, float[] right, int ri, float[] out, int oi) {
+		int l = li * MATRIX_FLOATS, r = ri * MATRIX_FLOATS, o = oi * MATRIX_FLOATS;
+		float a00 = left[l + 0], a10 = left[l + 1], a20 = left[l + 2], a30 = left[l + 3];
+		float a01 = left[l + 4], a11 = left[l + 5], a21 = left[l + 6], a31 = left[l + 7];
+		float a02 = left[l + 8], a12 = left[l + 9], a22 = left[l + 10], a32 = left[l + 11];
+		float a03 = left[l + 12], a13 = left[l + 13], a23 = left[l + 14], a33 = left[l + 15];
+		for (int c = 0; c < 4; c++) {
+			int rc = r + c * 4, oc = o + c * 4;
+			float b0 = right[rc + 0], b1 = right[rc + 1], b2 = right[rc + 2], b3 = right[rc + 3];
+			out[oc + 0] = (a00 * b0) + (a01 * b1) + (a02 * b2) + (a03 * b3);
+			out[oc + 1] = (a10 * b0) + (a11 * b1) + (a12 * b2) + (a13 * b3);
+			out[oc + 2] = (a20 * b0) + (a21 * b1) + (a22 * b2) + (a23 * b3);
+			out[oc + 3] = (a30 * b0) + (a31 * b1) + (a32 * b2) + (a33 * b3);
+		}
+	}
+
+	/**
+	 * Inverts every matrix in an array.
+	 *
+	 * @param in    The matrices to invert.
+	 * @param out   The array to write the results into.
+	 * @param count The amount of matrices.
+	 * @see Matrix4f#inverse()
+	 */
+	public static void inverse(float[] in, float[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			int o = i * MATRIX_FLOATS;
+			float v00 = in[o + 0], v10 = in[o + 1], v20 = in[o + 2], v30 = in[o + 3];
+			float v01 = in[o + 4], v11 = in[o + 5], v21 = in[o + 6], v31 = in[o + 7];
+			float v02 = in[o + 8], v12 = in[o + 9], v22 = in[o + 10], v32 = in[o + 11];
+			float v03 = in[o + 12], v13 = in[o + 13], v23 = in[o + 14], v33 = in[o + 15];
+
+			float A2323 = v22 * v33 - v23 * v32;
+			float A1323 = v21 * v33 - v23 * v31;
+			float A1223 = v21 * v32 - v22 * v31;
+			float A0323 = v20 * v33 - v23 * v30;
+			float A0223 = v20 * v32 - v22 * v30;
+			float A0123 = v20 * v31 - v21 * v30;
+			float A2313 = v12 * v33 - v13 * v32;
+			float A1313 = v11 * v33 - v13 * v31;
+			float A1213 = v11 * v32 - v12 * v31;
+			float A2312 = v12 * v23 - v13 * v22;
+			float A1312 = v11 * v23 - v13 * v21;
+			float A1212 = v11 * v22 - v12 * v21;
+			float A0313 = v10 * v33 - v13 * v30;
+			float A0213 = v10 * v32 - v12 * v30;
+			float A0312 = v10 * v23 - v13 * v20;
+			float A0212 = v10 * v22 - v12 * v20;
+			float A0113 = v10 * v31 - v11 * v30;
+			float A0112 = v10 * v21 - v11 * v20;
+
+			float det = v00 * (v11 * A2323 - v12 * A1323 + v13 * A1223)
+					- v01 * (v10 * A2323 - v12 * A0323 + v13 * A0223)
+					+ v02 * (v10 * A1323 - v11 * A0323 + v13 * A0123)
+					- v03 * (v10 * A1223 - v11 * A0223 + v12 * A0123);
+			det = 1 / det;
+
+			out[o + 0] = det * (v11 * A2323 - v12 * A1323 + v13 * A1223);
+			out[o + 4] = det * -(v01 * A2323 - v02 * A1323 + v03 * A1223);
+			out[o + 8] = det * (v01 * A2313 - v02 * A1313 + v03 * A1213);
+			out[o + 12] = det * -(v01 * A2312 - v02 * A1312 + v03 * A1212);
+			out[o + 1] = det * -(v10 * A2323 - v12 * A0323 + v13 * A0223);
+			out[o + 5] = det * (v00 * A2323 - v02 * A0323 + v03 * A0223);
+			out[o + 9] = det * -(v00 * A2313 - v02 * A0313 + v03 * A0213);
+			out[o + 13] = det * (v00 * A2312 - v02 * A0312 + v03 * A0212);
+			out[o + 2] = det * (v10 * A1323 - v11 * A0323 + v13 * A0123);
+			out[o + 6] = det * -(v00 * A1323 - v01 * A0323 + v03 * A0123);
+			out[o + 10] = det * (v00 * A1313 - v01 * A0313 + v03 * A0113);
+			out[o + 14] = det * -(v00 * A1312 - v01 * A0312 + v03 * A0112);
+			out[o + 3] = det * -(v10 * A1223 - v11 * A0223 + v12 * A0123);
+			out[o + 7] = det * (v00 * A1223 - v01 * A0223 + v02 * A0123);
+			out[o + 11] = det * -(v00 * A1213 - v01 * A0213 + v02 * A0113);
+			out[o + 15] = det * (v00 * A1212 - v01 * A0212 + v02 * A0112);
+		}
+	}
+
+	/**
+	 * Transforms an array of points by a matrix, treating every point as having a
+	 * w of 1. Used for things like moving the vertex positions of a mesh.
+	 *
+	 * @param mat    The matrix to transform by.
+	 * @param points The points, 3 floats each.
+	 * @param out    The array to write the results into, 3 floats each.
+	 * @param count  The amount of points.
+	 * @see Matrix4f#mul(Vector4f)
+	 */
+	public static void transformPoints(Matrix4f mat, float[] points, float[] out, int count) {
+		float m00 = mat.v00, m01 = mat.v01, m02 = mat.v02, m03 = mat.v03;
+		float m10 = mat.v10, m11 = mat.v11, m12 = mat.v12, m13 = mat.v13;
+		float m20 = mat.v20, m21 = mat.v21, m22 = mat.v22, m23 = mat.v23;
+		for (int i = 0; i < count * 3; i += 3) {
+			float x = points[i + 0], y = points[i + 1], z = points[i + 2];
+			out[i + 0] = x * m00 + y * m01 + z * m02 + m03;
+			out[i + 1] = x * m10 + y * m11 + z * m12 + m13;
+			out[i + 2] = x * m20 + y * m21 + z * m22 + m23;
+		}
+	}
+
+	/**
+	 * Transforms an array of directions by a matrix, treating every direction as
+	 * having a w of 0, so translation is ignored. Used for normals and tangents,
+	 * together with a normal matrix. The results are not normalized.
+	 *
+	 * @param mat        The matrix to transform by.
+	 * @param directions The directions, 3 floats each.
+	 * @param out        The array to write the results into, 3 floats each.
+	 * @param count      The amount of directions.
+	 * @see Matrix4f#mul(Vector4f)
+	 */
+	public static void transformDirections(Matrix4f mat, float[] directions, float[] out, int count) {
+		float m00 = mat.v00, m01 = mat.v01, m02 = mat.v02;
+		float m10 = mat.v10, m11 = mat.v11, m12 = mat.v12;
+		float m20 = mat.v20, m21 = mat.v21, m22 = mat.v22;
+		for (int i = 0; i < count * 3; i += 3) {
+			float x = directions[i + 0], y = directions[i + 1], z = directions[i + 2];
+			out[i + 0] = x * m00 + y * m01 + z * m02;
+			out[i + 1] = x * m10 + y * m11 + z * m12;
+			out[i + 2] = x * m20 + y * m21 + z * m22;
+		}
+	}
+
+	/**
+	 * Builds a world matrix for every instance from a position, rotation and
+	 * scale, as <code>translation * rotation * scale</code>. Gives the same result
+	 * as <code>new Matrix4f().applyTranslation(pos).applyRotation(rot).applyScale(scale)</code>.
+	 *
+	 * @param pos   The positions, 3 floats each.
+	 * @param rot   The rotations as quaternions, 4 floats each in the order
+	 *              <code>a, b, c, d</code>.
+	 * @param scale The scales, 3 floats each.
+	 * @param out   The array to write the matrices into.
+	 * @param count The amount of instances.
+	 * @see Matrix4f#rotation(Quaternion)
+	 */
+	public static void compose(float[] pos, float[] rot, float[] scale, float[] out, int count) {
+		for (int i = 0; i < count; i++) {
+			composeAt(pos, rot, scale, out, i);
+		}
+	}
+
+	/**
+	 * Builds the world matrix of one instance, the same way as
+	 * {@link #compose(float[], float[], float[], float[], int)}. Used by
+	 * <code>TransformStore</code> right after it works out the world position,
+	 * rotation and scale of a slot.
+	 *
+	 * @param pos   The positions, 3 floats each.
+	 * @param rot   The rotations as quaternions, 4 floats each in the order
+	 *              <code>a, b, c, d</code>.
+	 * @param scale The scales, 3 floats each.
+	 * @param out   The array to write the matrix into.
+	 * @param index The index of the instance.
+	 */
+	public static void composeAt(float[] pos, float[] rot, float[] scale, float[] out, int index) {
+		int o3 = index * 3, o4 = index * 4, o = index * MATRIX_FLOATS;
+		float a = rot[o4 + 0], b = rot[o4 + 1], c = rot[o4 + 2], d = rot[o4 + 3];
+		float sx = scale[o3 + 0], sy = scale[o3 + 1], sz = scale[o3 + 2];
+		float s = 1 / (a * a + b * b + c * c + d * d);
+		out[o + 0] = (1 - 2 * s * (c * c + d * d)) * sx;
+		out[o + 1] = (2 * s * (b * c + d * a)) * sx;
+		out[o + 2] = (2 * s * (b * d - c * a)) * sx;
+		out[o + 3] = 0;
+		out[o + 4] = (2 * s * (b * c - d * a)) * sy;
+		out[o + 5] = (1 - 2 * s * (b * b + d * d)) * sy;
+		out[o + 6] = (2 * s * (c * d + b * a)) * sy;
+		out[o + 7] = 0;
+		out[o + 8] = (2 * s * (b * d + c * a)) * sz;
+		out[o + 9] = (2 * s * (c * d - b * a)) * sz;
+		out[o + 10] = (1 - 2 * s * (b * b + c * c)) * sz;
+		out[o + 11] = 0;
+		out[o + 12] = pos[o3 + 0];
+		out[o + 13] = pos[o3 + 1];
+		out[o + 14] = pos[o3 + 2];
+		out[o + 15] = 1;
+	}
+
+}
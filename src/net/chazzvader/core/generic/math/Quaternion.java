@@ -113,11 +113,11 @@ public class Quaternion {
 	 * @return The multiplied quaternion.
 	 */
 	public Quaternion mul(Quaternion q) {
-		Quaternion copy = copyOf(this);
-		this.a = (copy.a * q.a - copy.b * q.b - copy.c * q.c - copy.d * q.d);
-		this.b = (copy.a * q.b + copy.b * q.a + copy.c * q.d - copy.d * q.c);
-		this.c = (copy.a * q.c - copy.b * q.d + copy.c * q.a + copy.d * q.b);
-		this.d = (copy.a * q.d + copy.b * q.c - copy.c * q.b + copy.d * q.a);
+		float a = this.a, b = this.b, c = this.c, d = this.d;
+		this.a = (a * q.a - b * q.b - c * q.c - d * q.d);
+		this.b = (a * q.b + b * q.a + c * q.d - d * q.c);
+		this.c = (a * q.c - b * q.d + c * q.a + d * q.b);
+		this.d = (a * q.d + b * q.c - c * q.b + d * q.a);
 		return this;
 	}
 
@@ -132,7 +132,50 @@ public class Quaternion {
 	 * @return The multiplied quaternion.
 	 */
 	public Quaternion mulCopy(Quaternion q) {
-		return copyOf(this).mul(q);
+		return mulCopy(q, null);
+	}
+
+	/**
+	 * Multiplies two quaternions. (the quaternion this is called on is not
+	 * affected)<br>
+	 * <br>
+	 * This is equivalent to apply the rotation q after the rotation this quaternion
+	 * represents, if you are using quaternions to represent rotations.
+	 * 
+	 * @param q    The quaternion to multiply by.
+	 * @param copy A quaternion that is used to avoid calls to new. Any value in that
+	 *             quaternion will be overridden.
+	 * @return The multiplied quaternion.
+	 */
+	public Quaternion mulCopy(Quaternion q, Quaternion copy) {
+		return _alloc(copy, this).mul(q);
+	}
+
+	/**
+	 * Copies the values from the other quaternion to this one.
+	 * 
+	 * @param q The quaternion to copy from.
+	 * @return The quaternion with the copied values.
+	 */
+	public Quaternion transcribe(Quaternion q) {
+		return transcribe(q.a, q.b, q.c, q.d);
+	}
+
+	/**
+	 * Sets the values of this quaternion.
+	 * 
+	 * @param a The new a value
+	 * @param b The new b value
+	 * @param c The new c value
+	 * @param d The new d value
+	 * @return The quaternion with the new values.
+	 */
+	public Quaternion transcribe(float a, float b, float c, float d) {
+		this.a = a;
+		this.b = b;
+		this.c = c;
+		this.d = d;
+		return this;
 	}
 
 	/**
@@ -246,8 +289,44 @@ public class Quaternion {
 	 * @see #inverse()
 	 */
 	public Vector3f applyRotation(Vector3f input) {		
-		Quaternion result = applyRotation(new Quaternion(input));
-		return result.toPosition();
+		return applyRotation(input, null);
+	}
+
+	/**
+	 * This applies a the rotation the quaternion represents to the given vector,
+	 * writing the result into <code>copy</code>. Does the same math as
+	 * {@link #applyRotation(Quaternion)} on plain floats. <code>copy</code> may be
+	 * the input vector.
+	 * 
+	 * @param input The input vector to transform.
+	 * @param copy  A vector that is used to avoid calls to new. Any value in that
+	 *              vector will be overridden.
+	 * @return The rotated vector.
+	 * @see #applyRotation(Vector3f)
+	 */
+	public Vector3f applyRotation(Vector3f input, Vector3f copy) {
+		float pa = 0, pb = input.x, pc = input.y, pd = input.z;
+
+		float ta = (a * pa - b * pb - c * pc - d * pd);
+		float tb = (a * pb + b * pa + c * pd - d * pc);
+		float tc = (a * pc - b * pd + c * pa + d * pb);
+		float td = (a * pd + b * pc - c * pb + d * pa);
+
+		float ib = b * -1, ic = c * -1, id = d * -1;
+		float n = 1 / (a * a + ib * ib + ic * ic + id * id);
+		float ia = a * n;
+		ib *= n;
+		ic *= n;
+		id *= n;
+
+		float rb = (ta * ib + tb * ia + tc * id - td * ic);
+		float rc = (ta * ic - tb * id + tc * ia + td * ib);
+		float rd = (ta * id + tb * ic - tc * ib + td * ia);
+
+		if (copy == null) {
+			return new Vector3f(rb, rc, rd);
+		}
+		return copy.transcribe(rb, rc, rd);
 	}
 	
 	/**
@@ -317,7 +396,20 @@ public class Quaternion {
 	 * @see Vector3f
 	 */
 	public Vector3f toEuler() {
-		Vector3f result = new Vector3f();
+		return toEuler(null);
+	}
+
+	/**
+	 * Converts the quaternion into equivalent Euler angles, writing them into
+	 * <code>copy</code>.
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The a set of Euler angles equivalent to the quaternion.
+	 * @see #toEuler()
+	 */
+	public Vector3f toEuler(Vector3f copy) {
+		Vector3f result = copy == null ? new Vector3f() : copy;
 
 		float ypy = 2 * c * a - 2 * b * d;
 		float ypx = 1 - 2 * c * c - 2 * d * d;
@@ -379,7 +471,20 @@ public class Quaternion {
 	 * @see #applyRotation(Vector3f)
 	 */
 	public Quaternion inverseCopy() {
-		return copyOf(this).inverse();
+		return inverseCopy(null);
+	}
+
+	/**
+	 * Gets the inverse of this quaternion, <code>q<sup>-1</sup></code>. Used for
+	 * apply rotations. (the quaternion this is called on is not affected)
+	 * 
+	 * @param copy A quaternion that is used to avoid calls to new. Any value in that
+	 *             quaternion will be overridden.
+	 * @return The inverse of this quaternion.
+	 * @see #applyRotation(Vector3f)
+	 */
+	public Quaternion inverseCopy(Quaternion copy) {
+		return _alloc(copy, this).inverse();
 	}
 
 	/**
@@ -406,7 +511,20 @@ public class Quaternion {
 	 * @param scalar The scalar to multiply by.
 	 */
 	public Quaternion mulCopy(float scalar) {
-		return copyOf(this).mul(scalar);
+		return mulCopy(scalar, null);
+	}
+
+	/**
+	 * Multiplies the quaternion by a static scalar. This does make it a non unit
+	 * quaternion, which is not useful for rotations. (the quaternion this is called
+	 * on is not affected)
+	 * 
+	 * @param scalar The scalar to multiply by.
+	 * @param copy   A quaternion that is used to avoid calls to new. Any value in that
+	 *               quaternion will be overridden.
+	 */
+	public Quaternion mulCopy(float scalar, Quaternion copy) {
+		return _alloc(copy, this).mul(scalar);
 	}
 
 	/**
@@ -449,13 +567,45 @@ public class Quaternion {
 	 * @return The normalized quaternion
 	 */
 	public Quaternion normalizeCopy() {
-		return copyOf(this).normalize();
+		return normalizeCopy(null);
+	}
+
+	/**
+	 * Normalizes a quaternion. The result will a quaternion with the ratio between
+	 * components the same but a length of 1. (the quaternion this is called on is
+	 * not affected)<br>
+	 * <br>
+	 * Quaternions are required to be normalized for rotations to work.
+	 * 
+	 * @param copy A quaternion that is used to avoid calls to new. Any value in that
+	 *             quaternion will be overridden.
+	 * @return The normalized quaternion
+	 */
+	public Quaternion normalizeCopy(Quaternion copy) {
+		return _alloc(copy, this).normalize();
 	}
 	
 	public Vector3f toDirection() {
-		Vector3f direction = StaticMath.POSITIVE_X;
-		direction = applyRotation(direction);
-		return direction;
+		return toDirection(null);
+	}
+
+	/**
+	 * The direction positive x points in after this rotation is applied.
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The direction vector
+	 */
+	public Vector3f toDirection(Vector3f copy) {
+		return applyRotation(StaticMath.POSITIVE_X, copy);
+	}
+
+	private static Quaternion _alloc(Quaternion copy, Quaternion source) {
+		if (copy != null) {
+			return copy.transcribe(source);
+		} else {
+			return copyOf(source);
+		}
 	}
 
 	@Override
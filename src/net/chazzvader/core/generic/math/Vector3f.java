@@ -72,6 +72,31 @@ public class Vector3f {
 		return new Vector3f(vec.x, vec.y, vec.z);
 	}
 
+	/**
+	 * Copies the values from the other vector to this one.
+	 * 
+	 * @param vec The vector to copy from.
+	 * @return The vector with the copied values.
+	 */
+	public Vector3f transcribe(Vector3f vec) {
+		return transcribe(vec.x, vec.y, vec.z);
+	}
+
+	/**
+	 * Sets the values of this vector.
+	 * 
+	 * @param x The new x value
+	 * @param y The new y value
+	 * @param z The new z value
+	 * @return The vector with the new values.
+	 */
+	public Vector3f transcribe(float x, float y, float z) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		return this;
+	}
+
 	/**
 	 * Turns a float array into a vector 3
 	 * 
@@ -122,7 +147,20 @@ public class Vector3f {
 	 * @return The result
 	 */
 	public Vector3f addCopy(Vector3f vec) {
-		return copyOf(this).add(vec);
+		return addCopy(vec, null);
+	}
+
+	/**
+	 * Individually adds the x, y, z components of each vector together (the vector
+	 * this is called on is not affected)
+	 * 
+	 * @param vec  The vector to add
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The result
+	 */
+	public Vector3f addCopy(Vector3f vec, Vector3f copy) {
+		return _alloc(copy, this).add(vec);
 	}
 
 	/**
@@ -133,10 +171,10 @@ public class Vector3f {
 	 * @return The cross product
 	 */
 	public Vector3f crossProduct(Vector3f vec) {
-		Vector3f copy = copyOf(this);
-		this.x = (copy.y * vec.z) - (copy.z * vec.y);
-		this.y = (copy.z * vec.x) - (copy.x * vec.z);
-		this.z = (copy.x * vec.y) - (copy.y * vec.x);
+		float x = this.x, y = this.y, z = this.z;
+		this.x = (y * vec.z) - (z * vec.y);
+		this.y = (z * vec.x) - (x * vec.z);
+		this.z = (x * vec.y) - (y * vec.x);
 		return this;
 	}
 
@@ -148,7 +186,20 @@ public class Vector3f {
 	 * @return The cross product
 	 */
 	public Vector3f crossProductCopy(Vector3f vec) {
-		return copyOf(this).crossProduct(vec);
+		return crossProductCopy(vec, null);
+	}
+
+	/**
+	 * Performs cross product on this vector and the passed vector (the vector this
+	 * is called on is not affected)
+	 * 
+	 * @param vec  The vector to cross product with
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The cross product
+	 */
+	public Vector3f crossProductCopy(Vector3f vec, Vector3f copy) {
+		return _alloc(copy, this).crossProduct(vec);
 	}
 
 	/**
@@ -257,7 +308,20 @@ public class Vector3f {
 	 * @return The result
 	 */
 	public Vector3f mulCopy(float scalar) {
-		return copyOf(this).mul(scalar);
+		return mulCopy(scalar, null);
+	}
+
+	/**
+	 * Performs scalar multiplication on the vector (the vector this is called on is
+	 * not affected)
+	 * 
+	 * @param scalar The scalar to multiply by
+	 * @param copy   A vector that is used to avoid calls to new. Any value in that
+	 *               vector will be overridden.
+	 * @return The result
+	 */
+	public Vector3f mulCopy(float scalar, Vector3f copy) {
+		return _alloc(copy, this).mul(scalar);
 	}
 
 	/**
@@ -268,7 +332,20 @@ public class Vector3f {
 	 * @return The result
 	 */
 	public Vector3f mulCopy(Vector3f vec) {
-		return copyOf(this).mul(vec);
+		return mulCopy(vec, null);
+	}
+
+	/**
+	 * Individually multiplies the x, y, and z components of each vector (the vector
+	 * this is called on is not affected)
+	 * 
+	 * @param vec  The vector to multiply
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The result
+	 */
+	public Vector3f mulCopy(Vector3f vec, Vector3f copy) {
+		return _alloc(copy, this).mul(vec);
 	}
 
 	/**
@@ -291,6 +368,18 @@ public class Vector3f {
 		return mulCopy(-1);
 	}
 
+	/**
+	 * Negates the vector (reverse coordinates) (the vector this is called on is not
+	 * affected)
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The negated vector
+	 */
+	public Vector3f negateCopy(Vector3f copy) {
+		return mulCopy(-1, copy);
+	}
+
 	/**
 	 * Normalizes the vector. The result will a vector with the ratio between
 	 * components the same but a length of 1 (the vector this is called on is
@@ -317,7 +406,20 @@ public class Vector3f {
 	 * @return The normalized vector
 	 */
 	public Vector3f normalizeCopy() {
-		return copyOf(this).normalize();
+		return normalizeCopy(null);
+	}
+
+	/**
+	 * Normalizes a vector. The result will a vector with the ratio between
+	 * components the same but a length of 1 (the vector this is called on is not
+	 * affected)
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The normalized vector
+	 */
+	public Vector3f normalizeCopy(Vector3f copy) {
+		return _alloc(copy, this).normalize();
 	}
 
 	/**
@@ -342,7 +444,20 @@ public class Vector3f {
 	 * @return The result
 	 */
 	public Vector3f subCopy(Vector3f vec) {
-		return copyOf(this).sub(vec);
+		return subCopy(vec, null);
+	}
+
+	/**
+	 * Individually subtracts the x, y, z components of each vector (the vector this
+	 * is called on is not affected)
+	 * 
+	 * @param vec  The vector to subtract
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The result
+	 */
+	public Vector3f subCopy(Vector3f vec, Vector3f copy) {
+		return _alloc(copy, this).sub(vec);
 	}
 
 	/**
@@ -355,24 +470,34 @@ public class Vector3f {
 	 * @return The direction vector
 	 */
 	public Vector3f toDirection() {
+		return toDirection(null);
+	}
 
-		Vector3f euler = copyOf(this);
-
-		euler.y = ((-euler.y - 90) % 360) - 90; // TODO: Figure out why this is nessecary.
+	/**
+	 * Might be broken ¯\_(ツ)_/¯ <br>
+	 * <br>
+	 * 
+	 * Assuming this is a vector representing Euler angles, this returns the
+	 * direction vector for the angle (the vector this is called on is not affected)
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The direction vector
+	 */
+	public Vector3f toDirection(Vector3f copy) {
+		float yaw = ((-y - 90) % 360) - 90; // TODO: Figure out why this is nessecary.
 
 //		euler.z = -euler.z - 90;
 
-		euler.z *= -1;
-
-		Vector3f direction = new Vector3f();
-		float pitch = euler.z;
+		float pitch = z * -1;
 		if (pitch > 89.9f)
 			pitch = 89.9f;
 		if (pitch < -89.9f)
 			pitch = -89.9f;
-		direction.x = (float) (Math.cos(Math.toRadians(euler.y)) * Math.cos(Math.toRadians(pitch)));
+		Vector3f direction = copy != null ? copy : new Vector3f();
+		direction.x = (float) (Math.cos(Math.toRadians(yaw)) * Math.cos(Math.toRadians(pitch)));
 		direction.y = (float) Math.sin(Math.toRadians(pitch));
-		direction.z = (float) (Math.sin(Math.toRadians(euler.y)) * Math.cos(Math.toRadians(pitch)));
+		direction.z = (float) (Math.sin(Math.toRadians(yaw)) * Math.cos(Math.toRadians(pitch)));
 		direction.normalize();
 		return direction;
 	}
@@ -412,7 +537,21 @@ public class Vector3f {
 	 * @return The adjusted vector.
 	 */
 	public Vector3f toRadiansCopy() {
-		return copyOf(this).toRadians();
+		return toRadiansCopy(null);
+	}
+
+	/**
+	 * Converts all values in the vector to radians, as if they were measured in
+	 * degrees. For example, an X value of 90 becomes PI/2. Useful because most
+	 * trigometric functions, and quaternions, use radians. (the vector this is
+	 * called on is not affected)
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The adjusted vector.
+	 */
+	public Vector3f toRadiansCopy(Vector3f copy) {
+		return _alloc(copy, this).toRadians();
 	}
 
 	/**
@@ -436,7 +575,29 @@ public class Vector3f {
 	 * @return The adjusted vector.
 	 */
 	public Vector3f toDegreesCopy() {
-		return copyOf(this).toDegrees();
+		return toDegreesCopy(null);
+	}
+
+	/**
+	 * Converts all values in the vector to degrees, as if they were in radians. For
+	 * example, an X value of PI/2 becomes 90. Useful because most trigometric
+	 * functions, and quaternions, use radians. (the vector this is called on is not
+	 * affected)
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The adjusted vector.
+	 */
+	public Vector3f toDegreesCopy(Vector3f copy) {
+		return _alloc(copy, this).toDegrees();
+	}
+
+	private static Vector3f _alloc(Vector3f copy, Vector3f source) {
+		if (copy != null) {
+			return copy.transcribe(source);
+		} else {
+			return copyOf(source);
+		}
 	}
 
 	/*
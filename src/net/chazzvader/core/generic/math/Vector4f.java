@@ -166,6 +166,33 @@ public class Vector4f {
 		return new Vector4f(vec.x, vec.y, vec.z, vec.w);
 	}
 
+	/**
+	 * Copies the values from the other vector to this one.
+	 * 
+	 * @param vec The vector to copy from.
+	 * @return The vector with the copied values.
+	 */
+	public Vector4f transcribe(Vector4f vec) {
+		return transcribe(vec.x, vec.y, vec.z, vec.w);
+	}
+
+	/**
+	 * Sets the values of this vector.
+	 * 
+	 * @param x The new x value
+	 * @param y The new y value
+	 * @param z The new z value
+	 * @param w The new w value
+	 * @return The vector with the new values.
+	 */
+	public Vector4f transcribe(float x, float y, float z, float w) {
+		this.x = x;
+		this.y = y;
+		this.z = z;
+		this.w = w;
+		return this;
+	}
+
 	/**
 	 * Individually adds the x, y, z components of each vector together (the vector
 	 * this is called on is affected)
@@ -189,7 +216,20 @@ public class Vector4f {
 	 * @return The result
 	 */
 	public Vector4f addCopy(Vector4f vec) {
-		return copyOf(this).add(vec);
+		return addCopy(vec, null);
+	}
+
+	/**
+	 * Individually adds the x, y, z components of each vector together (the vector
+	 * this is called on is not affected)
+	 * 
+	 * @param vec  The vector to add
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The result
+	 */
+	public Vector4f addCopy(Vector4f vec, Vector4f copy) {
+		return _alloc(copy, this).add(vec);
 	}
 
 	/**
@@ -292,7 +332,20 @@ public class Vector4f {
 	 * @return The result
 	 */
 	public Vector4f mulCopy(float scalar) {
-		return copyOf(this).mul(scalar);
+		return mulCopy(scalar, null);
+	}
+
+	/**
+	 * Performs scalar multiplication on the vector (the vector this is called on is
+	 * not affected)
+	 * 
+	 * @param scalar The scalar to multiply by
+	 * @param copy   A vector that is used to avoid calls to new. Any value in that
+	 *               vector will be overridden.
+	 * @return The result
+	 */
+	public Vector4f mulCopy(float scalar, Vector4f copy) {
+		return _alloc(copy, this).mul(scalar);
 	}
 
 	/**
@@ -303,7 +356,20 @@ public class Vector4f {
 	 * @return The result
 	 */
 	public Vector4f mulCopy(Vector4f vec) {
-		return copyOf(this).mul(vec);
+		return mulCopy(vec, null);
+	}
+
+	/**
+	 * Individually multiplies the x, y, z, and w components of each vector (the vector
+	 * this is called on is not affected)
+	 * 
+	 * @param vec  The vector to multiply
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The result
+	 */
+	public Vector4f mulCopy(Vector4f vec, Vector4f copy) {
+		return _alloc(copy, this).mul(vec);
 	}
 	
 	/**
@@ -326,6 +392,18 @@ public class Vector4f {
 		return mulCopy(-1);
 	}
 
+	/**
+	 * Negates the vector (reverse coordinates) (the vector this is called on is not
+	 * affected)
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The negated vector
+	 */
+	public Vector4f negateCopy(Vector4f copy) {
+		return mulCopy(-1, copy);
+	}
+
 	/**
 	 * Normalizes the vector. The result will a vector with the ratio between
 	 * components the same but a length of 1 (the vector this is called on is
@@ -353,7 +431,20 @@ public class Vector4f {
 	 * @return The normalized vector
 	 */
 	public Vector4f normalizeCopy() {
-		return copyOf(this).normalize();
+		return normalizeCopy(null);
+	}
+
+	/**
+	 * Normalizes a vector. The result will a vector with the ratio between
+	 * components the same but a length of 1 (the vector this is called on is not
+	 * affected)
+	 * 
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The normalized vector
+	 */
+	public Vector4f normalizeCopy(Vector4f copy) {
+		return _alloc(copy, this).normalize();
 	}
 
 	/**
@@ -379,7 +470,28 @@ public class Vector4f {
 	 * @return The result
 	 */
 	public Vector4f subCopy(Vector4f vec) {
-		return copyOf(this).sub(vec);
+		return subCopy(vec, null);
+	}
+
+	/**
+	 * Individually subtracts the x, y, z components of each vector (the vector this
+	 * is called on is not affected)
+	 * 
+	 * @param vec  The vector to subtract
+	 * @param copy A vector that is used to avoid calls to new. Any value in that
+	 *             vector will be overridden.
+	 * @return The result
+	 */
+	public Vector4f subCopy(Vector4f vec, Vector4f copy) {
+		return _alloc(copy, this).sub(vec);
+	}
+
+	private static Vector4f _alloc(Vector4f copy, Vector4f source) {
+		if (copy != null) {
+			return copy.transcribe(source);
+		} else {
+			return copyOf(source);
+		}
 	}
 
 	/*
@@ -57,6 +57,16 @@ public class Utils {
 		return result;
 	}
 
+	/**
+	 * Creates an empty float buffer, for data that is filled in later
+	 * 
+	 * @param capacity The amount of floats the buffer can hold
+	 * @return The buffer
+	 */
+	public static FloatBuffer createFloatBuffer(int capacity) {
+		return ByteBuffer.allocateDirect(capacity * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+	}
+
 	/**
 	 * Creates a int buffer and fills it with the given array
 	 * 
@@ -69,6 +79,36 @@ public class Utils {
 		return result;
 	}
 
+	/**
+	 * Creates a buffer of unsigned indices, each stored in the given amount of
+	 * bytes
+	 * 
+	 * @param array The indices, which must all fit in the size
+	 * @param size  The size of an index in bytes, 1, 2 or 4
+	 * @return The buffer
+	 */
+	public static ByteBuffer createIndexBuffer(int[] array, int size) {
+		ByteBuffer result = ByteBuffer.allocateDirect(array.length * size).order(ByteOrder.nativeOrder());
+		switch (size) {
+		case 1:
+			for (int i = 0; i < array.length; i++) {
+				result.put((byte) array[i]);
+			}
+			break;
+		case 2:
+			for (int i = 0; i < array.length; i++) {
+				result.putShort((short) array[i]);
+			}
+			break;
+		default:
+			result.asIntBuffer().put(array);
+			result.position(result.capacity());
+			break;
+		}
+		result.flip();
+		return result;
+	}
+
 	/**
 	 * Takes a file and returns the text content of the file.
 	 * 
@@ -0,0 +1,116 @@
+package net.chazzvader.core.opengl.engine.render;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL33;
+
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.Configuration.Renderer;
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.engine.creator.ObjectCreator;
+import net.chazzvader.core.generic.engine.creator.ShaderCreator;
+import net.chazzvader.core.generic.engine.render.GlyphBatchRendererImplementation;
+import net.chazzvader.core.generic.engine.render.material.Shader;
+import net.chazzvader.core.generic.engine.render.material.Texture;
+import net.chazzvader.core.generic.engine.ui.GlyphBatch;
+import net.chazzvader.core.generic.util.Utils;
+import net.chazzvader.core.opengl.engine.util.OpenGLStateMachine;
+import net.chazzvader.core.opengl.shader.OpenGLShaderLocations;
+
+/**
+ * The OpenGL version of <code>GlyphBatchRendererImplementation</code>. Keeps
+ * the standard UI quad in a vertex array with an extra per instance buffer
+ * attached, which is re-uploaded once per flush.
+ *
+ * @author csbru
+ * @version 1
+ * @since 1.0
+ * @see GlyphBatchRendererImplementation
+ */
+public class OpenGLGlyphBatchRendererImplementation extends GlyphBatchRendererImplementation {
+
+	private OpenGLVertexArray array;
+	private int instanceBuffer;
+	private FloatBuffer upload;
+	private Shader shader;
+
+	/**
+	 * Creates a new implementation.
+	 */
+	public OpenGLGlyphBatchRendererImplementation() {
+		Configuration.assertRenderer(Renderer.OPEN_GL);
+		shader = ShaderCreator.uiGlyphShader();
+		shader.bind();
+		shader.setUniform1i("tex", OpenGLShaderLocations.TEXTURE_DIFFUSE);
+		shader.unbind();
+
+		array = new OpenGLVertexArray(ObjectCreator.quadUI());
+		array.bind();
+		instanceBuffer = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+		int stride = GlyphBatch.FLOATS_PER_GLYPH * 4;
+		instanceAttribute(OpenGLShaderLocations.IN_GLYPH_TRANSFORM, 4, stride, 0);
+		instanceAttribute(OpenGLShaderLocations.IN_GLYPH_TEXTURE_COORDS, 4, stride, 16);
+		instanceAttribute(OpenGLShaderLocations.IN_GLYPH_COLOR, 3, stride, 32);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+		array.unbind();
+	}
+
+	private void instanceAttribute(int location, int size, int stride, int offset) {
+		GL20.glVertexAttribPointer(location, size, GL11.GL_FLOAT, false, stride, offset);
+		GL33.glVertexAttribDivisor(location, 1);
+		GL20.glEnableVertexAttribArray(location);
+	}
+
+	@Override
+	public void render(GlyphBatch<Texture> batch) {
+		checkDelete();
+		lastDrawCalls = 0;
+		if (batch.isEmpty()) {
+			return;
+		}
+		int floats = batch.getGlyphCount() * GlyphBatch.FLOATS_PER_GLYPH;
+		if (upload == null || upload.capacity() < floats) {
+			upload = Utils.createFloatBuffer(batch.getInstanceData().length);
+		}
+		upload.clear();
+		upload.put(batch.getInstanceData(), 0, floats).flip();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, upload, GL15.GL_STREAM_DRAW);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+
+		shader.bind();
+		OpenGLStateMachine.setActiveTextureSlot(OpenGLShaderLocations.TEXTURE_DIFFUSE);
+		array.bind();
+		for (int i = 0; i < batch.getRunCount(); i++) {
+			batch.getRunAtlas(i).bind();
+			array.drawInstanced(batch.getRunLength(i), batch.getRunStart(i));
+			lastDrawCalls++;
+		}
+		array.unbind();
+	}
+
+	@Override
+	public void delete() {
+		checkDelete();
+		array.delete();
+		array = null;
+		GL15.glDeleteBuffers(instanceBuffer);
+		upload = null;
+		deleted = true;
+		super.delete();
+	}
+
+	private boolean deleted = false;
+
+	private void checkDelete() {
+		if (deleted) {
+			Logging.log("Glyph Batch Renderer Deleted", "GlyphBatchRendererImplementation", LoggingLevel.ERR);
+		}
+	}
+
+}
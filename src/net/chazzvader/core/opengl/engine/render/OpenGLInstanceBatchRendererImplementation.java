@@ -0,0 +1,100 @@
+package net.chazzvader.core.opengl.engine.render;
+
+import java.nio.FloatBuffer;
+
+import org.lwjgl.opengl.GL11;
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL33;
+
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.Configuration.Renderer;
+import net.chazzvader.core.generic.Logging;
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+import net.chazzvader.core.generic.engine.render.InstanceBatch;
+import net.chazzvader.core.generic.engine.render.InstanceBatchRendererImplementation;
+import net.chazzvader.core.generic.engine.render.MeshRendererImplementation;
+import net.chazzvader.core.generic.util.Utils;
+import net.chazzvader.core.opengl.shader.OpenGLShaderLocations;
+
+/**
+ * The OpenGL version of <code>InstanceBatchRendererImplementation</code>. Keeps
+ * one per instance buffer, which is re-uploaded once per flush and attached to
+ * the vertex array of every mesh drawn with it the first time it is drawn.
+ *
+ * @author csbru
+ * @version 1
+ * @since 1.0
+ * @see InstanceBatchRendererImplementation
+ */
+public class OpenGLInstanceBatchRendererImplementation extends InstanceBatchRendererImplementation {
+
+	private int instanceBuffer;
+	private FloatBuffer upload;
+
+	/**
+	 * Creates a new implementation.
+	 */
+	public OpenGLInstanceBatchRendererImplementation() {
+		Configuration.assertRenderer(Renderer.OPEN_GL);
+		instanceBuffer = GL15.glGenBuffers();
+	}
+
+	@Override
+	public void upload(InstanceBatch<?> batch) {
+		checkDelete();
+		int floats = batch.getInstanceCount() * InstanceBatch.FLOATS_PER_INSTANCE;
+		if (upload == null || upload.capacity() < floats) {
+			upload = Utils.createFloatBuffer(batch.getInstanceData().length);
+		}
+		upload.clear();
+		upload.put(batch.getInstanceData(), 0, floats).flip();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, upload, GL15.GL_STREAM_DRAW);
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+	}
+
+	@Override
+	public void render(MeshRendererImplementation mesh, int start, int count) {
+		checkDelete();
+		OpenGLVertexArray array = ((OpenGLMeshRendererImplementation) mesh).getVertexArray();
+		array.bind();
+		if (array.getInstanceBuffer() != instanceBuffer) {
+			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, instanceBuffer);
+			int stride = InstanceBatch.FLOATS_PER_INSTANCE * 4;
+			for (int i = 0; i < 4; i++) {
+				instanceAttribute(OpenGLShaderLocations.IN_INSTANCE_WORLD_MATRIX + i, 4, stride, i * 16);
+			}
+			for (int i = 0; i < 3; i++) {
+				instanceAttribute(OpenGLShaderLocations.IN_INSTANCE_NORMAL_MATRIX + i, 3, stride, 64 + i * 12);
+			}
+			GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
+			array.setInstanceBuffer(instanceBuffer);
+		}
+		array.drawInstanced(count, start);
+	}
+
+	private void instanceAttribute(int location, int size, int stride, int offset) {
+		GL20.glVertexAttribPointer(location, size, GL11.GL_FLOAT, false, stride, offset);
+		GL33.glVertexAttribDivisor(location, 1);
+		GL20.glEnableVertexAttribArray(location);
+	}
+
+	@Override
+	public void delete() {
+		checkDelete();
+		GL15.glDeleteBuffers(instanceBuffer);
+		upload = null;
+		deleted = true;
+		super.delete();
+	}
+
+	private boolean deleted = false;
+
+	private void checkDelete() {
+		if (deleted) {
+			Logging.log("Instance Batch Renderer Deleted", "InstanceBatchRendererImplementation", LoggingLevel.ERR);
+		}
+	}
+
+}
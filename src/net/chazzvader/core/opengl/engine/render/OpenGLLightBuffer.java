@@ -0,0 +1,268 @@
+package net.chazzvader.core.opengl.engine.render;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+import org.lwjgl.opengl.GL15;
+import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL43;
+
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.Configuration.Renderer;
+import net.chazzvader.core.generic.engine.IDeletable;
+import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.engine.render.ShadowAtlas;
+import net.chazzvader.core.generic.math.Vector3f;
+import net.chazzvader.core.opengl.shader.OpenGLShaderLocations;
+
+/**
+ * Keeps the lights SSBO up to date without rebuilding it every frame. A copy
+ * of the buffer is kept on the CPU, and every update each light is written
+ * into it only where its values changed. Only the lights that changed are
+ * uploaded, in runs of neighbouring lights, so when no light changes nothing
+ * is uploaded and nothing is allocated.<br>
+ * <br>
+ * The buffer doubles in size when it runs out of room, and never shrinks. It
+ * is laid out as:
+ * 
+ * <pre>
+ * buffer lights_buffer
+ * {
+ * 	int num_lights; // followed by 12 bytes of padding
+ * 	point_light point_lights[];
+ * }
+ * 
+ * struct point_light
+ * {
+ * 	vec3 light_color;
+ * 	float linear;
+ * 	vec3 light_pos;
+ * 	float quadratic;
+ * 	float constant;
+ * 	int shadow_size;
+ * 	float far_plane;
+ * 	int shadow_page;
+ * 	int shadow_tiles[6];
+ * }
+ * </pre>
+ * 
+ * <code>far_plane</code> is {@link Light#range()}. <code>shadow_size</code> is
+ * the size of the light's tiles in the shadow atlas, 0 if it has no shadow, and
+ * each of <code>shadow_tiles</code> is the position of the tile of a face as
+ * <code>x | y &lt;&lt; 16</code>. Every struct is {@link #STRUCT_SIZE} bytes.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class OpenGLLightBuffer implements IDeletable {
+
+	/**
+	 * The size of the header before the lights, the amount of lights and padding.
+	 */
+	public static final int HEADER_SIZE = 16;
+
+	/**
+	 * Lights that haven't changed between two that have are uploaded with them,
+	 * if there are at most this many, to save on upload calls.
+	 */
+	public static final int MAX_GAP = 4;
+
+	/**
+	 * The size of a <code>point_light</code> struct.
+	 */
+	public static final int STRUCT_SIZE;
+
+	static {
+		int size = 0;
+		size += 4 * 3; // vec3 light_color; Float is size 4, 3 floats and 1 for alignment
+		size += 4; // float linear; Float is size 4
+		size += 4 * 3; // vec3 light_pos; Float is size 4, 3 floats and 1 for alignment
+		size += 4; // float quadratic; Float is size 4
+		size += 4; // float constant; Float is size 4;
+		size += 4; // int shadow_size; Int is size 4;
+		size += 4; // float far_plane; Float is size 4;
+		size += 4; // int shadow_page; Int is size 4;
+		size += 4 * ShadowAtlas.FACES; // int shadow_tiles[6]; Int is size 4;
+		size += 8; // padding
+		STRUCT_SIZE = size;
+	}
+
+	private int ssbo = 0;
+	private int capacity = 0;
+	private int count = -1;
+	private ByteBuffer staging;
+	private boolean[] dirty = new boolean[0];
+	private int uploadedBytes = 0;
+	private int uploads = 0;
+
+	/**
+	 * Creates an empty light buffer. The SSBO is made on the first update.
+	 */
+	public OpenGLLightBuffer() {
+		Configuration.assertRenderer(Renderer.OPEN_GL);
+	}
+
+	/**
+	 * Writes the lights into the buffer and uploads what changed.
+	 *
+	 * @param lights The lights.
+	 * @param atlas  The shadow atlas the shadow tiles come from, or null for no
+	 *               shadows.
+	 */
+	public void update(ArrayList<Light> lights, ShadowAtlas atlas) {
+		int size = lights.size();
+		boolean all = false;
+		if (ssbo == 0 || size > capacity) {
+			grow(size);
+			all = true;
+		}
+		boolean header = all || size != count;
+		if (header) {
+			staging.putInt(0, size);
+			count = size;
+		}
+		for (int i = 0; i < size; i++) {
+			dirty[i] = write(i, lights.get(i), atlas) || all;
+		}
+		uploadedBytes = 0;
+		uploads = 0;
+		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, ssbo);
+		int i = 0;
+		if (header) {
+			// The header goes with the first run if it starts at the first light
+			if (size > 0 && dirty[0]) {
+				i = upload(0, 0, size);
+			} else {
+				upload(0, HEADER_SIZE);
+			}
+		}
+		while (i < size) {
+			if (dirty[i]) {
+				i = upload(HEADER_SIZE + i * STRUCT_SIZE, i, size);
+			} else {
+				i++;
+			}
+		}
+		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+	}
+
+	// Uploads a run of dirty lights starting at first, returns the light after it
+	private int upload(int from, int first, int size) {
+		int last = first;
+		int gap = 0;
+		for (int j = first + 1; j < size && gap <= MAX_GAP; j++) {
+			if (dirty[j]) {
+				last = j;
+				gap = 0;
+			} else {
+				gap++;
+			}
+		}
+		upload(from, HEADER_SIZE + (last + 1) * STRUCT_SIZE);
+		return last + 1;
+	}
+
+	private void upload(int from, int to) {
+		staging.limit(to).position(from);
+		GL15.glBufferSubData(GL43.GL_SHADER_STORAGE_BUFFER, from, staging);
+		staging.clear();
+		uploadedBytes += to - from;
+		uploads++;
+	}
+
+	private void grow(int size) {
+		int newCapacity = Math.max(Math.max(capacity * 2, size), 8);
+		// Starts as zeros, every light is written and uploaded again after this
+		staging = ByteBuffer.allocateDirect(HEADER_SIZE + newCapacity * STRUCT_SIZE).order(ByteOrder.nativeOrder());
+		dirty = new boolean[newCapacity];
+		capacity = newCapacity;
+
+		if (ssbo != 0) {
+			GL15.glDeleteBuffers(ssbo);
+		}
+		ssbo = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, ssbo);
+		GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, staging.capacity(), GL15.GL_DYNAMIC_DRAW);
+		GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, OpenGLShaderLocations.SSBO_POINT_LIGHTS, ssbo);
+		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
+	}
+
+	// One point_light, laid out as in the class doc
+	private boolean write(int index, Light light, ShadowAtlas atlas) {
+		int at = HEADER_SIZE + index * STRUCT_SIZE;
+		Vector3f pos = light.pos();
+		int shadowSize = atlas == null ? 0 : atlas.getTileSize(index);
+		boolean changed = false;
+		changed |= put(at, light.lightColor.x);
+		changed |= put(at + 4, light.lightColor.y);
+		changed |= put(at + 8, light.lightColor.z);
+		changed |= put(at + 12, light.linear);
+		changed |= put(at + 16, pos.x);
+		changed |= put(at + 20, pos.y);
+		changed |= put(at + 24, pos.z);
+		changed |= put(at + 28, light.quadratic);
+		changed |= put(at + 32, light.constant);
+		changed |= putInt(at + 36, shadowSize);
+		changed |= put(at + 40, light.range());
+		// Tiles are only read when there is a shadow
+		if (shadowSize > 0) {
+			changed |= putInt(at + 44, atlas.getPage(index));
+			for (int face = 0; face < ShadowAtlas.FACES; face++) {
+				changed |= putInt(at + 48 + face * 4, atlas.getTileX(index, face) | atlas.getTileY(index, face) << 16);
+			}
+		}
+		return changed;
+	}
+
+	private boolean put(int at, float value) {
+		return putInt(at, Float.floatToRawIntBits(value));
+	}
+
+	private boolean putInt(int at, int value) {
+		if (staging.getInt(at) == value) {
+			return false;
+		}
+		staging.putInt(at, value);
+		return true;
+	}
+
+	/**
+	 * The id of the SSBO.
+	 *
+	 * @return The id of the SSBO, 0 before the first update.
+	 */
+	public int getID() {
+		return ssbo;
+	}
+
+	/**
+	 * The amount of bytes uploaded by the last update.
+	 *
+	 * @return The amount of bytes.
+	 */
+	public int getUploadedBytes() {
+		return uploadedBytes;
+	}
+
+	/**
+	 * The amount of upload calls made by the last update.
+	 *
+	 * @return The amount of upload calls.
+	 */
+	public int getUploads() {
+		return uploads;
+	}
+
+	@Override
+	public void delete() {
+		if (ssbo != 0) {
+			GL15.glDeleteBuffers(ssbo);
+			ssbo = 0;
+		}
+		capacity = 0;
+		count = -1;
+	}
+
+}
@@ -5,6 +5,7 @@ import net.chazzvader.core.generic.Configuration.Renderer;
 import net.chazzvader.core.generic.Logging;
 import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.render.MeshCache;
 import net.chazzvader.core.generic.engine.render.MeshRendererImplementation;
 import net.chazzvader.core.generic.engine.render.material.Material;
 
@@ -17,6 +18,12 @@ import net.chazzvader.core.generic.engine.render.material.Material;
  */
 public class OpenGLMeshRendererImplementation extends MeshRendererImplementation {
 
+	/**
+	 * The cache every mesh is uploaded through, so objects sharing a mesh share
+	 * one vertex array.
+	 */
+	public static final MeshCache<OpenGLVertexArray> CACHE = new MeshCache<>(OpenGLVertexArray::new);
+
 	private OpenGLVertexArray array;
 	
 	/**
@@ -29,7 +36,7 @@ public class OpenGLMeshRendererImplementation extends MeshRendererImplementation
 	public OpenGLMeshRendererImplementation(Mesh mesh, Material material) {
 		super(mesh, material);
 		Configuration.assertRenderer(Renderer.OPEN_GL);
-		array = new OpenGLVertexArray(mesh);
+		array = CACHE.acquire(mesh);
 	}
 
 	@Override
@@ -37,10 +44,25 @@ public class OpenGLMeshRendererImplementation extends MeshRendererImplementation
 		array.render();
 	}
 
+	@Override
+	public void renderRange(int first, int count) {
+		array.bind();
+		array.drawRange(first, count);
+	}
+
+	/**
+	 * The vertex array the mesh was uploaded to.
+	 * 
+	 * @return The vertex array.
+	 */
+	public OpenGLVertexArray getVertexArray() {
+		return array;
+	}
+
 	@Override
 	public void delete() {
 		checkDelete();
-		array.delete();
+		CACHE.release(mesh);
 		array = null;
 		deleted = true;
 		super.delete();
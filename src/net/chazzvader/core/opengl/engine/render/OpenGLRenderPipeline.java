@@ -4,14 +4,14 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.lwjgl.glfw.GLFW;
 import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL12;
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL30;
-import org.lwjgl.opengl.GL32;
+import org.lwjgl.opengl.GL41;
 import org.lwjgl.opengl.GL43;
 
 import net.chazzvader.core.generic.Configuration;
@@ -21,9 +21,14 @@ import net.chazzvader.core.generic.engine.IRenderContextProvider;
 import net.chazzvader.core.generic.engine.Scene;
 import net.chazzvader.core.generic.engine.Window;
 import net.chazzvader.core.generic.engine.creator.ShaderCreator;
+import net.chazzvader.core.generic.engine.object.Camera;
 import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.engine.render.LightClusters;
 import net.chazzvader.core.generic.engine.render.RenderContext;
 import net.chazzvader.core.generic.engine.render.RenderPipeline;
+import net.chazzvader.core.generic.engine.render.ShadowAtlas;
+import net.chazzvader.core.generic.engine.render.ShadowCache;
+import net.chazzvader.core.generic.engine.render.ShadowCache.Update;
 import net.chazzvader.core.opengl.engine.util.OpenGLStateMachine;
 import net.chazzvader.core.opengl.shader.OpenGLShaderLocations;
 
@@ -45,12 +50,6 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 	 */
 	public static final OpenGLRenderPipeline INSTANCE = new OpenGLRenderPipeline();
 
-	/**
-	 * The size of each face of the shadow map. Must be square, power of 2
-	 * recommended. Functionality to configure this is in progress.
-	 */
-	public static final int SHADOW_SIZE = 4096;// TODO: Make configurable
-
 	/**
 	 * Simple constructor, just calls ensures we are using OpenGL.
 	 */
@@ -64,6 +63,7 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 
 	@Override
 	public void preRender(Window window, Application application) {
+		OpenGLStateMachine.resetBindCounters();
 		GL11.glClearColor(window.getBackgroundColor().x, window.getBackgroundColor().y, window.getBackgroundColor().z, 0.0f);
 		GL11.glClear(GL11.GL_COLOR_BUFFER_BIT | GL11.GL_DEPTH_BUFFER_BIT); // Clear framebuffers
 	}
@@ -75,9 +75,14 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 
 	private void render3d(Window window, Application application, Scene activeScene) {
 		if (!Configuration.isRenderOverride()) {
+			updateShadowAtlas(activeScene);
 			updateLightBuffers(activeScene);
+			updateLightClusters(window, activeScene);
 			if (Configuration.shadows) {
 				renderShadows(window, application, activeScene);
+			} else if (shadowPages != 0) {
+				// No light has a shadow, so the atlas doesn't need any memory
+				recreateShadowTextures(0, shadowPageSize);
 			}
 			_3dContext.depthOnly = false;
 			renderingMode = RenderingMode.REGULAR;
@@ -93,44 +98,213 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 		}
 		_3dContext.depthOnly = true;
 		renderingMode = RenderingMode.SHADOWS;
-		
+
+		if (shadowPages != shadowAtlas.getPageCount() || shadowPageSize != shadowAtlas.getPageSize()) {
+			recreateShadowTextures(shadowAtlas.getPageCount(), shadowAtlas.getPageSize());
+		}
 		ArrayList<Light> lights = scene.getLights();
-		if (shadowFramebuffers.length != lights.size()) {
-			recreateShadowTextures(lights.size());
-		}		
+		if (staticLayers.length < lights.size()) {
+			staticLayers = Arrays.copyOf(staticLayers, lights.size());
+		}
+		shadowCache.beginFrame();
+		scene.updateSpatialIndex();
+		boolean rendered = false;
+		OpenGLStateMachine.enableValue(GL11.GL_SCISSOR_TEST);
 		for (int i = 0; i < lights.size(); i++) {
+			if (shadowAtlas.getTileSize(i) == 0) {
+				continue;
+			}
 			renderingLight = lights.get(i);
-			_3dContext.framebuffer = shadowFramebuffers[i];
-			shadowFramebuffers[i].bind();
-			GL11.glClear(GL11.GL_DEPTH_BUFFER_BIT);
-			ShaderCreator.shadowShader().preRender(scene, this);
-			scene.render(this);
+			Update update = shadowCache.check(i, renderingLight, scene, _3dContext);
+			if (update == Update.NONE) {
+				continue;
+			}
+			rendered = true;
+			int page = shadowAtlas.getPage(i);
+			// Once only dynamic casters change, the static ones are drawn on their own to be copied from
+			if (!staticLayers[i] && update == Update.DYNAMIC && shadowCache.hasStaticCasters(i)) {
+				staticLayers[i] = true;
+				update = Update.ALL;
+			}
+			if (!staticLayers[i]) {
+				renderShadowMap(scene, shadowFramebuffers[page], i, ShadowCasters.ALL, true);
+				continue;
+			}
+			if (staticShadowTexture == 0) {
+				createStaticShadowTexture();
+			}
+			if (update == Update.ALL) {
+				renderShadowMap(scene, staticShadowFramebuffers[page], i, ShadowCasters.STATIC, true);
+			}
+			int size = shadowAtlas.getTileSize(i);
+			for (int face = 0; face < ShadowAtlas.FACES; face++) {
+				int x = shadowAtlas.getTileX(i, face), y = shadowAtlas.getTileY(i, face);
+				GL43.glCopyImageSubData(staticShadowTexture, GL30.GL_TEXTURE_2D_ARRAY, 0, x, y, page, shadowTexture,
+						GL30.GL_TEXTURE_2D_ARRAY, 0, x, y, page, size, size, 1);
+			}
+			renderShadowMap(scene, shadowFramebuffers[page], i, ShadowCasters.DYNAMIC, false);
+		}
+		OpenGLStateMachine.disableValue(GL11.GL_SCISSOR_TEST);
+		if (rendered) {
+			// Sets every viewport back to the whole page, which is what the state machine expects
+			OpenGLStateMachine.setRenderSizeOverride(shadowPageSize, shadowPageSize);
 		}
+		shadowCasters = ShadowCasters.ALL;
 		_3dContext.framebuffer = OpenGLFramebuffer.getDefault();
 	}
-	
+
+	private void renderShadowMap(Scene scene, ShadowFramebuffer framebuffer, int light, ShadowCasters casters,
+			boolean clear) {
+		shadowCasters = casters;
+		_3dContext.framebuffer = framebuffer;
+		framebuffer.bind();
+		int size = shadowAtlas.getTileSize(light);
+		if (clear) {
+			for (int face = 0; face < ShadowAtlas.FACES; face++) {
+				GL11.glScissor(shadowAtlas.getTileX(light, face), shadowAtlas.getTileY(light, face), size, size);
+				GL11.glClear(GL11.GL_DEPTH_BUFFER_BIT);
+			}
+		}
+		// The geometry shader sends each face to its own viewport, and the scissor boxes keep it inside its tile
+		for (int face = 0; face < ShadowAtlas.FACES; face++) {
+			int x = shadowAtlas.getTileX(light, face), y = shadowAtlas.getTileY(light, face);
+			GL41.glViewportIndexedf(face, x, y, size, size);
+			GL41.glScissorIndexed(face, x, y, size, size);
+		}
+		ShaderCreator.shadowShader().preRender(scene, this);
+		ShaderCreator.shadowInstancedShader().preRender(scene, this);
+		scene.render(this);
+	}
+
+	private ShadowAtlas shadowAtlas;
+	private float[] shadowImportance = new float[0];
+	private int shadowTexture = 0, staticShadowTexture = 0;
+	private int shadowPages = 0, shadowPageSize = 0;
 	private ShadowFramebuffer[] shadowFramebuffers = new ShadowFramebuffer[0];
+	private ShadowFramebuffer[] staticShadowFramebuffers = new ShadowFramebuffer[0];
+	private boolean[] staticLayers = new boolean[0];
+	private final ShadowCache shadowCache = new ShadowCache();
+	private ShadowCasters shadowCasters = ShadowCasters.ALL;
 
-	private void recreateShadowTextures(int size) {
-		if (size > OpenGLShaderLocations.MAX_SHADOW_MAPS) {
-			size = OpenGLShaderLocations.MAX_SHADOW_MAPS;
+	/**
+	 * Works out how important the shadow of each light is to the active camera,
+	 * and gives the lights their tiles in the shadow atlas. Lights with new tiles
+	 * have their shadows drawn again. With shadows off no light gets tiles. The
+	 * atlas is made again if its sizes in the {@link Configuration} changed.
+	 * 
+	 * @param scene The scene, used for the camera and the lights.
+	 * @see ShadowAtlas
+	 */
+	public void updateShadowAtlas(Scene scene) {
+		if (shadowAtlas == null || shadowAtlas.getPageSize() != Configuration.getShadowPageSize()
+				|| shadowAtlas.getMaxPages() != Configuration.getShadowMaxPages()
+				|| shadowAtlas.getMaxTile() != Configuration.getShadowMaxTile()
+				|| shadowAtlas.getMinTile() != Configuration.getShadowMinTile()) {
+			shadowAtlas = new ShadowAtlas(Configuration.getShadowPageSize(), Configuration.getShadowMaxPages(),
+					Configuration.getShadowMaxTile(), Configuration.getShadowMinTile());
+		}
+		ArrayList<Light> lights = scene.getLights();
+		int count = lights.size();
+		if (shadowImportance.length < count) {
+			shadowImportance = new float[Math.max(count, shadowImportance.length * 2)];
+		}
+		Camera camera = scene.getActiveCamera();
+		for (int i = 0; i < count; i++) {
+			shadowImportance[i] = Configuration.shadows ? ShadowAtlas.importance(camera, lights.get(i)) : 0;
+		}
+		shadowAtlas.update(shadowImportance, count);
+		for (int i = 0; i < count; i++) {
+			if (shadowAtlas.hasMoved(i)) {
+				shadowCache.invalidate(i);
+			}
 		}
-		for(int i = 0;i < shadowFramebuffers.length;i ++) {
+	}
+
+	/**
+	 * The shadow atlas, saying where the shadow of each light is.
+	 * 
+	 * @return The shadow atlas, null before the first frame.
+	 */
+	public ShadowAtlas getShadowAtlas() {
+		return shadowAtlas;
+	}
+
+	private void recreateShadowTextures(int pages, int size) {
+		deleteShadowTextures();
+		shadowPages = pages;
+		shadowPageSize = size;
+		if (pages > 0) {
+			shadowTexture = createShadowTexture();
+			shadowFramebuffers = new ShadowFramebuffer[pages];
+			for (int i = 0; i < pages; i++) {
+				shadowFramebuffers[i] = new ShadowFramebuffer(shadowTexture, i);
+			}
+		}
+		Arrays.fill(staticLayers, false);
+		shadowCache.invalidateAll();
+	}
+
+	// The static casters of every light go in a second atlas, only made once a light needs it
+	private void createStaticShadowTexture() {
+		staticShadowTexture = createShadowTexture();
+		staticShadowFramebuffers = new ShadowFramebuffer[shadowPages];
+		for (int i = 0; i < shadowPages; i++) {
+			staticShadowFramebuffers[i] = new ShadowFramebuffer(staticShadowTexture, i);
+		}
+	}
+
+	private int createShadowTexture() {
+		int texture = GL11.glGenTextures();
+		OpenGLStateMachine.bindTextureOverride(GL30.GL_TEXTURE_2D_ARRAY, texture);
+		GL12.glTexImage3D(GL30.GL_TEXTURE_2D_ARRAY, 0, GL11.GL_DEPTH_COMPONENT, shadowPageSize, shadowPageSize,
+				shadowPages, 0, GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT, (ByteBuffer) null);
+		GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
+		GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
+		GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
+		GL11.glTexParameteri(GL30.GL_TEXTURE_2D_ARRAY, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
+		OpenGLStateMachine.bindTexture(GL30.GL_TEXTURE_2D_ARRAY, 0);
+		return texture;
+	}
+
+	private void deleteShadowTextures() {
+		for (int i = 0; i < shadowFramebuffers.length; i++) {
 			shadowFramebuffers[i].delete();
-			shadowFramebuffers[i] = null;
 		}
-		shadowFramebuffers = new ShadowFramebuffer[size];
-		for (int i = 0; i < size; i++) {
-			shadowFramebuffers[i] = new ShadowFramebuffer();
+		for (int i = 0; i < staticShadowFramebuffers.length; i++) {
+			staticShadowFramebuffers[i].delete();
+		}
+		if (shadowTexture != 0) {
+			GL11.glDeleteTextures(shadowTexture);
+		}
+		if (staticShadowTexture != 0) {
+			GL11.glDeleteTextures(staticShadowTexture);
 		}
+		shadowTexture = 0;
+		staticShadowTexture = 0;
+		shadowFramebuffers = new ShadowFramebuffer[0];
+		staticShadowFramebuffers = new ShadowFramebuffer[0];
+	}
+
+	/**
+	 * The cache deciding which shadow maps are drawn again, and counting how many
+	 * were drawn and skipped in the last frame.
+	 * 
+	 * @return The shadow cache.
+	 */
+	public ShadowCache getShadowCache() {
+		return shadowCache;
+	}
+
+	@Override
+	public ShadowCasters getShadowCasters() {
+		return shadowCasters;
 	}
 
 	@Override
 	public void postRender(Window window, Application application) {
 		window.postRender();
 		OpenGLStateMachine.bindShader(0);
-		GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-		GL30.glBindVertexArray(0);
+		OpenGLStateMachine.bindVertexArray(0);
 		GLFW.glfwSwapBuffers(window.getPtr());
 	}
 
@@ -140,181 +314,140 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 	 * @return The id of the lights SSBO in the shader.
 	 */
 	public int getLightingSSBOID() {
-		return lightingSSBOID;
+		return lightBuffer.getID();
 	}
 
-	private int lightingSSBOID = 0;
+	private final OpenGLLightBuffer lightBuffer = new OpenGLLightBuffer();
 
 	/**
-	 * This updates in the information in the buffer and recreates the lights buffer
-	 * if it is needed.
+	 * This updates the information in the lights buffer, only uploading the
+	 * lights that changed, and grows the buffer if it is needed. The shadow tiles
+	 * come from the shadow atlas, so it should be updated first.
 	 * 
 	 * @param scene The scene, used for the light data.
+	 * @see OpenGLLightBuffer
+	 * @see #updateShadowAtlas(Scene)
 	 */
 	public void updateLightBuffers(Scene scene) {
-		if (numLights != scene.getLights().size()) {
-			if (lightingSSBOID != 0) {
-				GL15.glDeleteBuffers(lightingSSBOID);
-			}
-			lightingSSBOID = GL15.glGenBuffers();
-		}
-		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, lightingSSBOID);
-
-		IntBuffer buffer = createLightsBuffer(scene.getLights());
-		if (numLights != scene.getLights().size()) {
-			GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, OpenGLShaderLocations.SSBO_POINT_LIGHTS,
-					lightingSSBOID);
-			GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, buffer, GL15.GL_DYNAMIC_DRAW);
-		} else {
-			GL15.glBufferSubData(GL43.GL_SHADER_STORAGE_BUFFER, 0, buffer);
-		}
-		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
-
+		lightBuffer.update(scene.getLights(), shadowAtlas);
 		numLights = scene.getLights().size();
 	}
 
 	/**
-	 * The current number of lights in memory.
+	 * The buffer the lights are kept in.
+	 * 
+	 * @return The lights buffer.
 	 */
-	public int numLights;
+	public OpenGLLightBuffer getLightBuffer() {
+		return lightBuffer;
+	}
 
 	/**
-	 * The size of a point light struct.<br>
-	 * The struct <code>point_light</code> is defined as:
-	 * 
-	 * <pre>
-	 * struct
-	 * {
-	 * 	vec3 light_color;
-	 * 	vec3 light_pos;
-	 *	float constant;
-	 * 	float linear;
-	 * 	float quadratic;
-	 * }
-	 * </pre>
+	 * The amount of tiles across the screen the lights are clustered into.
 	 */
-	public static final int POINT_LIGHT_STRUCT_SIZE;
+	public static final int CLUSTER_TILES_X = 16;
 
 	/**
-	 * The struct <code>point_light</code> is defined as:
-	 * 
-	 * <pre>
-	 * struct
-	 * {
-	 * 	vec3 light_color;
-	 * 	vec3 light_pos;
-	 *	float constant;
-	 * 	float linear;
-	 * 	float quadratic;
-	 * }
-	 * </pre>
+	 * The amount of tiles up the screen the lights are clustered into.
 	 */
-	static {
-		int size = 0;
-		size += 4 * 3; // vec3 light_color; Float is size 4, 3 floats and 1 for alignment
-		size += 4; // float linear; Float is size 4
-		size += 4 * 3; // vec3 light_pos; Float is size 4, 3 floats and 1 for alignment
-		size += 4; // float quadratic; Float is size 4
-		size += 4; // float constant; Float is size 4;
-		size += 4; // int textureID; Int is size 4;
-		size += 8; // padding
-		POINT_LIGHT_STRUCT_SIZE = size;
-	}
+	public static final int CLUSTER_TILES_Y = 9;
 
 	/**
-	 * Gets the size of the lights buffer. Used to allow easier creation of the
-	 * <code>SSBO</code>
-	 * 
-	 * @param lights The array of lights, purely used for length (as of now).
-	 * @return The size in bytes.
+	 * The amount of slices in depth the lights are clustered into.
 	 */
-	public static int lightsBufferSize(ArrayList<Light> lights) {
-		int dataSize = lights.size() * POINT_LIGHT_STRUCT_SIZE + 16;
-		return dataSize;
-	}
+	public static final int CLUSTER_SLICES = 24;
+
+	private final LightClusters lightClusters = new LightClusters(CLUSTER_TILES_X, CLUSTER_TILES_Y, CLUSTER_SLICES);
+	private int clustersSSBOID = 0;
+	private int clustersSSBOSize = 0;
+	private ByteBuffer clustersBuffer;
+	private IntBuffer clustersData;
 
 	/**
-	 * Creates a buffer used for a SSBO for an arraylist of lights. This also deals
-	 * with alignment. The data structure is as follows:
+	 * The size of the header of the light clusters buffer, before the cluster
+	 * data.
+	 */
+	public static final int LIGHT_CLUSTERS_HEADER_SIZE = 48;
+
+	/**
+	 * Works out which lights reach each cluster of the camera's view, and
+	 * uploads it. The data structure is as follows:
 	 * 
 	 * <pre>
-	 * buffer lights_buffer
+	 * buffer light_clusters_buffer
 	 * {
-	 * 	int num_lights;
-	 * 	point_light point_lights[];
+	 * 	ivec4 cluster_grid; // tiles x, tiles y, slices
+	 * 	vec4 cluster_depth; // slice scale, slice bias, near, far
+	 * 	vec4 cluster_screen; // width, height
+	 * 	int cluster_data[];
 	 * }
 	 * </pre>
 	 * 
-	 * And the struct <code>point_light</code> is defined as:
+	 * See {@link LightClusters} for the layout of <code>cluster_data</code>.
 	 * 
-	 * <pre>
-	 * struct
-	 * {
-	 * 	vec3 light_color;
-	 * 	vec3 light_pos;
-	 *	float constant;
-	 * 	float linear;
-	 * 	float quadratic;
-	 * }
-	 * </pre>
-	 * 
-	 * @param lights an ArrayList of light to create the buffer off of
-	 * @return An intbuffer with the values for the light buffer
+	 * @param window The window, used for the size of the screen.
+	 * @param scene  The scene, used for the camera and the lights.
 	 */
-	public static IntBuffer createLightsBuffer(ArrayList<Light> lights) {
-		int dataSize = lightsBufferSize(lights);
-		ByteBuffer ret = ByteBuffer.allocateDirect(dataSize).order(ByteOrder.nativeOrder());
-		ret.putInt(lights.size());
-		ret.putInt(0);
-		ret.putInt(0);
-		ret.putInt(0);
-		for (int i = 0; i < lights.size(); i++) {
-			float[] fa = createPointLightBufferData(lights.get(i), i < 4 ? i : -1);
-			//Not bind valid texture if more points lights are added. Nothing can go wrong here. 
-			//TODO: Next Version. Fix.
-			for (int j = 0; j < fa.length; j++) {
-				ret.putFloat(fa[j]);
-			}
+	public void updateLightClusters(Window window, Scene scene) {
+		Camera camera = scene.getActiveCamera();
+		lightClusters.setProjection(camera.getProjectionMatrix()).assign(camera.getViewMatrix(), scene.getLights());
+
+		int size = LIGHT_CLUSTERS_HEADER_SIZE + lightClusters.getDataLength() * 4;
+		if (clustersBuffer == null || clustersBuffer.capacity() < size) {
+			clustersBuffer = ByteBuffer.allocateDirect(Math.max(size, clustersSSBOSize * 2))
+					.order(ByteOrder.nativeOrder());
+			// A view of everything after the header, made once instead of every frame
+			clustersBuffer.position(LIGHT_CLUSTERS_HEADER_SIZE);
+			clustersData = clustersBuffer.asIntBuffer();
+		}
+		ByteBuffer buffer = clustersBuffer;
+		buffer.clear();
+		buffer.putInt(lightClusters.getTilesX());
+		buffer.putInt(lightClusters.getTilesY());
+		buffer.putInt(lightClusters.getSlices());
+		buffer.putInt(0);
+		float scale = lightClusters.getSliceScale();
+		buffer.putFloat(scale);
+		buffer.putFloat(scale == 0 ? 0 : (float) Math.log(lightClusters.getNear()) * scale);
+		buffer.putFloat(lightClusters.getNear());
+		buffer.putFloat(lightClusters.getFar());
+		buffer.putFloat(window.getWidth());
+		buffer.putFloat(window.getHeight());
+		buffer.putFloat(0);
+		buffer.putFloat(0);
+		clustersData.clear();
+		clustersData.put(lightClusters.getData(), 0, lightClusters.getDataLength());
+		buffer.position(0).limit(size);
+
+		if (clustersSSBOID == 0) {
+			clustersSSBOID = GL15.glGenBuffers();
 		}
-		ret.flip();
-		return ret.asIntBuffer();
+		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, clustersSSBOID);
+		if (size > clustersSSBOSize) {
+			// Grown with room to spare, so it isn't recreated every time a light moves
+			clustersSSBOSize = buffer.capacity();
+			GL15.glBufferData(GL43.GL_SHADER_STORAGE_BUFFER, clustersSSBOSize, GL15.GL_DYNAMIC_DRAW);
+			GL30.glBindBufferBase(GL43.GL_SHADER_STORAGE_BUFFER, OpenGLShaderLocations.SSBO_LIGHT_CLUSTERS,
+					clustersSSBOID);
+		}
+		GL15.glBufferSubData(GL43.GL_SHADER_STORAGE_BUFFER, 0, buffer);
+		GL15.glBindBuffer(GL43.GL_SHADER_STORAGE_BUFFER, 0);
 	}
 
 	/**
-	 * Creates a float[] for the data in the struct point_light as defined by:
+	 * The light clusters of the last frame.
 	 * 
-	 * <pre>
-	 * struct
-	 * {
-	 * 	vec3 light_color;
-	 * 	vec3 light_pos;
-	 *	float constant;
-	 * 	float linear;
-	 * 	float quadratic;
-	 * }
-	 * </pre>
-	 * 
-	 * @param light A light to create the float data for the struct
-	 * @param textureID The id of the used texture
-	 * @return A float array which has the data for the struct
+	 * @return The light clusters.
 	 */
-	public static float[] createPointLightBufferData(Light light, int textureID) {
-		float[] ret = new float[POINT_LIGHT_STRUCT_SIZE / 4];
-		ret[0] = light.lightColor.x;
-		ret[1] = light.lightColor.y;
-		ret[2] = light.lightColor.z;
-		ret[3] = light.linear;
-		ret[4] = light.pos().x;
-		ret[5] = light.pos().y;
-		ret[6] = light.pos().z;
-		ret[7] = light.quadratic;
-		ret[8] = light.constant;
-		ret[9] = Float.intBitsToFloat(textureID);
-		ret[10] = light.targetDistance * 2;
-		ret[11] = 0;
-		return ret;
+	public LightClusters getLightClusters() {
+		return lightClusters;
 	}
 
+	/**
+	 * The current number of lights in memory.
+	 */
+	public int numLights;
+
 	/**
 	 * Gets the number of lights in the scene.
 	 * 
@@ -339,7 +472,7 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 	}
 
 	/**
-	 * Gets the array of framebuffers for the shadow maps, 1 for each light.
+	 * Gets the array of framebuffers for the pages of the shadow atlas.
 	 * 
 	 * @return The array of framebuffers.
 	 */
@@ -347,6 +480,16 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 		return shadowFramebuffers;
 	}
 
+	/**
+	 * Gets the texture of the shadow atlas, a 2d array texture with a layer for
+	 * each page.
+	 * 
+	 * @return The id of the texture, 0 if no light has a shadow.
+	 */
+	public int getShadowTexture() {
+		return shadowTexture;
+	}
+
 	private OpenGLRenderContext _3dContext;
 	private OpenGLRenderContext uiContext;
 	
@@ -369,7 +512,7 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 	}
 	
 	/**
-	 * The framebuffer type to render shadows to.
+	 * The framebuffer type to render shadows to, one page of a shadow atlas.
 	 * @author csbru
 	 * @version 1
 	 * @since 1.0
@@ -377,12 +520,19 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 	public class ShadowFramebuffer extends OpenGLFramebuffer {
 
 		/**
-		 * The id of the texture.
+		 * The id of the texture, shared by every page.
+		 */
+		public final int shadowTexture;
+
+		/**
+		 * The page, the layer of the texture this draws to.
 		 */
-		public int shadowTexture;
+		public final int page;
 		
-		private ShadowFramebuffer() {
-			super(SHADOW_SIZE, SHADOW_SIZE);
+		private ShadowFramebuffer(int shadowTexture, int page) {
+			super(shadowPageSize, shadowPageSize);
+			this.shadowTexture = shadowTexture;
+			this.page = page;
 			recreate();
 		}
 
@@ -394,32 +544,20 @@ public class OpenGLRenderPipeline extends RenderPipeline {
 		@Override
 		public void recreate() {
 			if(fbo != 0) {
-				GL11.glDeleteTextures(shadowTexture);
 				GL30.glDeleteFramebuffers(fbo);
 			}
-			shadowTexture = GL11.glGenTextures();
-			OpenGLStateMachine.bindTextureOverride(GL13.GL_TEXTURE_CUBE_MAP, shadowTexture);
-			for (int j = 0; j < 6; j++) {
-				GL11.glTexImage2D(GL13.GL_TEXTURE_CUBE_MAP_POSITIVE_X + j, 0, GL11.GL_DEPTH_COMPONENT, SHADOW_SIZE,
-						SHADOW_SIZE, 0, GL11.GL_DEPTH_COMPONENT, GL11.GL_FLOAT, (ByteBuffer) null);
-			}
-			GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MIN_FILTER, GL11.GL_NEAREST);
-			GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_MAG_FILTER, GL11.GL_NEAREST);
-			GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_S, GL12.GL_CLAMP_TO_EDGE);
-			GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL11.GL_TEXTURE_WRAP_T, GL12.GL_CLAMP_TO_EDGE);
-			GL11.glTexParameteri(GL13.GL_TEXTURE_CUBE_MAP, GL12.GL_TEXTURE_WRAP_R, GL12.GL_CLAMP_TO_EDGE);
-
 			fbo = GL30.glGenFramebuffers();
 			OpenGLStateMachine.bindFramebufferOverride(fbo);
-			GL32.glFramebufferTexture(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, shadowTexture, 0);
+			GL30.glFramebufferTextureLayer(GL30.GL_FRAMEBUFFER, GL30.GL_DEPTH_ATTACHMENT, shadowTexture, 0, page);
 			GL30.glDrawBuffer(GL11.GL_NONE);
 			GL30.glReadBuffer(GL11.GL_NONE);
-			OpenGLStateMachine.bindTexture(GL13.GL_TEXTURE_CUBE_MAP, 0);
 		}
 
+		/**
+		 * Deletes the framebuffer, the texture is deleted by the pipeline.
+		 */
 		@Override
 		public void delete() {
-			GL11.glDeleteTextures(shadowTexture);
 			GL30.glDeleteFramebuffers(fbo);
 		}
 		
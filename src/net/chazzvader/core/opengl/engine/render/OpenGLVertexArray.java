@@ -4,6 +4,8 @@ import org.lwjgl.opengl.GL11;
 import org.lwjgl.opengl.GL15;
 import org.lwjgl.opengl.GL20;
 import org.lwjgl.opengl.GL30;
+import org.lwjgl.opengl.GL33;
+import org.lwjgl.opengl.GL42;
 
 import net.chazzvader.core.generic.Configuration;
 import net.chazzvader.core.generic.Configuration.Renderer;
@@ -11,10 +13,16 @@ import net.chazzvader.core.generic.Logging;
 import net.chazzvader.core.generic.Logging.LoggingLevel;
 import net.chazzvader.core.generic.engine.IDeletable;
 import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.mesh.MeshKernels;
+import net.chazzvader.core.generic.engine.mesh.MeshOptimizer;
+import net.chazzvader.core.generic.engine.mesh.VertexCodec;
+import net.chazzvader.core.generic.engine.mesh.VertexCodec.Attribute;
+import net.chazzvader.core.generic.engine.mesh.VertexCodec.EncodedVertices;
+import net.chazzvader.core.generic.engine.mesh.VertexLayout;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
-import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyDataType;
 import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
 import net.chazzvader.core.generic.util.Utils;
+import net.chazzvader.core.opengl.engine.util.OpenGLStateMachine;
 import net.chazzvader.core.opengl.shader.OpenGLShaderLocations;
 
 /**
@@ -26,15 +34,27 @@ import net.chazzvader.core.opengl.shader.OpenGLShaderLocations;
  */
 public class OpenGLVertexArray implements IDeletable {
 
-	private int vao, ibo, count, dataType;
-	private int[] otherBuffers;
+	private int vao, ibo, vbo, count, dataType, indexSize;
+	private int instanceBuffer = 0;
 
 	/**
-	 * Creates and binds a vertex array based on a mesh
+	 * Creates and binds a vertex array based on a mesh, with the vertex layout
+	 * from the configuration
 	 * 
 	 * @param mesh The mesh to make the array out of
+	 * @see Configuration#getVertexLayout()
 	 */
 	public OpenGLVertexArray(Mesh mesh) {
+		this(mesh, Configuration.getVertexLayout());
+	}
+
+	/**
+	 * Creates and binds a vertex array based on a mesh
+	 * 
+	 * @param mesh   The mesh to make the array out of
+	 * @param layout How to store the vertices
+	 */
+	public OpenGLVertexArray(Mesh mesh, VertexLayout layout) {
 		Configuration.assertRenderer(Renderer.OPEN_GL);
 		// Verify it has position and indices and make sure no duplicates
 		VertexedProperty[] array = mesh.properties;
@@ -71,59 +91,70 @@ public class OpenGLVertexArray implements IDeletable {
 		}
 		// Actually make vertex array
 		vao = GL30.glGenVertexArrays();
-		GL30.glBindVertexArray(vao);
+		OpenGLStateMachine.bindVertexArray(vao);
 
-		otherBuffers = new int[array.length];
-		
 		for (int i = 0; i < array.length; i++) {
 			if (array[i].usage == VertexPropertyType.INDICES) {
-				if (array[i].dataType == VertexPropertyDataType.INT) {
-					count = array[i].intProp.length;
-				} else {
-					count = array[i].byteProp.length;
+				// Uploaded as the narrowest unsigned type that fits the largest index
+				int[] indices = MeshKernels.toIntArray(array[i]);
+				int largest = 0;
+				for (int j = 0; j < indices.length; j++) {
+					largest = Math.max(largest, indices[j]);
 				}
+				count = indices.length;
+				indexSize = MeshOptimizer.indexSize(largest + 1);
 				ibo = GL15.glGenBuffers();
 				GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
-				if (array[i].dataType == VertexPropertyDataType.INT) {
-					GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, Utils.createIntBuffer(array[i].intProp),
-							GL15.GL_STATIC_DRAW);
-					dataType = GL11.GL_UNSIGNED_INT;
-				} else {
-					GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, Utils.createByteBuffer(array[i].byteProp),
-							GL15.GL_STATIC_DRAW);
+				GL15.glBufferData(GL15.GL_ELEMENT_ARRAY_BUFFER, Utils.createIndexBuffer(indices, indexSize),
+						GL15.GL_STATIC_DRAW);
+				switch (indexSize) {
+				case 1:
 					dataType = GL11.GL_UNSIGNED_BYTE;
-				}
-				GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-			} else {
-				int temp = GL15.glGenBuffers();
-				GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, temp);
-				switch (array[i].dataType) {
-				case BYTE:
-					GL15.glBufferData(GL15.GL_ARRAY_BUFFER, Utils.createByteBuffer(array[i].byteProp),
-							GL15.GL_STATIC_DRAW);
-					GL20.glVertexAttribPointer(OpenGLShaderLocations.fromVertexData(array[i].usage),
-							OpenGLShaderLocations.sizeFromVertexData(array[i].usage), GL11.GL_BYTE, false, 0, 0);
 					break;
-				case FLOAT:
-					GL15.glBufferData(GL15.GL_ARRAY_BUFFER, Utils.createFloatBuffer(array[i].floatProp),
-							GL15.GL_STATIC_DRAW);
-					GL20.glVertexAttribPointer(OpenGLShaderLocations.fromVertexData(array[i].usage),
-							OpenGLShaderLocations.sizeFromVertexData(array[i].usage), GL11.GL_FLOAT, false, 0, 0);
+				case 2:
+					dataType = GL11.GL_UNSIGNED_SHORT;
 					break;
-				case INT:
-					GL15.glBufferData(GL15.GL_ARRAY_BUFFER, Utils.createIntBuffer(array[i].intProp),
-							GL15.GL_STATIC_DRAW);
-					GL20.glVertexAttribPointer(OpenGLShaderLocations.fromVertexData(array[i].usage),
-							OpenGLShaderLocations.sizeFromVertexData(array[i].usage), GL11.GL_INT, false, 0, 0);
+				default:
+					dataType = GL11.GL_UNSIGNED_INT;
 					break;
 				}
-				GL20.glEnableVertexAttribArray(OpenGLShaderLocations.fromVertexData(array[i].usage));
-				otherBuffers[i] = temp;
+				// The index buffer stays bound, the vertex array remembers it
 			}
 		}
 
+		// Everything else goes interleaved into one buffer
+		EncodedVertices vertices = VertexCodec.encode(mesh, layout);
+		vbo = GL15.glGenBuffers();
+		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, vbo);
+		GL15.glBufferData(GL15.GL_ARRAY_BUFFER, vertices.data, GL15.GL_STATIC_DRAW);
+		for (int i = 0; i < vertices.attributes.length; i++) {
+			Attribute attribute = vertices.attributes[i];
+			int location = OpenGLShaderLocations.fromVertexData(attribute.usage);
+			int type;
+			switch (attribute.format) {
+			case HALF_FLOAT:
+				type = GL30.GL_HALF_FLOAT;
+				break;
+			case PACKED_10_10_10_2:
+				type = GL33.GL_INT_2_10_10_10_REV;
+				break;
+			case BYTE:
+				type = GL11.GL_BYTE;
+				break;
+			case INT:
+				type = GL11.GL_INT;
+				break;
+			default:
+				type = GL11.GL_FLOAT;
+				break;
+			}
+			GL20.glVertexAttribPointer(location, attribute.components, type, attribute.normalized, vertices.stride,
+					attribute.offset);
+			GL20.glEnableVertexAttribArray(location);
+		}
+
 		GL15.glBindBuffer(GL15.GL_ARRAY_BUFFER, 0);
-		GL30.glBindVertexArray(0);
+		OpenGLStateMachine.bindVertexArray(0);
 	}
 
 	/**
@@ -131,9 +162,7 @@ public class OpenGLVertexArray implements IDeletable {
 	 */
 	public void bind() {
 		checkDelete();
-		GL30.glBindVertexArray(vao);
-		if (ibo > 0)
-			GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, ibo);
+		OpenGLStateMachine.bindVertexArray(vao);
 	}
 
 	/**
@@ -141,9 +170,7 @@ public class OpenGLVertexArray implements IDeletable {
 	 */
 	public void unbind() {
 		checkDelete();
-		if (ibo > 0)
-			GL15.glBindBuffer(GL15.GL_ELEMENT_ARRAY_BUFFER, 0);
-		GL30.glBindVertexArray(0);
+		OpenGLStateMachine.bindVertexArray(0);
 	}
 
 	/**
@@ -159,6 +186,61 @@ public class OpenGLVertexArray implements IDeletable {
 		}
 	}
 
+	/**
+	 * Draws part of the vertex array, a run of consecutive indices, or vertices
+	 * if there are no indices.<br>
+	 * This requires the array to be bound!
+	 * 
+	 * @param first The first index to draw.
+	 * @param count The amount of indices to draw.
+	 */
+	public void drawRange(int first, int count) {
+		checkDelete();
+		if (ibo > 0) {
+			long offset = (long) first * indexSize;
+			GL15.glDrawElements(GL11.GL_TRIANGLES, count, dataType, offset);
+		} else {
+			GL15.glDrawArrays(GL11.GL_TRIANGLES, first, count);
+		}
+	}
+
+	/**
+	 * Draws the vertex array multiple times in one call, with per instance
+	 * attributes starting at <code>baseInstance</code>.<br>
+	 * This requires the array to be bound!
+	 * 
+	 * @param instances    The amount of instances to draw.
+	 * @param baseInstance The first instance to read per instance attributes from.
+	 */
+	public void drawInstanced(int instances, int baseInstance) {
+		checkDelete();
+		if (ibo > 0) {
+			GL42.glDrawElementsInstancedBaseInstance(GL11.GL_TRIANGLES, count, dataType, 0, instances, baseInstance);
+		} else {
+			GL42.glDrawArraysInstancedBaseInstance(GL11.GL_TRIANGLES, 0, count, instances, baseInstance);
+		}
+	}
+
+	/**
+	 * The per instance buffer attached to this array, if any. The buffer is owned
+	 * by whoever attached it, and is not deleted with the array.
+	 * 
+	 * @return The per instance buffer, or 0 if there isn't one.
+	 */
+	public int getInstanceBuffer() {
+		return instanceBuffer;
+	}
+
+	/**
+	 * Records which per instance buffer has been attached to this array, so it
+	 * only has to be attached once.
+	 * 
+	 * @param instanceBuffer The per instance buffer.
+	 */
+	public void setInstanceBuffer(int instanceBuffer) {
+		this.instanceBuffer = instanceBuffer;
+	}
+
 	/**
 	 * Binds, and draws the array. Full draw cycle
 	 * @see OpenGLVertexArray#bind()
@@ -173,11 +255,12 @@ public class OpenGLVertexArray implements IDeletable {
 	@Override
 	public void delete() {
 		checkDelete();
+		if (OpenGLStateMachine.getCurrentVertexArray() == vao) {
+			OpenGLStateMachine.bindVertexArray(0);
+		}
 		GL30.glDeleteVertexArrays(vao);
 		GL15.glDeleteBuffers(ibo);
-		for(int i = 0;i < otherBuffers.length;i ++) {
-			GL15.glDeleteBuffers(otherBuffers[i]);
-		}
+		GL15.glDeleteBuffers(vbo);
 		deleted = true;
 	}
 	
@@ -36,10 +36,14 @@ public class OpenGLStateMachine {
 	private static int currentActiveTextureSlot = 0;
 	private static int[] currentTexture = new int[MAX_TEXTURES];
 	private static int currentFramebuffer = 0;
+	private static int currentVertexArray = 0;
 	private static HashMap<Integer, Boolean> currentEnables = new HashMap<Integer, Boolean>();
 	private static int currentDepthFunction = 0;
 	private static int currentBlendFunctionA = 0, currentBlendFunctionB = 0;
 	private static int currentViewportWidth = 0, currentViewportHeight = 0;
+	private static int shaderBinds = 0, shaderBindsSkipped = 0;
+	private static int textureBinds = 0, textureBindsSkipped = 0;
+	private static int vertexArrayBinds = 0, vertexArrayBindsSkipped = 0;
 
 	/*
 	 * GETTERS
@@ -107,6 +111,94 @@ public class OpenGLStateMachine {
 		return currentTexture[getCurrentActiveTextureSlot()];
 	}
 
+	/**
+	 * The current bound vertex array, <em>assuming all bindings go through this
+	 * class.</em>
+	 * 
+	 * @return The current bound vertex array.
+	 */
+	public static int getCurrentVertexArray() {
+		return currentVertexArray;
+	}
+
+	/**
+	 * How many shader binds actually reached OpenGL since the counters were last
+	 * reset.
+	 * 
+	 * @return The number of shader binds.
+	 * @see #resetBindCounters()
+	 */
+	public static int getShaderBinds() {
+		return shaderBinds;
+	}
+
+	/**
+	 * How many shader binds were skipped because the shader was already bound,
+	 * since the counters were last reset.
+	 * 
+	 * @return The number of skipped shader binds.
+	 * @see #resetBindCounters()
+	 */
+	public static int getShaderBindsSkipped() {
+		return shaderBindsSkipped;
+	}
+
+	/**
+	 * How many texture binds actually reached OpenGL since the counters were last
+	 * reset.
+	 * 
+	 * @return The number of texture binds.
+	 * @see #resetBindCounters()
+	 */
+	public static int getTextureBinds() {
+		return textureBinds;
+	}
+
+	/**
+	 * How many texture binds were skipped because the texture was already bound,
+	 * since the counters were last reset.
+	 * 
+	 * @return The number of skipped texture binds.
+	 * @see #resetBindCounters()
+	 */
+	public static int getTextureBindsSkipped() {
+		return textureBindsSkipped;
+	}
+
+	/**
+	 * How many vertex array binds actually reached OpenGL since the counters were
+	 * last reset.
+	 * 
+	 * @return The number of vertex array binds.
+	 * @see #resetBindCounters()
+	 */
+	public static int getVertexArrayBinds() {
+		return vertexArrayBinds;
+	}
+
+	/**
+	 * How many vertex array binds were skipped because the vertex array was
+	 * already bound, since the counters were last reset.
+	 * 
+	 * @return The number of skipped vertex array binds.
+	 * @see #resetBindCounters()
+	 */
+	public static int getVertexArrayBindsSkipped() {
+		return vertexArrayBindsSkipped;
+	}
+
+	/**
+	 * Resets the bind counters, usually done once a frame.
+	 */
+	public static void resetBindCounters() {
+		shaderBinds = 0;
+		shaderBindsSkipped = 0;
+		textureBinds = 0;
+		textureBindsSkipped = 0;
+		vertexArrayBinds = 0;
+		vertexArrayBindsSkipped = 0;
+	}
+
 	/*
 	 * SETTERS
 	 */
@@ -119,6 +211,7 @@ public class OpenGLStateMachine {
 	 */
 	public static void bindShader(int program) {
 		if (currentShader == program) {
+			shaderBindsSkipped++;
 			return;
 		}
 		bindShaderOverride(program);
@@ -132,6 +225,7 @@ public class OpenGLStateMachine {
 	 */
 	public static void bindShaderOverride(int program) {
 		currentShader = program;
+		shaderBinds++;
 		GL20.glUseProgram(program);
 	}
 
@@ -168,8 +262,10 @@ public class OpenGLStateMachine {
 	 * @see GL11#glBindTexture(int, int)
 	 */
 	public static void bindTexture(int textureType, int texture) {
-		if (texture == currentTexture[currentActiveTextureSlot])
+		if (texture == currentTexture[currentActiveTextureSlot]) {
+			textureBindsSkipped++;
 			return;
+		}
 		bindTextureOverride(textureType, texture);
 	}
 
@@ -193,6 +289,7 @@ public class OpenGLStateMachine {
 	 */
 	public static void bindTextureOverride(int textureType, int texture) {
 		currentTexture[currentActiveTextureSlot] = texture;
+		textureBinds++;
 		GL11.glBindTexture(textureType, texture);
 	}
 
@@ -220,6 +317,33 @@ public class OpenGLStateMachine {
 		GL30.glBindFramebuffer(GL30.GL_FRAMEBUFFER, framebuffer);
 	}
 
+	/**
+	 * Checks and makes sure the vertex array isn't already bound, and then binds
+	 * it.
+	 * 
+	 * @param vertexArray The vertex array.
+	 * @see GL30#glBindVertexArray(int)
+	 */
+	public static void bindVertexArray(int vertexArray) {
+		if (vertexArray == currentVertexArray) {
+			vertexArrayBindsSkipped++;
+			return;
+		}
+		bindVertexArrayOverride(vertexArray);
+	}
+
+	/**
+	 * Bind the vertex array, ignoring the status of the state machine.
+	 * 
+	 * @param vertexArray The vertex array.
+	 * @see GL30#glBindVertexArray(int)
+	 */
+	public static void bindVertexArrayOverride(int vertexArray) {
+		currentVertexArray = vertexArray;
+		vertexArrayBinds++;
+		GL30.glBindVertexArray(vertexArray);
+	}
+
 	/**
 	 * Enables the target item.
 	 * 
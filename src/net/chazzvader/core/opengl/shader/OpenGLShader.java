@@ -3,8 +3,8 @@ package net.chazzvader.core.opengl.shader;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.lwjgl.opengl.GL13;
 import org.lwjgl.opengl.GL20;
+import org.lwjgl.opengl.GL30;
 
 import net.chazzvader.core.generic.Configuration;
 import net.chazzvader.core.generic.Configuration.Renderer;
@@ -19,7 +19,6 @@ import net.chazzvader.core.generic.math.Matrix4f;
 import net.chazzvader.core.generic.math.Vector2f;
 import net.chazzvader.core.generic.math.Vector3f;
 import net.chazzvader.core.generic.math.Vector4f;
-import net.chazzvader.core.generic.util.Utils;
 import net.chazzvader.core.opengl.engine.render.OpenGLRenderPipeline;
 import net.chazzvader.core.opengl.engine.util.OpenGLStateMachine;
 import net.chazzvader.core.opengl.engine.util.OpenGLUtils;
@@ -161,7 +160,17 @@ public class OpenGLShader extends Shader {
 
 	@Override
 	public void setUniformMat4f(String location, Matrix4f val) {
-		GL20.glUniformMatrix4fv(getUniform(location), false, Utils.createFloatBuffer(val.toFloatArray()));
+		GL20.glUniformMatrix4fv(getUniform(location), false, val.toFloatArray(matrixUpload));
+	}
+
+	private final float[] matrixUpload = new float[16];
+
+	private static final String[] VIEW_MATRICES = new String[6];
+
+	static {
+		for (int i = 0; i < VIEW_MATRICES.length; i++) {
+			VIEW_MATRICES[i] = "view_matrices[" + i + "]";
+		}
 	}
 
 	/**
@@ -179,22 +188,18 @@ public class OpenGLShader extends Shader {
 			setUniformMat4f("view_matrix", scene.getActiveCamera().getViewMatrix());
 			setUniformMat4f("proj_matrix", scene.getActiveCamera().getProjectionMatrix());
 			if (shadows) {
-				for(int i = 0;i < OpenGLShaderLocations.MAX_SHADOW_MAPS;i ++) {
-					int textureSlot = OpenGLShaderLocations.TEXTURE_SHADOW_1 + i;
-					if(i < opengGLpipeline.getShadowFramebuffers().length) {
-						OpenGLStateMachine.setActiveTextureSlot(textureSlot);
-						OpenGLStateMachine.bindTexture(GL13.GL_TEXTURE_CUBE_MAP, opengGLpipeline.getShadowFramebuffers()[i].shadowTexture);
-					}
-					setUniform1i("depth_maps[" + i + "]", textureSlot);
-				}
+				OpenGLStateMachine.setActiveTextureSlot(OpenGLShaderLocations.TEXTURE_SHADOW_ATLAS);
+				OpenGLStateMachine.bindTexture(GL30.GL_TEXTURE_2D_ARRAY, opengGLpipeline.getShadowTexture());
+				setUniform1i("shadow_atlas", OpenGLShaderLocations.TEXTURE_SHADOW_ATLAS);
 			}
 			break;
 		case SHADOWS:
 			Light l = pipeline.getRenderingLight();
 			setUniform3f("light_pos", pipeline.getRenderingLight().pos());
 			setUniform1f("far_plane", pipeline.getRenderingLight().targetDistance * 2);
+			Matrix4f[] viewMatrices = l.getViewMatrix();
 			for (int i = 0; i < 6; i++) {
-				setUniformMat4f("view_matrices[" + i + "]", l.getViewMatrix()[i]);
+				setUniformMat4f(VIEW_MATRICES[i], viewMatrices[i]);
 			}
 			setUniformMat4f("proj_matrix", l.getProjectionMatrix());
 			break;
@@ -63,6 +63,36 @@ public class OpenGLShaderLocations {
 	 */
 	public static final int IN_OTHER_2 = 7;
 
+	/**
+	 * Location of the per instance glyph center and half size, used by batched
+	 * text
+	 */
+	public static final int IN_GLYPH_TRANSFORM = 8;
+
+	/**
+	 * Location of the per instance glyph texture coordinate rectangle, used by
+	 * batched text
+	 */
+	public static final int IN_GLYPH_TEXTURE_COORDS = 9;
+
+	/**
+	 * Location of the per instance glyph color, used by batched text
+	 */
+	public static final int IN_GLYPH_COLOR = 10;
+
+	/**
+	 * Location of the per instance world matrix, used by instanced meshes. Takes
+	 * up 4 locations, one per column. Shares locations with the glyph inputs, as
+	 * they are never in the same vertex array.
+	 */
+	public static final int IN_INSTANCE_WORLD_MATRIX = 8;
+
+	/**
+	 * Location of the per instance normal matrix, used by instanced meshes. Takes
+	 * up 3 locations, one per column.
+	 */
+	public static final int IN_INSTANCE_NORMAL_MATRIX = 12;
+
 	/**
 	 * Standard location for color output
 	 */
@@ -73,6 +103,12 @@ public class OpenGLShaderLocations {
 	 */
 	public static final int SSBO_POINT_LIGHTS = 0;
 
+	/**
+	 * Standard binding point shader storage buffer objects for the lights of each
+	 * cluster
+	 */
+	public static final int SSBO_LIGHT_CLUSTERS = 1;
+
 	/**
 	 * Standard texture id for diffuse textures
 	 */
@@ -89,20 +125,14 @@ public class OpenGLShaderLocations {
 	public static final int TEXTURE_NORMAL = 2;
 
 	/**
-	 * Standard texture ID for the first shadow map, add <code>n</code> for the
-	 * <code>n-1</code> shadow map.
-	 */
-	public static final int TEXTURE_SHADOW_1;
-
-	/**
-	 * Max shadow maps.
+	 * Standard texture ID for the shadow atlas, the last texture slot.
 	 */
-	public static final int MAX_SHADOW_MAPS = 4;
+	public static final int TEXTURE_SHADOW_ATLAS;
 
 	static {
 		Configuration.assertRenderer(Renderer.OPEN_GL);
 		int maxTextures = GL11.glGetInteger(GL20.GL_MAX_TEXTURE_IMAGE_UNITS);
-		TEXTURE_SHADOW_1 = maxTextures - MAX_SHADOW_MAPS;
+		TEXTURE_SHADOW_ATLAS = maxTextures - 1;
 	}
 
 	/**
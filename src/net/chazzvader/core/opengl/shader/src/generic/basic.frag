@@ -11,9 +11,11 @@ struct point_light
 	vec3 light_pos;//20 24 28
     float quadratic;//32
     float constant;//36
-    int textureID;//40
+    int shadow_size;//40, 0 for no shadow
     float far_plane;//44
-    float padding;//48
+    int shadow_page;//48
+    int shadow_tiles[6];//72, x | y << 16 for each face
+    int padding[2];//80
 };
 
 layout (std430, binding = 0) buffer lights_buffer
@@ -22,6 +24,15 @@ layout (std430, binding = 0) buffer lights_buffer
 	point_light point_lights[];
 };
 
+//LIGHT CLUSTERS
+layout (std430, binding = 1) buffer light_clusters_buffer
+{
+	ivec4 cluster_grid;//tiles x, tiles y, slices
+	vec4 cluster_depth;//slice scale, slice bias, near, far
+	vec4 cluster_screen;//width, height
+	int cluster_data[];//offset and count for each cluster, then light indices
+};
+
 //AMIENT
 uniform float ambient_strength = 0.1;
 uniform vec3 ambient_color;
@@ -39,7 +50,7 @@ uniform sampler2D diffuse;
 uniform sampler2D normals_tex;
 
 //SHADOW MAPS
-uniform samplerCube depth_maps[4];
+uniform sampler2DArray shadow_atlas;
 
 //MATH
 in vec3 frag_pos;
@@ -55,6 +66,7 @@ uniform int normal_debug_flag;//1 for true and false for everything else.
 vec3 ambient();
 vec3 point(int index, vec3 color, vec3 view_dir, vec3 normal);
 vec3 gz(vec3 vector);
+int cluster();
 float shadow(vec3 frag_pos, int index, vec3 normal, vec3 light_dir);
 vec4 regular();
 vec4 tc_debug();
@@ -114,9 +126,12 @@ vec4 regular()
     vec3 ambient = ambient();
     vec3 view_dir = normalize(view_pos - frag_pos);
 	vec3 temp = vec3(0, 0, 0);
-	for(int i = 0;i < num_lights;i ++)
+	int cluster_index = cluster();
+	int first = cluster_data[cluster_index * 2];
+	int count = cluster_data[cluster_index * 2 + 1];
+	for(int i = 0;i < count;i ++)
 	{
-		temp += point(i, temp_color, view_dir, combined_normals);
+		temp += point(cluster_data[first + i], temp_color, view_dir, combined_normals);
 	}
 	
 	//COMBINED
@@ -137,6 +152,11 @@ vec3 point(int index, vec3 color, vec3 view_dir, vec3 normal)
 	float distance = length(light_pos - frag_pos);
 	float attenuation = 1.0 / (constant + linear * distance + quadratic * (distance * distance));
 	
+	//Fades the light to 0 at its range, so it doesn't stop sharply at the cluster edges
+	float range_fraction = distance / point_lights[index].far_plane;
+	float window = clamp(1.0 - range_fraction * range_fraction * range_fraction * range_fraction, 0.0, 1.0);
+	attenuation *= window * window;
+	
 	//DIFFUSE
 	vec3 light_dir = normalize(light_pos - frag_pos);  
 	float diff = max(dot(light_dir, normal), 0.0);
@@ -152,6 +172,21 @@ vec3 point(int index, vec3 color, vec3 view_dir, vec3 normal)
 	return gz((diffuse + specular) * attenuation * (1.0 - shadow(frag_pos, index, normal, light_dir)));
 }
 
+int cluster()
+{
+	//View space depth, worked back out of the depth buffer value
+	float near = cluster_depth.z;
+	float far = cluster_depth.w;
+	float ndc_depth = gl_FragCoord.z * 2.0 - 1.0;
+	float depth = 2.0 * near * far / (far + near - ndc_depth * (far - near));
+	
+	ivec3 c;
+	c.xy = ivec2(gl_FragCoord.xy / cluster_screen.xy * vec2(cluster_grid.xy));
+	c.z = int(floor(log(depth) * cluster_depth.x - cluster_depth.y));
+	c = clamp(c, ivec3(0), cluster_grid.xyz - 1);
+	return (c.z * cluster_grid.y + c.y) * cluster_grid.x + c.x;
+}
+
 vec3 ambient()
 {
 	return ambient_strength * ambient_color;
@@ -164,14 +199,46 @@ vec3 gz(vec3 vector)
 
 float shadow(vec3 frag_pos, int index, vec3 normal, vec3 light_dir)
 {
+	int tile_size = point_lights[index].shadow_size;
+	if(tile_size == 0)
+	{
+		return 0.0;
+	}
 	vec3 frag_to_light_dir = frag_pos - point_lights[index].light_pos; 
-    float closest_depth = texture(depth_maps[point_lights[index].textureID], frag_to_light_dir).r;
+	
+	//Picks the face and the position on it the same way a cube map would
+	vec3 a = abs(frag_to_light_dir);
+	int face;
+	float major;
+	vec2 st;
+	if(a.x >= a.y && a.x >= a.z)
+	{
+		face = frag_to_light_dir.x > 0 ? 0 : 1;
+		major = a.x;
+		st = vec2(frag_to_light_dir.x > 0 ? -frag_to_light_dir.z : frag_to_light_dir.z, -frag_to_light_dir.y);
+	}
+	else if(a.y >= a.z)
+	{
+		face = frag_to_light_dir.y > 0 ? 2 : 3;
+		major = a.y;
+		st = vec2(frag_to_light_dir.x, frag_to_light_dir.y > 0 ? frag_to_light_dir.z : -frag_to_light_dir.z);
+	}
+	else
+	{
+		face = frag_to_light_dir.z > 0 ? 4 : 5;
+		major = a.z;
+		st = vec2(frag_to_light_dir.z > 0 ? frag_to_light_dir.x : -frag_to_light_dir.x, -frag_to_light_dir.y);
+	}
+	int tile = point_lights[index].shadow_tiles[face];
+	ivec2 texel = clamp(ivec2((st / major * 0.5 + 0.5) * tile_size), ivec2(0), ivec2(tile_size - 1));
+	texel += ivec2(tile & 0xFFFF, tile >> 16);
+	
+    float closest_depth = texelFetch(shadow_atlas, ivec3(texel, point_lights[index].shadow_page), 0).r;
     closest_depth *= point_lights[index].far_plane;
     float current_depth = length(frag_to_light_dir);
     //float shadow_bias = max(0.075 * (1.0 - dot(normal, light_dir)), 0.01);  
     float shadow_bias = 0.05;
     float shadow = current_depth -  shadow_bias > closest_depth ? 1.0 : 0.0;
-    //color = vec4(vec3(texture(depth_maps[point_lights[index].textureID], frag_to_light_dir).r), 1.0);
     //color = vec4(vec3(shadow), 1);
     return shadow;
 }
\ No newline at end of file
@@ -3,11 +3,12 @@
 layout (location = 0) in vec3 in_position;
 layout (location = 1) in vec2 in_texture_coordinates;
 layout (location = 3) in vec3 in_normal;
-layout (location = 4) in vec3 in_tangent;
+layout (location = 4) in vec4 in_tangent;
 layout (location = 5) in vec3 in_bitangent;
 
 uniform mat4 view_matrix;
 uniform mat4 world_matrix;
+uniform mat4 normal_matrix;
 uniform mat4 proj_matrix;
 
 out vec3 normal;
@@ -26,8 +27,15 @@ void main()
 	gl_Position = final;
 	
 	//TBN
-	vec3 T = normalize(vec3(world_matrix * vec4(in_tangent,   0.0)));
-	vec3 B = normalize(vec3(world_matrix * vec4(in_bitangent, 0.0)));
-	vec3 N = normalize(vec3(world_matrix * vec4(in_normal,    0.0)));
+	//Compact layouts leave out the bitangent, so it reads as zero, and store
+	//which side it is on in the tangent's w
+	vec3 bitangent = in_bitangent;
+	if (dot(bitangent, bitangent) == 0.0) {
+		bitangent = cross(in_normal, in_tangent.xyz) * in_tangent.w;
+	}
+	vec3 T = normalize(vec3(world_matrix * vec4(in_tangent.xyz, 0.0)));
+	vec3 B = normalize(vec3(world_matrix * vec4(bitangent,      0.0)));
+	//Same as the instanced shader, so batching doesn't change the shading
+	vec3 N = normalize(mat3(normal_matrix) * in_normal);
 	tbn = mat3(T, B, N);
 }
\ No newline at end of file
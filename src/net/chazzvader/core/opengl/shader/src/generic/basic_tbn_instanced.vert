@@ -0,0 +1,41 @@
+#version 330 core
+
+layout (location = 0) in vec3 in_position;
+layout (location = 1) in vec2 in_texture_coordinates;
+layout (location = 3) in vec3 in_normal;
+layout (location = 4) in vec4 in_tangent;
+layout (location = 5) in vec3 in_bitangent;
+layout (location = 8) in mat4 in_world_matrix;
+layout (location = 12) in mat3 in_normal_matrix;
+
+uniform mat4 view_matrix;
+uniform mat4 proj_matrix;
+
+out vec3 normal;
+out vec3 frag_pos;
+out vec2 tex_coords;
+out mat3 tbn;
+
+void main()
+{
+	//PASS DATA
+	tex_coords = in_texture_coordinates;
+	
+	//POSITION
+	frag_pos = vec3(in_world_matrix * vec4(in_position, 1));
+	vec4 final = proj_matrix * view_matrix * in_world_matrix * vec4(in_position, 1);
+	gl_Position = final;
+	
+	//TBN
+	//Compact layouts leave out the bitangent, so it reads as zero, and store
+	//which side it is on in the tangent's w
+	vec3 bitangent = in_bitangent;
+	if (dot(bitangent, bitangent) == 0.0) {
+		bitangent = cross(in_normal, in_tangent.xyz) * in_tangent.w;
+	}
+	vec3 T = normalize(vec3(in_world_matrix * vec4(in_tangent.xyz, 0.0)));
+	vec3 B = normalize(vec3(in_world_matrix * vec4(bitangent,      0.0)));
+	//Same as the non instanced shader, so batching doesn't change the shading
+	vec3 N = normalize(in_normal_matrix * in_normal);
+	tbn = mat3(T, B, N);
+}
\ No newline at end of file
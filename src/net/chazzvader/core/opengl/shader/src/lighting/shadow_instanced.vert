@@ -0,0 +1,9 @@
+#version 330 core
+
+layout (location = 0) in vec3 in_position;
+layout (location = 8) in mat4 in_world_matrix;
+
+void main()
+{
+	gl_Position = in_world_matrix * vec4(in_position, 1);
+}
\ No newline at end of file
@@ -0,0 +1,20 @@
+#version 330 core
+
+layout (location = 0) in vec3 in_position;
+layout (location = 1) in vec2 in_texture_coordinates;
+layout (location = 8) in vec4 in_glyph_transform;
+layout (location = 9) in vec4 in_glyph_tex_coords;
+layout (location = 10) in vec3 in_glyph_color;
+
+out vec2 tex_coords;
+out vec3 color_multiplier;
+
+void main()
+{
+	gl_Position = vec4(in_glyph_transform.xy + in_position.xy * in_glyph_transform.zw, 0, 1);
+	vec2 tempTexCoords = in_texture_coordinates;
+	tempTexCoords.x = (1-tempTexCoords.x)*in_glyph_tex_coords.x + tempTexCoords.x*in_glyph_tex_coords.z;
+	tempTexCoords.y = (1-tempTexCoords.y)*in_glyph_tex_coords.y + tempTexCoords.y*in_glyph_tex_coords.w;
+	tex_coords = tempTexCoords;
+	color_multiplier = in_glyph_color;
+}
\ No newline at end of file
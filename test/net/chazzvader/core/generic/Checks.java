@@ -0,0 +1,82 @@
+package net.chazzvader.core.generic;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import net.chazzvader.core.generic.Logging.LoggingLevel;
+
+/**
+ * Helpers shared by the checks in the test folder. Every check is a main that
+ * runs without a window or a graphics API, logs what it finds, and exits with 1
+ * if anything failed, so they can be run one at a time without a test
+ * framework.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public final class Checks {
+
+	private static int failures = 0;
+
+	private Checks() {
+	}
+
+	/**
+	 * Logs an error if a condition doesn't hold, and counts it as a failure.
+	 *
+	 * @param passed  The condition.
+	 * @param message What went wrong, logged if the condition is false.
+	 * @param source  The name of the check.
+	 */
+	public static void check(boolean passed, String message, String source) {
+		if (!passed) {
+			failures++;
+			Logging.log(message, source, LoggingLevel.ERR);
+		}
+	}
+
+	/**
+	 * Logs a measurement, for checks that also report numbers.
+	 *
+	 * @param message The measurement.
+	 * @param source  The name of the check.
+	 */
+	public static void report(String message, String source) {
+		Logging.log(message, source, LoggingLevel.INFO);
+	}
+
+	/**
+	 * Ends a check. Exits with 1 if any {@link #check(boolean, String, String)}
+	 * failed.
+	 *
+	 * @param source The name of the check.
+	 */
+	public static void finish(String source) {
+		if (failures > 0) {
+			Logging.log(failures + " checks failed", source, LoggingLevel.ERR);
+			System.exit(1);
+		}
+		Logging.log("All checks passed", source, LoggingLevel.INFO);
+	}
+
+	/**
+	 * The amount of bytes the current thread has allocated, if the JVM can count
+	 * them.
+	 *
+	 * @return The amount of bytes allocated so far, or -1 if the JVM can't count
+	 *         them.
+	 */
+	public static long allocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+			return -1;
+		}
+		com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) bean;
+		if (!counting.isThreadAllocatedMemorySupported() || !counting.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+		return counting.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+}
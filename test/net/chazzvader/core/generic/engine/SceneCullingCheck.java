@@ -0,0 +1,282 @@
+package net.chazzvader.core.generic.engine;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.engine.creator.ObjectCreator;
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.object.EngineObject;
+import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.engine.render.Framebuffer;
+import net.chazzvader.core.generic.engine.render.RenderContext;
+import net.chazzvader.core.generic.engine.render.RenderPipeline;
+import net.chazzvader.core.generic.math.Bounds;
+import net.chazzvader.core.generic.math.CubeFaces;
+import net.chazzvader.core.generic.math.Quaternion;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Checks culled drawing in a scene without a window. Fills a scene with
+ * spheres, some inactive, and objects without bounds, and draws the shadow
+ * pass of lights all over it through a pipeline that draws nothing. Checks
+ * every sphere a light can reach is drawn, that sorted and unsorted draws draw
+ * the same objects, that unsorted draws keep the order objects were added in,
+ * and that sorted draws only look at the objects the spatial index found.
+ * Then checks the spatial index isn't looked at again when nothing moved, and
+ * that a moved object is found where it went.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class SceneCullingCheck {
+
+	private static final String SOURCE = "Scene Culling Check";
+	private static final int OBJECTS = 20000;
+	private static final int UNBOUNDED = 100;
+	private static final int LIGHTS = 50;
+	private static final float SIZE = 1000;
+
+	private static final RenderContext CONTEXT = new RenderContext() {
+
+		@Override
+		public void bind() {
+		}
+
+		@Override
+		public int getWidth() {
+			return 1;
+		}
+
+		@Override
+		public int getHeight() {
+			return 1;
+		}
+
+		@Override
+		public boolean isDepthOnly() {
+			return true;
+		}
+
+		@Override
+		public Framebuffer getFramebuffer() {
+			return null;
+		}
+
+	};
+
+	private static final ArrayList<EngineObject> drawn = new ArrayList<>();
+	private static int lookedAt = 0;
+	private static int boundsAsked = 0;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(23);
+		Mesh sphere = ObjectCreator.sphere(1, 8);
+		Scene scene = new Scene();
+		ArrayList<Ball> balls = new ArrayList<>();
+		for (int i = 0; i < OBJECTS; i++) {
+			Ball ball = new Ball(sphere, new Vector3f(random.nextFloat() * SIZE, random.nextFloat() * SIZE,
+					random.nextFloat() * SIZE));
+			ball.setActive(random.nextInt(10) != 0);
+			balls.add(ball);
+			scene.add(ball);
+			if (i % (OBJECTS / UNBOUNDED) == 0) {
+				scene.add(new Drawn());
+			}
+		}
+		scene.update(0);
+
+		ShadowPipeline pipeline = new ShadowPipeline();
+		Bounds world = new Bounds();
+		int missing = 0, different = 0, outOfOrder = 0, drawnTotal = 0, lookedAtTotal = 0, foundTotal = 0;
+		long sortedTime = 0;
+		ArrayList<EngineObject> sorted = new ArrayList<>(), found = new ArrayList<>();
+		for (int l = 0; l < LIGHTS; l++) {
+			Light light = new Light(new Vector3f(1, 1, 1), 20 + random.nextFloat() * 80);
+			light.setPosition(random.nextFloat() * SIZE, random.nextFloat() * SIZE, random.nextFloat() * SIZE);
+			pipeline.light = light;
+			Vector3f eye = light.pos();
+
+			scene.setSortDraws(true);
+			drawn.clear();
+			lookedAt = 0;
+			long start = System.nanoTime();
+			scene.render(pipeline);
+			sortedTime += System.nanoTime() - start;
+			sorted.clear();
+			sorted.addAll(drawn);
+			lookedAtTotal += lookedAt;
+			drawnTotal += drawn.size();
+			found.clear();
+			foundTotal += scene.querySphere(eye, light.range(), found).size() + UNBOUNDED;
+
+			scene.setSortDraws(false);
+			drawn.clear();
+			scene.render(pipeline);
+			if (drawn.size() != sorted.size() || !drawn.containsAll(sorted)) {
+				different++;
+			}
+			int last = -1;
+			for (int i = 0; i < drawn.size(); i++) {
+				int index = scene.getObjects().indexOf(drawn.get(i));
+				if (index < last) {
+					outOfOrder++;
+					break;
+				}
+				last = index;
+			}
+
+			// Every active sphere the light reaches has to be drawn
+			for (int i = 0; i < balls.size(); i++) {
+				Ball ball = balls.get(i);
+				if (!ball.isActive()) {
+					continue;
+				}
+				ball.getLocalBounds().transformCopy(ball.getWorldMatrix(), world);
+				if (distanceSquared(eye, world) <= light.range() * light.range()
+						&& CubeFaces.mask(eye.x, eye.y, eye.z, light.range(), world) != 0 && !sorted.contains(ball)) {
+					missing++;
+				}
+			}
+		}
+		Checks.check(missing == 0, missing + " spheres a light reaches weren't drawn", SOURCE);
+		Checks.check(different == 0, "Sorted and unsorted draws drew different objects for " + different + " of "
+				+ LIGHTS + " lights", SOURCE);
+		Checks.check(outOfOrder == 0, "Unsorted draws were out of order for " + outOfOrder + " lights", SOURCE);
+		Checks.check(lookedAtTotal <= foundTotal, "Sorted draws looked at " + lookedAtTotal
+				+ " objects, more than the " + foundTotal + " found and without bounds", SOURCE);
+
+		boundsAsked = 0;
+		scene.update(0);
+		scene.updateSpatialIndex();
+		Checks.check(boundsAsked == 0,
+				"Updating the spatial index with nothing moved asked for " + boundsAsked + " bounds", SOURCE);
+
+		Ball moved = balls.get(0);
+		moved.setActive(true);
+		moved.setPosition(SIZE * 2, SIZE * 2, SIZE * 2);
+		scene.updateSpatialIndex();
+		found.clear();
+		scene.querySphere(new Vector3f(SIZE * 2, SIZE * 2, SIZE * 2), 2, found);
+		Checks.check(found.size() == 1 && found.get(0) == moved, "A moved sphere wasn't found where it went",
+				SOURCE);
+		boundsAsked = 0;
+		scene.updateSpatialIndex();
+		Checks.check(boundsAsked == 0, "The spatial index was looked at again after it caught up", SOURCE);
+
+		Checks.report(LIGHTS + " lights drew " + drawnTotal / LIGHTS + " of " + OBJECTS
+				+ " objects on average, looking at " + lookedAtTotal / LIGHTS + ", in "
+				+ String.format("%.3f", sortedTime / 1e6 / LIGHTS) + " ms", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// The distance from a point to a box, squared, the same test the spatial index uses
+	private static float distanceSquared(Vector3f point, Bounds box) {
+		float dx = Math.max(Math.max(box.minX - point.x, point.x - box.maxX), 0);
+		float dy = Math.max(Math.max(box.minY - point.y, point.y - box.maxY), 0);
+		float dz = Math.max(Math.max(box.minZ - point.z, point.z - box.maxZ), 0);
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	// Draws into the list of what was drawn, in the context the pipeline draws in
+	private static class Drawn extends EngineObject {
+
+		private Drawn() {
+		}
+
+		private Drawn(Vector3f pos) {
+			super(pos, new Quaternion(), new Vector3f(1, 1, 1));
+		}
+
+		@Override
+		public boolean isActive() {
+			lookedAt++;
+			return super.isActive();
+		}
+
+		@Override
+		public RenderContext getRenderContext() {
+			return CONTEXT;
+		}
+
+		@Override
+		public void render() {
+			drawn.add(this);
+		}
+
+	}
+
+	// A sphere that can be culled
+	private static class Ball extends Drawn {
+
+		private final Mesh mesh;
+
+		private Ball(Mesh mesh, Vector3f pos) {
+			super(pos);
+			this.mesh = mesh;
+		}
+
+		@Override
+		public Bounds getLocalBounds() {
+			boundsAsked++;
+			return mesh.getBounds();
+		}
+
+	}
+
+	// Draws the shadow pass of one light into nothing
+	private static class ShadowPipeline extends RenderPipeline {
+
+		private Light light;
+
+		@Override
+		public void preRender(Window window, Application application) {
+		}
+
+		@Override
+		public void render(Window window, Application application, Scene activeScene) {
+		}
+
+		@Override
+		public void postRender(Window window, Application application) {
+		}
+
+		@Override
+		public RenderingMode getRenderingMode() {
+			return RenderingMode.SHADOWS;
+		}
+
+		@Override
+		public Light getRenderingLight() {
+			return light;
+		}
+
+		@Override
+		public RenderContext get3dContext() {
+			return CONTEXT;
+		}
+
+		@Override
+		public RenderContext getUIContext() {
+			return CONTEXT;
+		}
+
+		@Override
+		public IRenderContextProvider get3dProvider() {
+			return null;
+		}
+
+		@Override
+		public IRenderContextProvider getUIProvider() {
+			return null;
+		}
+
+	}
+
+}
@@ -0,0 +1,136 @@
+package net.chazzvader.core.generic.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.engine.creator.ObjectCreator;
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.object.EngineObject;
+import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.math.Bounds;
+import net.chazzvader.core.generic.math.Quaternion;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Checks removing objects from a scene without a window. Fills a scene with
+ * spheres, objects without bounds and lights, removes half of them, and checks
+ * that the removed ones are gone from the spatial index, the queries, the rays,
+ * the objects without bounds and the lights, while the rest are still found.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class SceneRemoveCheck {
+
+	private static final String SOURCE = "Scene Remove Check";
+	private static final int OBJECTS = 1000;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Mesh sphere = ObjectCreator.sphere(1, 16);
+		Scene scene = new Scene();
+		ArrayList<EngineObject> bounded = new ArrayList<>();
+		ArrayList<EngineObject> unbounded = new ArrayList<>();
+		ArrayList<Light> lights = new ArrayList<>();
+		for (int i = 0; i < OBJECTS; i++) {
+			// In a row along x, so a ray down the row can hit any of them
+			EngineObject object = new Ball(sphere, new Vector3f(i * 4, 0, 0));
+			bounded.add(object);
+			scene.add(object);
+			EngineObject empty = new EngineObject();
+			unbounded.add(empty);
+			scene.add(empty);
+			if (i % 10 == 0) {
+				Light light = new Light(new Vector3f(1, 1, 1), 10);
+				lights.add(light);
+				scene.add(light);
+			}
+		}
+		scene.update(0);
+		Checks.check(scene.getSpatialIndex().getCount() == OBJECTS,
+				"The index holds " + scene.getSpatialIndex().getCount() + " objects", SOURCE);
+
+		// Every other one, and the first, which the ray hits first
+		for (int i = 0; i < OBJECTS; i += 2) {
+			scene.remove(bounded.get(i));
+			scene.remove(unbounded.get(i));
+		}
+		for (int i = 0; i < lights.size(); i += 2) {
+			scene.remove(lights.get(i));
+		}
+		int half = OBJECTS / 2;
+		Checks.check(scene.getSpatialIndex().getCount() == half,
+				"After removing, the index holds " + scene.getSpatialIndex().getCount() + " objects", SOURCE);
+		Checks.check(scene.getLights().size() == lights.size() / 2, "The scene has " + scene.getLights().size()
+				+ " lights, not " + lights.size() / 2, SOURCE);
+		boolean inScene = false;
+		for (int i = 0; i < OBJECTS; i += 2) {
+			EngineObject removed = bounded.get(i);
+			inScene |= scene.getObjects().contains(removed) || removed.scene != null || removed.spatialHandle != -1
+					|| scene.getUnboundedObjects().contains(unbounded.get(i));
+		}
+		Checks.check(!inScene, "A removed object is still in the scene", SOURCE);
+
+		// Before anything moves again, so nothing is left for the update to clean up
+		List<EngineObject> found = scene.querySphere(new Vector3f(OBJECTS * 2, 0, 0), OBJECTS * 4,
+				new ArrayList<>());
+		int removedFound = 0;
+		for (int i = 0; i < found.size(); i++) {
+			if (bounded.indexOf(found.get(i)) % 2 == 0) {
+				removedFound++;
+			}
+		}
+		Checks.check(found.size() == half && removedFound == 0,
+				"A query found " + found.size() + " objects, " + removedFound + " of them removed", SOURCE);
+		RaycastHit hit = scene.raycast(new Vector3f(-10, 0, 0), new Vector3f(1, 0, 0));
+		Checks.check(hit != null && hit.object == bounded.get(1),
+				"The ray hit " + (hit == null ? "nothing" : "object " + bounded.indexOf(hit.object)) + ", not 1",
+				SOURCE);
+
+		// Removing twice does nothing, adding again puts it back
+		scene.remove(bounded.get(0));
+		scene.add(bounded.get(0));
+		scene.update(0);
+		hit = scene.raycast(new Vector3f(-10, 0, 0), new Vector3f(1, 0, 0));
+		Checks.check(hit != null && hit.object == bounded.get(0), "An object added again wasn't hit", SOURCE);
+
+		int count = scene.getObjects().size();
+		scene.delete();
+		Checks.check(scene.getObjects().isEmpty() && scene.getSpatialIndex().getCount() == 0
+				&& scene.getLights().isEmpty() && scene.getUnboundedObjects().isEmpty(),
+				"Deleting the scene left objects behind", SOURCE);
+
+		Checks.report("Removed " + (half * 2 + lights.size() / 2) + " objects, none of them found again, deleted "
+				+ count + " with the scene", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// A sphere that can be culled and hit by rays
+	private static class Ball extends EngineObject {
+
+		private final Mesh mesh;
+
+		private Ball(Mesh mesh, Vector3f pos) {
+			super(pos, new Quaternion(), new Vector3f(1, 1, 1));
+			this.mesh = mesh;
+		}
+
+		@Override
+		public Bounds getLocalBounds() {
+			return mesh.getBounds();
+		}
+
+		@Override
+		public Mesh getRaycastMesh() {
+			return mesh;
+		}
+
+	}
+
+}
@@ -0,0 +1,116 @@
+package net.chazzvader.core.generic.engine.creator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.Configuration;
+import net.chazzvader.core.generic.engine.mesh.Mesh;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+
+/**
+ * Checks the OBJ loader without a window. Writes a random OBJ file big enough
+ * to be parsed in parallel, with absolute and negative indices and groups,
+ * loads it from disk and from memory, and checks every triangle corner has the
+ * position and texture coordinates it was written with. Also checks the file
+ * can be replaced straight after loading, so nothing keeps it open. Reports how
+ * long loading from disk takes.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class OBJLoaderCheck {
+
+	private static final String SOURCE = "OBJ Loader Check";
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 * @throws IOException If the temporary file can't be written.
+	 */
+	public static void main(String[] args) throws IOException {
+		Random random = new Random(17);
+		StringBuilder obj = new StringBuilder();
+		ArrayList<float[]> corners = new ArrayList<>();
+		int positions = 0;
+		while (obj.length() < OBJLoader.PARALLEL_THRESHOLD * 2) {
+			float[][] corner = new float[3][];
+			for (int k = 0; k < 3; k++) {
+				corner[k] = new float[] { random.nextInt(1000) / 8f, random.nextInt(1000) / 8f,
+						-random.nextInt(1000) / 8f, random.nextInt(64) / 64f, random.nextInt(64) / 64f };
+				obj.append("v ").append(corner[k][0]).append(' ').append(corner[k][1]).append(' ')
+						.append(corner[k][2]).append('\n');
+				obj.append("vt ").append(corner[k][3]).append(' ').append(corner[k][4]).append('\n');
+				positions++;
+			}
+			if (random.nextInt(50) == 0) {
+				obj.append("g group").append(random.nextInt(5)).append('\n');
+			}
+			boolean negative = random.nextBoolean();
+			obj.append('f');
+			for (int k = 0; k < 3; k++) {
+				int index = negative ? k - 3 : positions - 2 + k;
+				obj.append(' ').append(index).append('/').append(index);
+				corners.add(corner[k]);
+			}
+			obj.append('\n');
+		}
+		byte[] bytes = obj.toString().getBytes(StandardCharsets.US_ASCII);
+		Path file = Files.createTempFile("objloadercheck", ".obj");
+		Files.write(file, bytes);
+
+		String prefix = Configuration.getFilepathPrefix();
+		Configuration.setFilepathPrefix("");
+		long start = System.nanoTime();
+		Mesh fromDisk = OBJLoader.loadFromFilePath(file.toAbsolutePath().toString());
+		double millis = (System.nanoTime() - start) / 1e6;
+		Configuration.setFilepathPrefix(prefix);
+		Mesh fromMemory = OBJLoader.loadFromBuffer(ByteBuffer.wrap(bytes));
+
+		// A mapped file would still be open here, which stops it being replaced on some systems
+		Path replacement = Files.createTempFile("objloadercheck", ".obj");
+		Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING);
+		Files.delete(file);
+
+		Checks.check(fromDisk != null && fromMemory != null, "The mesh didn't load", SOURCE);
+		if (fromDisk != null && fromMemory != null) {
+			int diskErrors = errors(fromDisk, corners), memoryErrors = errors(fromMemory, corners);
+			Checks.check(diskErrors == 0 && memoryErrors == 0,
+					diskErrors + " corners wrong from disk, " + memoryErrors + " from memory", SOURCE);
+		}
+
+		Checks.report(corners.size() / 3 + " triangles in " + bytes.length / 1024 + " KB matched, loaded from disk in "
+				+ String.format("%.1f", millis) + " ms", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	private static int errors(Mesh mesh, ArrayList<float[]> corners) {
+		VertexedProperty indexProperty = mesh.getByUsage(VertexPropertyType.INDICES);
+		float[] pos = mesh.getByUsage(VertexPropertyType.VERTEX_POS).getAsFloatArray();
+		float[] uv = mesh.getByUsage(VertexPropertyType.TEXTURE_COORDINATES).getAsFloatArray();
+		int[] indices = indexProperty.intProp;
+		if (indices == null || indices.length != corners.size()) {
+			return corners.size();
+		}
+		int errors = 0;
+		for (int i = 0; i < indices.length; i++) {
+			float[] corner = corners.get(i);
+			int v = indices[i];
+			if (pos[v * 3] != corner[0] || pos[v * 3 + 1] != corner[1] || pos[v * 3 + 2] != corner[2]
+					|| uv[v * 2] != corner[3] || uv[v * 2 + 1] != corner[4]) {
+				errors++;
+			}
+		}
+		return errors;
+	}
+
+}
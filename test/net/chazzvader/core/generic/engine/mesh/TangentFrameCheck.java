@@ -0,0 +1,124 @@
+package net.chazzvader.core.generic.engine.mesh;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.engine.mesh.VertexedProperty.VertexPropertyType;
+import net.chazzvader.core.generic.math.Matrix4f;
+import net.chazzvader.core.generic.math.Quaternion;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Checks tangent frames without a window. Works out the tangents of a unit
+ * quad whose tangent, bitangent and normal are known, plain, with mirrored
+ * texture coordinates, and turned and stretched, and checks them against the
+ * known frame. Then packs each quad with {@link VertexLayout#COMPACT} and
+ * checks the bitangent is dropped and rebuilt from the normal, the tangent and
+ * the sign in its w. Also checks every half float round trips exactly.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class TangentFrameCheck {
+
+	private static final String SOURCE = "Tangent Frame Check";
+	private static final float EXACT = 1e-5f;
+	// 10 bits a component, so a direction can be off by about 1/511 a component
+	private static final float PACKED = 0.01f;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		float[] x = { 1, 0, 0 }, y = { 0, 1, 0 }, z = { 0, 0, 1 };
+		checkQuad("Plain quad", identity(), new float[] { 0, 1, 1, 0 }, new float[] { 0, 0, 1, 1 }, x, y, z);
+		// u runs the other way, so the tangent flips but the bitangent doesn't
+		checkQuad("Mirrored quad", identity(), new float[] { 1, 0, 0, 1 }, new float[] { 0, 0, 1, 1 },
+				new float[] { -1, 0, 0 }, y, z);
+		// Stretching the texture coordinates doesn't change the directions
+		Quaternion rotation = Quaternion.rotation(35, new Vector3f(0.3f, -0.5f, 0.8f).normalize());
+		Matrix4f turn = Matrix4f.rotation(rotation);
+		checkQuad("Turned quad", turn, new float[] { 0, 2, 2, 0 }, new float[] { 0, 0, 0.5f, 0.5f },
+				apply(turn, x), apply(turn, y), apply(turn, z));
+
+		int halfErrors = 0;
+		for (int h = 0; h < 65536; h++) {
+			float f = VertexCodec.fromHalfFloat((short) h);
+			if (!Float.isNaN(f) && VertexCodec.toHalfFloat(f) != (short) h) {
+				halfErrors++;
+			}
+		}
+		Checks.check(halfErrors == 0, halfErrors + " half floats didn't round trip", SOURCE);
+
+		Checks.report("3 quads matched their known frames, packed and unpacked", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// Corners (0, 0), (1, 0), (1, 1), (0, 1) counter clockwise, moved by the matrix
+	private static void checkQuad(String name, Matrix4f transform, float[] u, float[] v, float[] tangent,
+			float[] bitangent, float[] normal) {
+		float[] corners = { 0, 0, 0, 1, 0, 0, 1, 1, 0, 0, 1, 0 };
+		float[] positions = new float[12];
+		for (int i = 0; i < 4; i++) {
+			float[] moved = apply(transform, new float[] { corners[i * 3], corners[i * 3 + 1], corners[i * 3 + 2] });
+			System.arraycopy(moved, 0, positions, i * 3, 3);
+		}
+		float[] textureCoordinates = { u[0], v[0], u[1], v[1], u[2], v[2], u[3], v[3] };
+		int[] indices = { 0, 1, 2, 0, 2, 3 };
+
+		float[] normals = MeshKernels.calculateNormals(positions, indices);
+		float[] tangents = new float[12], bitangents = new float[12];
+		MeshKernels.calculateTangents(positions, textureCoordinates, normals, indices, tangents, bitangents);
+		float error = 0;
+		for (int i = 0; i < 4; i++) {
+			error = Math.max(error, difference(normals, i * 3, normal));
+			error = Math.max(error, difference(tangents, i * 3, tangent));
+			error = Math.max(error, difference(bitangents, i * 3, bitangent));
+		}
+		Checks.check(error < EXACT, name + " frame is off by " + error, SOURCE);
+
+		Mesh mesh = new Mesh(new VertexedProperty(positions, VertexPropertyType.VERTEX_POS),
+				new VertexedProperty(indices, VertexPropertyType.INDICES),
+				new VertexedProperty(textureCoordinates, VertexPropertyType.TEXTURE_COORDINATES),
+				new VertexedProperty(normals, VertexPropertyType.NORMALS),
+				new VertexedProperty(tangents, VertexPropertyType.NORMAL_TANGENT),
+				new VertexedProperty(bitangents, VertexPropertyType.NORMAL_BITANGENT));
+		VertexCodec.EncodedVertices packed = VertexCodec.encode(mesh, VertexLayout.COMPACT);
+		Checks.check(packed.getAttribute(VertexPropertyType.NORMAL_BITANGENT) == null,
+				name + " kept its bitangent when packed", SOURCE);
+		float[] packedNormals = VertexCodec.decode(packed, VertexPropertyType.NORMALS);
+		float[] packedTangents = VertexCodec.decode(packed, VertexPropertyType.NORMAL_TANGENT);
+		float packedError = 0;
+		for (int i = 0; i < 4; i++) {
+			float nx = packedNormals[i * 4], ny = packedNormals[i * 4 + 1], nz = packedNormals[i * 4 + 2];
+			float tx = packedTangents[i * 4], ty = packedTangents[i * 4 + 1], tz = packedTangents[i * 4 + 2];
+			float w = packedTangents[i * 4 + 3];
+			// What the vertex shader does when the bitangent is left out
+			float[] rebuilt = { (ny * tz - nz * ty) * w, (nz * tx - nx * tz) * w, (nx * ty - ny * tx) * w };
+			packedError = Math.max(packedError, difference(packedNormals, i * 4, normal));
+			packedError = Math.max(packedError, difference(packedTangents, i * 4, tangent));
+			packedError = Math.max(packedError, difference(rebuilt, 0, bitangent));
+		}
+		Checks.check(packedError < PACKED, name + " packed frame is off by " + packedError, SOURCE);
+	}
+
+	private static Matrix4f identity() {
+		return new Matrix4f();
+	}
+
+	private static float[] apply(Matrix4f m, float[] p) {
+		return new float[] { m.v00 * p[0] + m.v01 * p[1] + m.v02 * p[2] + m.v03,
+				m.v10 * p[0] + m.v11 * p[1] + m.v12 * p[2] + m.v13,
+				m.v20 * p[0] + m.v21 * p[1] + m.v22 * p[2] + m.v23 };
+	}
+
+	private static float difference(float[] values, int offset, float[] expected) {
+		float error = 0;
+		for (int i = 0; i < 3; i++) {
+			error = Math.max(error, Math.abs(values[offset + i] - expected[i]));
+		}
+		return error;
+	}
+
+}
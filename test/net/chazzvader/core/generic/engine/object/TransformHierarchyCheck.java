@@ -0,0 +1,195 @@
+package net.chazzvader.core.generic.engine.object;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.math.Matrix4f;
+import net.chazzvader.core.generic.math.Quaternion;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Checks the cached world transforms without a window. Builds a hierarchy of
+ * over 10k objects 8 levels deep, moves some of them every frame through the
+ * setters, through direct edits of the relative fields and through the root
+ * getters, and compares every world matrix to one multiplied out again from
+ * the relative transforms. Also checks that the root getters return the
+ * relative fields themselves, and that frames where nothing moved allocate
+ * nothing. Reports the time of an update pass.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class TransformHierarchyCheck {
+
+	private static final String SOURCE = "Transform Hierarchy Check";
+	private static final int FRAMES = 200;
+	private static final float TOLERANCE = 1e-3f;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(3);
+		ArrayList<EngineObject> objects = new ArrayList<>();
+		ArrayList<Integer> parents = new ArrayList<>();
+		EngineObject root = new EngineObject();
+		objects.add(root);
+		parents.add(-1);
+		build(root, 0, 1, objects, parents, random);
+		int count = objects.size();
+
+		Checks.check(root.pos() == root.relativePos && root.rot() == root.relativeRot
+				&& root.scale() == root.relativeScale, "Root getters don't return the relative fields", SOURCE);
+
+		double[][] reference = new double[count][16];
+		float worst = 0;
+		for (int frame = 0; frame < FRAMES; frame++) {
+			// A few through the setters, a few edited directly, and the root through pos()
+			for (int i = 0; i < 20; i++) {
+				EngineObject object = objects.get(1 + random.nextInt(count - 1));
+				object.setPosition(random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2);
+				object.setRotation(randomRotation(random));
+			}
+			for (int i = 0; i < 20; i++) {
+				EngineObject object = objects.get(1 + random.nextInt(count - 1));
+				object.relativePos.x += random.nextFloat() - 0.5f;
+				object.relativeRot.transcribe(randomRotation(random));
+				float scale = 0.5f + random.nextFloat();
+				object.relativeScale.transcribe(scale, scale, scale);
+			}
+			root.pos().y += 0.25f;
+			root.updateTransforms();
+
+			if (frame % 20 == 0 || frame == FRAMES - 1) {
+				worst = Math.max(worst, compare(objects, parents, reference));
+			}
+		}
+		Checks.check(worst < TOLERANCE, "World matrices are off the reference by " + worst, SOURCE);
+
+		// markTransformDirty shows a direct edit without waiting for the pass
+		EngineObject leaf = objects.get(count - 1);
+		float before = leaf.getWorldMatrix().v13;
+		root.relativePos.y += 10;
+		root.markTransformDirty();
+		float moved = leaf.getWorldMatrix().v13 - before;
+		Checks.check(Math.abs(moved - 10) < TOLERANCE, "A marked edit moved a leaf by " + moved + ", not 10", SOURCE);
+		root.updateTransforms();
+
+		// Nothing moving costs no allocation
+		for (int i = 0; i < 1000; i++) {
+			root.updateTransforms();
+		}
+		long overhead = -Checks.allocatedBytes() + Checks.allocatedBytes();
+		long bytes = Checks.allocatedBytes();
+		for (int i = 0; i < 1000; i++) {
+			root.updateTransforms();
+		}
+		long bytesAfter = bytes == -1 ? -1 : Checks.allocatedBytes() - bytes - overhead;
+		Checks.check(bytesAfter < 1000, "1000 still passes allocated " + bytesAfter + " bytes", SOURCE);
+
+		// Time a pass where the root moves, so every object is rebuilt
+		for (int i = 0; i < 200; i++) {
+			root.setPosition(i, 0, 0);
+			root.updateTransforms();
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < 200; i++) {
+			root.setPosition(i, 1, 0);
+			root.updateTransforms();
+		}
+		double moving = (System.nanoTime() - start) / 200 / 1e6;
+		start = System.nanoTime();
+		for (int i = 0; i < 200; i++) {
+			root.updateTransforms();
+		}
+		double still = (System.nanoTime() - start) / 200 / 1e6;
+
+		Checks.report(count + " objects, worst error " + worst + ", " + String.format("%.3f", moving)
+				+ " ms a pass with the root moving, " + String.format("%.3f", still) + " ms with nothing moving"
+				+ (bytesAfter == -1 ? "" : ", " + bytesAfter + " bytes allocated over 1000 still passes"), SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// Four children a level down to level 5, then three, so level 8 is the last
+	private static void build(EngineObject parent, int parentIndex, int depth, ArrayList<EngineObject> objects,
+			ArrayList<Integer> parents, Random random) {
+		if (depth == 8) {
+			return;
+		}
+		int children = depth <= 5 ? 4 : 3;
+		for (int i = 0; i < children; i++) {
+			float scale = 0.5f + random.nextFloat();
+			EngineObject child = new EngineObject(new Vector3f(random.nextFloat() * 4 - 2, random.nextFloat() * 4 - 2,
+					random.nextFloat() * 4 - 2), randomRotation(random), new Vector3f(scale, scale, scale));
+			child.setParent(parent);
+			int index = objects.size();
+			objects.add(child);
+			parents.add(parentIndex);
+			build(child, index, depth + 1, objects, parents, random);
+		}
+	}
+
+	// Uniform scales only, where world = parent world * translation * rotation * scale holds exactly
+	private static Quaternion randomRotation(Random random) {
+		return Quaternion.rotation(random.nextFloat() * 6.28f,
+				new Vector3f(random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, random.nextFloat() + 0.1f)
+						.normalize());
+	}
+
+	// Multiplies every matrix out again in doubles, parents come before their children
+	private static float compare(ArrayList<EngineObject> objects, ArrayList<Integer> parents, double[][] reference) {
+		float worst = 0;
+		Matrix4f rotation = new Matrix4f();
+		double[] local = new double[16];
+		for (int i = 0; i < objects.size(); i++) {
+			EngineObject object = objects.get(i);
+			Matrix4f.rotation(object.relativeRot, rotation);
+			float[] r = { rotation.v00, rotation.v10, rotation.v20, rotation.v01, rotation.v11, rotation.v21,
+					rotation.v02, rotation.v12, rotation.v22 };
+			Vector3f s = object.relativeScale, p = object.relativePos;
+			// Column major, local[column * 4 + row]
+			for (int column = 0; column < 3; column++) {
+				double scale = column == 0 ? s.x : column == 1 ? s.y : s.z;
+				for (int row = 0; row < 3; row++) {
+					local[column * 4 + row] = r[column * 3 + row] * scale;
+				}
+				local[column * 4 + 3] = 0;
+			}
+			local[12] = p.x;
+			local[13] = p.y;
+			local[14] = p.z;
+			local[15] = 1;
+
+			int parent = parents.get(i);
+			if (parent == -1) {
+				System.arraycopy(local, 0, reference[i], 0, 16);
+			} else {
+				double[] pm = reference[parent];
+				for (int column = 0; column < 4; column++) {
+					for (int row = 0; row < 4; row++) {
+						double sum = 0;
+						for (int k = 0; k < 4; k++) {
+							sum += pm[k * 4 + row] * local[column * 4 + k];
+						}
+						reference[i][column * 4 + row] = sum;
+					}
+				}
+			}
+
+			Matrix4f m = object.getWorldMatrix();
+			float[] actual = { m.v00, m.v10, m.v20, m.v30, m.v01, m.v11, m.v21, m.v31, m.v02, m.v12, m.v22, m.v32,
+					m.v03, m.v13, m.v23, m.v33 };
+			for (int k = 0; k < 16; k++) {
+				double expected = reference[i][k];
+				float error = (float) (Math.abs(actual[k] - expected) / Math.max(1, Math.abs(expected)));
+				worst = Math.max(worst, error);
+			}
+		}
+		return worst;
+	}
+
+}
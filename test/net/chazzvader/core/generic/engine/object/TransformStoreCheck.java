@@ -0,0 +1,96 @@
+package net.chazzvader.core.generic.engine.object;
+
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+
+/**
+ * Checks the parent bookkeeping of the transform store without a window. Does
+ * a long run of random parent changes, releases and allocations, and after
+ * every release checks that exactly the children of the released transform
+ * lost their parent, which a scan of every slot would find. Then times
+ * releasing leaves out of a store of 100k transforms, which should not depend
+ * on the size of the store.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class TransformStoreCheck {
+
+	private static final String SOURCE = "Transform Store Check";
+	private static final int SLOTS = 2000;
+	private static final int OPERATIONS = 100000;
+	private static final int LARGE = 100000;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(4);
+		TransformStore store = new TransformStore();
+		boolean[] alive = new boolean[SLOTS];
+		for (int i = 0; i < SLOTS; i++) {
+			store.allocate();
+			alive[i] = true;
+		}
+
+		int releases = 0, wrong = 0;
+		int[] before = new int[SLOTS];
+		for (int op = 0; op < OPERATIONS; op++) {
+			int handle = random.nextInt(SLOTS);
+			int choice = random.nextInt(10);
+			if (!alive[handle]) {
+				int reused = store.allocate();
+				alive[reused] = true;
+			} else if (choice < 8) {
+				// Only parents with a smaller handle, so there are no cycles
+				int parent = random.nextInt(handle + 1) - 1;
+				store.setParent(handle, parent != -1 && alive[parent] ? parent : -1);
+			} else {
+				for (int i = 0; i < SLOTS; i++) {
+					before[i] = alive[i] ? store.getParent(i) : -2;
+				}
+				store.release(handle);
+				alive[handle] = false;
+				releases++;
+				for (int i = 0; i < SLOTS; i++) {
+					if (!alive[i]) {
+						continue;
+					}
+					int expected = before[i] == handle ? -1 : before[i];
+					if (store.getParent(i) != expected) {
+						wrong++;
+					}
+				}
+			}
+			if (op % 1000 == 0) {
+				store.update();
+			}
+		}
+		Checks.check(wrong == 0, wrong + " parents were wrong after " + releases + " releases", SOURCE);
+
+		// Releasing a leaf visits its own children only
+		TransformStore large = new TransformStore();
+		for (int i = 0; i < LARGE; i++) {
+			large.allocate();
+			if (i > 0) {
+				large.setParent(i, (i - 1) / 4);
+			}
+		}
+		large.update();
+		long start = System.nanoTime();
+		for (int i = LARGE - 1; i >= LARGE - 10000; i--) {
+			large.release(i);
+		}
+		double micros = (System.nanoTime() - start) / 10000 / 1e3;
+		Checks.check(large.getCount() == LARGE - 10000, "Count after releasing is " + large.getCount(), SOURCE);
+
+		Checks.report(releases + " releases kept every parent right, releasing a leaf from " + LARGE
+				+ " transforms took " + String.format("%.3f", micros) + " us", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+}
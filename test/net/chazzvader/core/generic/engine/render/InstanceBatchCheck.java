@@ -0,0 +1,145 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.math.Matrix4f;
+
+/**
+ * Checks the instance batch without a window. Adds objects with random meshes,
+ * materials and stretched world matrices in a random order, and checks that
+ * every run shares one mesh and material, that runs come out in the order their
+ * first instance was added and keep the order of their instances, that the
+ * world matrices are copied as is and that every normal matrix is the inverse
+ * transpose of its world matrix. Then refills it for many frames and checks the
+ * arrays stop growing and nothing is allocated.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class InstanceBatchCheck {
+
+	private static final String SOURCE = "Instance Batch Check";
+	private static final int INSTANCES = 5000;
+	private static final int FRAMES = 1000;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(11);
+		Object[] meshes = { "cube", "sphere", "teapot", "plane" };
+		Object[] materials = { "red", "green", "blue" };
+		int[] itemMesh = new int[INSTANCES], itemMaterial = new int[INSTANCES];
+		Matrix4f[] worlds = new Matrix4f[INSTANCES];
+		// Boxed once up front, so filling allocates nothing itself
+		Integer[] ids = new Integer[INSTANCES];
+		Matrix4f part = new Matrix4f();
+		for (int i = 0; i < INSTANCES; i++) {
+			ids[i] = i;
+			itemMesh[i] = random.nextInt(meshes.length);
+			itemMaterial[i] = random.nextInt(materials.length);
+			worlds[i] = Matrix4f.translation(random.nextFloat() * 100, random.nextFloat() * 100,
+					random.nextFloat() * 100);
+			worlds[i].mul(Matrix4f.rotation(random.nextFloat() * 360, random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f, random.nextFloat() + 0.1f, part));
+			worlds[i].mul(Matrix4f.scale(0.2f + random.nextFloat() * 3, 0.2f + random.nextFloat() * 3,
+					0.2f + random.nextFloat() * 3, part));
+		}
+
+		InstanceBatch<Integer> batch = new InstanceBatch<>();
+		fill(batch, ids, meshes, materials, itemMesh, itemMaterial, worlds);
+		batch.build();
+
+		// The groups in the order they first show up, and their items in order
+		ArrayList<Integer> groupOrder = new ArrayList<>();
+		ArrayList<ArrayList<Integer>> groupItems = new ArrayList<>();
+		for (int i = 0; i < INSTANCES; i++) {
+			int group = itemMesh[i] * materials.length + itemMaterial[i];
+			int index = groupOrder.indexOf(group);
+			if (index == -1) {
+				index = groupOrder.size();
+				groupOrder.add(group);
+				groupItems.add(new ArrayList<>());
+			}
+			groupItems.get(index).add(i);
+		}
+		Checks.check(batch.getInstanceCount() == INSTANCES && batch.getRunCount() == groupOrder.size(),
+				batch.getRunCount() + " runs, not " + groupOrder.size(), SOURCE);
+		boolean runsMatch = true;
+		for (int run = 0; run < Math.min(batch.getRunCount(), groupOrder.size()); run++) {
+			int group = groupOrder.get(run);
+			ArrayList<Integer> items = groupItems.get(run);
+			runsMatch &= batch.getRunMesh(run) == meshes[group / materials.length]
+					&& batch.getRunMaterial(run) == materials[group % materials.length]
+					&& batch.getRunLength(run) == items.size();
+			for (int k = 0; k < Math.min(items.size(), batch.getRunLength(run)); k++) {
+				runsMatch &= batch.getItem(batch.getRunStart(run) + k).intValue() == items.get(k).intValue();
+			}
+		}
+		Checks.check(runsMatch, "Runs don't match the meshes, materials or order they were added in", SOURCE);
+
+		float worldError = 0, normalError = 0;
+		float[] data = batch.getInstanceData();
+		for (int i = 0; i < INSTANCES; i++) {
+			int o = i * InstanceBatch.FLOATS_PER_INSTANCE;
+			Matrix4f m = worlds[batch.getItem(i)];
+			float[] expected = { m.v00, m.v10, m.v20, m.v30, m.v01, m.v11, m.v21, m.v31, m.v02, m.v12, m.v22, m.v32,
+					m.v03, m.v13, m.v23, m.v33 };
+			for (int k = 0; k < 16; k++) {
+				worldError = Math.max(worldError, Math.abs(data[o + k] - expected[k]));
+			}
+			// The transpose of the normal matrix times the world matrix is the identity
+			float[][] upper = { { m.v00, m.v01, m.v02 }, { m.v10, m.v11, m.v12 }, { m.v20, m.v21, m.v22 } };
+			for (int row = 0; row < 3; row++) {
+				for (int column = 0; column < 3; column++) {
+					double sum = 0;
+					for (int k = 0; k < 3; k++) {
+						// Column major, normal[column * 3 + row], transposed
+						sum += data[o + 16 + row * 3 + k] * upper[k][column];
+					}
+					normalError = Math.max(normalError, (float) Math.abs(sum - (row == column ? 1 : 0)));
+				}
+			}
+		}
+		Checks.check(worldError == 0, "World matrices were changed by " + worldError, SOURCE);
+		Checks.check(normalError < 1e-3f, "Normal matrices are off by " + normalError, SOURCE);
+
+		batch.clear();
+		Checks.check(batch.isEmpty(), "Clear left instances behind", SOURCE);
+		for (int i = 0; i < FRAMES; i++) {
+			fill(batch, ids, meshes, materials, itemMesh, itemMaterial, worlds);
+			batch.build();
+			batch.clear();
+		}
+		int resizes = batch.getResizeCount();
+		long overhead = -Checks.allocatedBytes() + Checks.allocatedBytes();
+		long bytes = Checks.allocatedBytes();
+		for (int i = 0; i < FRAMES; i++) {
+			fill(batch, ids, meshes, materials, itemMesh, itemMaterial, worlds);
+			batch.build();
+			batch.clear();
+		}
+		long bytesAfter = bytes == -1 ? -1 : Checks.allocatedBytes() - bytes - overhead;
+		Checks.check(batch.getResizeCount() == resizes, "The arrays grew after the first frames", SOURCE);
+		// The JVM itself may allocate a little while compiling
+		Checks.check(bytesAfter < FRAMES, "Steady state frames allocated " + bytesAfter + " bytes", SOURCE);
+
+		Checks.report(INSTANCES + " instances in " + groupOrder.size() + " runs, normal matrices off by "
+				+ normalError + (bytesAfter == -1 ? "" : ", " + bytesAfter + " bytes allocated over " + FRAMES
+						+ " frames"), SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	private static void fill(InstanceBatch<Integer> batch, Integer[] ids, Object[] meshes, Object[] materials,
+			int[] itemMesh, int[] itemMaterial, Matrix4f[] worlds) {
+		for (int i = 0; i < INSTANCES; i++) {
+			batch.add(ids[i], meshes[itemMesh[i]], materials[itemMaterial[i]], worlds[i]);
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.engine.object.Light;
+import net.chazzvader.core.generic.math.Matrix4f;
+import net.chazzvader.core.generic.math.Vector3f;
+
+/**
+ * Checks that light clusters and light ranges agree, without a window.
+ * Assigns a few hundred lights to the clusters of a camera, then picks random
+ * points on screen at random depths, finds their cluster the way basic.frag
+ * does, and works out the light every light gives them the way basic.frag
+ * does, fading out at {@link Light#range()}. Every light that gives a point
+ * any light has to be in its cluster, or the point would be drawn too dark.
+ * Also checks the fade reaches nothing right at the range.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class LightClusterCheck {
+
+	private static final String SOURCE = "Light Cluster Check";
+	private static final int LIGHTS = 500;
+	private static final int SAMPLES = 100000;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(21);
+		float near = 0.1f, far = 200;
+		Matrix4f projection = Matrix4f.perspective(60, 16f / 9f, near, far);
+		Matrix4f view = Matrix4f.lookAt(new Vector3f(3, 5, 10), new Vector3f(0, 0, -20));
+		Matrix4f inverseView = view.inverseCopy(null);
+		ArrayList<Light> lights = new ArrayList<>();
+		for (int i = 0; i < LIGHTS; i++) {
+			Light light = new Light(new Vector3f(1, 1, 1), 6 + random.nextFloat() * 10);
+			light.setPosition((random.nextFloat() - 0.5f) * 200, (random.nextFloat() - 0.5f) * 20,
+					-random.nextFloat() * 200 + 20);
+			lights.add(light);
+		}
+		LightClusters clusters = new LightClusters(16, 9, 24).setProjection(projection);
+		clusters.assign(view, lights);
+
+		int tilesX = clusters.getTilesX(), tilesY = clusters.getTilesY(), slices = clusters.getSlices();
+		float scale = clusters.getSliceScale(), bias = (float) Math.log(clusters.getNear()) * scale;
+		boolean[] inCluster = new boolean[LIGHTS];
+		int lit = 0, missing = 0;
+		for (int s = 0; s < SAMPLES; s++) {
+			float sx = random.nextFloat(), sy = random.nextFloat();
+			float depth = (float) (near * Math.pow(far / near, random.nextFloat()));
+			float vx = (sx * 2 - 1) / projection.v00 * depth, vy = (sy * 2 - 1) / projection.v11 * depth;
+			float vz = -depth;
+			float x = inverseView.v00 * vx + inverseView.v01 * vy + inverseView.v02 * vz + inverseView.v03;
+			float y = inverseView.v10 * vx + inverseView.v11 * vy + inverseView.v12 * vz + inverseView.v13;
+			float z = inverseView.v20 * vx + inverseView.v21 * vy + inverseView.v22 * vz + inverseView.v23;
+
+			// cluster() in basic.frag
+			int cx = clamp((int) (sx * tilesX), tilesX), cy = clamp((int) (sy * tilesY), tilesY);
+			int cz = clamp((int) Math.floor(Math.log(depth) * scale - bias), slices);
+			int cluster = (cz * tilesY + cy) * tilesX + cx;
+			for (int k = 0; k < clusters.getLightCount(cluster); k++) {
+				inCluster[clusters.getLight(cluster, k)] = true;
+			}
+			for (int i = 0; i < LIGHTS; i++) {
+				Light light = lights.get(i);
+				Vector3f pos = light.pos();
+				float dx = pos.x - x, dy = pos.y - y, dz = pos.z - z;
+				if (attenuation(light, (float) Math.sqrt(dx * dx + dy * dy + dz * dz)) > 0) {
+					lit++;
+					if (!inCluster[i]) {
+						missing++;
+					}
+				}
+			}
+			for (int k = 0; k < clusters.getLightCount(cluster); k++) {
+				inCluster[clusters.getLight(cluster, k)] = false;
+			}
+		}
+		Checks.check(lit > 0, "No sample was lit, the lights are placed wrong", SOURCE);
+		Checks.check(missing == 0, missing + " of " + lit + " lit samples were missing the light", SOURCE);
+
+		Light light = lights.get(0);
+		Checks.check(attenuation(light, light.range()) == 0 && attenuation(light, light.range() * 0.99f) > 0,
+				"The light doesn't fade out right at its range", SOURCE);
+
+		int pairs = 0;
+		for (int cluster = 0; cluster < clusters.getClusterCount(); cluster++) {
+			pairs += clusters.getLightCount(cluster);
+		}
+		Checks.report(lit + " lit samples, " + missing + " missing their light, " + String.format("%.1f",
+				pairs / (double) clusters.getClusterCount()) + " lights a cluster out of " + LIGHTS, SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// point() in basic.frag, with the fade to nothing at the range
+	private static float attenuation(Light light, float distance) {
+		float attenuation = 1 / (1 + light.linear * distance + light.quadratic * distance * distance);
+		float fraction = distance / light.range();
+		float window = Math.max(0, Math.min(1, 1 - fraction * fraction * fraction * fraction));
+		return attenuation * window * window;
+	}
+
+	private static int clamp(int value, int count) {
+		return Math.max(0, Math.min(count - 1, value));
+	}
+
+}
@@ -0,0 +1,99 @@
+package net.chazzvader.core.generic.engine.render;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+
+/**
+ * Checks the render queue sort without a window. Sorts queues of random opaque
+ * and transparent keys and compares the order to a plain stable sort of the
+ * same keys, so the radix sort has to keep equal keys in the order they were
+ * added. Also checks the key layout: opaque front to back, transparent back to
+ * front and after every opaque key, and that the fields read back. Reports how
+ * long sorting 100k keys takes.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class RenderQueueCheck {
+
+	private static final String SOURCE = "Render Queue Check";
+	private static final int QUEUES = 200;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(10);
+		RenderQueue<Integer> queue = new RenderQueue<>(1);
+		int wrong = 0;
+		for (int q = 0; q < QUEUES; q++) {
+			int size = random.nextInt(3000);
+			long[] keys = new long[size];
+			for (int i = 0; i < size; i++) {
+				float depth = random.nextFloat() * 500 - 10;
+				// Few ids so plenty of keys are equal
+				keys[i] = random.nextInt(5) == 0
+						? RenderQueue.transparentKey(random.nextInt(4), random.nextInt(20), random.nextInt(8), depth)
+						: RenderQueue.opaqueKey(random.nextInt(4), random.nextInt(20), random.nextInt(8),
+								random.nextInt(3) == 0 ? 1 : depth);
+				queue.add(keys[i], i);
+			}
+			queue.sort();
+
+			Integer[] expected = new Integer[size];
+			for (int i = 0; i < size; i++) {
+				expected[i] = i;
+			}
+			// Arrays.sort on objects is stable
+			Arrays.sort(expected, (a, b) -> Long.compareUnsigned(keys[a], keys[b]));
+			for (int i = 0; i < size; i++) {
+				if (queue.get(i).intValue() != expected[i].intValue() || queue.getKey(i) != keys[expected[i]]) {
+					wrong++;
+					break;
+				}
+			}
+			queue.clear();
+		}
+		Checks.check(wrong == 0, wrong + " of " + QUEUES + " queues were sorted wrong", SOURCE);
+
+		Checks.check(RenderQueue.opaqueKey(1, 1, 1, 2) < RenderQueue.opaqueKey(1, 1, 1, 3),
+				"Opaque keys aren't front to back", SOURCE);
+		Checks.check(RenderQueue.transparentKey(1, 1, 1, 3) < RenderQueue.transparentKey(1, 1, 1, 2),
+				"Transparent keys aren't back to front", SOURCE);
+		Checks.check(
+				Long.compareUnsigned(RenderQueue.opaqueKey(9999, 9999, 999, 1e30f),
+						RenderQueue.transparentKey(0, 0, 0, 1e30f)) < 0,
+				"Transparent keys don't come after opaque ones", SOURCE);
+		long key = RenderQueue.transparentKey(3, 5, 7, 1);
+		Checks.check(RenderQueue.passOf(key) == RenderQueue.PASS_TRANSPARENT && RenderQueue.shaderOf(key) == 3
+				&& RenderQueue.materialOf(key) == 5 && RenderQueue.texturesOf(key) == 7,
+				"The fields of a key don't read back", SOURCE);
+
+		RenderQueue<Integer> large = new RenderQueue<>();
+		long[] keys = new long[100000];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = RenderQueue.opaqueKey(random.nextInt(16), random.nextInt(200), random.nextInt(64),
+					random.nextFloat() * 100);
+		}
+		long time = 0;
+		for (int run = 0; run < 30; run++) {
+			large.clear();
+			for (int i = 0; i < keys.length; i++) {
+				large.add(keys[i], i);
+			}
+			long start = System.nanoTime();
+			large.sort();
+			time = System.nanoTime() - start;
+		}
+
+		Checks.report(QUEUES + " queues matched a stable sort, 100k keys sorted in "
+				+ String.format("%.2f", time / 1e6) + " ms", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+}
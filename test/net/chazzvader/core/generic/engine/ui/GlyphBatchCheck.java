@@ -0,0 +1,85 @@
+package net.chazzvader.core.generic.engine.ui;
+
+import net.chazzvader.core.generic.Checks;
+
+/**
+ * Checks the glyph batch without a window. Fills it with 10k glyphs over a few
+ * atlases and checks the runs and the instance data, then refills it for
+ * many frames and checks the arrays stop growing and nothing is allocated.
+ * Reports the draw calls and bytes allocated for 10k glyphs.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class GlyphBatchCheck {
+
+	private static final String SOURCE = "Glyph Batch Check";
+	private static final int GLYPHS = 10000;
+	private static final int FRAMES = 1000;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		String[] atlases = { "a", "b", "c" };
+		GlyphBatch<String> batch = new GlyphBatch<>();
+
+		// The atlas changes every 1000 glyphs, the color every glyph
+		fill(batch, atlases, 1000);
+		Checks.check(batch.getGlyphCount() == GLYPHS, "Glyph count is " + batch.getGlyphCount(), SOURCE);
+		Checks.check(batch.getRunCount() == 10, "Run count is " + batch.getRunCount() + ", not 10", SOURCE);
+		for (int run = 0; run < batch.getRunCount(); run++) {
+			Checks.check(batch.getRunAtlas(run) == atlases[run % atlases.length], "Run " + run + " has the wrong atlas",
+					SOURCE);
+			Checks.check(batch.getRunStart(run) == run * 1000 && batch.getRunLength(run) == 1000,
+					"Run " + run + " covers the wrong glyphs", SOURCE);
+		}
+		float[] data = batch.getInstanceData();
+		boolean matches = true;
+		for (int i = 0; i < GLYPHS; i++) {
+			int offset = i * GlyphBatch.FLOATS_PER_GLYPH;
+			matches &= data[offset] == i && data[offset + 1] == -i && data[offset + 2] == 0.5f
+					&& data[offset + 3] == 0.25f && data[offset + 4] == 0.1f && data[offset + 7] == 0.4f
+					&& data[offset + 8] == (i & 1) && data[offset + 10] == 1;
+		}
+		Checks.check(matches, "Instance data doesn't match what was added", SOURCE);
+
+		// One atlas is one draw for every glyph
+		batch.clear();
+		Checks.check(batch.isEmpty() && batch.getRunCount() == 0, "Clear left glyphs behind", SOURCE);
+		fill(batch, atlases, GLYPHS);
+		Checks.check(batch.getRunCount() == 1, "Run count for one atlas is " + batch.getRunCount(), SOURCE);
+
+		int resizes = batch.getResizeCount();
+		for (int i = 0; i < FRAMES; i++) {
+			batch.clear();
+			fill(batch, atlases, 1000);
+		}
+		long overhead = -Checks.allocatedBytes() + Checks.allocatedBytes();
+		long bytes = Checks.allocatedBytes();
+		for (int i = 0; i < FRAMES; i++) {
+			batch.clear();
+			fill(batch, atlases, 1000);
+		}
+		long bytesAfter = bytes == -1 ? -1 : Checks.allocatedBytes() - bytes - overhead;
+		Checks.check(batch.getResizeCount() == resizes, "The arrays grew after the first frame", SOURCE);
+		// The JVM itself may allocate a little while compiling
+		Checks.check(bytesAfter < FRAMES, "Steady state frames allocated " + bytesAfter + " bytes", SOURCE);
+
+		Checks.report(GLYPHS + " glyphs: " + batch.getRunCount() + " draw calls over 3 atlases, 1 with one atlas, "
+				+ (bytesAfter == -1 ? "allocation not counted" : bytesAfter + " bytes allocated over " + FRAMES
+						+ " frames"), SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	private static void fill(GlyphBatch<String> batch, String[] atlases, int perAtlas) {
+		for (int i = 0; i < GLYPHS; i++) {
+			batch.add(atlases[(i / perAtlas) % atlases.length], i, -i, 0.5f, 0.25f, 0.1f, 0.2f, 0.3f, 0.4f, i & 1, 0,
+					1);
+		}
+	}
+
+}
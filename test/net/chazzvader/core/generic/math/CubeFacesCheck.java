@@ -0,0 +1,116 @@
+package net.chazzvader.core.generic.math;
+
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+
+/**
+ * Checks the cube face masks of shadow casters without a window. Throws random
+ * boxes around a light, and for random points inside each box and in range
+ * checks that the face the point falls in is in the mask, so a caster is never
+ * left out of a face it shows up in. Then lays out a scene like the sandbox, a
+ * light a little above a ground plane with boxes scattered on it, and reports
+ * how many triangles the shadow geometry shader emits with and without the
+ * masks, and how long a mask takes.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class CubeFacesCheck {
+
+	private static final String SOURCE = "Cube Faces Check";
+	private static final int BOXES = 200000;
+	private static final int POINTS = 20;
+	private static final int CASTERS = 1000;
+	// About a low poly sphere
+	private static final int CASTER_TRIANGLES = 960;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(7);
+		float range = 20;
+		int tested = 0, missed = 0;
+		for (int i = 0; i < BOXES; i++) {
+			float cx = (random.nextFloat() - 0.5f) * 30, cy = (random.nextFloat() - 0.5f) * 30;
+			float cz = (random.nextFloat() - 0.5f) * 30;
+			float hx = random.nextFloat() * 3, hy = random.nextFloat() * 3, hz = random.nextFloat() * 3;
+			int mask = CubeFaces.mask(0, 0, 0, range, cx - hx, cy - hy, cz - hz, cx + hx, cy + hy, cz + hz);
+			for (int k = 0; k < POINTS; k++) {
+				float px = cx + (random.nextFloat() * 2 - 1) * hx, py = cy + (random.nextFloat() * 2 - 1) * hy;
+				float pz = cz + (random.nextFloat() * 2 - 1) * hz;
+				if (px * px + py * py + pz * pz > range * range) {
+					continue;
+				}
+				tested++;
+				if ((mask & (1 << face(px, py, pz))) == 0) {
+					missed++;
+				}
+			}
+		}
+		Checks.check(tested > 0, "No point was in range", SOURCE);
+		Checks.check(missed == 0, missed + " of " + tested + " points were in a face left out of the mask", SOURCE);
+		Checks.check(CubeFaces.mask(0, 0, 0, range, range + 1, -1, -1, range + 2, 1, 1) == 0,
+				"A box out of range has faces", SOURCE);
+		Checks.check(CubeFaces.mask(0, 0, 0, range, -1, -1, -1, 1, 1, 1) == CubeFaces.ALL,
+				"A box around the light isn't in every face", SOURCE);
+
+		// The ground plane, then boxes standing on it
+		float lx = 0, ly = 3, lz = 0;
+		float[][] boxes = new float[CASTERS + 1][];
+		int[] triangles = new int[CASTERS + 1];
+		boxes[0] = new float[] { -50, -0.1f, -50, 50, 0, 50 };
+		triangles[0] = 2;
+		for (int i = 1; i <= CASTERS; i++) {
+			float x = (random.nextFloat() - 0.5f) * 40, z = (random.nextFloat() - 0.5f) * 40;
+			boxes[i] = new float[] { x - 0.5f, 0, z - 0.5f, x + 0.5f, 1 + random.nextFloat() * 2, z + 0.5f };
+			triangles[i] = CASTER_TRIANGLES;
+		}
+		long before = 0, after = 0;
+		int casters = 0;
+		for (int i = 0; i < boxes.length; i++) {
+			float[] b = boxes[i];
+			int mask = CubeFaces.mask(lx, ly, lz, range, b[0], b[1], b[2], b[3], b[4], b[5]);
+			if (mask == 0) {
+				continue;
+			}
+			casters++;
+			before += 6L * triangles[i];
+			after += (long) CubeFaces.count(mask) * triangles[i];
+		}
+		Checks.check(after < before, "The masks left out no faces", SOURCE);
+
+		int runs = 2000000, sum = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < runs; i++) {
+			float[] b = boxes[i % boxes.length];
+			sum += CubeFaces.mask(lx, ly, lz, range, b[0], b[1], b[2], b[3], b[4], b[5]);
+		}
+		double nanos = (System.nanoTime() - start) / (double) runs;
+		// Also keeps the timed loop from being thrown away
+		Checks.check(sum > 0, "No box was in range of the light", SOURCE);
+
+		Checks.report(tested + " points in range, " + missed + " outside their masks, " + casters
+				+ " casters emit " + after / 1000 + "k triangles instead of " + before / 1000 + "k ("
+				+ String.format("%.1f", 100.0 * after / before) + "%), a mask takes " + String.format("%.1f", nanos)
+				+ " ns", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// The cube map face a point relative to the light falls in, the same one the shadow shader picks
+	private static int face(float x, float y, float z) {
+		float ax = Math.abs(x), ay = Math.abs(y), az = Math.abs(z);
+		if (ax >= ay && ax >= az) {
+			return x >= 0 ? 0 : 1;
+		}
+		if (ay >= az) {
+			return y >= 0 ? 2 : 3;
+		}
+		return z >= 0 ? 4 : 5;
+	}
+
+}
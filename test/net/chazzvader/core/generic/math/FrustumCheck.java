@@ -0,0 +1,103 @@
+package net.chazzvader.core.generic.math;
+
+import java.util.Random;
+
+import net.chazzvader.core.generic.Checks;
+
+/**
+ * Checks frustum culling without a window. Throws a lot of randomly moved,
+ * rotated and scaled boxes at a camera frustum, and for every box that is
+ * culled checks that none of a grid of points inside it lands on screen after
+ * the view projection matrix, so culling never hides something visible. Also
+ * checks that boxes right in front of the camera are never culled, and reports
+ * how many boxes were culled.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class FrustumCheck {
+
+	private static final String SOURCE = "Frustum Check";
+	private static final int BOXES = 20000;
+	private static final int GRID = 6;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(7);
+		Matrix4f projection = Matrix4f.perspective(70, 16f / 9f, 0.1f, 100);
+		Matrix4f view = Matrix4f.lookAt(new Vector3f(3, 2, 5), new Vector3f(0, 0, -20));
+		Matrix4f viewProjection = projection.mulCopy(view);
+		Frustum frustum = new Frustum(viewProjection);
+
+		Bounds local = new Bounds();
+		Matrix4f world = new Matrix4f();
+		Matrix4f part = new Matrix4f();
+		int culled = 0, hidden = 0;
+		for (int i = 0; i < BOXES; i++) {
+			float sizeX = 0.1f + random.nextFloat() * 3, sizeY = 0.1f + random.nextFloat() * 3;
+			float sizeZ = 0.1f + random.nextFloat() * 3;
+			float offset = random.nextFloat() - 0.5f;
+			local.setBox(offset - sizeX, -sizeY, offset - sizeZ, offset + sizeX, sizeY, offset + sizeZ);
+
+			float scale = 0.25f + random.nextFloat() * 2;
+			Matrix4f.translation(random.nextFloat() * 240 - 120, random.nextFloat() * 240 - 120,
+					random.nextFloat() * 240 - 180, world);
+			world.mul(Matrix4f.rotation(random.nextFloat() * 360, random.nextFloat() - 0.5f,
+					random.nextFloat() - 0.5f, random.nextFloat() + 0.1f, part));
+			world.mul(Matrix4f.scale(scale, scale * (0.5f + random.nextFloat()), scale, part));
+
+			if (!frustum.intersects(local, world)) {
+				culled++;
+				if (anyPointOnScreen(local, world, viewProjection)) {
+					hidden++;
+				}
+			}
+		}
+		Checks.check(hidden == 0, hidden + " culled boxes had a point on screen", SOURCE);
+		Checks.check(culled > BOXES / 2, "Only " + culled + " of " + BOXES + " boxes were culled", SOURCE);
+
+		// Straight in front of the camera, at every distance the frustum covers
+		int missed = 0;
+		local.setBox(-0.5f, -0.5f, -0.5f, 0.5f, 0.5f, 0.5f);
+		Vector3f eye = new Vector3f(3, 2, 5), forward = new Vector3f(-3, -2, -25).normalize();
+		for (float distance = 1; distance < 99; distance += 0.5f) {
+			Matrix4f.translation(eye.x + forward.x * distance, eye.y + forward.y * distance,
+					eye.z + forward.z * distance, world);
+			if (!frustum.intersects(local, world)) {
+				missed++;
+			}
+		}
+		Checks.check(missed == 0, missed + " boxes in front of the camera were culled", SOURCE);
+
+		Checks.report(culled + " of " + BOXES + " boxes culled, " + hidden + " of them visible", SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// Clip space test of a grid of points through the box, which includes the corners
+	private static boolean anyPointOnScreen(Bounds local, Matrix4f world, Matrix4f viewProjection) {
+		Matrix4f m = viewProjection.mulCopy(world);
+		for (int i = 0; i <= GRID; i++) {
+			float x = local.minX + (local.maxX - local.minX) * i / GRID;
+			for (int j = 0; j <= GRID; j++) {
+				float y = local.minY + (local.maxY - local.minY) * j / GRID;
+				for (int k = 0; k <= GRID; k++) {
+					float z = local.minZ + (local.maxZ - local.minZ) * k / GRID;
+					float cx = m.v00 * x + m.v01 * y + m.v02 * z + m.v03;
+					float cy = m.v10 * x + m.v11 * y + m.v12 * z + m.v13;
+					float cz = m.v20 * x + m.v21 * y + m.v22 * z + m.v23;
+					float cw = m.v30 * x + m.v31 * y + m.v32 * z + m.v33;
+					if (cw > 0 && Math.abs(cx) <= cw && Math.abs(cy) <= cw && Math.abs(cz) <= cw) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,74 @@
+package net.chazzvader.core.generic.math;
+
+import net.chazzvader.core.generic.Checks;
+import net.chazzvader.core.generic.engine.object.EngineObject;
+import net.chazzvader.core.generic.engine.object.Light;
+
+/**
+ * Checks that the per frame math doesn't create math objects once it has warmed
+ * up. Runs a few thousand frames of a moving light with a child object, the
+ * same math a frame does for them (shadow view and projection matrices, world
+ * and normal matrices), and fails if {@link MathArena#getCreated()} goes up
+ * after the first frames. If the JVM can count the bytes a thread allocates,
+ * that is checked to stay under a byte per frame as well, so nothing is
+ * allocated every frame.
+ *
+ * @author csbru
+ * @since 1.0
+ * @version 1
+ */
+public class MathAllocationCheck {
+
+	private static final String SOURCE = "Math Allocation Check";
+	private static final int WARMUP_FRAMES = 20000;
+	private static final int FRAMES = 5000;
+
+	/**
+	 * Runs the check.
+	 *
+	 * @param args Ignored.
+	 */
+	public static void main(String[] args) {
+		Light light = new Light(new Vector3f(1, 1, 1), 10);
+		EngineObject child = new EngineObject();
+		child.setParent(light);
+		child.setScale(1, 2, 3);
+		Quaternion spin = new Quaternion();
+
+		MathArena arena = MathArena.get();
+		for (int i = 0; i < WARMUP_FRAMES; i++) {
+			frame(light, child, spin, i);
+		}
+		// Asking for the count allocates a little itself, so that is taken off
+		long overhead = -Checks.allocatedBytes() + Checks.allocatedBytes();
+		long created = arena.getCreated();
+		long bytes = Checks.allocatedBytes();
+		for (int i = 0; i < FRAMES; i++) {
+			frame(light, child, spin, WARMUP_FRAMES + i);
+		}
+		long createdAfter = arena.getCreated() - created;
+		long bytesAfter = bytes == -1 ? -1 : Checks.allocatedBytes() - bytes - overhead;
+
+		Checks.check(createdAfter == 0, FRAMES + " frames created " + createdAfter + " arena objects", SOURCE);
+		Checks.check(arena.getDepth() == 0, "The arena was left " + arena.getDepth() + " scopes deep", SOURCE);
+		// The JVM itself sometimes allocates a few hundred bytes while compiling, an
+		// object made every frame would be at least 16 bytes a frame
+		Checks.check(bytesAfter < FRAMES, FRAMES + " frames allocated " + bytesAfter + " bytes", SOURCE);
+		Checks.report(FRAMES + " frames created " + createdAfter + " arena objects"
+				+ (bytesAfter == -1 ? "" : " and allocated " + bytesAfter + " bytes"), SOURCE);
+		Checks.finish(SOURCE);
+	}
+
+	// The math one frame does for a moving light and its child
+	private static void frame(Light light, EngineObject child, Quaternion spin, int i) {
+		light.setPosition(i % 100, 1, -(i % 37));
+		light.targetDistance = 10 + (i % 3);
+		light.getViewMatrix();
+		light.getProjectionMatrix();
+		spin.transcribe(1, 0, (i % 10) * 0.01f, 0);
+		child.setRotation(spin);
+		child.getWorldMatrix();
+		child.getNormalMatrix();
+	}
+
+}